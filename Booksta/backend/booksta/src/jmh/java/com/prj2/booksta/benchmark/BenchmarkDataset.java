@@ -0,0 +1,341 @@
+package com.prj2.booksta.benchmark;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic dataset for the service benchmarks, written with JDBC batches straight into the
+ * schema Hibernate created. At scale 1: 10k users, 5k authors, 100k books, 200k owned books with
+ * 1M read events and their latest-event rows, 30k books on sale and 30k conversations.
+ * The read models the services query (latest reading state, conversation inbox columns) are
+ * filled in along with the rows they summarize.
+ * User {@link #HOT_USER_ID} is the heavy account: 500 owned books and 500 conversations.
+ */
+public class BenchmarkDataset {
+
+    public static final long HOT_USER_ID = 1L;
+    static final int HOT_USER_BOOKS = 500;
+    static final int HOT_USER_CONVERSATIONS = 500;
+
+    private static final int BATCH = 5_000;
+    private static final int SUBJECTS = 40;
+    private static final int OWNED_PER_USER = 20;
+    private static final int MESSAGES_PER_CONVERSATION = 4;
+    private static final int CONVERSATIONS_PER_USER = 3;
+    private static final String[] EVENT_CYCLE = {
+            "STARTED_READING", "ABANDONED_READING", "RESTARTED_READING", "FINISHED_READING"
+    };
+    private static final String[] WORDS = {
+            "silent", "river", "empire", "shadow", "garden", "winter", "last", "city", "glass", "storm",
+            "night", "ocean", "kingdom", "secret", "golden", "iron", "forest", "memory", "fire", "stone",
+            "house", "star", "broken", "lost", "queen", "road", "distant", "dream", "blood", "light",
+            "history", "summer", "machine", "island", "north", "wild", "paper", "mountain", "song", "war"
+    };
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final JdbcTemplate jdbc;
+    private final Random random = new Random(42);
+
+    final int users;
+    final int authors;
+    final int books;
+    final int readEvents;
+
+    private BenchmarkDataset(DataSource dataSource, double scale) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.users = Math.max(HOT_USER_CONVERSATIONS + 1, (int) (10_000 * scale));
+        this.authors = Math.max(10, (int) (5_000 * scale));
+        this.books = Math.max(HOT_USER_BOOKS, (int) (100_000 * scale));
+        this.readEvents = (int) (1_000_000 * scale);
+    }
+
+    /**
+     * Fills an empty schema. The same scale always produces the same rows.
+     */
+    public static BenchmarkDataset generate(DataSource dataSource, double scale) {
+        BenchmarkDataset dataset = new BenchmarkDataset(dataSource, scale);
+        dataset.insertCatalog();
+        dataset.insertUsers();
+        dataset.insertLibraries();
+        dataset.insertMarketplace();
+        dataset.insertConversations();
+        dataset.jdbc.execute("ANALYZE");
+        return dataset;
+    }
+
+    static String isbn(int book) {
+        return String.format("978%010d", book);
+    }
+
+    /**
+     * A word that appears in about one title in fifteen.
+     */
+    public String titleWord() {
+        return WORDS[7];
+    }
+
+    public long authorId(int index) {
+        return 1 + (index % authors);
+    }
+
+    public long subjectId(int index) {
+        return 1 + (index % SUBJECTS);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PreparedStatement statement, int row) throws SQLException;
+    }
+
+    private void insert(String sql, int rows, RowWriter writer) {
+        for (int from = 0; from < rows; from += BATCH) {
+            int start = from;
+            int size = Math.min(BATCH, rows - from);
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    writer.write(statement, start + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private void insertCatalog() {
+        insert("INSERT INTO subjects (id, name) VALUES (?, ?)", SUBJECTS, (ps, i) -> {
+            ps.setLong(1, i + 1);
+            ps.setString(2, "Subject " + (i + 1));
+        });
+        insert("INSERT INTO authors (id, first_name, last_name) VALUES (?, ?, ?)", authors, (ps, i) -> {
+            ps.setLong(1, i + 1);
+            ps.setString(2, "First" + i);
+            ps.setString(3, "Last" + i);
+        });
+        // One book in four has a cover
+        insert("INSERT INTO image (id, url, status) VALUES (?, ?, 'READY')", books / 4, (ps, i) -> {
+            ps.setLong(1, i + 1);
+            ps.setString(2, "https://images.booksta.test/cover-" + i + ".jpg");
+        });
+        insert("""
+                INSERT INTO book (isbn, title, publishing_year, description, pages, image_id)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, books, (ps, i) -> {
+            ps.setString(1, isbn(i));
+            ps.setString(2, capitalize(word()) + " " + word() + " " + word());
+            ps.setInt(3, 1900 + random.nextInt(125));
+            ps.setString(4, "The " + word() + " and the " + word() + ", book " + i + ".");
+            ps.setLong(5, 80 + random.nextInt(1100));
+            if (i % 4 == 0) {
+                ps.setLong(6, i / 4 + 1);
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+        });
+
+        List<long[]> bookAuthors = new ArrayList<>();
+        List<long[]> bookSubjects = new ArrayList<>();
+        for (int i = 0; i < books; i++) {
+            long first = 1 + random.nextInt(authors);
+            bookAuthors.add(new long[]{i, first});
+            if (random.nextInt(5) == 0) {
+                long second = 1 + random.nextInt(authors);
+                if (second != first) {
+                    bookAuthors.add(new long[]{i, second});
+                }
+            }
+            Set<Long> subjects = new LinkedHashSet<>();
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                subjects.add(1L + random.nextInt(SUBJECTS));
+            }
+            for (long subject : subjects) {
+                bookSubjects.add(new long[]{i, subject});
+            }
+        }
+        insert("INSERT INTO book_authors (book_isbn, authors_id) VALUES (?, ?)", bookAuthors.size(), (ps, i) -> {
+            ps.setString(1, isbn((int) bookAuthors.get(i)[0]));
+            ps.setLong(2, bookAuthors.get(i)[1]);
+        });
+        insert("INSERT INTO book_subjects (book_isbn, subjects_id) VALUES (?, ?)", bookSubjects.size(), (ps, i) -> {
+            ps.setString(1, isbn((int) bookSubjects.get(i)[0]));
+            ps.setLong(2, bookSubjects.get(i)[1]);
+        });
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private void insertUsers() {
+        insert("INSERT INTO users (id, first_name, last_name, email) VALUES (?, ?, ?, ?)", users, (ps, i) -> {
+            ps.setLong(1, i + 1);
+            ps.setString(2, "Reader" + i);
+            ps.setString(3, capitalize(word()));
+            ps.setString(4, "reader" + i + "@booksta.test");
+        });
+    }
+
+    /**
+     * Owned books, then their read events spread evenly over them, each (user, book) ending with
+     * its latest-event row.
+     */
+    private void insertLibraries() {
+        List<long[]> owned = new ArrayList<>();
+        for (int user = 1; user <= users; user++) {
+            int count = user == HOT_USER_ID ? HOT_USER_BOOKS : 1 + random.nextInt(2 * OWNED_PER_USER - 1);
+            Set<Integer> picked = new LinkedHashSet<>();
+            while (picked.size() < count) {
+                picked.add(random.nextInt(books));
+            }
+            for (int book : picked) {
+                owned.add(new long[]{user, book});
+            }
+        }
+        insert("INSERT INTO user_owned_books (user_id, book_isbn) VALUES (?, ?)", owned.size(), (ps, i) -> {
+            ps.setLong(1, owned.get(i)[0]);
+            ps.setString(2, isbn((int) owned.get(i)[1]));
+        });
+
+        int perPair = readEvents / owned.size();
+        int remainder = readEvents % owned.size();
+        // Event e of the whole sequence belongs to pair e / perPair (the first pairs take the remainder)
+        long[] firstEventOfPair = new long[owned.size() + 1];
+        for (int pair = 0; pair < owned.size(); pair++) {
+            firstEventOfPair[pair + 1] = firstEventOfPair[pair] + perPair + (pair < remainder ? 1 : 0);
+        }
+        int[] cursor = {0};
+        insert("""
+                INSERT INTO book_read_event (id, user_id, book_isbn, reading_event, occurred_at)
+                VALUES (?, ?, ?, ?, ?)
+                """, readEvents, (ps, e) -> {
+            while (firstEventOfPair[cursor[0] + 1] <= e) {
+                cursor[0]++;
+            }
+            int pair = cursor[0];
+            int step = (int) (e - firstEventOfPair[pair]);
+            ps.setLong(1, e + 1);
+            ps.setLong(2, owned.get(pair)[0]);
+            ps.setString(3, isbn((int) owned.get(pair)[1]));
+            ps.setString(4, EVENT_CYCLE[step % EVENT_CYCLE.length]);
+            ps.setObject(5, EPOCH.plusHours(pair % 5_000).plusMinutes(step));
+        });
+
+        List<Integer> readPairs = new ArrayList<>();
+        for (int pair = 0; pair < owned.size(); pair++) {
+            if (firstEventOfPair[pair + 1] > firstEventOfPair[pair]) {
+                readPairs.add(pair);
+            }
+        }
+        insert("""
+                INSERT INTO user_book_reading_state (user_id, book_isbn, latest_event_id, reading_event, occurred_at)
+                VALUES (?, ?, ?, ?, ?)
+                """, readPairs.size(), (ps, i) -> {
+            int pair = readPairs.get(i);
+            int step = (int) (firstEventOfPair[pair + 1] - firstEventOfPair[pair] - 1);
+            ps.setLong(1, owned.get(pair)[0]);
+            ps.setString(2, isbn((int) owned.get(pair)[1]));
+            ps.setLong(3, firstEventOfPair[pair + 1]);
+            ps.setString(4, EVENT_CYCLE[step % EVENT_CYCLE.length]);
+            ps.setObject(5, EPOCH.plusHours(pair % 5_000).plusMinutes(step));
+        });
+    }
+
+    /**
+     * 30% of the books, each offered by one to three of the first thousand users.
+     */
+    private void insertMarketplace() {
+        int sellers = Math.max(3, users / 10);
+        List<long[]> stock = new ArrayList<>();
+        for (int book = 0; book < books; book++) {
+            if (random.nextInt(10) < 3) {
+                Set<Integer> bookSellers = new LinkedHashSet<>();
+                for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                    bookSellers.add(1 + random.nextInt(sellers));
+                }
+                for (int seller : bookSellers) {
+                    stock.add(new long[]{seller, book});
+                }
+            }
+        }
+        insert("""
+                INSERT INTO user_book_inventory (user_id, book_isbn, quantity, price_per_unit)
+                VALUES (?, ?, ?, ?)
+                """, stock.size(), (ps, i) -> {
+            ps.setLong(1, stock.get(i)[0]);
+            ps.setString(2, isbn((int) stock.get(i)[1]));
+            ps.setLong(3, 1 + random.nextInt(5));
+            ps.setBigDecimal(4, BigDecimal.valueOf(300 + random.nextInt(3_000), 2));
+        });
+    }
+
+    /**
+     * Each user talks to the next few users; the hot user to the first five hundred. Messages
+     * alternate between the two participants and the last one is unread.
+     */
+    private void insertConversations() {
+        List<long[]> pairs = new ArrayList<>();
+        for (long other = 2; other <= HOT_USER_CONVERSATIONS + 1; other++) {
+            pairs.add(new long[]{HOT_USER_ID, other});
+        }
+        for (long user = 2; user <= users; user++) {
+            for (int k = 1; k <= CONVERSATIONS_PER_USER && user + k <= users; k++) {
+                pairs.add(new long[]{user, user + k});
+            }
+        }
+        LocalDateTime start = EPOCH.toLocalDateTime();
+        insert("""
+                INSERT INTO private_conversation (id, participant1_id, participant2_id, last_message_id,
+                    last_message_preview, last_message_at, participant1_unread_count, participant2_unread_count)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """, pairs.size(), (ps, c) -> {
+            long lastMessageId = (long) (c + 1) * MESSAGES_PER_CONVERSATION;
+            // The last message goes from participant 1 to participant 2
+            ps.setLong(1, c + 1);
+            ps.setLong(2, pairs.get(c)[0]);
+            ps.setLong(3, pairs.get(c)[1]);
+            ps.setLong(4, lastMessageId);
+            ps.setString(5, "Message " + lastMessageId);
+            ps.setTimestamp(6, Timestamp.valueOf(start.plusMinutes(c).plusSeconds(MESSAGES_PER_CONVERSATION)));
+            ps.setLong(7, 0);
+            ps.setLong(8, 1);
+        });
+        insert("""
+                INSERT INTO private_message (id, conversation_id, sender_id, recipient_id, content, sent_at, read_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, pairs.size() * MESSAGES_PER_CONVERSATION, (ps, m) -> {
+            int c = m / MESSAGES_PER_CONVERSATION;
+            int step = m % MESSAGES_PER_CONVERSATION + 1;
+            boolean fromFirst = (MESSAGES_PER_CONVERSATION - step) % 2 == 0;
+            Timestamp sentAt = Timestamp.valueOf(start.plusMinutes(c).plusSeconds(step));
+            ps.setLong(1, m + 1);
+            ps.setLong(2, c + 1);
+            ps.setLong(3, pairs.get(c)[fromFirst ? 0 : 1]);
+            ps.setLong(4, pairs.get(c)[fromFirst ? 1 : 0]);
+            ps.setString(5, "Message " + (m + 1));
+            ps.setTimestamp(6, sentAt);
+            ps.setTimestamp(7, step == MESSAGES_PER_CONVERSATION ? null : sentAt);
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.prj2.booksta.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, benchmark by benchmark (same name, mode and params), and
+ * exits with 1 when one got slower by more than the threshold percentage and beyond both error
+ * margins. Scores in time per operation regress when they grow, throughputs when they shrink.
+ *
+ * mvn -Pbenchmark test-compile exec:exec@compare -Djmh.baseline=target/jmh-abc1234.json
+ *   [-Djmh.result=target/jmh-def5678.json] [-Djmh.threshold=10]
+ */
+public class CompareBenchmarkResults {
+
+    record Score(double value, double error, String unit, boolean higherIsBetter) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareBenchmarkResults <baseline.json> <current.json> [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s%n", entry.getKey(), "-", after.value(), "new");
+                continue;
+            }
+            double change = (after.value() - before.value()) / before.value() * 100;
+            double worse = after.higherIsBetter() ? -change : change;
+            boolean beyondNoise = Math.abs(after.value() - before.value()) > before.error() + after.error();
+            boolean regressed = worse > threshold && beyondNoise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.value(), after.value(),
+                    change, after.unit(), regressed ? "  REGRESSION" : "");
+        }
+
+        System.out.printf("%d regression(s) over %.0f%%%n", regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            // Class.method, without the package
+            String benchmark = run.path("benchmark").asText();
+            String shortName = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            StringBuilder key = new StringBuilder(shortName)
+                    .append(" (").append(run.path("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(", ").append(name).append('=').append(value));
+            key.append(')');
+
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble();
+            scores.put(key.toString(), new Score(
+                    metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error,
+                    metric.path("scoreUnit").asText(),
+                    "thrpt".equals(run.path("mode").asText())));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,86 @@
+package com.prj2.booksta.benchmark;
+
+import com.prj2.booksta.model.Role;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one bearer token.
+ * legacy: a new parser per call and three verifications per request, as before.
+ * parseOnce: the shared parser, one verification per request.
+ * parseCached: the same token seen again, served from the verified-token cache.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.includes=JwtServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "MyUltraSuperSecretJwtKey1234567890!!";
+
+    private Key key;
+    private JwtService uncachedService;
+    private JwtService cachedService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        uncachedService = jwtService(0);
+        cachedService = jwtService(1024);
+
+        Role role = new Role();
+        role.setName("USER");
+        User user = new User();
+        user.setEmail("reader@booksta.com");
+        user.setRoles(Set.of(role));
+        token = cachedService.generateToken(user);
+        cachedService.parse(token);
+    }
+
+    private static JwtService jwtService(int verifiedCacheMaxEntries) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "validityInMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheMaxEntries", verifiedCacheMaxEntries);
+        jwtService.init();
+        return jwtService;
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        // extractEmail, isTokenValid and extractAllClaims each parsed the token again
+        blackhole.consume(legacyClaims().getSubject());
+        blackhole.consume(legacyClaims().getExpiration());
+        blackhole.consume(legacyClaims().get("roles"));
+    }
+
+    @Benchmark
+    public JwtService.TokenClaims parseOnce() {
+        return uncachedService.parse(token);
+    }
+
+    @Benchmark
+    public JwtService.TokenClaims parseCached() {
+        return cachedService.parse(token);
+    }
+}
@@ -0,0 +1,50 @@
+package com.prj2.booksta.benchmark;
+
+import com.prj2.booksta.BookstaApplication;
+import com.prj2.booksta.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+
+/**
+ * The application on an in-memory H2 database filled by {@link BenchmarkDataset}, shared by the
+ * benchmarks of a fork. Seeding the full dataset takes about a minute; -p scale=0.1 gives a
+ * quick run on a tenth of it (the scale is recorded with the results).
+ */
+@State(Scope.Benchmark)
+public class SeededBooksta {
+
+    @Param({"1.0"})
+    public double scale;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkDataset dataset;
+
+    @Setup(Level.Trial)
+    public void start() {
+        // Command-line arguments, which take precedence over application.properties
+        context = new SpringApplicationBuilder(BookstaApplication.class)
+                .run("--server.port=0",
+                        "--spring.sql.init.mode=never",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        dataset = BenchmarkDataset.generate(bean(DataSource.class), scale);
+        // The search and facet indexes were built at startup, from an empty catalog
+        bean(BookService.class).rebuildSearchIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public BenchmarkDataset dataset() {
+        return dataset;
+    }
+}
@@ -0,0 +1,124 @@
+package com.prj2.booksta.benchmark;
+
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.dto.BookFilterRequest;
+import com.prj2.booksta.model.dto.BookWithLatestReadingEvent;
+import com.prj2.booksta.model.dto.ConversationSummary;
+import com.prj2.booksta.model.dto.FacetedBookPage;
+import com.prj2.booksta.model.dto.MarketplaceBookListing;
+import com.prj2.booksta.model.dto.MarketplaceListingPage;
+import com.prj2.booksta.service.BookFacetIndex;
+import com.prj2.booksta.service.BookService;
+import com.prj2.booksta.service.MarketplaceService;
+import com.prj2.booksta.service.PrivateMessagingService;
+import com.prj2.booksta.service.UserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.prj2.booksta.benchmark.BenchmarkDataset.HOT_USER_ID;
+
+/**
+ * Service calls behind the busiest pages, against the seeded dataset (see {@link SeededBooksta}):
+ * book filtering (faceted or not), the marketplace listing, the conversation inbox and the reading list.
+ * The heavy user owns 500 books and has 500 conversations.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.includes=ServiceHotPathBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ServiceHotPathBenchmark {
+
+    private BookService bookService;
+    private BookFacetIndex bookFacetIndex;
+    private MarketplaceService marketplaceService;
+    private PrivateMessagingService messagingService;
+    private UserService userService;
+
+    private BookFilterRequest byYearAndPages;
+    private BookFilterRequest bySubjectAndYear;
+    private BookFilterRequest byTitle;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededBooksta booksta) {
+        bookService = booksta.bean(BookService.class);
+        bookFacetIndex = booksta.bean(BookFacetIndex.class);
+        marketplaceService = booksta.bean(MarketplaceService.class);
+        messagingService = booksta.bean(PrivateMessagingService.class);
+        userService = booksta.bean(UserService.class);
+
+        BenchmarkDataset dataset = booksta.dataset();
+        byYearAndPages = new BookFilterRequest(null, 2000, 2005, 200L, 400L, null, null);
+        bySubjectAndYear = new BookFilterRequest(null, 2010, null, null, null, null, List.of(dataset.subjectId(3)));
+        byTitle = new BookFilterRequest(dataset.titleWord(), 1950, null, null, null, null, null);
+
+        // A benchmark over an empty result measures nothing
+        require(!bookService.filterBooks(bySubjectAndYear).isEmpty(), "filterBooks");
+        require(bookFacetIndex.search(bySubjectAndYear, null, 0, 20).total() > 0, "BookFacetIndex.search");
+        require(userService.getOwnedBooksWithLatestReadingEvent(HOT_USER_ID).size() == BenchmarkDataset.HOT_USER_BOOKS,
+                "getOwnedBooksWithLatestReadingEvent");
+        require(messagingService.listConversations(HOT_USER_ID).size() == BenchmarkDataset.HOT_USER_CONVERSATIONS,
+                "listConversations");
+        require(!marketplaceService.getAllBooksWithMarketplaceData(true).isEmpty(), "getAllBooksWithMarketplaceData");
+    }
+
+    private static void require(boolean condition, String benchmark) {
+        if (!condition) {
+            throw new IllegalStateException("The seeded dataset gives " + benchmark + " nothing to do");
+        }
+    }
+
+    @Benchmark
+    public List<Book> filterBooksByYearAndPages() {
+        return bookService.filterBooks(byYearAndPages);
+    }
+
+    @Benchmark
+    public List<Book> filterBooksBySubjectAndYear() {
+        return bookService.filterBooks(bySubjectAndYear);
+    }
+
+    @Benchmark
+    public List<Book> filterBooksByTitle() {
+        return bookService.filterBooks(byTitle);
+    }
+
+    @Benchmark
+    public FacetedBookPage filterBooksFacetedBySubjectAndYear() {
+        return bookService.filterBooksFaceted(bySubjectAndYear, 2, 20);
+    }
+
+    /**
+     * The index alone: matches, facet counts and the ISBNs of the page, without loading the books.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BookFacetIndex.FacetedIsbns facetIndexBySubjectAndYear() {
+        return bookFacetIndex.search(bySubjectAndYear, null, 40, 20);
+    }
+
+    @Benchmark
+    public List<MarketplaceBookListing> marketplaceAllInStock() {
+        return marketplaceService.getAllBooksWithMarketplaceData(true);
+    }
+
+    @Benchmark
+    public MarketplaceListingPage marketplacePage() {
+        return marketplaceService.getMarketplaceListings(true, 50, 20);
+    }
+
+    @Benchmark
+    public List<ConversationSummary> listConversations() {
+        return messagingService.listConversations(HOT_USER_ID);
+    }
+
+    @Benchmark
+    public List<BookWithLatestReadingEvent> ownedBooksWithLatestReadingEvent() {
+        return userService.getOwnedBooksWithLatestReadingEvent(HOT_USER_ID);
+    }
+}
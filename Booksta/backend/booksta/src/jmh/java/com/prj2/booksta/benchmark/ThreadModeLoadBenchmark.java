@@ -0,0 +1,112 @@
+package com.prj2.booksta.benchmark;
+
+import com.prj2.booksta.BookstaApplication;
+import jakarta.servlet.Filter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the running application with Tomcat on platform threads, then on virtual
+ * threads (spring.threads.virtual.enabled). Every request first waits on simulated downstream
+ * I/O, standing in for an S3 or Google call, then reads a catalog page from the database:
+ * the pattern that exhausts Tomcat's 200 platform threads. Throughput gives requests per
+ * millisecond; SampleTime gives the latency percentiles (p0.99 is the p99).
+ * Non-200 responses (503 from the virtual-mode request limiter) are counted in errors.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.includes=ThreadModeLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(400)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ThreadModeLoadBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    // Time each request spends waiting on the simulated remote call
+    @Param({"50"})
+    public long ioDelayMs;
+
+    // Rendering a catalog page is CPU work: on a machine with few cores, a smaller page keeps
+    // the comparison about waiting threads rather than processor time
+    @Param({"/api/books/catalog?limit=20"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void start() {
+        // Command-line arguments: default properties would lose to application.properties
+        context = new SpringApplicationBuilder(BookstaApplication.class)
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean(
+                        "simulatedRemoteCall", FilterRegistrationBean.class, () -> simulatedRemoteCall(ioDelayMs)))
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    private static FilterRegistrationBean<Filter> simulatedRemoteCall(long delayMs) {
+        Filter filter = (servletRequest, servletResponse, chain) -> {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            chain.doFilter(servletRequest, servletResponse);
+        };
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/books/catalog");
+        return registration;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Responses {
+        public long errors;
+    }
+
+    @Benchmark
+    public int catalogPage(Responses responses) throws Exception {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            responses.errors++;
+        }
+        return status;
+    }
+}
@@ -0,0 +1,42 @@
+package com.prj2.booksta.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers work on in-memory state (caches, indexes, pushes) until the current transaction commits,
+ * so a concurrent reader never rebuilds that state from data that is not committed yet.
+ * Outside a transaction the work runs at once.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        run(action, () -> { });
+    }
+
+    /**
+     * Runs action once the transaction commits, or onRollback if it does not.
+     */
+    public static void run(Runnable action, Runnable onRollback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        onRollback.run();
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.prj2.booksta.config;
 
-import com.prj2.booksta.repository.AuthorRepository;
+import com.prj2.booksta.config.AuthorizationDecisionCache.Check;
 import com.prj2.booksta.repository.BookRepository;
-import com.prj2.booksta.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,13 +11,10 @@ import org.springframework.stereotype.Component;
 public class AuthorAccessChecker {
 
     @Autowired
-    private AuthorRepository authorRepository;
+    private BookRepository bookRepository;
 
     @Autowired
-    private UserService userService;
-
-    @Autowired
-    private BookRepository bookRepository;
+    private AuthorizationDecisionCache decisionCache;
 
     public boolean isAuthorOfBook(Authentication authentication, String isbn) {
         if (authentication == null || isbn == null) {
@@ -28,13 +24,9 @@ public class AuthorAccessChecker {
         Object principal = authentication.getPrincipal();
 
         if (principal instanceof UserDetails userDetails) {
-            Long authenticatedUserId = userService.getUserByEmail(userDetails.getUsername()).getId();
-
-            return bookRepository.findById(isbn)
-                    .map(book -> book.getAuthors().stream()
-                            .anyMatch(author -> author.getUser() != null
-                                    && author.getUser().getId().equals(authenticatedUserId)))
-                    .orElse(false);
+            String email = userDetails.getUsername();
+            return decisionCache.decide(email, Check.AUTHOR_OF_BOOK, isbn,
+                    () -> bookRepository.isAuthoredBy(isbn, email));
         }
 
         return false;
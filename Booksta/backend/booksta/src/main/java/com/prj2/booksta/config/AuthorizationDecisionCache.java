@@ -0,0 +1,183 @@
+package com.prj2.booksta.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Short-lived cache of method-security decisions (owns this book, is its author...), per user,
+ * so a guarded endpoint called repeatedly does not repeat the same lookups.
+ * Mutations that can change a decision invalidate it once their transaction commits;
+ * the TTL bounds how stale anything missed can be.
+ */
+@Component
+public class AuthorizationDecisionCache {
+
+    public enum Check {
+        OWNS_BOOK,
+        READS_BOOK,
+        AUTHOR_OF_BOOK,
+        AUTHOR_OF_SERIES
+    }
+
+    private record Key(Check check, Object resource) {}
+
+    private record Decision(boolean allowed, long expiresAt) {}
+
+    private final int maxSubjects;
+    private final long ttlMs;
+    private final Clock clock;
+
+    // subject -> its decisions, least recently used subject evicted first
+    private final LinkedHashMap<String, Map<Key, Decision>> decisions;
+
+    // Bumped by every invalidation, so a decision computed while one ran is not stored
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public AuthorizationDecisionCache(MeterRegistry meterRegistry,
+                                      @Value("${security.decision-cache.max-subjects:10000}") int maxSubjects,
+                                      @Value("${security.decision-cache.ttl:30000}") long ttlMs) {
+        this(meterRegistry, maxSubjects, ttlMs, Clock.systemUTC());
+    }
+
+    AuthorizationDecisionCache(MeterRegistry meterRegistry, int maxSubjects, long ttlMs, Clock clock) {
+        this.maxSubjects = maxSubjects;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        this.decisions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Key, Decision>> eldest) {
+                return size() > AuthorizationDecisionCache.this.maxSubjects;
+            }
+        };
+        this.hits = Counter.builder("booksta.security.decisions").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("booksta.security.decisions").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("booksta.security.decisions.subjects", this, AuthorizationDecisionCache::size)
+                .description("Users with cached authorization decisions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached decision of the subject for this check and resource, or the freshly computed one.
+     */
+    public boolean decide(String subject, Check check, Object resource, BooleanSupplier decision) {
+        if (subject == null || ttlMs <= 0 || maxSubjects <= 0) {
+            return decision.getAsBoolean();
+        }
+        Key key = new Key(check, resource);
+        long seenGeneration;
+        synchronized (decisions) {
+            Map<Key, Decision> subjectDecisions = decisions.get(subject);
+            Decision cached = subjectDecisions != null ? subjectDecisions.get(key) : null;
+            if (cached != null && cached.expiresAt() > clock.millis()) {
+                hits.increment();
+                return cached.allowed();
+            }
+            seenGeneration = generation;
+        }
+
+        misses.increment();
+        boolean allowed = decision.getAsBoolean();
+
+        synchronized (decisions) {
+            if (generation == seenGeneration) {
+                decisions.computeIfAbsent(subject, s -> new HashMap<>())
+                        .put(key, new Decision(allowed, clock.millis() + ttlMs));
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Forgets every decision of the subject, e.g. after their library or roles changed.
+     */
+    public void invalidateSubject(String subject) {
+        AfterCommit.run(() -> {
+            synchronized (decisions) {
+                generation++;
+                decisions.remove(subject);
+            }
+        });
+    }
+
+    public void invalidate(String subject, Check check, Object resource) {
+        Key key = new Key(check, resource);
+        AfterCommit.run(() -> {
+            synchronized (decisions) {
+                generation++;
+                Map<Key, Decision> subjectDecisions = decisions.get(subject);
+                if (subjectDecisions != null) {
+                    subjectDecisions.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forgets the decision of every subject for this check and resource, e.g. after a book's
+     * authors changed.
+     */
+    public void invalidateResource(Check check, Object resource) {
+        Key key = new Key(check, resource);
+        AfterCommit.run(() -> {
+            synchronized (decisions) {
+                generation++;
+                decisions.values().forEach(subjectDecisions -> subjectDecisions.remove(key));
+            }
+        });
+    }
+
+    /**
+     * Forgets the decisions of every subject for these checks on all of these resources, under one
+     * lock and one pass over the subjects, e.g. after a batch of books was deleted.
+     */
+    public void invalidateResources(Collection<Check> checks, Collection<?> resources) {
+        Set<Key> keys = new HashSet<>();
+        for (Check check : checks) {
+            for (Object resource : resources) {
+                keys.add(new Key(check, resource));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            synchronized (decisions) {
+                generation++;
+                decisions.values().forEach(subjectDecisions -> subjectDecisions.keySet().removeAll(keys));
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        AfterCommit.run(() -> {
+            synchronized (decisions) {
+                generation++;
+                decisions.clear();
+            }
+        });
+    }
+
+    public int size() {
+        synchronized (decisions) {
+            return decisions.size();
+        }
+    }
+
+}
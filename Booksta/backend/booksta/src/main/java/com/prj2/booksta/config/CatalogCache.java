@@ -0,0 +1,103 @@
+package com.prj2.booksta.config;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Series;
+import com.prj2.booksta.model.dto.CacheRegionStats;
+import com.prj2.booksta.model.dto.CatalogCacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.cache.spi.DomainDataRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.Region;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Explicit evictions from, and statistics of, the catalog's second-level cache
+ * (regions declared in hibernate-cache.conf).
+ * Hibernate already updates cached rows written through the persistence context; these
+ * evictions make sure the rows a catalog mutation touched are reloaded from the database,
+ * whatever path the write took. They run once the transaction commits, so a concurrent
+ * read cannot put the old state back in between.
+ */
+@Component
+public class CatalogCache {
+
+    private static final String BOOK_AUTHORS = Book.class.getName() + ".authors";
+    private static final String BOOK_SUBJECTS = Book.class.getName() + ".subjects";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public CatalogCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * Drops the books and their author and subject links.
+     */
+    public void evictBooks(Collection<String> isbns) {
+        List<String> targets = List.copyOf(isbns);
+        AfterCommit.run(() -> {
+            Cache cache = sessionFactory.getCache();
+            for (String isbn : targets) {
+                cache.evictEntityData(Book.class, isbn);
+                cache.evictCollectionData(BOOK_AUTHORS, isbn);
+                cache.evictCollectionData(BOOK_SUBJECTS, isbn);
+            }
+        });
+    }
+
+    public void evictBook(String isbn) {
+        evictBooks(List.of(isbn));
+    }
+
+    public void evictAuthor(Long authorId) {
+        AfterCommit.run(() -> sessionFactory.getCache().evictEntityData(Author.class, authorId));
+    }
+
+    public void evictSeries(Long seriesId) {
+        AfterCommit.run(() -> sessionFactory.getCache().evictEntityData(Series.class, seriesId));
+    }
+
+    public CatalogCacheStats stats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<CacheRegionStats> regions = new ArrayList<>();
+        for (String region : sortedRegionNames(statistics)) {
+            Region cacheRegion = sessionFactory.getCache().getRegion(region);
+            CacheRegionStatistics regionStats;
+            if (cacheRegion instanceof DomainDataRegion) {
+                regionStats = statistics.getDomainDataRegionStatistics(region);
+            } else if (cacheRegion instanceof QueryResultsRegion) {
+                regionStats = statistics.getQueryRegionStatistics(region);
+            } else {
+                // The update timestamps region has no hit statistics of its own
+                continue;
+            }
+            long hits = regionStats.getHitCount();
+            long misses = regionStats.getMissCount();
+            regions.add(new CacheRegionStats(
+                    region,
+                    hits,
+                    misses,
+                    regionStats.getPutCount(),
+                    hits + misses > 0 ? (double) hits / (hits + misses) : null
+            ));
+        }
+        return new CatalogCacheStats(statistics.isStatisticsEnabled(), regions);
+    }
+
+    private static String[] sortedRegionNames(Statistics statistics) {
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+        return names;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.prj2.booksta.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource in a proxy that reports every statement and connection
+ * checkout to {@link SqlStatementTracker}. The proxy unwraps to the Hikari pool, so the pool
+ * metrics and the virtual-thread request limiter still see it.
+ */
+@Component
+public class DataSourceProxyPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            SqlStatementTracker tracker = new SqlStatementTracker();
+            return ProxyDataSourceBuilder.create(beanName, dataSource)
+                    .listener(tracker)
+                    .methodListener(tracker)
+                    .build();
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,35 @@
+package com.prj2.booksta.config;
+
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Tags http.server.requests with the controller method that served the request
+ * (handler=BookController.getCatalog), so latency histograms can be read per endpoint.
+ */
+@Component
+public class HandlerObservationConvention extends DefaultServerRequestObservationConvention {
+
+    static final String NO_HANDLER = "none";
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and("handler", handlerName(context.getCarrier()));
+    }
+
+    /**
+     * The controller method Spring MVC dispatched the request to, or "none" (static resources,
+     * unmapped paths, requests rejected before dispatch).
+     */
+    static String handlerName(HttpServletRequest request) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            return handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+        }
+        return NO_HANDLER;
+    }
+}
@@ -1,13 +1,17 @@
 package com.prj2.booksta.config;
 
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.prj2.booksta.repository.UserRepository;
 import com.prj2.booksta.service.CustomUserDetailsService;
 import com.prj2.booksta.service.JwtService;
 
@@ -20,24 +24,58 @@ public class JwtAuthenticationProvider implements AuthenticationProvider {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private JwtPrincipalCache principalCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
 
         String token = (String) authentication.getCredentials();
-        String email = jwtService.extractEmail(token);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        UserDetails cached = principalCache.get(token);
+        if (cached != null) {
+            return new JwtAuthenticationToken(cached, cached.getAuthorities());
+        }
 
-        if (!jwtService.isTokenValid(token, userDetails)) {
-            throw new BadCredentialsException("Invalid JWT Token");
+        // Signature and expiry are verified here, once
+        JwtService.TokenClaims claims;
+        try {
+            claims = jwtService.parse(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid JWT Token", e);
         }
 
+        String email = claims.subject();
+        long generation = principalCache.generation();
+        UserDetails userDetails = canTrustRolesClaim(claims)
+                ? fromClaims(claims)
+                : userDetailsService.loadUserByUsername(email);
+
+        principalCache.put(token, userDetails, claims.expiresAt(), generation);
+
         return new JwtAuthenticationToken(
                 userDetails,
                 userDetails.getAuthorities()
         );
     }
 
+    private boolean canTrustRolesClaim(JwtService.TokenClaims claims) {
+        // Read from the database, so a role change made through another instance is seen too
+        return principalCache.canTrustRolesClaim(claims.issuedAt(),
+                userRepository.findRolesChangedAtByEmail(claims.subject()).orElse(null));
+    }
+
+    private UserDetails fromClaims(JwtService.TokenClaims claims) {
+        return User.withUsername(claims.subject())
+                .password("")
+                .authorities(claims.roles().stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role)).toList())
+                .build();
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return JwtAuthenticationToken.class.isAssignableFrom(authentication);
@@ -0,0 +1,133 @@
+package com.prj2.booksta.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of principals already authenticated from a bearer token, so repeated requests
+ * with the same token skip JWT parsing and the user lookup.
+ * Entries expire with the token or after the configured TTL, whichever comes first.
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private record Entry(UserDetails principal, long expiresAt) {}
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Clock clock;
+
+    // Role changes made before users.roles_changed_at existed are not recorded, so the claims of
+    // tokens issued before this instance started are not trusted
+    private final long startedAt;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped by every invalidation, so a principal loaded while one ran is not stored
+    private long generation;
+
+    @Autowired
+    public JwtPrincipalCache(@Value("${jwt.principal-cache.max-entries:10000}") int maxEntries,
+                             @Value("${jwt.principal-cache.ttl:300000}") long ttlMs) {
+        this(maxEntries, ttlMs, Clock.systemUTC());
+    }
+
+    JwtPrincipalCache(int maxEntries, long ttlMs, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        this.startedAt = clock.millis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > JwtPrincipalCache.this.maxEntries;
+            }
+        };
+    }
+
+    public UserDetails get(String token) {
+        synchronized (entries) {
+            Entry entry = entries.get(token);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() <= clock.millis()) {
+                entries.remove(token);
+                return null;
+            }
+            return entry.principal();
+        }
+    }
+
+    /**
+     * To read before resolving a principal, and pass back to {@link #put}.
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Caches the principal, unless an invalidation ran since seenGeneration was read:
+     * its authorities may then come from roles that have just changed.
+     */
+    public void put(String token, UserDetails principal, Date tokenExpiration, long seenGeneration) {
+        long expiresAt = clock.millis() + ttlMs;
+        if (tokenExpiration != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiration.getTime());
+        }
+        synchronized (entries) {
+            if (generation == seenGeneration) {
+                entries.put(token, new Entry(principal, expiresAt));
+            }
+        }
+    }
+
+    /**
+     * Whether the roles claim of a token can be used as-is for its authorities, given the
+     * user's last role change as stored in the database (shared by every instance).
+     * Tokens minted before that change, or before this instance started, must be checked
+     * against the database instead.
+     */
+    public boolean canTrustRolesClaim(Date issuedAt, Instant rolesChangedAt) {
+        if (issuedAt == null || issuedAt.getTime() <= startedAt) {
+            return false;
+        }
+        return rolesChangedAt == null || issuedAt.getTime() > rolesChangedAt.toEpochMilli();
+    }
+
+    /**
+     * Once the current transaction commits, drops every cached principal of the subject held by
+     * this instance. Before the commit, a concurrent request would reload the old roles from the
+     * database and cache them again. Other instances keep theirs until the TTL expires.
+     */
+    public void invalidateSubject(String subject) {
+        AfterCommit.run(() -> {
+            synchronized (entries) {
+                generation++;
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().principal().getUsername().equals(subject)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        });
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
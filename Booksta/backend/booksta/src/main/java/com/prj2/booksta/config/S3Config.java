@@ -7,6 +7,7 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
 
@@ -43,4 +44,26 @@ public class S3Config {
 
         return builder.build();
     }
+
+    /**
+     * Signs GET URLs so clients download images straight from the bucket.
+     */
+    @Bean
+    public S3Presigner s3Presigner() {
+        if (accessKey.isEmpty() || secretKey.isEmpty()) {
+            return null;
+        }
+
+        var builder = S3Presigner.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(accessKey, secretKey)
+                ))
+                .region(Region.of(region.equals("auto") ? "us-east-1" : region));
+
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+
+        return builder.build();
+    }
 }
@@ -74,6 +74,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/refresh").permitAll()
                         .requestMatchers("/api/auth/logout").permitAll()
                         .requestMatchers("/api/auth/me").authenticated()
+                        .requestMatchers("/api/users/me/**").authenticated()
                         .requestMatchers("/api/books/{isbn}/reports").authenticated()
                         .requestMatchers("/api/inventory/**").hasRole("SELLER")
                         .requestMatchers("/api/marketplace/**").authenticated()
@@ -104,6 +105,9 @@ public class SecurityConfig {
 
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
 
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                         .anyRequest().permitAll()
                 )
 
@@ -1,6 +1,7 @@
 package com.prj2.booksta.config;
 
-import com.prj2.booksta.service.SeriesService;
+import com.prj2.booksta.config.AuthorizationDecisionCache.Check;
+import com.prj2.booksta.repository.SeriesRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -10,7 +11,10 @@ import org.springframework.stereotype.Component;
 public class SeriesAccessChecker {
 
     @Autowired
-    private SeriesService seriesService;
+    private SeriesRepository seriesRepository;
+
+    @Autowired
+    private AuthorizationDecisionCache decisionCache;
 
     public boolean isAuthorOfSeries(Authentication authentication, Long seriesId) {
         if (authentication == null || seriesId == null) {
@@ -20,7 +24,9 @@ public class SeriesAccessChecker {
         Object principal = authentication.getPrincipal();
 
         if (principal instanceof UserDetails userDetails) {
-            return seriesService.isAuthorOfSeries(userDetails.getUsername(), seriesId);
+            String email = userDetails.getUsername();
+            return decisionCache.decide(email, Check.AUTHOR_OF_SERIES, seriesId,
+                    () -> seriesRepository.isAuthoredBy(seriesId, email));
         }
 
         return false;
@@ -0,0 +1,140 @@
+package com.prj2.booksta.config;
+
+import com.prj2.booksta.config.SqlStatementTracker.SqlUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records, per controller method, how many SQL statements each request ran, how long they
+ * took and how long the request waited for pooled connections; then checks the count against
+ * the method's SQL budget. A budget set on a controller (sql.budget.limits[BookController])
+ * applies to all of its methods that have none of their own. Over budget, the request is
+ * logged and counted, and kept in a list tests can assert on when sql.budget.record-violations
+ * is set: the check runs once the response is written, too late to fail the request.
+ * Wraps the security chain, whose token and user lookups count toward the request.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 2)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+    private static final String HANDLER = "handler";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Integer> limits;
+    private final int defaultLimit;
+    private final boolean recordViolations;
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+    public SqlBudgetFilter(MeterRegistry meterRegistry,
+                           Environment environment,
+                           @Value("${sql.budget.default:0}") int defaultLimit,
+                           @Value("${sql.budget.record-violations:false}") boolean recordViolations) {
+        this.meterRegistry = meterRegistry;
+        this.limits = Binder.get(environment)
+                .bind("sql.budget.limits", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+        this.defaultLimit = defaultLimit;
+        this.recordViolations = recordViolations;
+    }
+
+    /**
+     * Statements allowed for a handler: its own budget, else its controller's, else the default.
+     * 0 means unlimited.
+     */
+    public int budgetOf(String handler) {
+        Integer limit = limits.get(handler);
+        if (limit == null) {
+            limit = limits.get(handler.substring(0, Math.max(handler.indexOf('.'), 0)));
+        }
+        return limit != null ? limit : defaultLimit;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementTracker.begin();
+        SqlUsage usage;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            usage = SqlStatementTracker.end();
+        }
+
+        String handler = HandlerObservationConvention.handlerName(request);
+        if (HandlerObservationConvention.NO_HANDLER.equals(handler)) {
+            return;
+        }
+        record(handler, usage);
+
+        int budget = budgetOf(handler);
+        if (budget > 0 && usage.statements() > budget) {
+            Counter.builder("booksta.sql.budget.exceeded")
+                    .tag(HANDLER, handler)
+                    .register(meterRegistry)
+                    .increment();
+            String message = String.format("SQL budget exceeded: %s ran %d statements (budget %d) for %s %s",
+                    handler, usage.statements(), budget, request.getMethod(), request.getRequestURI());
+            if (recordViolations) {
+                violations.add(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    /**
+     * The requests over budget since the last call, when sql.budget.record-violations is set.
+     */
+    public List<String> drainViolations() {
+        List<String> drained = new ArrayList<>();
+        for (String violation; (violation = violations.poll()) != null; ) {
+            drained.add(violation);
+        }
+        return drained;
+    }
+
+    private void record(String handler, SqlUsage usage) {
+        DistributionSummary.builder("booksta.http.sql.statements")
+                .description("SQL statements run by one request")
+                .tag(HANDLER, handler)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(500.0)
+                .register(meterRegistry)
+                .record(usage.statements());
+        Timer.builder("booksta.http.sql.time")
+                .description("Time one request spent executing SQL statements")
+                .tag(HANDLER, handler)
+                .register(meterRegistry)
+                .record(usage.queryNanos(), TimeUnit.NANOSECONDS);
+        Timer.builder("booksta.http.connection.wait")
+                .description("Time one request spent waiting for pooled connections")
+                .tag(HANDLER, handler)
+                .register(meterRegistry)
+                .record(usage.connectionWaitNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,90 @@
+package com.prj2.booksta.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Counts the JDBC statements run on the current thread between {@link #begin()} and
+ * {@link #end()}, with their execution time and the time spent waiting for a pooled connection.
+ * Fed by the DataSource proxy; statements run outside a tracked request (scheduled jobs,
+ * upload workers) are not counted. A JDBC batch counts as one statement: one round-trip.
+ */
+public class SqlStatementTracker implements QueryExecutionListener, MethodExecutionListener {
+
+    public record SqlUsage(int statements, long queryNanos, long connectionWaitNanos) {}
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+    private static final String STARTED_AT = "booksta.startedAt";
+
+    private static final class Counts {
+        int statements;
+        long queryNanos;
+        long connectionWaitNanos;
+    }
+
+    public static void begin() {
+        CURRENT.set(new Counts());
+    }
+
+    /**
+     * Stops tracking the current thread and returns what it ran since {@link #begin()}.
+     */
+    public static SqlUsage end() {
+        Counts counts = CURRENT.get();
+        CURRENT.remove();
+        return counts == null
+                ? new SqlUsage(0, 0, 0)
+                : new SqlUsage(counts.statements, counts.queryNanos, counts.connectionWaitNanos);
+    }
+
+    static void recordStatement(long nanos) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+            counts.queryNanos += nanos;
+        }
+    }
+
+    static void recordConnectionWait(long nanos) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.connectionWaitNanos += nanos;
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // The proxy's own stopwatch only has millisecond precision
+        execInfo.addCustomValue(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        recordStatement(System.nanoTime() - execInfo.getCustomValue(STARTED_AT, Long.class));
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        if (isGetConnection(executionContext)) {
+            executionContext.addCustomValue(STARTED_AT, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (isGetConnection(executionContext)) {
+            recordConnectionWait(System.nanoTime() - executionContext.getCustomValue(STARTED_AT, Long.class));
+        }
+    }
+
+    private static boolean isGetConnection(MethodExecutionContext executionContext) {
+        return executionContext.getTarget() instanceof DataSource
+                && "getConnection".equals(executionContext.getMethod().getName());
+    }
+}
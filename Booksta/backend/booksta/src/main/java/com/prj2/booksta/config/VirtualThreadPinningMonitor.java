@@ -0,0 +1,89 @@
+package com.prj2.booksta.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that blocked while pinned to their carrier thread (in JDK 21, when
+ * blocking inside synchronized or a native frame) for longer than the threshold. Every
+ * occurrence is counted; the stack is logged once per call site. Listens to the JDK's own
+ * jdk.VirtualThreadPinned event in-process, so no JVM flag is needed.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final int LOGGED_FRAMES = 12;
+
+    private final RecordingStream stream;
+    private final Counter pinned;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${threads.virtual.pinning-threshold:20}") long thresholdMs) {
+        this.pinned = Counter.builder("booksta.threads.pinned")
+                .description("Virtual threads blocked while pinned to their carrier")
+                .register(meterRegistry);
+        this.stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    public double pinnedCount() {
+        return pinned.count();
+    }
+
+    void onPinned(RecordedEvent event) {
+        pinned.increment();
+        List<RecordedFrame> frames = event.getStackTrace() == null
+                ? List.of()
+                : event.getStackTrace().getFrames();
+        if (reportedSites.add(callSite(frames))) {
+            log.warn("Virtual thread pinned for {} ms:\n\t{}",
+                    event.getDuration().toMillis(),
+                    frames.stream().limit(LOGGED_FRAMES).map(VirtualThreadPinningMonitor::format)
+                            .collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    /**
+     * The first frame outside the JDK, where the application entered the pinned section.
+     */
+    private static String callSite(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(VirtualThreadPinningMonitor::format)
+                .filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk.") && !frame.startsWith("sun."))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : format(frames.get(0)));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.prj2.booksta.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the requests handled at once when they run on virtual threads. With platform threads
+ * Tomcat's pool is that cap; virtual threads are unbounded, so a burst would otherwise park
+ * thousands of requests on the connection pool until they all time out. Requests over the
+ * limit wait up to the queue timeout, then get a 503 with Retry-After.
+ * The permit covers the synchronous part of the request only: an SSE stream holds none.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class VirtualThreadRequestLimiter extends OncePerRequestFilter {
+
+    // One request per connection plus one doing non-database work (S3, Google, serialization)
+    // meanwhile: more would only queue inside Hikari, where the wait is not bounded by the
+    // queue timeout and ends in a connection timeout instead of a quick 503
+    static final int REQUESTS_PER_CONNECTION = 2;
+    private static final int FALLBACK_POOL_SIZE = 10;
+
+    private final Semaphore permits;
+    private final int limit;
+    private final long queueTimeoutMs;
+    private final Counter rejected;
+
+    public VirtualThreadRequestLimiter(DataSource dataSource,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${threads.virtual.max-concurrent-requests:0}") int maxConcurrentRequests,
+                                       @Value("${threads.virtual.queue-timeout:2000}") long queueTimeoutMs) {
+        this.limit = maxConcurrentRequests > 0
+                ? maxConcurrentRequests
+                : REQUESTS_PER_CONNECTION * poolSize(dataSource);
+        this.permits = new Semaphore(limit, true);
+        this.queueTimeoutMs = queueTimeoutMs;
+
+        Gauge.builder("booksta.requests.active", permits, p -> limit - p.availablePermits())
+                .description("Requests holding a virtual-thread concurrency permit")
+                .register(meterRegistry);
+        Gauge.builder("booksta.requests.waiting", permits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("booksta.requests.rejected")
+                .description("Requests turned away after waiting queue-timeout for a permit")
+                .register(meterRegistry);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            // Not a Hikari pool: fall back to its default size
+        }
+        return FALLBACK_POOL_SIZE;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // An overloaded instance is still alive
+        return request.getRequestURI().startsWith("/actuator/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy, retry shortly");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.prj2.booksta.controller;
 
+import com.prj2.booksta.config.CatalogCache;
 import com.prj2.booksta.model.Role;
+import com.prj2.booksta.model.dto.BookImportResult;
+import com.prj2.booksta.model.dto.CatalogCacheStats;
 import com.prj2.booksta.model.dto.UserAdminResponse;
+import com.prj2.booksta.service.BookImportService;
 import com.prj2.booksta.service.RoleService;
 import com.prj2.booksta.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +32,12 @@ public class AdminController {
     @Autowired
     private RoleService roleService;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private BookImportService bookImportService;
+
     /**
      * Get all users with their roles
      */
@@ -45,6 +59,28 @@ public class AdminController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Hits, misses and puts of each second-level cache region since startup
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<CatalogCacheStats> getCacheStats() {
+        return ResponseEntity.ok(catalogCache.stats());
+    }
+
+    /**
+     * Bulk import of books, streamed from a CSV file (text/csv, header line required) or a
+     * JSON array (application/json). Existing ISBNs are skipped, invalid rows reported.
+     */
+    @PostMapping(value = "/books/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BookImportResult> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        BookImportResult result = MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                ? bookImportService.importJson(body)
+                : bookImportService.importCsv(body);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Get all available roles
      */
@@ -5,7 +5,6 @@ import com.prj2.booksta.model.Image;
 import com.prj2.booksta.model.dto.AuthorDetailResponse;
 import com.prj2.booksta.model.dto.UpdateAuthor;
 import com.prj2.booksta.service.AuthorService;
-import com.prj2.booksta.service.FileStorageService;
 import com.prj2.booksta.service.ImageService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,9 +24,6 @@ public class AuthorController {
     @Autowired
     private AuthorService authorService;
 
-    @Autowired
-    private FileStorageService fileStorageService;
-
     @Autowired
     private ImageService imageService;
 
@@ -49,19 +45,13 @@ public class AuthorController {
             @RequestPart(name = "image", required = false) MultipartFile file,
             @RequestPart(name = "imageUrl", required = false) String imageUrl
     ) throws IOException {
-        Author savedAuthor = authorService.save(author);
-        Image picture = null;
-
         if (file != null && !file.isEmpty()) {
-            picture = new Image();
-            picture.setUrl(fileStorageService.saveAuthorImage(file, savedAuthor.getId()));
-        } else if (imageUrl != null && !imageUrl.isBlank()) {
-            picture = new Image();
-            picture.setUrl(imageUrl);
+            return authorService.saveWithImage(author, file);
         }
 
-        if (picture != null) {
-            Image img = imageService.createImage(picture);
+        Author savedAuthor = authorService.save(author);
+        if (imageUrl != null && !imageUrl.isBlank()) {
+            Image img = imageService.createImage(new Image(imageUrl));
             savedAuthor.setImage(img);
         }
 
@@ -86,13 +76,7 @@ public class AuthorController {
         }
 
         if (file != null && !file.isEmpty()) {
-            Image image = author.getImage();
-            if (image == null) {
-                image = new Image();
-            }
-            image.setUrl(fileStorageService.saveAuthorImage(file, id));
-            imageService.createImage(image);
-            author.setImage(image);
+            return ResponseEntity.ok(authorService.saveWithImage(author, file));
         } else if (authorDto.imageUrl() != null && !authorDto.imageUrl().isBlank()) {
             Image image = author.getImage();
             if (image == null) {
@@ -1,8 +1,14 @@
 package com.prj2.booksta.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.prj2.booksta.model.*;
+import com.prj2.booksta.model.dto.BatchDeleteBooksRequest;
+import com.prj2.booksta.model.dto.BookCatalogPage;
+import com.prj2.booksta.model.dto.BookDeletionResult;
 import com.prj2.booksta.model.dto.BookFilterRequest;
 import com.prj2.booksta.model.dto.CreateReadingEventRequest;
+import com.prj2.booksta.model.dto.FacetedBookPage;
 import com.prj2.booksta.model.dto.UpdateBook;
 import com.prj2.booksta.repository.SeriesRepository;
 import com.prj2.booksta.service.*;
@@ -16,7 +22,9 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -27,12 +35,6 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
-    @Autowired
-    private FileStorageService fileStorageService;
-
-    @Autowired
-    private ImageService imageService;
-
     @Autowired
     private ReportService reportService;
 
@@ -47,12 +49,47 @@ public class BookController {
 
     @Autowired
     private ReadingSessionService readingSessionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     
     @GetMapping
     public ResponseEntity<List<Book>> getAllBooks() {
         return ResponseEntity.ok(bookService.getAllBooks());
     }
 
+    /**
+     * Same payload as GET /api/books, but written to the response as the books are read
+     * instead of materializing the whole catalog first. Opt-in with ?stream=true.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                bookService.streamAllBooks(book -> {
+                    try {
+                        generator.writeObject(book);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping("/catalog")
+    public ResponseEntity<BookCatalogPage> getCatalog(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(bookService.getCatalogPage(cursor, limit));
+    }
+
     @GetMapping("/{isbn}")
     public ResponseEntity<Book> getBookByIsbn(@PathVariable String isbn) {
         Book book = bookService.getBookByIsbn(isbn);
@@ -69,6 +106,14 @@ public class BookController {
         return ResponseEntity.ok(bookService.searchBooks(title, authorName, subjectName, year));
     }
 
+    @GetMapping("/search/text")
+    public ResponseEntity<List<Book>> fullTextSearch(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(bookService.fullTextSearch(query, limit));
+    }
+
     @GetMapping("/filter")
     public ResponseEntity<List<Book>> filterBooks(
             @RequestParam(required = false) String title,
@@ -85,20 +130,34 @@ public class BookController {
         return ResponseEntity.ok(bookService.filterBooks(filter));
     }
 
+    /**
+     * Same filters as /filter, one page at a time, with the number of matching books
+     * per subject, author, decade and page range.
+     */
+    @GetMapping("/filter/faceted")
+    public ResponseEntity<FacetedBookPage> filterBooksFaceted(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer yearMin,
+            @RequestParam(required = false) Integer yearMax,
+            @RequestParam(required = false) Long pagesMin,
+            @RequestParam(required = false) Long pagesMax,
+            @RequestParam(required = false) List<Long> authorIds,
+            @RequestParam(required = false) List<Long> subjectIds,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        BookFilterRequest filter = new BookFilterRequest(
+                title, yearMin, yearMax, pagesMin, pagesMax, authorIds, subjectIds
+        );
+        return ResponseEntity.ok(bookService.filterBooksFaceted(filter, page, size));
+    }
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Book> createBook(
             @RequestPart("book") Book book,
             @RequestPart("image") MultipartFile imageFile
     ) throws IOException {
-        if (!imageFile.isEmpty()) {
-            String path = fileStorageService.saveBookImage(imageFile, book.getIsbn());
-            Image image = new Image();
-            image.setUrl(path);
-            Image savedImage = imageService.createImage(image);
-            book.setImage(savedImage);
-        }
-
-        Book saved = bookService.save(book);
+        Book saved = bookService.createBook(book, imageFile);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
@@ -120,6 +179,15 @@ public class BookController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/batch-delete")
+    @PreAuthorize("hasRole('LIBRARIAN')")
+    public ResponseEntity<BookDeletionResult> deleteBooks(@RequestBody BatchDeleteBooksRequest request) {
+        if (request.isbns() == null || request.isbns().isEmpty()) {
+            throw new IllegalArgumentException("At least one isbn is required");
+        }
+        return ResponseEntity.ok(bookService.deleteAll(request.isbns()));
+    }
+
     @GetMapping("/series/{seriesId}")
     public ResponseEntity<List<Book>> getBooksBySeries(@PathVariable Long seriesId) {
         return ResponseEntity.ok(bookService.findBySeriesId(seriesId));
@@ -1,56 +1,167 @@
 package com.prj2.booksta.controller;
 
 import com.prj2.booksta.service.FileStorageService;
+import com.prj2.booksta.service.ImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.regex.Pattern;
 
+/**
+ * Serves stored images with HTTP caching.
+ * URLs returned at upload carry a ?v= version, so those responses are cacheable forever once the
+ * version is checked against the one stored on the image; other requests are revalidated with
+ * ETag / Last-Modified.
+ * ?w= picks the closest resized variant, falling back to the original, revalidated, until it is generated.
+ * Blob URLs name the content's SHA-256 and are always cacheable forever.
+ * Local files go out through Tomcat sendfile when available, bucket images are redirects.
+ */
 @RestController
 @RequestMapping("/api/images")
 public class FileStorageController {
 
+    private static final CacheControl VERSIONED = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl UNVERSIONED = CacheControl.noCache().cachePublic();
+    private static final Pattern BLOB_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    // Tomcat request attributes for zero-copy file transfer
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ImageService imageService;
+
     @GetMapping("/authors/{id}")
-    public ResponseEntity<InputStreamResource> getAuthorImage(@PathVariable Long id) throws IOException {
-        InputStream stream = fileStorageService.getImage("authors", id.toString());
-        int x = 1;
-        if (stream == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .body(new InputStreamResource(stream));
+    public ResponseEntity<Resource> getAuthorImage(@PathVariable Long id,
+                                                   @RequestParam(name = "v", required = false) String version,
+                                                   @RequestParam(name = "w", required = false) Integer width,
+                                                   ServletWebRequest request) throws IOException {
+        return serveImage("authors", id.toString(), issuedVersion("authors", id.toString(), version), width, request);
     }
 
     @GetMapping("/books/{isbn}")
-    public ResponseEntity<InputStreamResource> getBookImage(@PathVariable String isbn) throws IOException {
-        InputStream stream = fileStorageService.getImage("books", isbn);
-        if (stream == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .body(new InputStreamResource(stream));
+    public ResponseEntity<Resource> getBookImage(@PathVariable String isbn,
+                                                 @RequestParam(name = "v", required = false) String version,
+                                                 @RequestParam(name = "w", required = false) Integer width,
+                                                 ServletWebRequest request) throws IOException {
+        return serveImage("books", isbn, issuedVersion("books", isbn, version), width, request);
     }
 
     @GetMapping("/collections/{id}")
-    public ResponseEntity<InputStreamResource> getCollectionImage(@PathVariable Long id) throws IOException {
-        InputStream stream = fileStorageService.getImage("collections", id.toString());
-        if (stream == null) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<Resource> getCollectionImage(@PathVariable Long id,
+                                                       @RequestParam(name = "v", required = false) String version,
+                                                       @RequestParam(name = "w", required = false) Integer width,
+                                                       ServletWebRequest request) throws IOException {
+        return serveImage("collections", id.toString(), issuedVersion("collections", id.toString(), version), width, request);
+    }
+
+    @GetMapping("/blobs/{hash}")
+    public ResponseEntity<Resource> getBlobImage(@PathVariable String hash,
+                                                 @RequestParam(name = "w", required = false) Integer width,
+                                                 ServletWebRequest request) throws IOException {
+        // Not there until the upload is stored: the image is PENDING meanwhile
+        if (!BLOB_HASH.matcher(hash).matches() || !fileStorageService.blobExists(hash)) {
+            return notFound();
+        }
+        // The hash is the version: the bytes behind this URL never change
+        return serveImage("blobs", hash, hash, width, request);
+    }
+
+    // Never cached: a missing image may be one still being stored
+    private static ResponseEntity<Resource> notFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).cacheControl(CacheControl.noStore()).build();
+    }
+
+    /**
+     * The version when it is the one handed out at upload for this image, null otherwise:
+     * a made-up ?v= must not pin the response in caches forever.
+     */
+    private String issuedVersion(String type, String id, String version) {
+        if (version == null || !imageService.isIssuedUrl(fileStorageService.imageUrl(type, id, version))) {
+            return null;
+        }
+        return version;
+    }
+
+    private ResponseEntity<Resource> serveImage(String type, String id, String version, Integer width,
+                                                ServletWebRequest request) throws IOException {
+        if (fileStorageService.isRemote()) {
+            URI location = fileStorageService.getRemoteImageUrl(type, id, version, width);
+            // The bucket serves the bytes; only the (short-lived, for presigned URLs) redirect is cached,
+            // and not at all when it points at the original standing in for a missing variant
+            CacheControl redirectCache = width != null && !FileStorageService.isVariant(location.getPath())
+                    ? CacheControl.noCache()
+                    : CacheControl.maxAge(Duration.ofSeconds(fileStorageService.getPresignedUrlTtlSeconds() / 2)).cachePrivate();
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(location)
+                    .cacheControl(redirectCache)
+                    .build();
         }
+
+        Path file = fileStorageService.getLocalImage(type, id, width);
+        if (file == null) {
+            return notFound();
+        }
+        boolean variant = FileStorageService.isVariant(file.getFileName().toString());
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+        // The original served for a variant not generated yet must not be kept once the variant exists
+        boolean fallback = width != null && !variant;
+        CacheControl cacheControl = version != null && !fallback ? VERSIONED : UNVERSIONED;
+        MediaType contentType = variant ? MediaType.IMAGE_JPEG : MediaType.IMAGE_PNG;
+
+        HttpServletRequest servletRequest = request.getRequest();
+        HttpServletResponse servletResponse = request.getResponse();
+        if (servletResponse != null
+                && Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPPORT))
+                && servletRequest.getHeader(HttpHeaders.RANGE) == null) {
+            servletResponse.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            if (request.checkNotModified(etag, lastModified)) {
+                return null;
+            }
+            servletResponse.setContentType(contentType.toString());
+            servletResponse.setContentLengthLong(size);
+            servletRequest.setAttribute(SENDFILE_FILENAME, file.toString());
+            servletRequest.setAttribute(SENDFILE_START, 0L);
+            servletRequest.setAttribute(SENDFILE_END, size);
+            return null;
+        }
+
+        // Spring answers 304 from the ETag / Last-Modified and handles Range requests for a Resource body
         return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .body(new InputStreamResource(stream));
+                .contentType(contentType)
+                .contentLength(size)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(cacheControl)
+                .body(new FileSystemResource(file));
     }
 }
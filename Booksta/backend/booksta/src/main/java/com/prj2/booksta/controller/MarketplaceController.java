@@ -1,6 +1,7 @@
 package com.prj2.booksta.controller;
 
 import com.prj2.booksta.model.dto.MarketplaceBookListing;
+import com.prj2.booksta.model.dto.MarketplaceListingPage;
 import com.prj2.booksta.model.dto.MarketplaceSummary;
 import com.prj2.booksta.model.dto.SellerListing;
 import com.prj2.booksta.service.MarketplaceService;
@@ -27,6 +28,19 @@ public class MarketplaceController {
         return ResponseEntity.ok(marketplaceService.getAllBooksWithMarketplaceData(true));
     }
 
+    /**
+     * Paginated variant of GET /books, opt-in with ?page=.
+     * Set inStockOnly=false to also list books nobody is selling.
+     */
+    @GetMapping(value = "/books", params = "page")
+    public ResponseEntity<MarketplaceListingPage> getMarketplaceListings(
+            @RequestParam int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean inStockOnly
+    ) {
+        return ResponseEntity.ok(marketplaceService.getMarketplaceListings(inStockOnly, page, size));
+    }
+
     /**
      * Get marketplace summary for a specific book (lowest price, seller count, availability)
      */
@@ -1,12 +1,18 @@
 package com.prj2.booksta.controller;
 import com.prj2.booksta.model.User;
 import com.prj2.booksta.model.dto.BookWithLatestReadingEvent;
+import com.prj2.booksta.model.dto.ReadingStatsBucket;
+import com.prj2.booksta.model.dto.ReadingStatsResponse;
 import com.prj2.booksta.service.BookService;
+import com.prj2.booksta.service.ReadingStatsService;
 import com.prj2.booksta.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,6 +25,9 @@ public class MeController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private ReadingStatsService readingStatsService;
+
     /**
      * GET /api/me/books
      * Returns all owned books with latest reading event
@@ -42,4 +51,31 @@ public class MeController {
                 userService.getOwnedBooksWithReadingEvent(user.getId())
         );
     }
+
+    /**
+     * GET /api/me/reading-stats
+     * Lifetime reading totals, streaks and paces
+     */
+    @GetMapping("/reading-stats")
+    public ResponseEntity<ReadingStatsResponse> getReadingStats(Authentication authentication) {
+        User user = userService.getUserByEmail(authentication.getName());
+
+        return ResponseEntity.ok(readingStatsService.getStats(user.getId()));
+    }
+
+    /**
+     * GET /api/me/reading-stats/history?from=2025-01-01&to=2025-03-31&granularity=WEEK
+     * Reading per day, week or month, the last 30 days by day when nothing is given
+     */
+    @GetMapping("/reading-stats/history")
+    public ResponseEntity<List<ReadingStatsBucket>> getReadingHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) ReadingStatsService.Granularity granularity,
+            Authentication authentication
+    ) {
+        User user = userService.getUserByEmail(authentication.getName());
+
+        return ResponseEntity.ok(readingStatsService.getHistory(user.getId(), from, to, granularity));
+    }
 }
@@ -1,20 +1,25 @@
 package com.prj2.booksta.controller;
 
 import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.dto.ConversationPage;
 import com.prj2.booksta.model.dto.ConversationSummary;
 import com.prj2.booksta.model.dto.MarkMessagesReadRequest;
+import com.prj2.booksta.model.dto.MessagePage;
 import com.prj2.booksta.model.dto.MessageResponse;
 import com.prj2.booksta.model.dto.SendMessageRequest;
+import com.prj2.booksta.service.MessagePushHub;
 import com.prj2.booksta.service.PrivateMessagingService;
 import com.prj2.booksta.service.UserService;
 
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -27,6 +32,8 @@ public class MessageController {
     private PrivateMessagingService messagingService;
     @Autowired
     private UserService userService;
+    @Autowired
+    private MessagePushHub pushHub;
 
     @PostMapping
     public ResponseEntity<?> sendMessage(@Valid @RequestBody SendMessageRequest request,@AuthenticationPrincipal UserDetails userDetails) {
@@ -55,6 +62,29 @@ public class MessageController {
         }
     }
 
+    /**
+     * Flux server-sent events des messages reçus ("message") et des conversations lues ("read"),
+     * à la place du polling de /conversations.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal UserDetails userDetails) {
+        User user = userService.getUserByEmail(userDetails.getUsername());
+        return pushHub.subscribe(user.getId());
+    }
+
+    @GetMapping("/inbox")
+    public ResponseEntity<?> getInbox(@RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit,
+                                      @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            User user = userService.getUserByEmail(userDetails.getUsername());
+            ConversationPage page = messagingService.getInboxPage(user.getId(), cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
     @GetMapping("/conversations/{conversationId}")
     public ResponseEntity<?> getConversationMessages(@PathVariable Long conversationId,
                                                      @AuthenticationPrincipal UserDetails userDetails) {
@@ -67,6 +97,21 @@ public class MessageController {
         }
     }
 
+    @GetMapping("/conversations/{conversationId}/messages")
+    public ResponseEntity<?> getMessagePage(@PathVariable Long conversationId,
+                                            @RequestParam(required = false) String before,
+                                            @RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer limit,
+                                            @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            User user = userService.getUserByEmail(userDetails.getUsername());
+            MessagePage page = messagingService.getMessagePage(conversationId, user.getId(), before, after, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        }
+    }
+
     @PostMapping("/conversations/{conversationId}/read")
     public ResponseEntity<?> markConversationAsRead(@PathVariable Long conversationId,
                                                     @AuthenticationPrincipal UserDetails userDetails
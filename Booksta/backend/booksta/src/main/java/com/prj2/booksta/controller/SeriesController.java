@@ -1,6 +1,7 @@
 package com.prj2.booksta.controller;
 
 import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.model.dto.SeriesPage;
 import com.prj2.booksta.model.dto.SeriesRequest;
 import com.prj2.booksta.model.dto.SeriesResponse;
 import com.prj2.booksta.service.SeriesService;
@@ -25,6 +26,19 @@ public class SeriesController {
         return ResponseEntity.ok(seriesService.getAllSeries());
     }
 
+    /**
+     * Paginated variant of GET /, opt-in with ?page=. sort is title (default), books,
+     * followers or newest; authorId restricts the list to one author's series.
+     */
+    @GetMapping(params = "page")
+    public ResponseEntity<SeriesPage> getSeriesPage(
+            @RequestParam int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Long authorId) {
+        return ResponseEntity.ok(seriesService.getSeriesPage(authorId, page, size, SeriesService.SeriesSort.parse(sort)));
+    }
+
     @GetMapping("/author/{authorId}")
     public ResponseEntity<List<SeriesResponse>> getSeriesByAuthorId(@PathVariable Long authorId) {
         return ResponseEntity.ok(seriesService.getSeriesByAuthorId(authorId));
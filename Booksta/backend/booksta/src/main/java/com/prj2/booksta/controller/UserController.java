@@ -21,6 +21,8 @@ import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.Series;
 import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.service.RecommendationService;
 import com.prj2.booksta.service.UserService;
 
 @RestController
@@ -31,6 +33,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private RecommendationService recommendationService;
+
     /**
      * POST /api/users/{userId}/favorites/{bookIsbn}
      * Ajouter un livre à la liste de favoris (liste à lire)
@@ -192,6 +197,17 @@ public class UserController {
         }
     }
 
+    /**
+     * GET /api/users/me/recommendations?limit=20
+     * Books recommended from the user's favorites, library, readings and follows
+     */
+    @GetMapping("/me/recommendations")
+    public ResponseEntity<List<BookSummary>> getRecommendations(@AuthenticationPrincipal UserDetails userDetails,
+                                                                @RequestParam(defaultValue = "20") int limit) {
+        User user = userService.getUserByEmail(userDetails.getUsername());
+        return ResponseEntity.ok(recommendationService.recommendFor(user.getId(), limit));
+    }
+
     /**
      * GET /api/users/search?query=...
      * Recherche des utilisateurs par nom/prénom/email
@@ -5,6 +5,9 @@ import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,7 +16,12 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 @Entity
-@Table(name = "book")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-book")
+@Table(name = "book", indexes = {
+    @Index(name = "idx_book_year_isbn", columnList = "publishing_year, isbn"),
+    @Index(name = "idx_book_series", columnList = "series_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,6 +50,8 @@ public class Book {
         inverseJoinColumns = @JoinColumn(name = "authors_id")
     )
     @NotNull
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-book-authors")
+    @BatchSize(size = 50)
     private Set<Author> authors = new HashSet<>();
 
     @ManyToMany
@@ -51,6 +61,8 @@ public class Book {
         inverseJoinColumns = @JoinColumn(name = "subjects_id")
     )
     @NotNull
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-book-subjects")
+    @BatchSize(size = 50)
     private Set<Subject> subjects = new HashSet<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
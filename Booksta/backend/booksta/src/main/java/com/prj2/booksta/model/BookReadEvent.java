@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_book_read_event_user_book", columnList = "user_id, book_isbn, occurred_at"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -1,12 +1,20 @@
 package com.prj2.booksta.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-image")
+@Table(indexes = {
+        @Index(name = "idx_image_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_image_url", columnList = "url")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,6 +26,14 @@ public class Image {
 
     private String url;
 
+    // Null for images stored before uploads became asynchronous, which are all ready
+    @Enumerated(EnumType.STRING)
+    private ImageStatus status;
+
+    // SHA-256 of the uploaded content, the key of its ImageBlob; null for external URLs
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     public Image(Long id) {
         this.id = id;
     }
@@ -0,0 +1,34 @@
+package com.prj2.booksta.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Uploaded image content stored once under its SHA-256, however many images point to it.
+ * References are the Image rows carrying the hash; a blob none of them uses is swept
+ * once it has not been uploaded again for the grace period.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "image_blob")
+public class ImageBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private long size;
+
+    private String contentType;
+
+    // Last time an upload stored or matched this content
+    @Column(nullable = false)
+    private LocalDateTime lastUploadedAt;
+}
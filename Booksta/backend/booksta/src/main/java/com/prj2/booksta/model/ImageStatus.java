@@ -0,0 +1,7 @@
+package com.prj2.booksta.model;
+
+public enum ImageStatus {
+    PENDING,
+    READY,
+    FAILED
+}
@@ -2,11 +2,13 @@ package com.prj2.booksta.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -18,14 +20,20 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(
         name = "private_conversation",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"participant1_id", "participant2_id"})
+        uniqueConstraints = @UniqueConstraint(columnNames = {"participant1_id", "participant2_id"}),
+        indexes = {
+                @Index(name = "idx_conversation_p1_last_message", columnList = "participant1_id, last_message_at"),
+                @Index(name = "idx_conversation_p2_last_message", columnList = "participant2_id, last_message_at")
+        }
 )
 @Data
 @NoArgsConstructor
@@ -39,7 +47,7 @@ public class PrivateConversation {
     @SequenceGenerator(
             name = "private_conversation_seq",
             sequenceName = "private_conversation_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     private Long id;
 
@@ -51,6 +59,28 @@ public class PrivateConversation {
     @JoinColumn(name = "participant2_id")
     private User participant2;
 
+    /*
+     * Inbox read model, maintained by PrivateMessagingService when a message is sent or read,
+     * so listing conversations never has to look at private_message.
+     * last_message_id is a plain column: the messages cascade-delete with the conversation.
+     */
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(length = 2000)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @ColumnDefault("0")
+    @Column(name = "participant1_unread_count", nullable = false)
+    private long participant1UnreadCount;
+
+    @ColumnDefault("0")
+    @Column(name = "participant2_unread_count", nullable = false)
+    private long participant2UnreadCount;
+
     @JsonIgnore
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PrivateMessage> messages = new ArrayList<>();
@@ -7,6 +7,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.SequenceGenerator;
@@ -20,7 +21,10 @@ import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "private_message")
+@Table(
+        name = "private_message",
+        indexes = @Index(name = "idx_private_message_conversation_sent", columnList = "conversation_id, sent_at, id")
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,7 +37,7 @@ public class PrivateMessage {
     @SequenceGenerator(
             name = "private_message_seq",
             sequenceName = "private_message_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     private Long id;
 
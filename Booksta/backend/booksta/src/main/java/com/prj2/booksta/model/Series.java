@@ -1,6 +1,8 @@
 package com.prj2.booksta.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -9,6 +11,8 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-series")
 @Table(name = "series")
 @Data
 @NoArgsConstructor
@@ -1,5 +1,6 @@
 package com.prj2.booksta.model;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -29,7 +30,7 @@ public class User {
     @SequenceGenerator(
             name = "user_seq_gen",
             sequenceName = "user_sequence",
-            allocationSize = 1,
+            allocationSize = 50,
             initialValue = 100
     )
     private Long id;
@@ -76,7 +77,8 @@ public class User {
     @JoinTable(
         name = "user_followed_series",
         joinColumns = @JoinColumn(name = "user_id"),
-        inverseJoinColumns = @JoinColumn(name = "series_id")
+        inverseJoinColumns = @JoinColumn(name = "series_id"),
+        indexes = @Index(name = "idx_user_followed_series_series", columnList = "series_id")
     )
     @JsonIgnore
     private Set<Series> followedSeries = new HashSet<>();
@@ -115,4 +117,10 @@ public class User {
     private String googleId;
 
     private String picture;
+
+    /**
+     * Last change of the roles; tokens issued before it carry a stale roles claim
+     */
+    @JsonIgnore
+    private Instant rolesChangedAt;
 }
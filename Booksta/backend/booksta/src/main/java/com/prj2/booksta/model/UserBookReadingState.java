@@ -0,0 +1,37 @@
+package com.prj2.booksta.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Latest reading event of a user on a book, maintained with each new event so that
+ * "where is this user with this book" is a primary-key read instead of a scan of the history.
+ * latestEventId is a plain column: events are deleted in bulk with their book.
+ */
+@Entity
+@Table(name = "user_book_reading_state",
+        indexes = @Index(name = "idx_reading_state_book", columnList = "book_isbn"))
+@Data
+@NoArgsConstructor
+public class UserBookReadingState {
+
+    @EmbeddedId
+    private UserBookReadingStateId id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReadingEventType readingEvent;
+
+    @Column(nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "latest_event_id", nullable = false)
+    private Long latestEventId;
+
+    public UserBookReadingState(UserBookReadingStateId id) {
+        this.id = id;
+    }
+}
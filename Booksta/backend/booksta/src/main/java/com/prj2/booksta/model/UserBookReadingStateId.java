@@ -0,0 +1,21 @@
+package com.prj2.booksta.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBookReadingStateId implements Serializable {
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "book_isbn")
+    private String bookIsbn;
+}
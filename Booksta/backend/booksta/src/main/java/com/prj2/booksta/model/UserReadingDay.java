@@ -0,0 +1,37 @@
+package com.prj2.booksta.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One user's reading on one day, the unit the history endpoint sums into weeks and months.
+ */
+@Entity
+@Table(name = "user_reading_day")
+@Data
+@NoArgsConstructor
+public class UserReadingDay {
+
+    @EmbeddedId
+    private UserReadingDayId id;
+
+    @Column(nullable = false)
+    private long pagesRead;
+
+    @Column(nullable = false)
+    private long activeSeconds;
+
+    @Column(nullable = false)
+    private int sessions;
+
+    @Column(nullable = false)
+    private int booksFinished;
+
+    @Column(nullable = false)
+    private int booksAbandoned;
+
+    public UserReadingDay(UserReadingDayId id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,21 @@
+package com.prj2.booksta.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserReadingDayId implements Serializable {
+    private Long userId;
+    // DAY is a reserved word in H2
+    @Column(name = "reading_day")
+    private LocalDate day;
+}
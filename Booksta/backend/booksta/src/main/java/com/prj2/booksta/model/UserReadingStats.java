@@ -0,0 +1,59 @@
+package com.prj2.booksta.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Running reading totals of one user, updated as events are recorded and sessions end,
+ * so the statistics page reads a single row instead of the whole history.
+ */
+@Entity
+@Table(name = "user_reading_stats")
+@Data
+@NoArgsConstructor
+public class UserReadingStats {
+
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private long pagesRead;
+
+    @Column(nullable = false)
+    private long activeSeconds;
+
+    @Column(nullable = false)
+    private long sessionsCompleted;
+
+    // Days with at least one finished session
+    @Column(nullable = false)
+    private long readingDays;
+
+    // Starts and restarts
+    @Column(nullable = false)
+    private long booksStarted;
+
+    @Column(nullable = false)
+    private long booksFinished;
+
+    @Column(nullable = false)
+    private long booksAbandoned;
+
+    @Column(nullable = false)
+    private int currentStreak;
+
+    @Column(nullable = false)
+    private int longestStreak;
+
+    private LocalDate lastReadingDay;
+
+    private Instant updatedAt;
+
+    public UserReadingStats(Long userId) {
+        this.userId = userId;
+    }
+}
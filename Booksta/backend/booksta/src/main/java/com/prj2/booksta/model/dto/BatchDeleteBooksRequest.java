@@ -0,0 +1,5 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+public record BatchDeleteBooksRequest(List<String> isbns) {}
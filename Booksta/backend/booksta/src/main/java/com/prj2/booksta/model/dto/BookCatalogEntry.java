@@ -0,0 +1,9 @@
+package com.prj2.booksta.model.dto;
+
+public record BookCatalogEntry(
+        String isbn,
+        String title,
+        Integer publishingYear,
+        Long pages,
+        String imageUrl
+) {}
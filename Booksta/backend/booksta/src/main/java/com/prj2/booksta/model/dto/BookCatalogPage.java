@@ -0,0 +1,13 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of the catalog ordered by (publishingYear, isbn).
+ * nextCursor is null when there are no more books to fetch.
+ */
+public record BookCatalogPage(
+        List<BookCatalogEntry> books,
+        String nextCursor,
+        boolean hasMore
+) {}
@@ -0,0 +1,20 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * Rows removed by a (batch) book deletion, per table.
+ * notFound lists the requested ISBNs that did not match any book.
+ */
+public record BookDeletionResult(
+        int books,
+        int reports,
+        int readEvents,
+        int readingSessions,
+        int readingProgress,
+        int inventoryEntries,
+        int collectionEntries,
+        int favorites,
+        int ownedBooks,
+        List<String> notFound
+) {}
@@ -0,0 +1,15 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.Map;
+
+/**
+ * Number of matching books per facet value. Subjects and authors are keyed by id, most books
+ * first (authors limited to the top ones); decades by their first year, page ranges by label
+ * such as "100-199". Values without any matching book are left out.
+ */
+public record BookFacets(
+        Map<Long, Integer> subjects,
+        Map<Long, Integer> authors,
+        Map<Integer, Integer> decades,
+        Map<String, Integer> pageRanges
+) {}
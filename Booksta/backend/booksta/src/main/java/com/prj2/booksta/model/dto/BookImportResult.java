@@ -0,0 +1,16 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Books whose ISBN already exists are skipped, invalid rows are
+ * rejected; errors lists the first rejected rows (1-based position in the input).
+ */
+public record BookImportResult(
+        int imported,
+        int skippedExisting,
+        int rejected,
+        List<RowError> errors
+) {
+    public record RowError(long row, String isbn, String reason) {}
+}
@@ -0,0 +1,17 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * One book of a bulk import: an element of the JSON array, or a CSV record with the same
+ * column names (ids separated by '|').
+ */
+public record BookImportRow(
+        String isbn,
+        String title,
+        Integer publishingYear,
+        String description,
+        Long pages,
+        List<Long> authorIds,
+        List<Long> subjectIds
+) {}
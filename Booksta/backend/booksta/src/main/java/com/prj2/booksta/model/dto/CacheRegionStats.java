@@ -0,0 +1,13 @@
+package com.prj2.booksta.model.dto;
+
+/**
+ * Hits, misses and puts of one second-level cache region since startup.
+ * hitRatio is null until the region has been read.
+ */
+public record CacheRegionStats(
+        String region,
+        long hits,
+        long misses,
+        long puts,
+        Double hitRatio
+) {}
@@ -0,0 +1,11 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * Second-level cache figures per region; all zero when Hibernate statistics are disabled.
+ */
+public record CatalogCacheStats(
+        boolean statisticsEnabled,
+        List<CacheRegionStats> regions
+) {}
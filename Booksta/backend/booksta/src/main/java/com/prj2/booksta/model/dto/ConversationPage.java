@@ -0,0 +1,13 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of a user's inbox, most recent conversation first.
+ * nextCursor is null when there are no older conversations.
+ */
+public record ConversationPage(
+        List<ConversationSummary> conversations,
+        String nextCursor,
+        boolean hasMore
+) {}
@@ -0,0 +1,12 @@
+package com.prj2.booksta.model.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pushed to both participants when one of them reads a conversation.
+ */
+public record ConversationReadEvent(
+        Long conversationId,
+        Long readerId,
+        LocalDateTime readAt
+) {}
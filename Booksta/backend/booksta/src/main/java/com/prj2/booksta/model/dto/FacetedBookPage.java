@@ -0,0 +1,17 @@
+package com.prj2.booksta.model.dto;
+
+import com.prj2.booksta.model.Book;
+
+import java.util.List;
+
+/**
+ * One page of filtered books ordered by (publishingYear, isbn), with the facet counts of the filter.
+ */
+public record FacetedBookPage(
+        List<Book> books,
+        BookFacets facets,
+        int page,
+        int size,
+        long totalElements,
+        boolean hasNext
+) {}
@@ -0,0 +1,11 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+public record MarketplaceListingPage(
+        List<MarketplaceBookListing> listings,
+        int page,
+        int size,
+        long totalElements,
+        boolean hasNext
+) {}
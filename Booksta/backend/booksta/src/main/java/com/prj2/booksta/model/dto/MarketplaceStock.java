@@ -0,0 +1,13 @@
+package com.prj2.booksta.model.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregated stock of one book across every seller with quantity > 0.
+ */
+public record MarketplaceStock(
+        String isbn,
+        BigDecimal lowestPrice,
+        Long sellerCount,
+        Long totalQuantity
+) {}
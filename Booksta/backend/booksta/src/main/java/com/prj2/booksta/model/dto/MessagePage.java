@@ -0,0 +1,15 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+/**
+ * A window of a conversation's history, oldest message first.
+ * beforeCursor loads older messages, afterCursor newer ones; both are null for an empty page.
+ * hasMore tells whether more messages exist in the direction that was requested.
+ */
+public record MessagePage(
+        List<MessageResponse> messages,
+        String beforeCursor,
+        String afterCursor,
+        boolean hasMore
+) {}
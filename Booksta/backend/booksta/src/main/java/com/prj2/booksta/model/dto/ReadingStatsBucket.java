@@ -0,0 +1,15 @@
+package com.prj2.booksta.model.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Reading done in the day, week or month starting at start.
+ */
+public record ReadingStatsBucket(
+        LocalDate start,
+        long pagesRead,
+        long activeSeconds,
+        int sessions,
+        int booksFinished,
+        int booksAbandoned
+) {}
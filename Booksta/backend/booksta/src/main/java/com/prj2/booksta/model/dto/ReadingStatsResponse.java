@@ -0,0 +1,23 @@
+package com.prj2.booksta.model.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Lifetime reading statistics of a user.
+ * currentStreak is 0 once a day has passed without reading; the paces are null until
+ * there is something to divide by.
+ */
+public record ReadingStatsResponse(
+        long pagesRead,
+        long activeSeconds,
+        long sessionsCompleted,
+        long readingDays,
+        long booksStarted,
+        long booksFinished,
+        long booksAbandoned,
+        int currentStreak,
+        int longestStreak,
+        LocalDate lastReadingDay,
+        Double pagesPerReadingDay,
+        Double pagesPerHour
+) {}
@@ -0,0 +1,11 @@
+package com.prj2.booksta.model.dto;
+
+import java.util.List;
+
+public record SeriesPage(
+        List<SeriesResponse> series,
+        int page,
+        int size,
+        long totalElements,
+        boolean hasNext
+) {}
@@ -2,9 +2,15 @@ package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.AuthorReport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AuthorReportRepository extends JpaRepository<AuthorReport, Long> {
 
+    @Modifying
+    @Query("DELETE FROM AuthorReport r WHERE r.author.id = :authorId")
+    int deleteAllByAuthorId(@Param("authorId") Long authorId);
 }
@@ -3,7 +3,11 @@ package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.User;
+import com.prj2.booksta.repository.projections.AuthorDetailView;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -13,4 +17,25 @@ public interface AuthorRepository extends CrudRepository<Author, Long> {
     Optional<Author> findByUser(User user);
 
     Author findByUser_Id(Long userId);
+
+    /**
+     * The author's profile with their image, account email and follower count, in one query.
+     */
+    @Query("""
+        SELECT a.id AS id, a.firstName AS firstName, a.lastName AS lastName,
+               i.url AS imageUrl, u.email AS userEmail,
+               (SELECT COUNT(f) FROM User f JOIN f.followedAuthors fa WHERE fa.id = a.id) AS followerCount
+        FROM Author a
+        LEFT JOIN a.image i
+        LEFT JOIN a.user u
+        WHERE a.id = :authorId
+    """)
+    Optional<AuthorDetailView> findDetailView(@Param("authorId") Long authorId);
+
+    /**
+     * Also deletes the author's follows and book links (collection tables cleared by Hibernate).
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Author a WHERE a.id = :authorId")
+    int deleteInBulk(@Param("authorId") Long authorId);
 }
@@ -2,12 +2,18 @@ package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.BookCollection;
 import com.prj2.booksta.model.CollectionVisibility;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
 public interface BookCollectionRepository extends JpaRepository<BookCollection, Long> {
 
     List<BookCollection> findByOwnerId(Long userId);
@@ -32,4 +38,9 @@ public interface BookCollectionRepository extends JpaRepository<BookCollection,
 
     @Query("SELECT bc FROM BookCollection bc JOIN bc.books b WHERE b.isbn = :isbn")
     List<BookCollection> findByBooksIsbn(@Param("isbn") String isbn);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "book_collection_books"))
+    @Query(value = "DELETE FROM book_collection_books WHERE book_isbn IN (:isbns)", nativeQuery = true)
+    int removeBooksFromAllCollections(@Param("isbns") Collection<String> isbns);
 }
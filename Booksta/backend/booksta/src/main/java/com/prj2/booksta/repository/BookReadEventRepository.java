@@ -1,19 +1,39 @@
 package com.prj2.booksta.repository;
 
-import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.BookReadEvent;
-import com.prj2.booksta.model.User;
+import com.prj2.booksta.repository.projections.ReadEventView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BookReadEventRepository extends JpaRepository<BookReadEvent, Long> {
-    Optional<BookReadEvent> findTopByUserAndBookOrderByOccurredAtDesc(User user, Book book);
-
     List<BookReadEvent> findByUser_IdAndBook_IsbnOrderByOccurredAtDesc(Long id, String isbn);
 
+    Optional<BookReadEvent> findFirstByUser_IdAndBook_IsbnOrderByOccurredAtDescIdDesc(Long userId, String isbn);
+
+    Optional<BookReadEvent> findFirstByUser_EmailAndBook_IsbnOrderByOccurredAtDescIdDesc(String email, String isbn);
+
+    @Query("SELECT MAX(e.user.id) FROM BookReadEvent e")
+    Optional<Long> findMaxUserId();
+
+    @Query("""
+        SELECT e.readingEvent AS readingEvent, e.occurredAt AS occurredAt
+        FROM BookReadEvent e
+        WHERE e.user.id = :userId
+        ORDER BY e.occurredAt ASC
+    """)
+    List<ReadEventView> findEventViewsByUserId(@Param("userId") Long userId);
+
     void deleteByBook_Isbn(String isbn);
+
+    @Modifying
+    @Query("DELETE FROM BookReadEvent e WHERE e.book.isbn IN :isbns")
+    int deleteAllByBookIsbnIn(@Param("isbns") Collection<String> isbns);
 }
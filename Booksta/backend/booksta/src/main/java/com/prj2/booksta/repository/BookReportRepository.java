@@ -2,9 +2,18 @@ package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.BookReport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 @Repository
 public interface BookReportRepository extends JpaRepository<BookReport, Long> {
     void deleteByBook_Isbn(String isbn);
+
+    @Modifying
+    @Query("DELETE FROM BookReport r WHERE r.book.isbn IN :isbns")
+    int deleteAllByBookIsbnIn(@Param("isbns") Collection<String> isbns);
 }
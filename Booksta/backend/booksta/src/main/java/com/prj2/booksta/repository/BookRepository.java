@@ -1,14 +1,31 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.dto.BookCatalogEntry;
+import com.prj2.booksta.model.dto.BookSummary;
 import com.prj2.booksta.model.dto.BookWithLatestReadingEvent;
+import com.prj2.booksta.repository.projections.BookAuthorView;
+import com.prj2.booksta.repository.projections.BookLinkView;
+import com.prj2.booksta.repository.projections.BookListingView;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, String>, JpaSpecificationExecutor<Book> {
@@ -29,6 +46,175 @@ public interface BookRepository extends JpaRepository<Book, String>, JpaSpecific
                            @Param("subjectName") String subjectName,
                            @Param("year") Integer year);
 
+    // Results cached as ids, the books themselves come from the entity cache
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "catalog-queries")
+    })
     List<Book> findBySeries_Id(Long seriesId);
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "catalog-queries")
+    })
     List<Book> findByAuthors_Id(Long authorId);
+
+    /**
+     * First page of the catalog, keyset-ordered by (publishingYear, isbn).
+     */
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.BookCatalogEntry(
+            b.isbn, b.title, b.publishingYear, b.pages, i.url)
+        FROM Book b
+        LEFT JOIN b.image i
+        ORDER BY b.publishingYear ASC, b.isbn ASC
+    """)
+    List<BookCatalogEntry> findCatalogFirstPage(Pageable limit);
+
+    /**
+     * Next page of the catalog, starting strictly after the given (publishingYear, isbn) key.
+     */
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.BookCatalogEntry(
+            b.isbn, b.title, b.publishingYear, b.pages, i.url)
+        FROM Book b
+        LEFT JOIN b.image i
+        WHERE b.publishingYear > :afterYear
+           OR (b.publishingYear = :afterYear AND b.isbn > :afterIsbn)
+        ORDER BY b.publishingYear ASC, b.isbn ASC
+    """)
+    List<BookCatalogEntry> findCatalogPageAfter(@Param("afterYear") Integer afterYear,
+                                                @Param("afterIsbn") String afterIsbn,
+                                                Pageable limit);
+
+    /**
+     * Streams every book with a JDBC fetch size so the whole catalog is never held in memory.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "200"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.publishingYear ASC, b.isbn ASC")
+    Stream<Book> streamAll();
+
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.BookSummary(b.isbn, b.title, b.publishingYear, i.url)
+        FROM Book b
+        JOIN b.authors a
+        LEFT JOIN b.image i
+        WHERE a.id = :authorId
+        ORDER BY b.publishingYear ASC, b.isbn ASC
+    """)
+    List<BookSummary> findSummariesByAuthorId(@Param("authorId") Long authorId);
+
+    /**
+     * Summaries of the given books, in no particular order.
+     */
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.BookSummary(b.isbn, b.title, b.publishingYear, i.url)
+        FROM Book b
+        LEFT JOIN b.image i
+        WHERE b.isbn IN :isbns
+    """)
+    List<BookSummary> findSummariesByIsbns(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * The most favorited books the user has not favorited, for recommendations served before
+     * the first recommendation model is built.
+     */
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.BookSummary(b.isbn, b.title, b.publishingYear, i.url)
+        FROM User u
+        JOIN u.favoriteList b
+        LEFT JOIN b.image i
+        WHERE b.isbn NOT IN (SELECT f.isbn FROM User me JOIN me.favoriteList f WHERE me.id = :userId)
+        GROUP BY b.isbn, b.title, b.publishingYear, i.url
+        ORDER BY COUNT(u) DESC, b.isbn ASC
+    """)
+    List<BookSummary> findMostFavoritedSummaries(@Param("userId") Long userId, Pageable limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.isbn AS bookIsbn, a.id AS linkedId FROM Book b JOIN b.authors a")
+    Stream<BookLinkView> streamAuthorLinks();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.isbn AS bookIsbn, s.id AS linkedId FROM Book b JOIN b.subjects s")
+    Stream<BookLinkView> streamSubjectLinks();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.isbn AS bookIsbn, b.series.id AS linkedId FROM Book b WHERE b.series IS NOT NULL")
+    Stream<BookLinkView> streamSeriesLinks();
+
+    @Query("SELECT b.isbn FROM Book b JOIN b.authors a WHERE a.id = :authorId")
+    List<String> findIsbnsByAuthorId(@Param("authorId") Long authorId);
+
+    /**
+     * Takes the books (of any author) out of the author's series.
+     */
+    @Modifying
+    @Query("UPDATE Book b SET b.series = NULL WHERE b.series.id IN (SELECT s.id FROM Series s WHERE s.author.id = :authorId)")
+    int detachFromAuthorSeries(@Param("authorId") Long authorId);
+
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns AND b.image IS NOT NULL")
+    List<String> findIsbnsWithImage(@Param("isbns") Collection<String> isbns);
+
+    // The hints name the only table these statements touch, so Hibernate does not drop
+    // every second-level cache region as it does for native statements by default
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "book_authors"))
+    @Query(value = "DELETE FROM book_authors WHERE book_isbn IN (:isbns)", nativeQuery = true)
+    int removeAuthorLinks(@Param("isbns") Collection<String> isbns);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "book_subjects"))
+    @Query(value = "DELETE FROM book_subjects WHERE book_isbn IN (:isbns)", nativeQuery = true)
+    int removeSubjectLinks(@Param("isbns") Collection<String> isbns);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Book b WHERE b.isbn IN :isbns")
+    int deleteAllByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    @Query("SELECT b.isbn FROM Book b ORDER BY b.isbn ASC")
+    List<String> findIsbns(Pageable pageable);
+
+    @Query("""
+        SELECT
+            b.isbn AS isbn,
+            b.title AS title,
+            b.description AS description,
+            b.publishingYear AS publishingYear,
+            b.pages AS pages,
+            i.url AS imageUrl
+        FROM Book b
+        LEFT JOIN b.image i
+        WHERE b.isbn IN :isbns
+    """)
+    List<BookListingView> findListingViews(@Param("isbns") Collection<String> isbns);
+
+    @Query("""
+        SELECT
+            b.isbn AS bookIsbn,
+            a.id AS id,
+            a.firstName AS firstName,
+            a.lastName AS lastName,
+            ai.url AS imageUrl
+        FROM Book b
+        JOIN b.authors a
+        LEFT JOIN a.image ai
+        WHERE b.isbn IN :isbns
+    """)
+    List<BookAuthorView> findAuthorViews(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Whether the user with this email is one of the book's authors, without loading the book.
+     */
+    @Query("""
+        SELECT COUNT(b) > 0 FROM Book b JOIN b.authors a JOIN a.user u
+        WHERE b.isbn = :isbn AND u.email = :email
+    """)
+    boolean isAuthoredBy(@Param("isbn") String isbn, @Param("email") String email);
 }
@@ -3,9 +3,11 @@ package com.prj2.booksta.repository;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.dto.BookFilterRequest;
 import jakarta.persistence.criteria.*;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class BookSpecification {
@@ -61,4 +63,24 @@ public class BookSpecification {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    /**
+     * Catalog order: (publishingYear, isbn), undated books last whatever the database (H2 sorts
+     * NULL first, PostgreSQL last), like BookFacetIndex. Spring Data cannot apply null precedence
+     * through a Sort on a Specification query, hence an order set here; count queries get none.
+     */
+    public static Specification<Book> inCatalogOrder() {
+        return (root, query, criteriaBuilder) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                query.orderBy(
+                        ((HibernateCriteriaBuilder) criteriaBuilder).asc(root.get("publishingYear"), false),
+                        criteriaBuilder.asc(root.get("isbn")));
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Book> withIsbns(Collection<String> isbns) {
+        return (root, query, criteriaBuilder) -> root.get("isbn").in(isbns);
+    }
 }
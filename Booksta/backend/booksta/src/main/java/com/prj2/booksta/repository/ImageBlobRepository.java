@@ -0,0 +1,64 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.ImageBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * Images still pointing at the blob through a book, author or collection.
+     * Image rows left behind by deleted entities do not count.
+     */
+    @Query("""
+            SELECT COUNT(i) FROM Image i
+            WHERE i.contentHash = :hash
+              AND (EXISTS (SELECT 1 FROM Book b WHERE b.image = i)
+                OR EXISTS (SELECT 1 FROM Author a WHERE a.image = i)
+                OR EXISTS (SELECT 1 FROM BookCollection c WHERE c.image = i))
+            """)
+    long countReferences(@Param("hash") String hash);
+
+    /**
+     * Blobs last uploaded before the cutoff that no book, author or collection image references.
+     * The cutoff leaves time for an upload whose Image row is not committed yet.
+     */
+    @Query("""
+            SELECT blob.hash FROM ImageBlob blob
+            WHERE blob.lastUploadedAt < :cutoff
+              AND NOT EXISTS (
+                SELECT 1 FROM Image i
+                WHERE i.contentHash = blob.hash
+                  AND (EXISTS (SELECT 1 FROM Book b WHERE b.image = i)
+                    OR EXISTS (SELECT 1 FROM Author a WHERE a.image = i)
+                    OR EXISTS (SELECT 1 FROM BookCollection c WHERE c.image = i)))
+            ORDER BY blob.lastUploadedAt
+            """)
+    List<String> findOrphanHashes(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Marks the blob as just uploaded, returning 0 when it is not stored yet.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.lastUploadedAt = :now WHERE b.hash = :hash")
+    int touch(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    /**
+     * Removes the blob row unless an upload touched it since the cutoff; the row lock taken
+     * by a concurrent touch() makes this re-check after it commits.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.hash = :hash AND b.lastUploadedAt < :cutoff")
+    int deleteIfUnused(@Param("hash") String hash, @Param("cutoff") LocalDateTime cutoff);
+}
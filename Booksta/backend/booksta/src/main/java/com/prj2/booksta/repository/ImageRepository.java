@@ -1,9 +1,21 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.Image;
+import com.prj2.booksta.model.ImageStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
+
+    boolean existsByUrl(String url);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Image i SET i.status = :status WHERE i.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") ImageStatus status);
 }
@@ -1,10 +1,14 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.PrivateConversation;
+import com.prj2.booksta.repository.projections.ConversationInboxView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,4 +35,118 @@ public interface PrivateConversationRepository extends JpaRepository<PrivateConv
         WHERE c.participant1.id = :userId OR c.participant2.id = :userId
     """)
     List<PrivateConversation> findAllByParticipant(@Param("userId") Long userId);
+
+    /**
+     * Boîte de réception d'un utilisateur en une seule requête : autre participant, dernier message
+     * et nombre de non-lus, du plus récent au plus ancien.
+     */
+    @Query("""
+        SELECT c.id AS conversationId,
+               o.id AS otherUserId,
+               o.firstName AS otherFirstName,
+               o.lastName AS otherLastName,
+               o.email AS otherEmail,
+               o.picture AS otherPicture,
+               c.lastMessagePreview AS lastMessagePreview,
+               c.lastMessageAt AS lastMessageAt,
+               CASE WHEN c.participant1.id = :userId
+                    THEN c.participant1UnreadCount
+                    ELSE c.participant2UnreadCount END AS unreadCount
+        FROM PrivateConversation c
+        JOIN User o ON o.id = CASE WHEN c.participant1.id = :userId
+                                   THEN c.participant2.id
+                                   ELSE c.participant1.id END
+        WHERE (c.participant1.id = :userId OR c.participant2.id = :userId)
+          AND c.lastMessageAt IS NOT NULL
+        ORDER BY c.lastMessageAt DESC, c.id DESC
+    """)
+    List<ConversationInboxView> findInbox(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Page suivante de la boîte de réception, après la conversation (lastMessageAt, id).
+     */
+    @Query("""
+        SELECT c.id AS conversationId,
+               o.id AS otherUserId,
+               o.firstName AS otherFirstName,
+               o.lastName AS otherLastName,
+               o.email AS otherEmail,
+               o.picture AS otherPicture,
+               c.lastMessagePreview AS lastMessagePreview,
+               c.lastMessageAt AS lastMessageAt,
+               CASE WHEN c.participant1.id = :userId
+                    THEN c.participant1UnreadCount
+                    ELSE c.participant2UnreadCount END AS unreadCount
+        FROM PrivateConversation c
+        JOIN User o ON o.id = CASE WHEN c.participant1.id = :userId
+                                   THEN c.participant2.id
+                                   ELSE c.participant1.id END
+        WHERE (c.participant1.id = :userId OR c.participant2.id = :userId)
+          AND (c.lastMessageAt < :beforeAt
+               OR (c.lastMessageAt = :beforeAt AND c.id < :beforeId))
+        ORDER BY c.lastMessageAt DESC, c.id DESC
+    """)
+    List<ConversationInboxView> findInboxBefore(@Param("userId") Long userId,
+                                                @Param("beforeAt") LocalDateTime beforeAt,
+                                                @Param("beforeId") Long beforeId,
+                                                Pageable pageable);
+
+    /**
+     * Enregistre un nouveau message comme dernier message de la conversation et incrémente
+     * atomiquement le compteur de non-lus du destinataire.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE PrivateConversation c
+        SET c.lastMessageId = :messageId,
+            c.lastMessagePreview = :preview,
+            c.lastMessageAt = :sentAt,
+            c.participant1UnreadCount = c.participant1UnreadCount
+                + CASE WHEN c.participant1.id = :recipientId THEN 1 ELSE 0 END,
+            c.participant2UnreadCount = c.participant2UnreadCount
+                + CASE WHEN c.participant2.id = :recipientId AND c.participant1.id <> :recipientId THEN 1 ELSE 0 END
+        WHERE c.id = :conversationId
+    """)
+    int recordMessage(@Param("conversationId") Long conversationId,
+                      @Param("messageId") Long messageId,
+                      @Param("preview") String preview,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("recipientId") Long recipientId);
+
+    /**
+     * Remet à zéro le compteur de non-lus de l'utilisateur dans la conversation.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE PrivateConversation c
+        SET c.participant1UnreadCount = CASE WHEN c.participant1.id = :userId THEN 0 ELSE c.participant1UnreadCount END,
+            c.participant2UnreadCount = CASE WHEN c.participant2.id = :userId THEN 0 ELSE c.participant2UnreadCount END
+        WHERE c.id = :conversationId
+    """)
+    int resetUnreadCount(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+
+    /**
+     * Remplit le modèle de lecture des conversations créées avant son introduction.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE private_conversation c
+        SET last_message_id = (SELECT MAX(m.id) FROM private_message m WHERE m.conversation_id = c.id),
+            last_message_preview = (SELECT m.content FROM private_message m
+                                    WHERE m.id = (SELECT MAX(m2.id) FROM private_message m2 WHERE m2.conversation_id = c.id)),
+            last_message_at = (SELECT m.sent_at FROM private_message m
+                               WHERE m.id = (SELECT MAX(m2.id) FROM private_message m2 WHERE m2.conversation_id = c.id)),
+            participant1_unread_count = (SELECT COUNT(*) FROM private_message m
+                                         WHERE m.conversation_id = c.id
+                                           AND m.recipient_id = c.participant1_id
+                                           AND m.read_at IS NULL),
+            participant2_unread_count = CASE WHEN c.participant2_id = c.participant1_id THEN 0
+                                        ELSE (SELECT COUNT(*) FROM private_message m
+                                              WHERE m.conversation_id = c.id
+                                                AND m.recipient_id = c.participant2_id
+                                                AND m.read_at IS NULL) END
+        WHERE c.last_message_id IS NULL
+          AND EXISTS (SELECT 1 FROM private_message m WHERE m.conversation_id = c.id)
+    """, nativeQuery = true)
+    int backfillInbox();
 }
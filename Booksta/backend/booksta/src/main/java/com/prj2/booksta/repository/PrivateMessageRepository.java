@@ -1,6 +1,8 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.PrivateMessage;
+import com.prj2.booksta.repository.projections.PrivateMessageView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -42,4 +44,60 @@ public interface PrivateMessageRepository extends JpaRepository<PrivateMessage,
      * Peut retourner null si aucun message.
      */
     PrivateMessage findFirstByConversationIdOrderBySentAtDesc(Long conversationId);
+
+    /**
+     * Historique complet d'une conversation sans charger les utilisateurs, du plus ancien au plus récent.
+     */
+    @Query("""
+        SELECT m.id AS id, m.sender.id AS senderId, m.recipient.id AS recipientId,
+               m.content AS content, m.sentAt AS sentAt, m.readAt AS readAt
+        FROM PrivateMessage m
+        WHERE m.conversation.id = :conversationId
+        ORDER BY m.sentAt ASC, m.id ASC
+    """)
+    List<PrivateMessageView> findViewsByConversation(@Param("conversationId") Long conversationId);
+
+    /**
+     * Derniers messages d'une conversation, du plus récent au plus ancien.
+     */
+    @Query("""
+        SELECT m.id AS id, m.sender.id AS senderId, m.recipient.id AS recipientId,
+               m.content AS content, m.sentAt AS sentAt, m.readAt AS readAt
+        FROM PrivateMessage m
+        WHERE m.conversation.id = :conversationId
+        ORDER BY m.sentAt DESC, m.id DESC
+    """)
+    List<PrivateMessageView> findLatestViews(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    /**
+     * Messages antérieurs au curseur (sentAt, id), du plus récent au plus ancien.
+     */
+    @Query("""
+        SELECT m.id AS id, m.sender.id AS senderId, m.recipient.id AS recipientId,
+               m.content AS content, m.sentAt AS sentAt, m.readAt AS readAt
+        FROM PrivateMessage m
+        WHERE m.conversation.id = :conversationId
+          AND (m.sentAt < :beforeAt OR (m.sentAt = :beforeAt AND m.id < :beforeId))
+        ORDER BY m.sentAt DESC, m.id DESC
+    """)
+    List<PrivateMessageView> findViewsBefore(@Param("conversationId") Long conversationId,
+                                             @Param("beforeAt") LocalDateTime beforeAt,
+                                             @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+
+    /**
+     * Messages postérieurs au curseur (sentAt, id), du plus ancien au plus récent.
+     */
+    @Query("""
+        SELECT m.id AS id, m.sender.id AS senderId, m.recipient.id AS recipientId,
+               m.content AS content, m.sentAt AS sentAt, m.readAt AS readAt
+        FROM PrivateMessage m
+        WHERE m.conversation.id = :conversationId
+          AND (m.sentAt > :afterAt OR (m.sentAt = :afterAt AND m.id > :afterId))
+        ORDER BY m.sentAt ASC, m.id ASC
+    """)
+    List<PrivateMessageView> findViewsAfter(@Param("conversationId") Long conversationId,
+                                            @Param("afterAt") LocalDateTime afterAt,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
 }
@@ -1,9 +1,13 @@
 package com.prj2.booksta.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.prj2.booksta.model.ReadingProgress;
 
@@ -13,4 +17,8 @@ public interface ReadingProgressRepository extends JpaRepository<ReadingProgress
     List<ReadingProgress> findByUserId(Long userId);
 
     void deleteByBook_Isbn(String isbn);
+
+    @Modifying
+    @Query("DELETE FROM ReadingProgress p WHERE p.book.isbn IN :isbns")
+    int deleteAllByBookIsbnIn(@Param("isbns") Collection<String> isbns);
 }
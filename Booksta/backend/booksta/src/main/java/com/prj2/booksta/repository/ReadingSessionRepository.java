@@ -1,14 +1,34 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.ReadingSession;
+import com.prj2.booksta.model.ReadingSessionStatus;
 import com.prj2.booksta.model.User;
+import com.prj2.booksta.repository.projections.FinishedSessionView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ReadingSessionRepository extends JpaRepository<ReadingSession, Long> {
     List<ReadingSession> findByUserAndBookIsbn(User user, String isbn);
 
+    @Query("""
+        SELECT s.endedAt AS endedAt, s.startPage AS startPage, s.endPage AS endPage,
+               s.totalActiveSeconds AS totalActiveSeconds
+        FROM ReadingSession s
+        WHERE s.user.id = :userId AND s.status = :status AND s.endedAt IS NOT NULL
+        ORDER BY s.endedAt ASC
+    """)
+    List<FinishedSessionView> findSessionViewsByUserIdAndStatus(@Param("userId") Long userId,
+                                                                @Param("status") ReadingSessionStatus status);
+
     void deleteByBook_Isbn(String isbn);
+
+    @Modifying
+    @Query("DELETE FROM ReadingSession s WHERE s.book.isbn IN :isbns")
+    int deleteAllByBookIsbnIn(@Param("isbns") Collection<String> isbns);
 }
@@ -1,14 +1,51 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.Series;
+import com.prj2.booksta.repository.projections.SeriesSummaryView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 @Repository
 public interface SeriesRepository extends JpaRepository<Series, Long> {
-    List<Series> findByAuthorId(Long authorId);
+    /**
+     * Also deletes the series' follows: Hibernate clears the collection tables of a bulk-deleted entity.
+     */
+    @Modifying
+    @Query("DELETE FROM Series s WHERE s.author.id = :authorId")
+    int deleteAllByAuthorId(@Param("authorId") Long authorId);
+
+    @Query("""
+        SELECT COUNT(s) > 0 FROM Series s JOIN s.author a JOIN a.user u
+        WHERE s.id = :seriesId AND u.email = :email
+    """)
+    boolean isAuthoredBy(@Param("seriesId") Long seriesId, @Param("email") String email);
 
-    void deleteByAuthorId(Long authorId);
-}
\ No newline at end of file
+    /**
+     * Series with their author and their book and follower counts, in one query.
+     * Books are counted through the grouped join, followers in a subquery: joining both
+     * would multiply each series' rows by books x followers.
+     * A null authorId lists every series.
+     */
+    @Query(value = """
+        SELECT s.id AS id, s.title AS title, s.description AS description,
+               a.id AS authorId, a.firstName AS authorFirstName, a.lastName AS authorLastName,
+               ai.url AS authorImageUrl,
+               COUNT(b) AS bookCount,
+               (SELECT COUNT(f) FROM Series fs JOIN fs.followers f WHERE fs.id = s.id) AS followerCount
+        FROM Series s
+        LEFT JOIN s.author a
+        LEFT JOIN a.image ai
+        LEFT JOIN s.books b
+        WHERE (:authorId IS NULL OR a.id = :authorId)
+        GROUP BY s.id, s.title, s.description, a.id, a.firstName, a.lastName, ai.url
+    """, countQuery = """
+        SELECT COUNT(s) FROM Series s
+        WHERE (:authorId IS NULL OR s.author.id = :authorId)
+    """)
+    Page<SeriesSummaryView> findSummaries(@Param("authorId") Long authorId, Pageable pageable);
+}
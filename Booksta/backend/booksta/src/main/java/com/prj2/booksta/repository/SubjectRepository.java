@@ -1,7 +1,23 @@
 package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.Subject;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 public interface SubjectRepository extends CrudRepository<Subject, Long> {
+
+    // Listed on most catalog pages and rarely changed: served from the query cache until
+    // the subjects table is written to
+    @Override
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "catalog-queries")
+    })
+    List<Subject> findAll();
 }
@@ -2,10 +2,16 @@ package com.prj2.booksta.repository;
 
 import com.prj2.booksta.model.UserBookInventory;
 import com.prj2.booksta.model.UserBookInventoryId;
+import com.prj2.booksta.model.dto.MarketplaceStock;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UserBookInventoryRepository extends JpaRepository<UserBookInventory, UserBookInventoryId> {
@@ -17,5 +23,30 @@ public interface UserBookInventoryRepository extends JpaRepository<UserBookInven
 
     void deleteByBook_Isbn(String isbn);
 
+    @Query("SELECT i.id.bookIsbn FROM UserBookInventory i WHERE i.id.userId = :userId")
+    List<String> findBookIsbnsByUserId(@Param("userId") Long userId);
+
     void deleteByUserId(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UserBookInventory i WHERE i.book.isbn IN :isbns")
+    int deleteAllByBookIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.MarketplaceStock(
+            i.id.bookIsbn, MIN(i.pricePerUnit), COUNT(i), SUM(i.quantity))
+        FROM UserBookInventory i
+        WHERE i.quantity > 0
+        GROUP BY i.id.bookIsbn
+    """)
+    List<MarketplaceStock> aggregateStock();
+
+    @Query("""
+        SELECT new com.prj2.booksta.model.dto.MarketplaceStock(
+            i.id.bookIsbn, MIN(i.pricePerUnit), COUNT(i), SUM(i.quantity))
+        FROM UserBookInventory i
+        WHERE i.quantity > 0 AND i.id.bookIsbn = :isbn
+        GROUP BY i.id.bookIsbn
+    """)
+    Optional<MarketplaceStock> aggregateStockForBook(@Param("isbn") String isbn);
 }
@@ -0,0 +1,82 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.ReadingEventType;
+import com.prj2.booksta.model.UserBookReadingState;
+import com.prj2.booksta.model.UserBookReadingStateId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface UserBookReadingStateRepository extends JpaRepository<UserBookReadingState, UserBookReadingStateId> {
+
+    /**
+     * Locks the state so that two events sent at once are checked one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserBookReadingState s WHERE s.id = :id")
+    Optional<UserBookReadingState> findForUpdate(@Param("id") UserBookReadingStateId id);
+
+    @Query("""
+            SELECT s.readingEvent FROM UserBookReadingState s
+            WHERE s.id.userId = :userId AND s.id.bookIsbn = :isbn
+            """)
+    Optional<ReadingEventType> findReadingEvent(@Param("userId") Long userId, @Param("isbn") String isbn);
+
+    @Query("""
+            SELECT s.readingEvent FROM UserBookReadingState s, User u
+            WHERE u.email = :email AND s.id.userId = u.id AND s.id.bookIsbn = :isbn
+            """)
+    Optional<ReadingEventType> findReadingEventByEmail(@Param("email") String email, @Param("isbn") String isbn);
+
+    @Modifying
+    @Query("DELETE FROM UserBookReadingState s WHERE s.id.bookIsbn IN :isbns")
+    int deleteAllByBookIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Whether some (user, book) pair has events but no state yet.
+     */
+    @Query(value = """
+            SELECT CASE WHEN EXISTS (
+                SELECT 1 FROM book_read_event e
+                WHERE e.reading_event IS NOT NULL
+                  AND e.occurred_at IS NOT NULL
+                  AND NOT EXISTS (
+                    SELECT 1 FROM user_book_reading_state s
+                    WHERE s.user_id = e.user_id AND s.book_isbn = e.book_isbn)
+            ) THEN TRUE ELSE FALSE END
+            """, nativeQuery = true)
+    boolean existsEventWithoutState();
+
+    /**
+     * Fills in the state of every (user, book) pair of the users in [fromUserId, toUserId] with
+     * events but no state yet, from its most recent event (highest id on equal timestamps).
+     * One pass over the range's events, ranked per pair. Idempotent.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_book_reading_state (user_id, book_isbn, reading_event, occurred_at, latest_event_id)
+            SELECT latest.user_id, latest.book_isbn, latest.reading_event, latest.occurred_at, latest.id
+            FROM (
+                SELECT e.user_id, e.book_isbn, e.reading_event, e.occurred_at, e.id,
+                       ROW_NUMBER() OVER (PARTITION BY e.user_id, e.book_isbn
+                                          ORDER BY e.occurred_at DESC, e.id DESC) AS recency
+                FROM book_read_event e
+                WHERE e.user_id BETWEEN :fromUserId AND :toUserId
+                  AND e.reading_event IS NOT NULL
+                  AND e.occurred_at IS NOT NULL
+            ) latest
+            WHERE latest.recency = 1
+              AND NOT EXISTS (
+                SELECT 1 FROM user_book_reading_state s
+                WHERE s.user_id = latest.user_id AND s.book_isbn = latest.book_isbn)
+            """, nativeQuery = true)
+    int backfill(@Param("fromUserId") long fromUserId, @Param("toUserId") long toUserId);
+}
@@ -0,0 +1,14 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.UserReadingDay;
+import com.prj2.booksta.model.UserReadingDayId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserReadingDayRepository extends JpaRepository<UserReadingDay, UserReadingDayId> {
+    List<UserReadingDay> findById_UserIdAndId_DayBetweenOrderById_DayAsc(Long userId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,36 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.UserReadingStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserReadingStatsRepository extends JpaRepository<UserReadingStats, Long> {
+
+    /**
+     * Locks the row so that two sessions ending at once for the same user both count.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserReadingStats s WHERE s.userId = :userId")
+    Optional<UserReadingStats> findForUpdate(@Param("userId") Long userId);
+
+    /**
+     * Users with reading history recorded before the statistics existed, including those whose
+     * row was created but not built yet (updatedAt still null).
+     */
+    @Query("""
+            SELECT u.id FROM User u
+            WHERE NOT EXISTS (SELECT 1 FROM UserReadingStats s WHERE s.userId = u.id AND s.updatedAt IS NOT NULL)
+              AND (EXISTS (SELECT 1 FROM BookReadEvent e WHERE e.user = u)
+                OR EXISTS (SELECT 1 FROM ReadingSession r WHERE r.user = u
+                           AND r.status = com.prj2.booksta.model.ReadingSessionStatus.FINISHED))
+            """)
+    List<Long> findUserIdsWithoutStats();
+}
@@ -1,20 +1,35 @@
 package com.prj2.booksta.repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.prj2.booksta.model.dto.BookWithLatestReadingEvent;
 import com.prj2.booksta.repository.projections.BookWithLatestReadingEventView;
+import com.prj2.booksta.repository.projections.UserBookSignalView;
+import com.prj2.booksta.repository.projections.UserLinkView;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.prj2.booksta.model.User;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    @Query("SELECT u.rolesChangedAt FROM User u WHERE u.email = :email")
+    Optional<Instant> findRolesChangedAtByEmail(@Param("email") String email);
+
     public Optional<User> findByGoogleId(String googleId);
 
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.favoriteList WHERE u.id = :id")
@@ -60,21 +75,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
             b.title AS title,
             b.publishingYear AS publishingYear,
             b.pages AS pages,
-            b.authors AS authors,
-            b.image.url AS imageUrl,
-            e.readingEvent AS latestEventType,
-            e.occurredAt AS latestEventOccurredAt
+            i.url AS imageUrl,
+            s.readingEvent AS latestEventType,
+            s.occurredAt AS latestEventOccurredAt
         FROM User u
         JOIN u.ownedBooks b
-        LEFT JOIN BookReadEvent e
-            ON e.book = b
-            AND e.user = u
-            AND e.occurredAt = (
-                SELECT MAX(e2.occurredAt)
-                FROM BookReadEvent e2
-                WHERE e2.book = b
-                  AND e2.user = u
-            )
+        LEFT JOIN b.image i
+        LEFT JOIN UserBookReadingState s
+            ON s.id.userId = u.id
+            AND s.id.bookIsbn = b.isbn
         WHERE u.id = :userId
     """)
     List<BookWithLatestReadingEventView> findOwnedBooksWithLatestReadingEventView(
@@ -87,20 +96,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
         b.title AS title,
         b.publishingYear AS publishingYear,
         b.pages AS pages,
-        b.image.url AS imageUrl,
-        e.readingEvent AS latestEventType,
-        e.occurredAt AS latestEventOccurredAt
+        i.url AS imageUrl,
+        s.readingEvent AS latestEventType,
+        s.occurredAt AS latestEventOccurredAt
     FROM User u
     JOIN u.ownedBooks b
-    JOIN BookReadEvent e
-        ON e.book = b
-        AND e.user = u
-        AND e.occurredAt = (
-            SELECT MAX(e2.occurredAt)
-            FROM BookReadEvent e2
-            WHERE e2.book = b
-              AND e2.user = u
-        )
+    LEFT JOIN b.image i
+    JOIN UserBookReadingState s
+        ON s.id.userId = u.id
+        AND s.id.bookIsbn = b.isbn
     WHERE u.id = :userId
 """)
     List<BookWithLatestReadingEventView> findOwnedBooksWithReadingEvent(
@@ -112,4 +116,64 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT COUNT(u) > 0 FROM User u JOIN u.roles r WHERE r.name = :roleName")
     boolean existsUserWithRole(@Param("roleName") String roleName);
+
+    /**
+     * Ownership check without loading the user or their library
+     */
+    @Query("SELECT COUNT(b) > 0 FROM User u JOIN u.ownedBooks b WHERE u.email = :email AND b.isbn = :isbn")
+    boolean ownsBook(@Param("email") String email, @Param("isbn") String isbn);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_favorites"))
+    @Query(value = "DELETE FROM user_favorites WHERE book_isbn IN (:isbns)", nativeQuery = true)
+    int removeBooksFromAllFavorites(@Param("isbns") Collection<String> isbns);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_owned_books"))
+    @Query(value = "DELETE FROM user_owned_books WHERE book_isbn IN (:isbns)", nativeQuery = true)
+    int removeBooksFromAllOwnedBooks(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Every (user, book) signal behind the recommendations, grouped by user: favorites weigh 3,
+     * owned books 2 and books with a reading state 1. Must be consumed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT u.id AS userId, b.isbn AS bookIsbn, 3 AS weight FROM User u JOIN u.favoriteList b
+        UNION ALL
+        SELECT u.id, b.isbn, 2 FROM User u JOIN u.ownedBooks b
+        UNION ALL
+        SELECT s.id.userId, s.id.bookIsbn, 1 FROM UserBookReadingState s
+        ORDER BY userId
+    """)
+    Stream<UserBookSignalView> streamBookSignals();
+
+    @Query("""
+        SELECT u.id AS userId, b.isbn AS bookIsbn, 3 AS weight FROM User u JOIN u.favoriteList b
+        WHERE u.id = :userId
+        UNION ALL
+        SELECT u.id, b.isbn, 2 FROM User u JOIN u.ownedBooks b
+        WHERE u.id = :userId
+        UNION ALL
+        SELECT s.id.userId, s.id.bookIsbn, 1 FROM UserBookReadingState s
+        WHERE s.id.userId = :userId
+    """)
+    List<UserBookSignalView> findBookSignals(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS userId, a.id AS linkedId FROM User u JOIN u.followedAuthors a")
+    Stream<UserLinkView> streamFollowedAuthors();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS userId, s.id AS linkedId FROM User u JOIN u.followedSeries s")
+    Stream<UserLinkView> streamFollowedSeries();
+
+    @Query("SELECT a.id FROM User u JOIN u.followedAuthors a WHERE u.id = :userId")
+    List<Long> findFollowedAuthorIds(@Param("userId") Long userId);
+
+    @Query("SELECT s.id FROM User u JOIN u.followedSeries s WHERE u.id = :userId")
+    List<Long> findFollowedSeriesIds(@Param("userId") Long userId);
 }
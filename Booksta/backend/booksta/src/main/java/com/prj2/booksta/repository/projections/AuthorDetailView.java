@@ -0,0 +1,10 @@
+package com.prj2.booksta.repository.projections;
+
+public interface AuthorDetailView {
+    Long getId();
+    String getFirstName();
+    String getLastName();
+    String getImageUrl();
+    String getUserEmail();
+    long getFollowerCount();
+}
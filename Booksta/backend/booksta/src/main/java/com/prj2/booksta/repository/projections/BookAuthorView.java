@@ -0,0 +1,9 @@
+package com.prj2.booksta.repository.projections;
+
+public interface BookAuthorView {
+    String getBookIsbn();
+    Long getId();
+    String getFirstName();
+    String getLastName();
+    String getImageUrl();
+}
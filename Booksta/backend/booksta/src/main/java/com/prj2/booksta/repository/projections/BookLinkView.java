@@ -0,0 +1,6 @@
+package com.prj2.booksta.repository.projections;
+
+public interface BookLinkView {
+    String getBookIsbn();
+    Long getLinkedId();
+}
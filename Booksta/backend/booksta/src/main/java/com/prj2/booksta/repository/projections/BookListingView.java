@@ -0,0 +1,10 @@
+package com.prj2.booksta.repository.projections;
+
+public interface BookListingView {
+    String getIsbn();
+    String getTitle();
+    String getDescription();
+    Integer getPublishingYear();
+    Long getPages();
+    String getImageUrl();
+}
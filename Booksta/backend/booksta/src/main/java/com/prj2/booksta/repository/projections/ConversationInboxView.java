@@ -0,0 +1,18 @@
+package com.prj2.booksta.repository.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * One inbox row: a conversation seen from one of its participants.
+ */
+public interface ConversationInboxView {
+    Long getConversationId();
+    Long getOtherUserId();
+    String getOtherFirstName();
+    String getOtherLastName();
+    String getOtherEmail();
+    String getOtherPicture();
+    String getLastMessagePreview();
+    LocalDateTime getLastMessageAt();
+    Long getUnreadCount();
+}
@@ -0,0 +1,10 @@
+package com.prj2.booksta.repository.projections;
+
+import java.time.Instant;
+
+public interface FinishedSessionView {
+    Instant getEndedAt();
+    Integer getStartPage();
+    Integer getEndPage();
+    Long getTotalActiveSeconds();
+}
@@ -0,0 +1,12 @@
+package com.prj2.booksta.repository.projections;
+
+import java.time.LocalDateTime;
+
+public interface PrivateMessageView {
+    Long getId();
+    Long getSenderId();
+    Long getRecipientId();
+    String getContent();
+    LocalDateTime getSentAt();
+    LocalDateTime getReadAt();
+}
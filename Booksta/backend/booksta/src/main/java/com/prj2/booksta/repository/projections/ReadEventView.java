@@ -0,0 +1,10 @@
+package com.prj2.booksta.repository.projections;
+
+import com.prj2.booksta.model.ReadingEventType;
+
+import java.time.Instant;
+
+public interface ReadEventView {
+    ReadingEventType getReadingEvent();
+    Instant getOccurredAt();
+}
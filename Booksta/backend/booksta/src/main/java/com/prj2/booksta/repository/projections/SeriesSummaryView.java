@@ -0,0 +1,13 @@
+package com.prj2.booksta.repository.projections;
+
+public interface SeriesSummaryView {
+    Long getId();
+    String getTitle();
+    String getDescription();
+    Long getAuthorId();
+    String getAuthorFirstName();
+    String getAuthorLastName();
+    String getAuthorImageUrl();
+    long getBookCount();
+    long getFollowerCount();
+}
@@ -0,0 +1,7 @@
+package com.prj2.booksta.repository.projections;
+
+public interface UserBookSignalView {
+    Long getUserId();
+    String getBookIsbn();
+    Integer getWeight();
+}
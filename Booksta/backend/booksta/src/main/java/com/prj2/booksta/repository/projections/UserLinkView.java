@@ -0,0 +1,6 @@
+package com.prj2.booksta.repository.projections;
+
+public interface UserLinkView {
+    Long getUserId();
+    Long getLinkedId();
+}
@@ -1,26 +1,33 @@
 package com.prj2.booksta.service;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import com.prj2.booksta.model.Book;
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.CatalogCache;
+import com.prj2.booksta.config.JwtPrincipalCache;
 import com.prj2.booksta.model.Image;
-import com.prj2.booksta.model.Series;
 import com.prj2.booksta.model.User;
 import com.prj2.booksta.model.dto.AuthorDetailResponse;
 import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.repository.AuthorReportRepository;
 import com.prj2.booksta.repository.BookRepository;
 import com.prj2.booksta.repository.SeriesRepository;
-import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.AuthorDetailView;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.prj2.booksta.model.Author;
 import com.prj2.booksta.repository.AuthorRepository;
@@ -37,7 +44,7 @@ public class AuthorService {
     private SeriesRepository seriesRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private AuthorReportRepository authorReportRepository;
 
     @Autowired
     private RoleService roleService;
@@ -51,10 +58,22 @@ public class AuthorService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ImageUploadQueue imageUploadQueue;
+
     @Autowired
     @Lazy
     private BookService bookService;
 
+    @Autowired
+    private JwtPrincipalCache jwtPrincipalCache;
+
+    @Autowired
+    private AuthorizationDecisionCache decisionCache;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
     public Iterable<Author> getAllAuthors() {
         return authorRepository.findAll();}
 
@@ -64,7 +83,19 @@ public class AuthorService {
     }
 
     public Author save(Author author) {
-        return authorRepository.save(author);
+        Author saved = authorRepository.save(author);
+        catalogCache.evictAuthor(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Saves the author with a newly uploaded picture. The picture is stored as a content-addressed
+     * blob once this transaction commits, and dropped with it on rollback.
+     */
+    @Transactional
+    public Author saveWithImage(Author author, MultipartFile file) throws IOException {
+        author.setImage(imageUploadQueue.stage(file, author.getImage()));
+        return save(author);
     }
 
     public void addAuthor(User user) {
@@ -78,7 +109,9 @@ public class AuthorService {
         var authorRole = roleService.getRole("AUTHOR");
         if (authorRole != null && !user.getRoles().contains(authorRole)) {
             user.getRoles().add(authorRole);
+            user.setRolesChangedAt(Instant.now());
             userService.save(user);
+            jwtPrincipalCache.invalidateSubject(user.getEmail());
         }
 
         // Create author entity
@@ -90,6 +123,7 @@ public class AuthorService {
         author.setImage(img);
         imageService.createImage(img);
         authorRepository.save(author);
+        decisionCache.invalidateSubject(user.getEmail());
     }
 
     public @NotNull Set<Author> findAllById(List<Long> authors) {
@@ -103,82 +137,68 @@ public class AuthorService {
         return authorRepository.findByUser_Id(userId);
     }
 
+    /**
+     * The author's page in three queries whatever the size of their bibliography: the
+     * profile with its follower count, the book summaries and the series with their counts.
+     */
     @Transactional(readOnly = true)
     public AuthorDetailResponse getAuthorDetails(Long authorId) {
-        Author author = authorRepository.findById(authorId)
+        AuthorDetailView author = authorRepository.findDetailView(authorId)
                 .orElseThrow(() -> new EntityNotFoundException("Author not found"));
 
-        List<Book> books = bookRepository.findByAuthors_Id(authorId);
-        List<Series> seriesList = seriesRepository.findByAuthorId(authorId);
+        List<BookSummary> books = bookRepository.findSummariesByAuthorId(authorId);
+        List<AuthorDetailResponse.SeriesSummary> series = seriesRepository
+                .findSummaries(authorId, Pageable.unpaged(Sort.by("id"))).stream()
+                .map(view -> new AuthorDetailResponse.SeriesSummary(
+                        view.getId(),
+                        view.getTitle(),
+                        view.getDescription(),
+                        (int) view.getBookCount(),
+                        (int) view.getFollowerCount()
+                ))
+                .collect(Collectors.toList());
 
         AuthorDetailResponse response = new AuthorDetailResponse();
         response.setId(author.getId());
         response.setFirstName(author.getFirstName());
         response.setLastName(author.getLastName());
-        response.setImageUrl(author.getImage() != null ? author.getImage().getUrl() : null);
-        response.setFollowerCount(author.getFollowers() != null ? author.getFollowers().size() : 0);
+        response.setImageUrl(author.getImageUrl());
+        response.setFollowerCount((int) author.getFollowerCount());
         response.setBookCount(books.size());
-        response.setSeriesCount(seriesList.size());
-
-        List<BookSummary> bookSummaries = books.stream()
-                .map(book -> new BookSummary(
-                        book.getIsbn(),
-                        book.getTitle(),
-                        book.getPublishingYear(),
-                        book.getImage() != null ? book.getImage().getUrl() : null
-                ))
-                .collect(Collectors.toList());
-        response.setBooks(bookSummaries);
-
-        List<AuthorDetailResponse.SeriesSummary> seriesSummaries = seriesList.stream()
-                .map(series -> new AuthorDetailResponse.SeriesSummary(
-                        series.getId(),
-                        series.getTitle(),
-                        series.getDescription(),
-                        series.getBooks() != null ? series.getBooks().size() : 0,
-                        series.getFollowers() != null ? series.getFollowers().size() : 0
-                ))
-                .collect(Collectors.toList());
-        response.setSeries(seriesSummaries);
-
+        response.setSeriesCount(series.size());
+        response.setBooks(books);
+        response.setSeries(series);
         return response;
     }
 
+    /**
+     * Deletes the author with one set-based statement per table, without loading their
+     * books, series or followers. Their books are deleted (co-authored ones included),
+     * other authors' books are taken out of their series, and the user account is kept.
+     */
     @Transactional
     public void deleteAuthor(Long authorId) {
-        Author author = authorRepository.findById(authorId)
+        AuthorDetailView author = authorRepository.findDetailView(authorId)
                 .orElseThrow(() -> new EntityNotFoundException("Author not found: " + authorId));
 
-        // 1. Delete all books by this author (this cascades to reports, collections, etc.)
-        List<Book> books = bookRepository.findByAuthors_Id(authorId);
-        for (Book book : books) {
-            bookService.delete(book.getIsbn());
+        // 1. Books by this author, and every row referencing them
+        List<String> isbns = bookRepository.findIsbnsByAuthorId(authorId);
+        if (!isbns.isEmpty()) {
+            bookService.deleteAll(isbns);
         }
 
-        // 2. Delete all series by this author
-        // First, remove books from series (don't delete the books, they're already deleted or belong to other authors)
-        List<Series> seriesList = seriesRepository.findByAuthorId(authorId);
-        for (Series series : seriesList) {
-            for (Book book : series.getBooks()) {
-                book.setSeries(null);
-                bookRepository.save(book);
-            }
-            // Remove followers from series
-            for (User follower : series.getFollowers()) {
-                follower.getFollowedSeries().remove(series);
-                userRepository.save(follower);
-            }
-        }
-        seriesRepository.deleteByAuthorId(authorId);
+        // 2. Their series and its follows; books left in them (other authors') are detached
+        bookRepository.detachFromAuthorSeries(authorId);
+        seriesRepository.deleteAllByAuthorId(authorId);
 
-        // 3. Remove from followers (user_followed_authors) - don't delete the users
-        for (User follower : author.getFollowers()) {
-            follower.getFollowedAuthors().remove(author);
-            userRepository.save(follower);
-        }
+        // 3. Reports about the author
+        authorReportRepository.deleteAllByAuthorId(authorId);
 
-        // 4. Delete author image
-        if (author.getImage() != null) {
+        // 4. The author and its follows; the associated user account remains
+        authorRepository.deleteInBulk(authorId);
+        catalogCache.evictAuthor(authorId);
+
+        if (author.getImageUrl() != null) {
             try {
                 fileStorageService.deleteAuthorImage(authorId);
             } catch (Exception e) {
@@ -186,10 +206,9 @@ public class AuthorService {
             }
         }
 
-        // 5. DO NOT delete the associated user - just clear the relationship
-        // The user account remains, only the author profile is deleted
-
-        // 6. Delete the author
-        authorRepository.delete(author);
+        // Only the author's user can have been granted anything as this author
+        if (author.getUserEmail() != null) {
+            decisionCache.invalidateSubject(author.getUserEmail());
+        }
     }
 }
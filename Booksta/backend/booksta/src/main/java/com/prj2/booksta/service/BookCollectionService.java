@@ -14,6 +14,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -32,7 +33,7 @@ public class BookCollectionService {
         @Autowired
         private FileStorageService fileStorageService;
         @Autowired
-        private ImageService imageService;
+        private ImageUploadQueue imageUploadQueue;
 
         private User getAuthenticatedUser() {
                 String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
@@ -48,6 +49,7 @@ public class BookCollectionService {
         }
 
         /** create collection */
+        @Transactional
         public BookCollection createCollection(BookCollection collection, MultipartFile image) {
                 collection.setOwner(getAuthenticatedUser());
                 if (collection.getVisibility() == null) {
@@ -58,8 +60,7 @@ public class BookCollectionService {
 
                 if (image != null && !image.isEmpty()) {
                         try {
-                                String imageUrl = fileStorageService.saveCollectionImage(image, saved.getId());
-                                Image img = imageService.createImage(new Image(imageUrl));
+                                Image img = imageUploadQueue.stage(image, null);
                                 saved.setImage(img);
                                 saved = repo.save(saved);
                         } catch (IOException e) {
@@ -86,6 +87,7 @@ public class BookCollectionService {
         }
 
         /** update collection */
+        @Transactional
         public BookCollection updateCollection(Long collectionId, BookCollection updates, MultipartFile image) {
                 BookCollection collection = repo.findById(collectionId)
                                 .orElseThrow(() -> new EntityNotFoundException("Collection not found"));
@@ -103,13 +105,7 @@ public class BookCollectionService {
 
                 if (image != null && !image.isEmpty()) {
                         try {
-                                String imageUrl = fileStorageService.saveCollectionImage(image, collectionId);
-                                if (collection.getImage() != null) {
-                                        collection.getImage().setUrl(imageUrl);
-                                } else {
-                                        Image img = imageService.createImage(new Image(imageUrl));
-                                        collection.setImage(img);
-                                }
+                                collection.setImage(imageUploadQueue.stage(image, collection.getImage()));
                         } catch (IOException e) {
                                 throw new RuntimeException("Failed to save collection image", e);
                         }
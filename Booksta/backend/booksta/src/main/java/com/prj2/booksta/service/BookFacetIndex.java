@@ -0,0 +1,390 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.dto.BookFacets;
+import com.prj2.booksta.model.dto.BookFilterRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory facet index over the book catalog: one bitset of books per subject, author, publishing
+ * year, decade and page range. Kept up to date by BookService alongside {@link BookSearchIndex},
+ * so a filtered page and its facet counts never have to scan the book tables.
+ */
+@Component
+public class BookFacetIndex {
+
+    static final int AUTHOR_FACET_LIMIT = 20;
+
+    // Lower bounds of the page ranges, the last one is open-ended
+    static final long[] PAGE_RANGES = {0, 100, 200, 300, 400, 500};
+
+    public record FacetedIsbns(List<String> isbns, long total, BookFacets facets) {}
+
+    private record Document(String isbn, Integer year, Long pages, Set<Long> authorIds, Set<Long> subjectIds) {}
+
+    // Books are numbered with dense slots, reused once freed, so the bitsets stay compact
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final BitSet live = new BitSet();
+
+    private final Map<Long, BitSet> subjects = new HashMap<>();
+    private final Map<Long, BitSet> authors = new HashMap<>();
+    // author id -> number of books, the author facet when no other filter applies
+    private final Map<Long, Integer> authorBookCounts = new HashMap<>();
+    private final NavigableMap<Integer, BitSet> years = new TreeMap<>();
+    private final NavigableMap<Integer, BitSet> decades = new TreeMap<>();
+    private final BitSet[] pageRanges = new BitSet[PAGE_RANGES.length];
+    private final BitSet undated = new BitSet();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookFacetIndex() {
+        for (int i = 0; i < pageRanges.length; i++) {
+            pageRanges[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Adds the book to the index, replacing any previous version of it.
+     */
+    public void index(Book book) {
+        Document document = new Document(
+                book.getIsbn(),
+                book.getPublishingYear(),
+                book.getPages(),
+                ids(book.getAuthors(), Author::getId),
+                ids(book.getSubjects(), Subject::getId));
+
+        lock.writeLock().lock();
+        try {
+            unindex(book.getIsbn());
+            int slot = live.nextClearBit(0);
+            live.set(slot);
+            slots.put(document.isbn(), slot);
+            while (documents.size() <= slot) {
+                documents.add(null);
+            }
+            documents.set(slot, document);
+
+            document.subjectIds().forEach(id -> subjects.computeIfAbsent(id, k -> new BitSet()).set(slot));
+            document.authorIds().forEach(id -> {
+                authors.computeIfAbsent(id, k -> new BitSet()).set(slot);
+                authorBookCounts.merge(id, 1, Integer::sum);
+            });
+            if (document.year() == null) {
+                undated.set(slot);
+            } else {
+                years.computeIfAbsent(document.year(), k -> new BitSet()).set(slot);
+                decades.computeIfAbsent(decadeOf(document.year()), k -> new BitSet()).set(slot);
+            }
+            if (document.pages() != null) {
+                pageRanges[pageRangeOf(document.pages())].set(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            unindex(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            documents.clear();
+            live.clear();
+            subjects.clear();
+            authors.clear();
+            authorBookCounts.clear();
+            years.clear();
+            decades.clear();
+            undated.clear();
+            for (BitSet range : pageRanges) {
+                range.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of the books matching the filter, in (publishingYear, isbn) order like the catalog,
+     * with the facet counts. Each facet is counted under every filter but its own, so the counts
+     * of the other values tell what switching to (or adding) them would give. titleMatches are
+     * the ISBNs matching the title criterion, or null when there is none.
+     */
+    public FacetedIsbns search(BookFilterRequest filter, Set<String> titleMatches, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet byTitle = titleMatches == null ? null : slotsOf(titleMatches);
+            BitSet byYear = yearRange(filter.getYearMin(), filter.getYearMax());
+            BitSet byPages = pagesRange(filter.getPagesMin(), filter.getPagesMax());
+            BitSet byAuthor = filter.hasAuthorFilter() ? union(authors, filter.getAuthorIds()) : null;
+            BitSet bySubject = filter.hasSubjectFilter() ? union(subjects, filter.getSubjectIds()) : null;
+
+            BitSet matches = matching(byTitle, byYear, byPages, byAuthor, bySubject);
+            Map<Long, Integer> authorFacet = byTitle == null && byYear == null && byPages == null && bySubject == null
+                    ? authorBookCounts
+                    : authorCounts(matching(byTitle, byYear, byPages, bySubject));
+            BookFacets facets = new BookFacets(
+                    byCount(counts(subjects, matching(byTitle, byYear, byPages, byAuthor)), Integer.MAX_VALUE),
+                    byCount(authorFacet, AUTHOR_FACET_LIMIT),
+                    counts(decades, matching(byTitle, byPages, byAuthor, bySubject)),
+                    pageRangeCounts(matching(byTitle, byYear, byAuthor, bySubject)));
+
+            return new FacetedIsbns(page(matches, offset, limit), matches.cardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet matching(BitSet... filters) {
+        BitSet result = (BitSet) live.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private BitSet slotsOf(Collection<String> isbns) {
+        BitSet result = new BitSet();
+        for (String isbn : isbns) {
+            Integer slot = slots.get(isbn);
+            if (slot != null) {
+                result.set(slot);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet union(Map<Long, BitSet> facet, Collection<Long> ids) {
+        BitSet result = new BitSet();
+        for (Long id : ids) {
+            BitSet books = facet.get(id);
+            if (books != null) {
+                result.or(books);
+            }
+        }
+        return result;
+    }
+
+    private BitSet yearRange(Integer min, Integer max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        int from = min == null ? Integer.MIN_VALUE : min;
+        int to = max == null ? Integer.MAX_VALUE : max;
+        BitSet result = new BitSet();
+        if (from <= to) {
+            years.subMap(from, true, to, true).values().forEach(result::or);
+        }
+        return result;
+    }
+
+    /**
+     * Page ranges inside the bounds are taken whole; only the books of the ranges straddling
+     * a bound are checked one by one.
+     */
+    private BitSet pagesRange(Long min, Long max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        long from = min == null ? Long.MIN_VALUE : min;
+        long to = max == null ? Long.MAX_VALUE : max;
+        BitSet result = new BitSet();
+        for (int i = 0; i < pageRanges.length; i++) {
+            long rangeFrom = i == 0 ? Long.MIN_VALUE : PAGE_RANGES[i];
+            long rangeTo = i == pageRanges.length - 1 ? Long.MAX_VALUE : PAGE_RANGES[i + 1] - 1;
+            if (rangeTo < from || rangeFrom > to) {
+                continue;
+            }
+            if (rangeFrom >= from && rangeTo <= to) {
+                result.or(pageRanges[i]);
+                continue;
+            }
+            BitSet range = pageRanges[i];
+            for (int slot = range.nextSetBit(0); slot >= 0; slot = range.nextSetBit(slot + 1)) {
+                long pages = documents.get(slot).pages();
+                if (pages >= from && pages <= to) {
+                    result.set(slot);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <K> Map<K, Integer> counts(Map<K, BitSet> facet, BitSet base) {
+        Map<K, Integer> counts = new LinkedHashMap<>();
+        facet.forEach((value, books) -> {
+            int count = intersectionSize(books, base);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * With thousands of authors, walking the matching books is cheaper than intersecting
+     * every author's bitset. Only needed under a filter: unfiltered, the counts are kept.
+     */
+    private Map<Long, Integer> authorCounts(BitSet base) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int slot = base.nextSetBit(0); slot >= 0; slot = base.nextSetBit(slot + 1)) {
+            for (Long authorId : documents.get(slot).authorIds()) {
+                counts.merge(authorId, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private Map<String, Integer> pageRangeCounts(BitSet base) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < pageRanges.length; i++) {
+            int count = intersectionSize(pageRanges[i], base);
+            if (count > 0) {
+                counts.put(pageRangeLabel(i), count);
+            }
+        }
+        return counts;
+    }
+
+    private static Map<Long, Integer> byCount(Map<Long, Integer> counts, int limit) {
+        Map<Long, Integer> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection.cardinality();
+    }
+
+    /**
+     * Skips whole years by their match count, and only sorts the ISBNs of the years the page spans.
+     * Undated books come last, as in BookSpecification.inCatalogOrder.
+     */
+    private List<String> page(BitSet matches, long offset, int limit) {
+        List<String> page = new ArrayList<>();
+        long skip = offset;
+        List<BitSet> byYear = new ArrayList<>(years.values());
+        byYear.add(undated);
+        for (BitSet yearBooks : byYear) {
+            if (page.size() >= limit) {
+                break;
+            }
+            BitSet inYear = (BitSet) yearBooks.clone();
+            inYear.and(matches);
+            int count = inYear.cardinality();
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            List<String> isbns = inYear.stream()
+                    .mapToObj(slot -> documents.get(slot).isbn())
+                    .sorted()
+                    .toList();
+            for (int i = (int) skip; i < isbns.size() && page.size() < limit; i++) {
+                page.add(isbns.get(i));
+            }
+            skip = 0;
+        }
+        return page;
+    }
+
+    private void unindex(String isbn) {
+        Integer slot = slots.remove(isbn);
+        if (slot == null) {
+            return;
+        }
+        Document document = documents.set(slot, null);
+        live.clear(slot);
+
+        document.subjectIds().forEach(id -> clearSlot(subjects, id, slot));
+        document.authorIds().forEach(id -> {
+            clearSlot(authors, id, slot);
+            authorBookCounts.computeIfPresent(id, (k, count) -> count > 1 ? count - 1 : null);
+        });
+        if (document.year() == null) {
+            undated.clear(slot);
+        } else {
+            clearSlot(years, document.year(), slot);
+            clearSlot(decades, decadeOf(document.year()), slot);
+        }
+        if (document.pages() != null) {
+            pageRanges[pageRangeOf(document.pages())].clear(slot);
+        }
+    }
+
+    private static <K> void clearSlot(Map<K, BitSet> facet, K value, int slot) {
+        BitSet books = facet.get(value);
+        if (books != null) {
+            books.clear(slot);
+            if (books.isEmpty()) {
+                facet.remove(value);
+            }
+        }
+    }
+
+    private static <T> Set<Long> ids(Set<T> entities, Function<T, Long> id) {
+        if (entities == null) {
+            return Set.of();
+        }
+        Set<Long> ids = new HashSet<>();
+        for (T entity : entities) {
+            Long value = id.apply(entity);
+            if (value != null) {
+                ids.add(value);
+            }
+        }
+        return ids;
+    }
+
+    static int decadeOf(int year) {
+        return Math.floorDiv(year, 10) * 10;
+    }
+
+    static int pageRangeOf(long pages) {
+        int range = 0;
+        while (range + 1 < PAGE_RANGES.length && pages >= PAGE_RANGES[range + 1]) {
+            range++;
+        }
+        return range;
+    }
+
+    static String pageRangeLabel(int range) {
+        return range == PAGE_RANGES.length - 1
+                ? PAGE_RANGES[range] + "+"
+                : PAGE_RANGES[range] + "-" + (PAGE_RANGES[range + 1] - 1);
+    }
+}
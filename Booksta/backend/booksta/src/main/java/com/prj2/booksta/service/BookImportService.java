@@ -0,0 +1,377 @@
+package com.prj2.booksta.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.AuthorizationDecisionCache.Check;
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.dto.BookImportResult;
+import com.prj2.booksta.model.dto.BookImportRow;
+import com.prj2.booksta.repository.AuthorRepository;
+import com.prj2.booksta.repository.BookRepository;
+import com.prj2.booksta.repository.SubjectRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bulk book import, read as a stream and written a chunk at a time: each chunk is one
+ * transaction, with one query for the ISBNs that already exist and one per referenced
+ * table, and its inserts sent as JDBC batches. Memory stays bounded by the chunk size,
+ * whatever the size of the upload. Chunks written before a malformed input is detected
+ * are kept.
+ */
+@Service
+public class BookImportService {
+
+    static final int MAX_REPORTED_ERRORS = 100;
+    static final List<String> CSV_COLUMNS = List.of(
+            "isbn", "title", "publishingYear", "description", "pages", "authorIds", "subjectIds");
+    private static final Set<String> REQUIRED_CSV_COLUMNS = Set.of("isbn", "title", "publishingYear", "description");
+    private static final int MAX_ISBN_LENGTH = 255;
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_DESCRIPTION_LENGTH = 5000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    @Autowired
+    private AuthorizationDecisionCache decisionCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${books.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * CSV with a header line naming the columns (any order, see {@link #CSV_COLUMNS}).
+     * Author and subject ids are separated by '|'.
+     */
+    public BookImportResult importCsv(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+        try (CsvReader csv = new CsvReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<String> header = csv.next();
+            if (header == null) {
+                return run.finish();
+            }
+            Map<String, Integer> columns = csvColumns(header);
+
+            long row = 0;
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                row++;
+                String isbn = field(record, columns, "isbn");
+                BookImportRow book;
+                try {
+                    book = new BookImportRow(
+                            isbn,
+                            field(record, columns, "title"),
+                            parse(field(record, columns, "publishingYear"), Integer::valueOf, "publishingYear"),
+                            field(record, columns, "description"),
+                            parse(field(record, columns, "pages"), Long::valueOf, "pages"),
+                            ids(field(record, columns, "authorIds"), "authorIds"),
+                            ids(field(record, columns, "subjectIds"), "subjectIds")
+                    );
+                } catch (IllegalArgumentException e) {
+                    run.reject(row, isbn, e.getMessage());
+                    continue;
+                }
+                run.add(row, book);
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * A JSON array of {@link BookImportRow} objects, parsed one element at a time.
+     */
+    public BookImportResult importJson(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of books");
+            }
+            long row = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == null) {
+                    throw new IllegalArgumentException("Unterminated JSON array");
+                }
+                row++;
+                // Read as a tree first: a value of the wrong type rejects this book only
+                JsonNode node = objectMapper.readTree(parser);
+                BookImportRow book;
+                try {
+                    book = objectMapper.treeToValue(node, BookImportRow.class);
+                } catch (JsonProcessingException e) {
+                    run.reject(row, node.path("isbn").asText(null), "Invalid book: " + e.getOriginalMessage());
+                    continue;
+                }
+                run.add(row, book);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+        return run.finish();
+    }
+
+    private static Map<String, Integer> csvColumns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // Spreadsheet exports often start with a byte order mark
+            String name = (i == 0 ? header.get(i).replace("\uFEFF", "") : header.get(i)).trim();
+            if (!CSV_COLUMNS.contains(name)) {
+                throw new IllegalArgumentException("Unknown CSV column: " + name + " (expected " + CSV_COLUMNS + ")");
+            }
+            columns.put(name, i);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_CSV_COLUMNS)) {
+            throw new IllegalArgumentException("CSV header must contain " + REQUIRED_CSV_COLUMNS);
+        }
+        return columns;
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size() || record.get(index).isBlank()) {
+            return null;
+        }
+        return record.get(index).trim();
+    }
+
+    private static <T> T parse(String value, Function<String, T> parser, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static List<Long> ids(String value, String column) {
+        if (value == null) {
+            return List.of();
+        }
+        return Arrays.stream(value.split("\\|"))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(id -> parse(id, Long::valueOf, column))
+                .toList();
+    }
+
+    /**
+     * Reason the row cannot be imported, checked before writing so that a bad row does not
+     * fail its whole chunk; null when valid.
+     */
+    private static String validate(BookImportRow book) {
+        if (book.isbn() == null || book.isbn().isBlank()) {
+            return "Missing isbn";
+        }
+        if (book.isbn().length() > MAX_ISBN_LENGTH) {
+            return "isbn longer than " + MAX_ISBN_LENGTH + " characters";
+        }
+        if (book.title() == null || book.title().isBlank()) {
+            return "Missing title";
+        }
+        if (book.title().length() > MAX_TITLE_LENGTH) {
+            return "title longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        if (book.publishingYear() == null) {
+            return "Missing publishingYear";
+        }
+        if (book.description() == null) {
+            return "Missing description";
+        }
+        if (book.description().length() > MAX_DESCRIPTION_LENGTH) {
+            return "description longer than " + MAX_DESCRIPTION_LENGTH + " characters";
+        }
+        if (book.pages() != null && book.pages() < 0) {
+            return "Negative pages";
+        }
+        return null;
+    }
+
+    /**
+     * State of one import: the pending chunk and the counts so far.
+     */
+    private class ImportRun {
+        private final List<PendingBook> chunk = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+        private final List<BookImportResult.RowError> errors = new ArrayList<>();
+        private int imported;
+        private int skippedExisting;
+        private int rejected;
+
+        void add(long row, BookImportRow book) {
+            String invalid = validate(book);
+            if (invalid != null) {
+                reject(row, book.isbn(), invalid);
+                return;
+            }
+            if (!seen.add(book.isbn())) {
+                reject(row, book.isbn(), "Duplicate isbn in this import");
+                return;
+            }
+            chunk.add(new PendingBook(row, book));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String isbn, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BookImportResult.RowError(row, isbn, reason));
+            }
+        }
+
+        BookImportResult finish() {
+            flush();
+            return new BookImportResult(imported, skippedExisting, rejected, List.copyOf(errors));
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Book> written = transactionTemplate.execute(status -> write(chunk));
+            decisionCache.invalidateResources(
+                    List.of(Check.AUTHOR_OF_BOOK), written.stream().map(Book::getIsbn).toList());
+            for (Book book : written) {
+                bookSearchIndex.index(book);
+                bookFacetIndex.index(book);
+            }
+            imported += written.size();
+            chunk.clear();
+        }
+
+        private List<Book> write(List<PendingBook> pending) {
+            // Imported rows are not read back right away: keep them out of the second-level cache
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+
+            Set<String> existing = new HashSet<>(bookRepository.findExistingIsbns(
+                    pending.stream().map(p -> p.book().isbn()).toList()));
+            Map<Long, Author> authors = new HashMap<>();
+            authorRepository.findAllById(referenced(pending, BookImportRow::authorIds))
+                    .forEach(author -> authors.put(author.getId(), author));
+            Map<Long, Subject> subjects = new HashMap<>();
+            subjectRepository.findAllById(referenced(pending, BookImportRow::subjectIds))
+                    .forEach(subject -> subjects.put(subject.getId(), subject));
+
+            List<Book> written = new ArrayList<>();
+            for (PendingBook p : pending) {
+                BookImportRow row = p.book();
+                if (existing.contains(row.isbn())) {
+                    skippedExisting++;
+                    continue;
+                }
+                String unknownAuthor = firstMissing(row.authorIds(), authors);
+                if (unknownAuthor != null) {
+                    reject(p.row(), row.isbn(), "Unknown author id " + unknownAuthor);
+                    continue;
+                }
+                String unknownSubject = firstMissing(row.subjectIds(), subjects);
+                if (unknownSubject != null) {
+                    reject(p.row(), row.isbn(), "Unknown subject id " + unknownSubject);
+                    continue;
+                }
+
+                Book book = new Book();
+                book.setIsbn(row.isbn());
+                book.setTitle(row.title());
+                book.setPublishingYear(row.publishingYear());
+                book.setDescription(row.description());
+                book.setPages(row.pages());
+                if (row.authorIds() != null) {
+                    row.authorIds().forEach(id -> book.getAuthors().add(authors.get(id)));
+                }
+                if (row.subjectIds() != null) {
+                    row.subjectIds().forEach(id -> book.getSubjects().add(subjects.get(id)));
+                }
+                // persist, not save: save() would first select each book to tell insert from update
+                entityManager.persist(book);
+                written.add(book);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return written;
+        }
+    }
+
+    private record PendingBook(long row, BookImportRow book) {}
+
+    private static Set<Long> referenced(List<PendingBook> pending,
+                                        Function<BookImportRow, List<Long>> ids) {
+        Set<Long> referenced = new HashSet<>();
+        for (PendingBook p : pending) {
+            List<Long> rowIds = ids.apply(p.book());
+            if (rowIds != null) {
+                rowIds.stream().filter(Objects::nonNull).forEach(referenced::add);
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * The first id of the row that is not among the loaded entities, as text (a JSON row
+     * may contain null ids); null when all are known.
+     */
+    private static String firstMissing(List<Long> ids, Map<Long, ?> known) {
+        if (ids == null) {
+            return null;
+        }
+        for (Long id : ids) {
+            if (id == null || !known.containsKey(id)) {
+                return String.valueOf(id);
+            }
+        }
+        return null;
+    }
+}
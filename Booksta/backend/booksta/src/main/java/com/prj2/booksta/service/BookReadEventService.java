@@ -1,14 +1,25 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.BookReadEvent;
 import com.prj2.booksta.model.ReadingEventType;
 import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.UserBookReadingState;
+import com.prj2.booksta.model.UserBookReadingStateId;
 import com.prj2.booksta.exception.InvalidReadingEventTransitionException;
 import com.prj2.booksta.repository.BookReadEventRepository;
+import com.prj2.booksta.repository.UserBookReadingStateRepository;
 import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.List;
@@ -17,6 +28,10 @@ import java.util.Optional;
 @Service
 public class BookReadEventService {
 
+    private static final Logger log = LoggerFactory.getLogger(BookReadEventService.class);
+
+    private static final int MAX_BACKFILL_ATTEMPTS = 3;
+
     @Autowired
     private UserService userService;
 
@@ -26,14 +41,38 @@ public class BookReadEventService {
     @Autowired
     private BookReadEventRepository bookReadEventRepository;
 
+    @Autowired
+    private UserBookReadingStateRepository readingStateRepository;
+
+    @Autowired
+    private ReadingStatsService readingStatsService;
+
+    @Autowired
+    private AuthorizationDecisionCache decisionCache;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${reading.state-backfill.batch-users:500}")
+    private int backfillBatchUsers = 500;
+
+    private volatile boolean readingStatesBackfilled;
+
     @Transactional
     public BookReadEvent createReadEvent(String email, String isbn, ReadingEventType eventType) {
         User user = userService.getUserByEmail(email);
         Book book = bookService.getBookByIsbn(isbn);
 
-        Optional<BookReadEvent> latestReadEvent = bookReadEventRepository.findTopByUserAndBookOrderByOccurredAtDesc(user, book);
+        UserBookReadingStateId stateId = new UserBookReadingStateId(user.getId(), book.getIsbn());
+        Optional<UserBookReadingState> latestState = readingStateRepository.findForUpdate(stateId);
+        ReadingEventType last = latestState.map(UserBookReadingState::getReadingEvent)
+                .orElseGet(() -> latestEventWithoutState(user.getId(), book.getIsbn())
+                        .map(BookReadEvent::getReadingEvent).orElse(null));
 
-        if (!isValidTransition(latestReadEvent.map(BookReadEvent::getReadingEvent).orElse(null), eventType)) {
+        if (!isValidTransition(last, eventType)) {
             throw new InvalidReadingEventTransitionException("Invalid reading event transition");
         }
 
@@ -43,13 +82,111 @@ public class BookReadEventService {
         event.setReadingEvent(eventType);
         event.setOccurredAt(Instant.now());
 
-        return bookReadEventRepository.save(event);
+        BookReadEvent saved = bookReadEventRepository.save(event);
+
+        UserBookReadingState state = latestState.orElseGet(() -> new UserBookReadingState(stateId));
+        state.setReadingEvent(eventType);
+        state.setOccurredAt(saved.getOccurredAt());
+        state.setLatestEventId(saved.getId());
+        readingStateRepository.save(state);
+        decisionCache.invalidate(email, AuthorizationDecisionCache.Check.READS_BOOK, book.getIsbn());
+
+        readingStatsService.recordReadEvent(user.getId(), eventType, saved.getOccurredAt());
+        // Only a first reading state adds a book to the user's recommendation signals
+        if (last == null) {
+            recommendationService.invalidateAfterCommit(user.getId());
+        }
+        return saved;
     }
 
     public BookReadEvent getLatestReadEvent(String email, String isbn) {
         User user = userService.getUserByEmail(email);
         Book book = bookService.getBookByIsbn(isbn);
-        return bookReadEventRepository.findTopByUserAndBookOrderByOccurredAtDesc(user, book).orElse(null);
+        return readingStateRepository.findById(new UserBookReadingStateId(user.getId(), book.getIsbn()))
+                .flatMap(state -> bookReadEventRepository.findById(state.getLatestEventId()))
+                .or(() -> latestEventWithoutState(user.getId(), book.getIsbn()))
+                .orElse(null);
+    }
+
+    /**
+     * Latest event type of the user on the book, or null if they never started it.
+     */
+    public ReadingEventType getLatestReadingEvent(Long userId, String isbn) {
+        return readingStateRepository.findReadingEvent(userId, isbn)
+                .or(() -> latestEventWithoutState(userId, isbn).map(BookReadEvent::getReadingEvent))
+                .orElse(null);
+    }
+
+    public ReadingEventType getLatestReadingEvent(String email, String isbn) {
+        return readingStateRepository.findReadingEventByEmail(email, isbn)
+                .or(() -> latestEventWithoutState(email, isbn).map(BookReadEvent::getReadingEvent))
+                .orElse(null);
+    }
+
+    /**
+     * Reading states did not exist before; derives them from the event history off the startup
+     * path, once: later starts only check that no pair is missing one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReadingStateBackfill() {
+        Thread.ofPlatform().name("reading-state-backfill").daemon().start(() -> {
+            try {
+                backfillReadingStates();
+            } catch (RuntimeException e) {
+                log.warn("Could not derive the reading states, events are read instead: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * One transaction per range of user ids, each a single ranked pass over its events.
+     * A range that collides with a state created live meanwhile is run again, skipping it.
+     */
+    void backfillReadingStates() {
+        if (!readingStateRepository.existsEventWithoutState()) {
+            readingStatesBackfilled = true;
+            return;
+        }
+        long maxUserId = bookReadEventRepository.findMaxUserId().orElse(0L);
+        int created = 0;
+        for (long from = 1; from <= maxUserId; from += backfillBatchUsers) {
+            created += backfillRange(from, Math.min(maxUserId, from + backfillBatchUsers - 1));
+        }
+        readingStatesBackfilled = true;
+        if (created > 0) {
+            log.info("Derived {} reading states from the event history", created);
+        }
+    }
+
+    private int backfillRange(long fromUserId, long toUserId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer created = transactionTemplate.execute(status -> readingStateRepository.backfill(fromUserId, toUserId));
+                return created != null ? created : 0;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == MAX_BACKFILL_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * The latest event of a pair whose state may not be derived yet: until the backfill is done,
+     * a missing state does not mean the user never read the book.
+     */
+    private Optional<BookReadEvent> latestEventWithoutState(Long userId, String isbn) {
+        if (readingStatesBackfilled) {
+            return Optional.empty();
+        }
+        return bookReadEventRepository.findFirstByUser_IdAndBook_IsbnOrderByOccurredAtDescIdDesc(userId, isbn);
+    }
+
+    private Optional<BookReadEvent> latestEventWithoutState(String email, String isbn) {
+        if (readingStatesBackfilled) {
+            return Optional.empty();
+        }
+        return bookReadEventRepository.findFirstByUser_EmailAndBook_IsbnOrderByOccurredAtDescIdDesc(email, isbn);
     }
 
     private boolean isValidTransition(ReadingEventType last, ReadingEventType next) {
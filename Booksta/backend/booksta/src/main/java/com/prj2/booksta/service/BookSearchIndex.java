@@ -0,0 +1,334 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Subject;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the book catalog (title, author names, subject names, description).
+ * Kept up to date by BookService so text search never has to scan the book tables.
+ */
+@Component
+public class BookSearchIndex {
+
+    public enum Field {
+        TITLE(3.0),
+        AUTHOR(2.0),
+        SUBJECT(1.5),
+        DESCRIPTION(0.5);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    public record SearchHit(String isbn, double score) {}
+
+    private static final double EXACT_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.6;
+    private static final double FUZZY_MATCH = 0.3;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    // field -> token -> isbns containing it
+    private final Map<Field, NavigableMap<String, Set<String>>> postings = new EnumMap<>(Field.class);
+
+    // field -> padded bigram -> tokens containing it, so a fuzzy match only looks at tokens
+    // sharing enough bigrams with the term instead of the whole vocabulary
+    private final Map<Field, Map<String, Set<String>>> grams = new EnumMap<>(Field.class);
+
+    // isbn -> field -> tokens, used to unindex a book before re-indexing or removing it
+    private final Map<String, Map<Field, Set<String>>> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookSearchIndex() {
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+            grams.put(field, new HashMap<>());
+        }
+    }
+
+    /**
+     * Adds the book to the index, replacing any previous version of it.
+     */
+    public void index(Book book) {
+        Map<Field, Set<String>> document = new EnumMap<>(Field.class);
+        document.put(Field.TITLE, new HashSet<>(tokenize(book.getTitle())));
+        document.put(Field.DESCRIPTION, new HashSet<>(tokenize(book.getDescription())));
+
+        Set<String> authorTokens = new HashSet<>();
+        if (book.getAuthors() != null) {
+            for (Author author : book.getAuthors()) {
+                authorTokens.addAll(tokenize(author.getFirstName()));
+                authorTokens.addAll(tokenize(author.getLastName()));
+            }
+        }
+        document.put(Field.AUTHOR, authorTokens);
+
+        Set<String> subjectTokens = new HashSet<>();
+        if (book.getSubjects() != null) {
+            for (Subject subject : book.getSubjects()) {
+                subjectTokens.addAll(tokenize(subject.getName()));
+            }
+        }
+        document.put(Field.SUBJECT, subjectTokens);
+
+        lock.writeLock().lock();
+        try {
+            unindex(book.getIsbn());
+            documents.put(book.getIsbn(), document);
+            document.forEach((field, tokens) -> {
+                NavigableMap<String, Set<String>> fieldPostings = postings.get(field);
+                Map<String, Set<String>> fieldGrams = grams.get(field);
+                for (String token : tokens) {
+                    fieldPostings.computeIfAbsent(token, t -> {
+                        for (String gram : grams(t)) {
+                            fieldGrams.computeIfAbsent(gram, g -> new HashSet<>()).add(t);
+                        }
+                        return new HashSet<>();
+                    }).add(book.getIsbn());
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            unindex(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.values().forEach(Map::clear);
+            grams.values().forEach(Map::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked search across every field. Each query term must match (exactly, by prefix, or within
+     * a small edit distance) somewhere in the book for it to be returned.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        Map<String, Double> scores = match(query, EnumSet.allOf(Field.class));
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> new SearchHit(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Scores every book matching all terms of the query within the given fields.
+     * Returns an empty map when the query has no searchable terms.
+     */
+    public Map<String, Double> match(String query, Set<Field> fields) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (String term : terms) {
+                Map<String, Double> termScores = matchTerm(term, fields);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((isbn, score) -> score + termScores.get(isbn));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Double> matchTerm(String term, Set<Field> fields) {
+        Map<String, Double> scores = new HashMap<>();
+        for (Field field : fields) {
+            NavigableMap<String, Set<String>> fieldPostings = postings.get(field);
+            boolean found = false;
+
+            // The exact token sorts first in its own prefix range
+            for (Map.Entry<String, Set<String>> entry : prefixRange(fieldPostings, term).entrySet()) {
+                double quality = entry.getKey().equals(term) ? EXACT_MATCH : PREFIX_MATCH;
+                addScores(scores, entry.getValue(), quality * field.weight);
+                found = true;
+            }
+
+            if (!found && term.length() >= MIN_FUZZY_LENGTH) {
+                int maxDistance = term.length() >= 8 ? 2 : 1;
+                for (String token : fuzzyCandidates(field, term, maxDistance)) {
+                    if (Math.abs(token.length() - term.length()) <= maxDistance
+                            && editDistance(term, token, maxDistance) <= maxDistance) {
+                        addScores(scores, fieldPostings.get(token), FUZZY_MATCH * field.weight);
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Tokens that can be within maxDistance of the term. A transposition changes at most two
+     * characters and each changed character at most two bigrams, so a token within maxDistance
+     * keeps at least (distinct bigrams of the term - 4 * maxDistance) of them.
+     */
+    private List<String> fuzzyCandidates(Field field, String term, int maxDistance) {
+        Map<String, Set<String>> fieldGrams = grams.get(field);
+        Set<String> termGrams = grams(term);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : termGrams) {
+            for (String token : fieldGrams.getOrDefault(gram, Collections.emptySet())) {
+                shared.merge(token, 1, Integer::sum);
+            }
+        }
+        int minShared = Math.max(1, termGrams.size() - 4 * maxDistance);
+        List<String> candidates = new ArrayList<>();
+        shared.forEach((token, count) -> {
+            if (count >= minShared) {
+                candidates.add(token);
+            }
+        });
+        return candidates;
+    }
+
+    /**
+     * Distinct bigrams of the token padded with ^ and $, which tokens never contain.
+     */
+    static Set<String> grams(String token) {
+        String padded = "^" + token + "$";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 2));
+        }
+        return result;
+    }
+
+    private static NavigableMap<String, Set<String>> prefixRange(NavigableMap<String, Set<String>> map, String prefix) {
+        return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static void addScores(Map<String, Double> scores, Set<String> isbns, double score) {
+        // A term only counts once per book, with its best field
+        for (String isbn : isbns) {
+            scores.merge(isbn, score, Math::max);
+        }
+    }
+
+    private void unindex(String isbn) {
+        Map<Field, Set<String>> previous = documents.remove(isbn);
+        if (previous == null) {
+            return;
+        }
+        previous.forEach((field, tokens) -> {
+            NavigableMap<String, Set<String>> fieldPostings = postings.get(field);
+            Map<String, Set<String>> fieldGrams = grams.get(field);
+            for (String token : tokens) {
+                Set<String> isbns = fieldPostings.get(token);
+                if (isbns != null) {
+                    isbns.remove(isbn);
+                    if (isbns.isEmpty()) {
+                        fieldPostings.remove(token);
+                        for (String gram : grams(token)) {
+                            Set<String> gramTokens = fieldGrams.get(gram);
+                            gramTokens.remove(token);
+                            if (gramTokens.isEmpty()) {
+                                fieldGrams.remove(gram);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Lowercases, strips accents and splits on anything that is not a letter or digit.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions),
+     * giving up early once every cell of a row exceeds maxDistance.
+     */
+    static int editDistance(String a, String b, int maxDistance) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1
+                        && a.charAt(i - 1) == b.charAt(j - 2)
+                        && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previousPrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,25 +1,65 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AfterCommit;
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.AuthorizationDecisionCache.Check;
+import com.prj2.booksta.config.CatalogCache;
 import com.prj2.booksta.model.*;
+import com.prj2.booksta.model.dto.BookCatalogEntry;
+import com.prj2.booksta.model.dto.BookCatalogPage;
+import com.prj2.booksta.model.dto.BookDeletionResult;
+import com.prj2.booksta.model.dto.BookFacets;
 import com.prj2.booksta.model.dto.BookFilterRequest;
+import com.prj2.booksta.model.dto.FacetedBookPage;
 import com.prj2.booksta.model.dto.UpdateBook;
 import com.prj2.booksta.repository.*;
+import static com.prj2.booksta.repository.BookSpecification.inCatalogOrder;
 import static com.prj2.booksta.repository.BookSpecification.withFilters;
+import static com.prj2.booksta.repository.BookSpecification.withIsbns;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 public class BookService {
 
+    static final int DEFAULT_CATALOG_PAGE_SIZE = 20;
+    static final int MAX_CATALOG_PAGE_SIZE = 100;
+    static final int DELETE_BATCH_SIZE = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(BookService.class);
+
     @Autowired
     private BookRepository bookRepository;
 
@@ -29,6 +69,9 @@ public class BookService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ImageUploadQueue imageUploadQueue;
+
     @Autowired
     private SubjectService subjectService;
 
@@ -44,6 +87,9 @@ public class BookService {
     @Autowired
     private ReadingSessionRepository readingSessionRepository;
 
+    @Autowired
+    private UserBookReadingStateRepository readingStateRepository;
+
     @Autowired
     private ReadingProgressRepository readingProgressRepository;
 
@@ -56,90 +102,419 @@ public class BookService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    @Autowired
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
+    @Autowired
+    private AuthorizationDecisionCache decisionCache;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Until the search and facet indexes are built, searches are answered by the database
+    private volatile boolean searchIndexReady;
+
+    // Books re-indexed or removed after commit while a build ran; the build must not put back
+    // the version it read. Guarded by itself, like indexBuildRunning.
+    private final Set<String> changedDuringIndexBuild = new HashSet<>();
+    private boolean indexBuildRunning;
+
+    // Not a monitor: the build query runs under it (see MarketplaceStockSnapshot)
+    private final ReentrantLock indexBuildLock = new ReentrantLock();
+
     public List<Book> getAllBooks() {
         return (List<Book>) bookRepository.findAll();
     }
 
+    /**
+     * Hands every book to the consumer one at a time, detaching each entity once consumed
+     * so the persistence context stays small for the whole catalog.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+
+    /**
+     * Keyset-paginated catalog. The cursor is the opaque token returned as nextCursor
+     * by the previous page, or null for the first page.
+     */
+    @Transactional(readOnly = true)
+    public BookCatalogPage getCatalogPage(String cursor, Integer limit) {
+        int pageSize = limit == null
+                ? DEFAULT_CATALOG_PAGE_SIZE
+                : Math.max(1, Math.min(limit, MAX_CATALOG_PAGE_SIZE));
+
+        // Fetch one extra row to know whether another page exists
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+        List<BookCatalogEntry> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = bookRepository.findCatalogFirstPage(window);
+        } else {
+            CatalogCursor after = decodeCursor(cursor);
+            rows = bookRepository.findCatalogPageAfter(after.publishingYear(), after.isbn(), window);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<BookCatalogEntry> books = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? encodeCursor(books.get(books.size() - 1)) : null;
+
+        return new BookCatalogPage(List.copyOf(books), nextCursor, hasMore);
+    }
+
+    static String encodeCursor(BookCatalogEntry last) {
+        String key = last.publishingYear() + ":" + last.isbn();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CatalogCursor decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(':');
+            if (separator <= 0 || separator == key.length() - 1) {
+                throw new IllegalArgumentException("Invalid catalog cursor: " + cursor);
+            }
+            return new CatalogCursor(
+                    Integer.valueOf(key.substring(0, separator)),
+                    key.substring(separator + 1)
+            );
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException and malformed Base64
+            throw new IllegalArgumentException("Invalid catalog cursor: " + cursor, e);
+        }
+    }
+
+    record CatalogCursor(Integer publishingYear, String isbn) {}
+
     public Book getBookByIsbn(String isbn) {
         return bookRepository.findById(isbn)
                 .orElseThrow(() -> new IllegalArgumentException("Book with isbn not found: " + isbn));
     }
 
+    /**
+     * Text criteria are answered by the in-memory search index; only the year filter
+     * and the final entity load go to the database.
+     */
     public List<Book> searchBooks(String title, String authorName, String subjectName, Integer year) {
-        return bookRepository.searchBooks(title, authorName, subjectName, year);
-    }
+        if (!searchIndexReady) {
+            return bookRepository.searchBooks(title, authorName, subjectName, year);
+        }
+        Map<String, Double> ranking = null;
+        ranking = narrowRanking(ranking, title, BookSearchIndex.Field.TITLE);
+        ranking = narrowRanking(ranking, authorName, BookSearchIndex.Field.AUTHOR);
+        ranking = narrowRanking(ranking, subjectName, BookSearchIndex.Field.SUBJECT);
 
-    public List<Book> filterBooks(BookFilterRequest filter) {
-        return bookRepository.findAll(withFilters(filter));
+        BookFilterRequest structured = new BookFilterRequest();
+        structured.setYearMin(year);
+        structured.setYearMax(year);
+
+        if (ranking == null) {
+            return bookRepository.findAll(withFilters(structured));
+        }
+        return loadRanked(ranking, structured);
     }
 
-    public Book save(Book book) {
-        return bookRepository.save(book);
+    /**
+     * Ranked, typo-tolerant search over title, authors, subjects and description.
+     */
+    public List<Book> fullTextSearch(String query, int limit) {
+        if (!searchIndexReady) {
+            // Titles only until the index is built
+            return bookRepository.searchBooks(query, null, null, null).stream()
+                    .limit(Math.max(1, limit))
+                    .toList();
+        }
+        List<BookSearchIndex.SearchHit> hits = bookSearchIndex.search(query, Math.max(1, limit));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Double> ranking = new HashMap<>();
+        hits.forEach(hit -> ranking.put(hit.isbn(), hit.score()));
+        return loadRanked(ranking, new BookFilterRequest());
     }
 
-    @Transactional
-    public void delete(String isbn) {
-        Book book = bookRepository.findById(isbn)
-                .orElseThrow(() -> new EntityNotFoundException("Book not found: " + isbn));
+    public List<Book> filterBooks(BookFilterRequest filter) {
+        if (!searchIndexReady || filter.getTitle() == null || filter.getTitle().isBlank()) {
+            return bookRepository.findAll(withFilters(filter).and(inCatalogOrder()));
+        }
 
-        // 1. Delete book reports targeting this book
-        bookReportRepository.deleteByBook_Isbn(isbn);
+        Map<String, Double> ranking = bookSearchIndex.match(filter.getTitle(), EnumSet.of(BookSearchIndex.Field.TITLE));
+        BookFilterRequest structured = new BookFilterRequest(
+                null, filter.getYearMin(), filter.getYearMax(), filter.getPagesMin(), filter.getPagesMax(),
+                filter.getAuthorIds(), filter.getSubjectIds()
+        );
+        return loadRanked(ranking, structured);
+    }
 
-        // 2. Delete reading events
-        bookReadEventRepository.deleteByBook_Isbn(isbn);
+    /**
+     * Same criteria as filterBooks, answered by the in-memory facet index together with the
+     * facet counts; only the books of the requested page are loaded.
+     */
+    public FacetedBookPage filterBooksFaceted(BookFilterRequest filter, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CATALOG_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        long offset = (long) pageNumber * pageSize;
+
+        if (!searchIndexReady) {
+            // Same page from the database, without facet counts until the index is built
+            Page<Book> books = bookRepository.findAll(withFilters(filter).and(inCatalogOrder()),
+                    PageRequest.of(pageNumber, pageSize));
+            return new FacetedBookPage(
+                    books.getContent(),
+                    new BookFacets(Map.of(), Map.of(), Map.of(), Map.of()),
+                    pageNumber,
+                    pageSize,
+                    books.getTotalElements(),
+                    books.hasNext()
+            );
+        }
 
-        // 3. Delete reading sessions
-        readingSessionRepository.deleteByBook_Isbn(isbn);
+        Set<String> titleMatches = filter.getTitle() == null || filter.getTitle().isBlank()
+                ? null
+                : bookSearchIndex.match(filter.getTitle(), EnumSet.of(BookSearchIndex.Field.TITLE)).keySet();
+        BookFacetIndex.FacetedIsbns result = bookFacetIndex.search(filter, titleMatches, offset, pageSize);
 
-        // 4. Delete reading progress
-        readingProgressRepository.deleteByBook_Isbn(isbn);
+        Map<String, Book> books = new HashMap<>();
+        if (!result.isbns().isEmpty()) {
+            bookRepository.findAllById(result.isbns()).forEach(book -> books.put(book.getIsbn(), book));
+        }
+        List<Book> ordered = result.isbns().stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new FacetedBookPage(
+                ordered,
+                result.facets(),
+                pageNumber,
+                pageSize,
+                result.total(),
+                offset + result.isbns().size() < result.total()
+        );
+    }
 
-        // 5. Delete inventory entries
-        userBookInventoryRepository.deleteByBook_Isbn(isbn);
+    private Map<String, Double> narrowRanking(Map<String, Double> ranking, String criterion, BookSearchIndex.Field field) {
+        if (criterion == null || criterion.isBlank()) {
+            return ranking;
+        }
+        Map<String, Double> matches = bookSearchIndex.match(criterion, EnumSet.of(field));
+        if (ranking == null) {
+            return matches;
+        }
+        ranking.keySet().retainAll(matches.keySet());
+        ranking.replaceAll((isbn, score) -> score + matches.get(isbn));
+        return ranking;
+    }
 
-        // 6. Remove book from all collections
-        List<BookCollection> collections = bookCollectionRepository.findByBooksIsbn(isbn);
-        for (BookCollection collection : collections) {
-            collection.getBooks().remove(book);
-            bookCollectionRepository.save(collection);
+    private List<Book> loadRanked(Map<String, Double> ranking, BookFilterRequest structured) {
+        if (ranking.isEmpty()) {
+            return List.of();
         }
+        List<Book> books = new ArrayList<>(
+                bookRepository.findAll(withIsbns(ranking.keySet()).and(withFilters(structured))));
+        books.sort(Comparator.comparing((Book book) -> ranking.getOrDefault(book.getIsbn(), 0.0))
+                .reversed()
+                .thenComparing(Book::getIsbn));
+        return books;
+    }
+
+    /**
+     * Saves a new book with its cover. The cover is staged in this transaction, so it is stored
+     * once the book commits and dropped with it on rollback.
+     */
+    @Transactional
+    public Book createBook(Book book, MultipartFile imageFile) throws IOException {
+        if (imageFile != null && !imageFile.isEmpty()) {
+            book.setImage(imageUploadQueue.stage(imageFile, null));
+        }
+        return save(book);
+    }
+
+    public Book save(Book book) {
+        Book saved = bookRepository.save(book);
+        decisionCache.invalidateResource(Check.AUTHOR_OF_BOOK, saved.getIsbn());
+        refreshSearchIndex(saved);
+        return saved;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSearchIndexBuild() {
+        Thread.ofPlatform().name("search-index-build").daemon().start(() -> {
+            try {
+                rebuildSearchIndex();
+            } catch (RuntimeException e) {
+                log.warn("Could not build the search indexes, searches stay on the database: {}", e.getMessage());
+            }
+        });
+    }
 
-        // 7. Remove book from user favorites and owned books
-        List<User> allUsers = userRepository.findAll();
-        for (User user : allUsers) {
-            boolean modified = false;
-            if (user.getFavoriteList().remove(book)) {
-                modified = true;
+    /**
+     * Rebuilds the search and facet indexes from the whole catalog, searches going to the
+     * database meanwhile. Books changed during the build keep the version indexed after commit.
+     */
+    public void rebuildSearchIndex() {
+        indexBuildLock.lock();
+        try {
+            synchronized (changedDuringIndexBuild) {
+                searchIndexReady = false;
+                indexBuildRunning = true;
+                changedDuringIndexBuild.clear();
+                bookSearchIndex.clear();
+                bookFacetIndex.clear();
             }
-            if (user.getOwnedBooks().remove(book)) {
-                modified = true;
+            TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+            readOnlyTransaction.setReadOnly(true);
+            readOnlyTransaction.executeWithoutResult(status -> streamAllBooks(book -> {
+                synchronized (changedDuringIndexBuild) {
+                    if (!changedDuringIndexBuild.contains(book.getIsbn())) {
+                        bookSearchIndex.index(book);
+                        bookFacetIndex.index(book);
+                    }
+                }
+            }));
+            searchIndexReady = true;
+            log.info("Search indexes built over {} books", bookSearchIndex.size());
+        } finally {
+            synchronized (changedDuringIndexBuild) {
+                indexBuildRunning = false;
+                changedDuringIndexBuild.clear();
             }
-            if (modified) {
-                userRepository.save(user);
+            indexBuildLock.unlock();
+        }
+    }
+
+    private void updateSearchIndexes(Collection<String> isbns, Runnable update) {
+        synchronized (changedDuringIndexBuild) {
+            if (indexBuildRunning) {
+                changedDuringIndexBuild.addAll(isbns);
             }
+            update.run();
+        }
+    }
+
+    /**
+     * Re-indexes the book (search and facets) once the surrounding transaction (if any) commits.
+     * Books posted by the frontend only carry author and subject ids, so the names are looked up
+     * when missing.
+     */
+    private void refreshSearchIndex(Book book) {
+        Book document = new Book();
+        document.setIsbn(book.getIsbn());
+        document.setTitle(book.getTitle());
+        document.setDescription(book.getDescription());
+        document.setPublishingYear(book.getPublishingYear());
+        document.setPages(book.getPages());
+
+        Set<Author> authors = book.getAuthors();
+        if (authors != null && authors.stream().anyMatch(author -> author.getLastName() == null)) {
+            authors = authorService.findAllById(authors.stream().map(Author::getId).filter(Objects::nonNull).toList());
         }
+        document.setAuthors(authors);
 
-        // 8. Remove from series (don't delete the series)
-        if (book.getSeries() != null) {
-            book.setSeries(null);
+        Set<Subject> subjects = book.getSubjects();
+        if (subjects != null && subjects.stream().anyMatch(subject -> subject.getName() == null)) {
+            subjects = subjectService.findAllById(subjects.stream().map(Subject::getId).filter(Objects::nonNull).toList());
         }
+        document.setSubjects(subjects);
+
+        AfterCommit.run(() -> updateSearchIndexes(List.of(document.getIsbn()), () -> {
+            bookSearchIndex.index(document);
+            bookFacetIndex.index(document);
+        }));
+    }
 
-        // 9. Clear author and subject associations (don't delete them)
-        book.getAuthors().clear();
-        book.getSubjects().clear();
-        bookRepository.save(book);
 
-        // 10. Delete image if exists
-        if (book.getImage() != null) {
-            try {
-                fileStorageService.deleteBookImage(isbn);
-            } catch (Exception e) {
-                // Log but don't fail if image deletion fails
-            }
+    @Transactional
+    public void delete(String isbn) {
+        if (!bookRepository.existsById(isbn)) {
+            throw new EntityNotFoundException("Book not found: " + isbn);
+        }
+        deleteAll(List.of(isbn));
+    }
+
+    /**
+     * Deletes the given books and every row referencing them with one set-based statement
+     * per table, instead of loading the users and collections that hold them.
+     * Unknown ISBNs are skipped and reported back in notFound.
+     */
+    @Transactional
+    public BookDeletionResult deleteAll(Collection<String> isbns) {
+        Set<String> requested = new LinkedHashSet<>(isbns);
+        Set<String> existing = requested.isEmpty()
+                ? Set.of()
+                : new HashSet<>(bookRepository.findExistingIsbns(requested));
+        List<String> notFound = requested.stream()
+                .filter(isbn -> !existing.contains(isbn))
+                .toList();
+
+        List<String> targets = requested.stream().filter(existing::contains).toList();
+        List<String> withImage = new ArrayList<>();
+        int books = 0, reports = 0, readEvents = 0, readingSessions = 0, readingProgress = 0;
+        int inventoryEntries = 0, collectionEntries = 0, favorites = 0, ownedBooks = 0;
+
+        // Chunked so a large batch stays under the driver's bind parameter limit
+        for (int from = 0; from < targets.size(); from += DELETE_BATCH_SIZE) {
+            List<String> chunk = targets.subList(from, Math.min(from + DELETE_BATCH_SIZE, targets.size()));
+            withImage.addAll(bookRepository.findIsbnsWithImage(chunk));
+
+            // Rows owned by the books
+            reports += bookReportRepository.deleteAllByBookIsbnIn(chunk);
+            readingStateRepository.deleteAllByBookIsbnIn(chunk);
+            readEvents += bookReadEventRepository.deleteAllByBookIsbnIn(chunk);
+            readingSessions += readingSessionRepository.deleteAllByBookIsbnIn(chunk);
+            readingProgress += readingProgressRepository.deleteAllByBookIsbnIn(chunk);
+            inventoryEntries += userBookInventoryRepository.deleteAllByBookIsbnIn(chunk);
+
+            // Join rows pointing at the books (collections, favorites, owned books, authors, subjects)
+            collectionEntries += bookCollectionRepository.removeBooksFromAllCollections(chunk);
+            favorites += userRepository.removeBooksFromAllFavorites(chunk);
+            ownedBooks += userRepository.removeBooksFromAllOwnedBooks(chunk);
+            bookRepository.removeAuthorLinks(chunk);
+            bookRepository.removeSubjectLinks(chunk);
+
+            books += bookRepository.deleteAllByIsbnIn(chunk);
         }
 
-        // 11. Delete the book
-        bookRepository.delete(book);
+        decisionCache.invalidateResources(
+                EnumSet.of(Check.OWNS_BOOK, Check.READS_BOOK, Check.AUTHOR_OF_BOOK), targets);
+        catalogCache.evictBooks(targets);
+        AfterCommit.run(() -> {
+            updateSearchIndexes(targets, () -> {
+                targets.forEach(bookSearchIndex::remove);
+                targets.forEach(bookFacetIndex::remove);
+            });
+            targets.forEach(marketplaceStockSnapshot::evict);
+            for (String isbn : withImage) {
+                try {
+                    fileStorageService.deleteBookImage(isbn);
+                } catch (Exception e) {
+                    // Log but don't fail if image deletion fails
+                }
+            }
+        });
+
+        return new BookDeletionResult(
+                books, reports, readEvents, readingSessions, readingProgress,
+                inventoryEntries, collectionEntries, favorites, ownedBooks, notFound
+        );
     }
 
     public List<Book> findBySeriesId(Long seriesId) {
@@ -150,6 +525,7 @@ public class BookService {
         return bookRepository.findByAuthors_Id(authorId);
     }
 
+    @Transactional
     public Book updateBook(UpdateBook bookDto, String isbn, MultipartFile imageFile) {
         Book book = bookRepository.findById(isbn)
                 .orElseThrow(() -> new EntityNotFoundException("Book not found"));
@@ -162,6 +538,7 @@ public class BookService {
         if (bookDto.authors() != null) {
             Set<Author> authors = new HashSet<>(authorService.findAllById(bookDto.authors()));
             book.setAuthors(authors);
+            decisionCache.invalidateResource(Check.AUTHOR_OF_BOOK, isbn);
         }
 
         if (bookDto.subjects() != null) {
@@ -171,13 +548,8 @@ public class BookService {
 
         if (imageFile != null && !imageFile.isEmpty()) {
             try {
-                Image image = book.getImage();
-                if (image == null) {
-                    image = new Image();
-                }
-                image.setUrl(fileStorageService.saveBookImage(imageFile, isbn));
-                imageService.createImage(image);
-                book.setImage(image);
+                // Stored after commit, off the request thread; the image is PENDING until then
+                book.setImage(imageUploadQueue.stage(imageFile, book.getImage()));
             } catch (IOException e) {
                 throw new RuntimeException("Failed to update image", e);
             }
@@ -190,7 +562,10 @@ public class BookService {
             imageService.createImage(image);
             book.setImage(image);
         }
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        catalogCache.evictBook(isbn);
+        refreshSearchIndex(saved);
+        return saved;
     }
 
     public boolean isBookOwnedByAuthor(Long authorId, String isbn) {
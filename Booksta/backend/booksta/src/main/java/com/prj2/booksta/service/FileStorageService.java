@@ -1,21 +1,37 @@
 package com.prj2.booksta.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 @Service
 public class FileStorageService {
@@ -29,113 +45,345 @@ public class FileStorageService {
     @Value("${s3.public-url:}")
     private String s3PublicUrl;
 
+    @Value("${s3.presigned-url-ttl:3600}")
+    private long presignedUrlTtlSeconds;
+
     @Autowired(required = false)
     private S3Client s3Client;
 
+    @Autowired(required = false)
+    private S3Presigner s3Presigner;
+
+    @Autowired
+    private ImageVariantGenerator variantGenerator;
+
+    @Value("${images.workers:2}")
+    private int imageWorkerCount;
+
+    @Value("${images.queue-capacity:100}")
+    private int imageQueueCapacity;
+
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+    private static final String VARIANT_CONTENT_TYPE = "image/jpeg";
+    private static final String VARIANT_SUFFIX = ".jpg";
+
+    // Striped per image: a variant write and the image's deletion never interleave. Not monitors,
+    // S3 calls run under them and a virtual thread blocked inside synchronized would pin its carrier
+    private final ReentrantLock[] imageLocks = Stream.generate(ReentrantLock::new).limit(64).toArray(ReentrantLock[]::new);
+
+    // Bounded: when the queue is full the uploading thread renders its own variants
+    private ThreadPoolExecutor imageWorkers;
+
+    @Value("${images.variant-cache.max-entries:10000}")
+    private int variantCacheMaxEntries;
+
+    @Value("${images.variant-cache.miss-ttl:60000}")
+    private long variantCacheMissTtlMs;
+
+    private RemoteVariantCache remoteVariants;
+
     private final Path booksDir = Paths.get("uploads/books").toAbsolutePath().normalize();
     private final Path authorsDir = Paths.get("uploads/authors").toAbsolutePath().normalize();
     private final Path collectionsDir = Paths.get("uploads/collections").toAbsolutePath().normalize();
+    private final Path blobsDir = Paths.get("uploads/blobs").toAbsolutePath().normalize();
 
     public FileStorageService() throws IOException {
         Files.createDirectories(booksDir);
         Files.createDirectories(authorsDir);
         Files.createDirectories(collectionsDir);
+        Files.createDirectories(blobsDir);
+    }
+
+    @PostConstruct
+    void startImageWorkers() {
+        remoteVariants = new RemoteVariantCache(variantCacheMaxEntries, variantCacheMissTtlMs, Clock.systemUTC());
+        imageWorkers = new ThreadPoolExecutor(
+                imageWorkerCount, imageWorkerCount,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(imageQueueCapacity),
+                Thread.ofPlatform().name("image-variants-", 0).daemon().factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @PreDestroy
+    void stopImageWorkers() {
+        imageWorkers.shutdown();
     }
 
     private boolean useS3() {
         return s3Client != null && !bucket.isEmpty();
     }
 
-    public String saveBookImage(MultipartFile file, String isbn) throws IOException {
-        String key = "books/" + isbn + ".png";
+    public void deleteCollectionImage(Long id) throws IOException {
+        deleteImage("collections", id.toString());
+    }
+
+    public void deleteBookImage(String isbn) throws IOException {
+        deleteImage("books", isbn);
+    }
+
+    public void deleteAuthorImage(Long id) throws IOException {
+        deleteImage("authors", id.toString());
+    }
+
+    /**
+     * Stores an upload already spooled to disk, streaming it to the bucket or copying it in place,
+     * then queues its variants. The content is never held in memory: the variants are decoded from
+     * the stored file, or from a copy of the spool that the caller is free to delete.
+     */
+    private void storeImage(String type, String id, Path source, String contentType) throws IOException {
+        Path variantSource;
         if (useS3()) {
-            uploadToS3(file, key);
-            return getS3Url(key);
+            uploadToS3(RequestBody.fromFile(source), contentType, type + "/" + id + ".png");
+            remoteVariants.found(type + "/" + id + ".png");
+            variantSource = Files.createTempFile("booksta-variants-", ".tmp");
+            Files.copy(source, variantSource, StandardCopyOption.REPLACE_EXISTING);
         } else {
-            saveFile(file, booksDir, isbn + ".png");
-            return backendUrl + "/api/images/books/" + isbn;
+            Path target = imageDir(type).resolve(id + ".png");
+            Path temp = Files.createTempFile(imageDir(type), "upload", ".tmp");
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            variantSource = target;
         }
+        scheduleVariants(type, id, variantSource, useS3());
     }
 
-    public String saveAuthorImage(MultipartFile file, Long id) throws IOException {
-        String key = "authors/" + id + ".png";
+    /**
+     * Stores uploaded content under its SHA-256 as blobs/{hash}.png, with its variants.
+     * Used by ImageUploadQueue off the request thread. New uploads only ever go to blobs:
+     * the content never changes behind a name, so neither do its variants.
+     */
+    public void storeBlob(String hash, Path source, String contentType) throws IOException {
+        storeImage("blobs", hash, source, contentType);
+    }
+
+    public void deleteBlob(String hash) throws IOException {
+        deleteImage("blobs", hash);
+    }
+
+    /**
+     * Whether the blob has been written. Images point at their blob before it is stored,
+     * while their upload is PENDING.
+     */
+    public boolean blobExists(String hash) {
         if (useS3()) {
-            uploadToS3(file, key);
-            return getS3Url(key);
-        } else {
-            saveFile(file, authorsDir, id + ".png");
-            return backendUrl + "/api/images/authors/" + id;
+            return remoteVariantExists("blobs/" + hash + ".png");
         }
+        return Files.isRegularFile(blobsDir.resolve(hash + ".png"));
     }
 
-    public String saveCollectionImage(MultipartFile file, Long id) throws IOException {
-        String key = "collections/" + id + ".png";
-        if (useS3()) {
-            uploadToS3(file, key);
-            return getS3Url(key);
-        } else {
-            saveFile(file, collectionsDir, id + ".png");
-            return backendUrl + "/api/images/collections/" + id;
+    /**
+     * Public URL of a blob. The hash changes with the content, so it needs no version.
+     */
+    public String blobUrl(String hash) {
+        if (useS3() && !s3PublicUrl.isEmpty()) {
+            return s3PublicUrl + "/blobs/" + hash + ".png";
         }
+        return backendUrl + "/api/images/blobs/" + hash;
     }
 
-    public void deleteCollectionImage(Long id) throws IOException {
-        if (useS3()) {
-            deleteFromS3("collections/" + id + ".png");
-        } else {
-            Path target = collectionsDir.resolve(id + ".png");
-            Files.deleteIfExists(target);
+    /**
+     * Public URL of an image. A new version on every upload lets clients cache the previous URL forever.
+     */
+    public String imageUrl(String type, String id, String version) {
+        imageDir(type);
+        if (useS3() && !s3PublicUrl.isEmpty()) {
+            return s3PublicUrl + "/" + type + "/" + id + ".png?v=" + version;
         }
+        return backendUrl + "/api/images/" + type + "/" + id + "?v=" + version;
     }
 
-    public void deleteBookImage(String isbn) throws IOException {
-        if (useS3()) {
-            deleteFromS3("books/" + isbn + ".png");
-        } else {
-            Path target = booksDir.resolve(isbn + ".png");
-            Files.deleteIfExists(target);
+    private void scheduleVariants(String type, String id, Path source, boolean deleteSource) {
+        imageWorkers.execute(() -> {
+            try {
+                for (Map.Entry<Integer, byte[]> variant : variantGenerator.render(source).entrySet()) {
+                    if (!writeVariant(type, id, variant.getKey(), variant.getValue())) {
+                        log.debug("Image {}/{} deleted before its variants were written", type, id);
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // The original is still served; only the smaller variants are missing
+                log.warn("Could not generate image variants for {}/{}: {}", type, id, e.getMessage());
+            } finally {
+                if (deleteSource) {
+                    try {
+                        Files.deleteIfExists(source);
+                    } catch (IOException ignored) {
+                        // Temp directory cleanup will catch it
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes one variant unless the original was deleted since the job was queued.
+     * Checked under the image's lock, which deleteImage holds too.
+     */
+    private boolean writeVariant(String type, String id, int width, byte[] content) throws IOException {
+        String fileName = variantFileName(id, width);
+        ReentrantLock lock = imageLock(type, id);
+        lock.lock();
+        try {
+            if (useS3()) {
+                if (!remoteVariantExists(type + "/" + id + ".png")) {
+                    return false;
+                }
+                uploadToS3(RequestBody.fromBytes(content), VARIANT_CONTENT_TYPE, type + "/" + fileName);
+                remoteVariants.found(type + "/" + fileName);
+            } else {
+                if (!Files.isRegularFile(imageDir(type).resolve(id + ".png"))) {
+                    return false;
+                }
+                Path target = imageDir(type).resolve(fileName);
+                Path temp = Files.createTempFile(imageDir(type), "variant", ".tmp");
+                Files.write(temp, content);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void deleteAuthorImage(Long id) throws IOException {
-        if (useS3()) {
-            deleteFromS3("authors/" + id + ".png");
-        } else {
-            Path target = authorsDir.resolve(id + ".png");
-            Files.deleteIfExists(target);
+    private void deleteImage(String type, String id) throws IOException {
+        ReentrantLock lock = imageLock(type, id);
+        lock.lock();
+        try {
+            if (useS3()) {
+                String key = type + "/" + id + ".png";
+                remoteVariants.remove(key);
+                deleteFromS3(key);
+                for (int width : variantGenerator.getWidths()) {
+                    String variantKey = type + "/" + variantFileName(id, width);
+                    remoteVariants.remove(variantKey);
+                    deleteFromS3(variantKey);
+                }
+            } else {
+                Files.deleteIfExists(imageDir(type).resolve(id + ".png"));
+                for (int width : variantGenerator.getWidths()) {
+                    Files.deleteIfExists(imageDir(type).resolve(variantFileName(id, width)));
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    public InputStream getImage(String type, String id) throws IOException {
-        if (useS3()) {
-            String key = type + "/" + id + ".png";
-            return s3Client.getObject(GetObjectRequest.builder()
-                    .bucket(bucket)
-                    .key(key)
-                    .build());
-        } else {
-            Path dir = switch (type) {
-                case "books" -> booksDir;
-                case "authors" -> authorsDir;
-                case "collections" -> collectionsDir;
-                default -> throw new IllegalArgumentException("Unknown type: " + type);
-            };
-            Path filePath = dir.resolve(id + ".png");
-            if (Files.exists(filePath)) {
-                return Files.newInputStream(filePath);
+    private ReentrantLock imageLock(String type, String id) {
+        return imageLocks[Math.floorMod((type + "/" + id).hashCode(), imageLocks.length)];
+    }
+
+    private static String variantFileName(String id, int width) {
+        return id + "_w" + width + VARIANT_SUFFIX;
+    }
+
+    /**
+     * Whether a stored file or key is a resized variant rather than an original.
+     */
+    public static boolean isVariant(String name) {
+        return name.endsWith(VARIANT_SUFFIX);
+    }
+
+    /**
+     * Whether images live in the bucket, in which case clients are redirected to it
+     * instead of having the bytes proxied through the backend.
+     */
+    public boolean isRemote() {
+        return useS3();
+    }
+
+    /**
+     * The image file on local disk, or null when it does not exist. With a width, the closest
+     * resized variant is returned when it has been generated, the original otherwise.
+     */
+    public Path getLocalImage(String type, String id, Integer width) {
+        Path dir = imageDir(type);
+        if (width != null) {
+            Path variant = dir.resolve(variantFileName(id, variantGenerator.closestWidth(width))).normalize();
+            if (variant.startsWith(dir) && Files.isRegularFile(variant)) {
+                return variant;
             }
+        }
+        Path filePath = dir.resolve(id + ".png").normalize();
+        if (!filePath.startsWith(dir) || !Files.isRegularFile(filePath)) {
             return null;
         }
+        return filePath;
     }
 
-    private void uploadToS3(MultipartFile file, String key) throws IOException {
+    /**
+     * URL the client can fetch the image from directly: the public bucket URL when one is
+     * configured, otherwise a presigned GET valid for s3.presigned-url-ttl seconds.
+     */
+    public URI getRemoteImageUrl(String type, String id, String version, Integer width) {
+        imageDir(type);
+        String key = type + "/" + id + ".png";
+        if (width != null) {
+            String variantKey = type + "/" + variantFileName(id, variantGenerator.closestWidth(width));
+            if (remoteVariantExists(variantKey)) {
+                key = variantKey;
+            }
+        }
+        if (!s3PublicUrl.isEmpty()) {
+            return URI.create(s3PublicUrl + "/" + key + (version != null ? "?v=" + version : ""));
+        }
+        GetObjectPresignRequest request = GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofSeconds(presignedUrlTtlSeconds))
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build())
+                .build();
+        return URI.create(s3Presigner.presignGetObject(request).url().toString());
+    }
+
+    public long getPresignedUrlTtlSeconds() {
+        return presignedUrlTtlSeconds;
+    }
+
+    private Path imageDir(String type) {
+        return switch (type) {
+            case "books" -> booksDir;
+            case "authors" -> authorsDir;
+            case "collections" -> collectionsDir;
+            case "blobs" -> blobsDir;
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        };
+    }
+
+    private void uploadToS3(RequestBody body, String contentType, String key) {
         PutObjectRequest request = PutObjectRequest.builder()
                 .bucket(bucket)
                 .key(key)
-                .contentType(file.getContentType())
+                .contentType(contentType)
                 .build();
 
-        s3Client.putObject(request, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+        s3Client.putObject(request, body);
+    }
+
+    private boolean remoteVariantExists(String key) {
+        Boolean known = remoteVariants.lookup(key);
+        if (known != null) {
+            return known;
+        }
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            remoteVariants.found(key);
+            return true;
+        } catch (NoSuchKeyException e) {
+            remoteVariants.missing(key);
+            return false;
+        } catch (S3Exception e) {
+            // Without s3:ListBucket a missing key answers 403 instead of 404
+            if (e.statusCode() == 404 || e.statusCode() == 403) {
+                remoteVariants.missing(key);
+                return false;
+            }
+            throw e;
+        }
     }
 
     private void deleteFromS3(String key) {
@@ -144,16 +392,4 @@ public class FileStorageService {
                 .key(key)
                 .build());
     }
-
-    private String getS3Url(String key) {
-        if (!s3PublicUrl.isEmpty()) {
-            return s3PublicUrl + "/" + key;
-        }
-        return backendUrl + "/api/images/" + key.replace(".png", "");
-    }
-
-    private void saveFile(MultipartFile file, Path dir, String fileName) throws IOException {
-        Path target = dir.resolve(fileName);
-        Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-    }
 }
@@ -0,0 +1,120 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.repository.ImageBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes image blobs that no book, author or collection references any more.
+ * A blob is only swept once it has gone unused for the grace period, which covers uploads
+ * whose Image row is not committed yet and content replaced then uploaded again.
+ */
+@Component
+public class ImageBlobSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageBlobSweeper.class);
+    private static final int BATCH_SIZE = 100;
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final FileStorageService fileStorageService;
+    private final Duration gracePeriod;
+    private final Counter swept;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ImageBlobSweeper(ImageBlobRepository imageBlobRepository,
+                            FileStorageService fileStorageService,
+                            MeterRegistry meterRegistry,
+                            @Value("${images.blobs.grace-period:86400000}") long gracePeriodMs,
+                            @Value("${images.blobs.sweep-interval:3600000}") long sweepIntervalMs) {
+        this(imageBlobRepository, fileStorageService, meterRegistry, gracePeriodMs);
+        if (sweepIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    ImageBlobSweeper(ImageBlobRepository imageBlobRepository,
+                     FileStorageService fileStorageService,
+                     MeterRegistry meterRegistry,
+                     long gracePeriodMs) {
+        this.imageBlobRepository = imageBlobRepository;
+        this.fileStorageService = fileStorageService;
+        this.gracePeriod = Duration.ofMillis(gracePeriodMs);
+        this.swept = Counter.builder("booksta.images.blobs.swept")
+                .description("Unreferenced image blobs deleted")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("image-blob-sweeper-", 0).daemon().factory());
+    }
+
+    /**
+     * Deletes every orphaned blob past the grace period, in batches, and returns how many went.
+     */
+    public int sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(gracePeriod);
+        int deleted = 0;
+        List<String> batch;
+        do {
+            batch = imageBlobRepository.findOrphanHashes(cutoff, PageRequest.of(0, BATCH_SIZE));
+            int deletedInBatch = 0;
+            for (String hash : batch) {
+                if (delete(hash, cutoff)) {
+                    deletedInBatch++;
+                }
+            }
+            deleted += deletedInBatch;
+            // Whatever is left was re-referenced or failed; the next run gets another go
+            if (deletedInBatch == 0) {
+                break;
+            }
+        } while (batch.size() == BATCH_SIZE);
+        return deleted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean delete(String hash, LocalDateTime cutoff) {
+        // Re-check right before deleting: an image may have been pointed at it since the query
+        if (imageBlobRepository.countReferences(hash) > 0
+                || imageBlobRepository.deleteIfUnused(hash, cutoff) == 0) {
+            return false;
+        }
+        try {
+            fileStorageService.deleteBlob(hash);
+        } catch (IOException | RuntimeException e) {
+            // The row is gone, so the file is simply overwritten if the content comes back
+            log.warn("Could not delete image blob {}: {}", hash, e.getMessage());
+        }
+        swept.increment();
+        return true;
+    }
+
+    private void sweepQuietly() {
+        try {
+            int deleted = sweep();
+            if (deleted > 0) {
+                log.info("Swept {} unreferenced image blobs", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Image blob sweep failed: {}", e.getMessage());
+        }
+    }
+}
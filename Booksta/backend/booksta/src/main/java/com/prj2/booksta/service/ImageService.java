@@ -5,12 +5,44 @@ import com.prj2.booksta.repository.ImageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Service
 public class ImageService {
+    private static final int MAX_KNOWN_URLS = 10_000;
+
     @Autowired
     private ImageRepository imageRepository;
 
+    // URLs found on an image, most recently used last. Only positive answers are kept: files
+    // behind a type/id URL are never rewritten, so a URL once handed out keeps its bytes
+    private final Map<String, Boolean> knownUrls = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_KNOWN_URLS;
+        }
+    };
+
     public Image createImage(Image image) {
         return imageRepository.save(image);
     }
+
+    /**
+     * Whether some image was given this URL at upload, as opposed to a version made up by a client.
+     */
+    public boolean isIssuedUrl(String url) {
+        synchronized (knownUrls) {
+            if (knownUrls.containsKey(url)) {
+                return true;
+            }
+        }
+        if (!imageRepository.existsByUrl(url)) {
+            return false;
+        }
+        synchronized (knownUrls) {
+            knownUrls.put(url, Boolean.TRUE);
+        }
+        return true;
+    }
 }
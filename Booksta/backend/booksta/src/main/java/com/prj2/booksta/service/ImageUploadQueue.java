@@ -0,0 +1,217 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.config.AfterCommit;
+import com.prj2.booksta.model.Image;
+import com.prj2.booksta.model.ImageBlob;
+import com.prj2.booksta.model.ImageStatus;
+import com.prj2.booksta.repository.ImageBlobRepository;
+import com.prj2.booksta.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves image storage out of the request and its transaction.
+ * stage() spools the upload to a temp file while hashing it and points the Image at the
+ * content-addressed blob for that SHA-256. Content already stored is reused as is; otherwise
+ * the Image is saved PENDING and, once the caller's transaction commits, a dedicated pool
+ * writes the blob to disk or S3, retrying with exponential backoff, and flips the Image to
+ * READY or FAILED. Blobs no image references any more are removed by ImageBlobSweeper.
+ */
+@Component
+public class ImageUploadQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageUploadQueue.class);
+
+    private final FileStorageService fileStorageService;
+    private final ImageRepository imageRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retries;
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter retried;
+    private final Counter deduplicated;
+
+    record UploadJob(Long imageId, String hash, Path spool, String contentType) {}
+
+    @Autowired
+    public ImageUploadQueue(FileStorageService fileStorageService,
+                            ImageRepository imageRepository,
+                            ImageBlobRepository imageBlobRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${images.upload.workers:4}") int workerCount,
+                            @Value("${images.upload.queue-capacity:200}") int queueCapacity,
+                            @Value("${images.upload.max-attempts:3}") int maxAttempts,
+                            @Value("${images.upload.retry-delay:1000}") long retryDelayMs,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.fileStorageService = fileStorageService;
+        this.imageRepository = imageRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.workers = new ThreadPoolExecutor(
+                workerCount, workerCount,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                // Workers wait on disk or S3; the pool size still caps the concurrent writes
+                virtualThreads
+                        ? Thread.ofVirtual().name("image-upload-", 0).factory()
+                        : Thread.ofPlatform().name("image-upload-", 0).daemon().factory(),
+                // A full queue slows the uploading request down instead of growing without bound
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        this.retries = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("image-upload-retry-", 0).daemon().factory());
+
+        Gauge.builder("booksta.images.upload.queue", workers, executor -> executor.getQueue().size())
+                .description("Image uploads waiting for a storage worker")
+                .register(meterRegistry);
+        Gauge.builder("booksta.images.upload.active", workers, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.completed = Counter.builder("booksta.images.upload").tag("outcome", "stored").register(meterRegistry);
+        this.failed = Counter.builder("booksta.images.upload").tag("outcome", "failed").register(meterRegistry);
+        this.retried = Counter.builder("booksta.images.upload.retries").register(meterRegistry);
+        this.deduplicated = Counter.builder("booksta.images.upload").tag("outcome", "deduplicated").register(meterRegistry);
+    }
+
+    /**
+     * Spools and hashes the upload, then saves the image pointing at its blob, reusing the given
+     * Image row when there is one. Known content is READY at once; new content is PENDING until
+     * the blob write, which starts after the current transaction commits (immediately without
+     * one) and is dropped, with its temp file, on rollback.
+     */
+    public Image stage(MultipartFile file, Image image) throws IOException {
+        Path spool = Files.createTempFile("booksta-upload-", ".tmp");
+        String hash;
+        try {
+            hash = spool(file, spool);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+
+        Image target = image != null ? image : new Image();
+        target.setUrl(fileStorageService.blobUrl(hash));
+        target.setContentHash(hash);
+
+        if (imageBlobRepository.touch(hash, LocalDateTime.now()) > 0) {
+            // Same bytes already stored: nothing to write
+            Files.deleteIfExists(spool);
+            target.setStatus(ImageStatus.READY);
+            deduplicated.increment();
+            return imageRepository.save(target);
+        }
+
+        target.setStatus(ImageStatus.PENDING);
+        Image saved = imageRepository.save(target);
+
+        UploadJob job = new UploadJob(saved.getId(), hash, spool, file.getContentType());
+        AfterCommit.run(() -> submit(job, 1), () -> deleteSpool(job));
+        return saved;
+    }
+
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retries.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    void submit(UploadJob job, int attempt) {
+        if (workers.isShutdown()) {
+            deleteSpool(job);
+            return;
+        }
+        workers.execute(() -> store(job, attempt));
+    }
+
+    private void store(UploadJob job, int attempt) {
+        try {
+            fileStorageService.storeBlob(job.hash(), job.spool(), job.contentType());
+            registerBlob(job);
+            imageRepository.updateStatus(job.imageId(), ImageStatus.READY);
+            completed.increment();
+            deleteSpool(job);
+        } catch (IOException | RuntimeException e) {
+            if (attempt < maxAttempts) {
+                retried.increment();
+                long delay = retryDelayMs << (attempt - 1);
+                log.warn("Storing image blob {} failed (attempt {}), retrying in {} ms: {}",
+                        job.hash(), attempt, delay, e.getMessage());
+                retries.schedule(() -> submit(job, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            } else {
+                log.error("Giving up storing image blob {} after {} attempts", job.hash(), attempt, e);
+                failed.increment();
+                imageRepository.updateStatus(job.imageId(), ImageStatus.FAILED);
+                deleteSpool(job);
+            }
+        }
+    }
+
+    private void registerBlob(UploadJob job) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        if (imageBlobRepository.touch(job.hash(), now) > 0) {
+            return;
+        }
+        try {
+            imageBlobRepository.save(new ImageBlob(job.hash(), Files.size(job.spool()), job.contentType(), now));
+        } catch (DataIntegrityViolationException e) {
+            // The same content was registered by a concurrent upload
+            imageBlobRepository.touch(job.hash(), now);
+        }
+    }
+
+    private static String spool(MultipartFile file, Path spool) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void deleteSpool(UploadJob job) {
+        try {
+            Files.deleteIfExists(job.spool());
+        } catch (IOException ignored) {
+            // Temp directory cleanup will catch it
+        }
+    }
+}
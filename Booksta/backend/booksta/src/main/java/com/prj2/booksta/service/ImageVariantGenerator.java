@@ -0,0 +1,121 @@
+package com.prj2.booksta.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns an uploaded image into the resized variants served to list and detail views.
+ * The stored upload is decoded once, straight from its file; each width is scaled from the
+ * previous, larger step and encoded as a baseline JPEG (transparent pixels are flattened on white).
+ */
+@Component
+public class ImageVariantGenerator {
+
+    private final int[] widths;
+    private final float quality;
+
+    public ImageVariantGenerator(@Value("${images.variant-widths:160,480,1200}") int[] widths,
+                                 @Value("${images.variant-quality:0.82}") float quality) {
+        this.widths = Arrays.stream(widths).sorted().distinct().toArray();
+        this.quality = quality;
+    }
+
+    public int[] getWidths() {
+        return widths.clone();
+    }
+
+    /**
+     * The smallest variant at least as wide as requested, or the largest one.
+     */
+    public int closestWidth(int requested) {
+        for (int width : widths) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    /**
+     * Encoded JPEG per variant width. Images narrower than a width are never upscaled:
+     * that variant gets the image at its own size.
+     */
+    public Map<Integer, byte[]> render(Path source) throws IOException {
+        BufferedImage decoded = ImageIO.read(source.toFile());
+        if (decoded == null) {
+            throw new IOException("Unsupported image format");
+        }
+        BufferedImage current = flatten(decoded);
+
+        Map<Integer, byte[]> variants = new LinkedHashMap<>();
+        // Largest first so each step scales down from the closest larger image
+        for (int i = widths.length - 1; i >= 0; i--) {
+            current = scaleDown(current, widths[i]);
+            variants.put(widths[i], encode(current));
+        }
+        return variants;
+    }
+
+    private static BufferedImage flatten(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage scaleDown(BufferedImage image, int targetWidth) {
+        // Halving steps keep bilinear filtering from skipping pixels on large reductions
+        while (image.getWidth() > targetWidth) {
+            int width = Math.max(targetWidth, image.getWidth() / 2);
+            int height = Math.max(1, Math.round(image.getHeight() * (width / (float) image.getWidth())));
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            image = scaled;
+        }
+        return image;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
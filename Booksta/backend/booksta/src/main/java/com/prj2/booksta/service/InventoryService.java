@@ -25,6 +25,9 @@ public class InventoryService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
     @Autowired
     public InventoryService(UserBookInventoryRepository inventoryRepository) {
         this.inventoryRepository = inventoryRepository;
@@ -62,6 +65,7 @@ public class InventoryService {
         inventory.setPricePerUnit(request.getPricePerUnit());
 
         UserBookInventory saved = inventoryRepository.save(inventory);
+        marketplaceStockSnapshot.refreshAfterCommit(saved.getId().getBookIsbn());
         return InventoryResponse.fromEntity(saved);
     }
 
@@ -85,6 +89,7 @@ public class InventoryService {
         }
 
         UserBookInventory saved = inventoryRepository.save(inventory);
+        marketplaceStockSnapshot.refreshAfterCommit(saved.getId().getBookIsbn());
         return InventoryResponse.fromEntity(saved);
     }
 
@@ -97,5 +102,6 @@ public class InventoryService {
         }
 
         inventoryRepository.deleteById(id);
+        marketplaceStockSnapshot.refreshAfterCommit(bookIsbn);
     }
 }
@@ -2,10 +2,13 @@ package com.prj2.booksta.service;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import com.prj2.booksta.model.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -18,18 +21,39 @@ import jakarta.annotation.PostConstruct;
 @Service
 public class JwtService {
 
+    /**
+     * Everything the application reads from an access token, extracted in one verification.
+     */
+    public record TokenClaims(String subject, List<String> roles, Date issuedAt, Date expiresAt) {}
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private long validityInMs;
 
+    @Value("${jwt.verified-cache.max-entries:1024}")
+    private int verifiedCacheMaxEntries;
+
     private Key key;
 
+    // Thread-safe once built, so one instance serves every request
+    private JwtParser parser;
+
+    // token -> claims of tokens whose signature was already verified, least recently used first
+    private Map<String, TokenClaims> verifiedTokens;
+
     @PostConstruct
     public void init() {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenClaims> eldest) {
+                return size() > verifiedCacheMaxEntries;
+            }
+        };
     }
 
     public String generateToken(User user) {
@@ -48,25 +72,59 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Verifies the token and returns its subject, roles and expiry together.
+     * A token verified before is served from a small LRU until it expires, skipping the HMAC check.
+     * Throws a JwtException when the token is malformed, tampered with or expired.
+     */
+    public TokenClaims parse(String token) {
+        TokenClaims cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(token);
+        }
+        if (cached != null) {
+            if (cached.expiresAt() == null || cached.expiresAt().after(new Date())) {
+                return cached;
+            }
+            synchronized (verifiedTokens) {
+                verifiedTokens.remove(token);
+            }
+        }
+
+        TokenClaims claims = toTokenClaims(extractAllClaims(token));
+        if (verifiedCacheMaxEntries > 0) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(token, claims);
+            }
+        }
+        return claims;
+    }
+
     public String extractEmail(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parse(token).subject();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String email = extractEmail(token);
-        return email.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        TokenClaims claims = parse(token);
+        return claims.subject().equals(userDetails.getUsername()) && !claims.expiresAt().before(new Date());
     }
 
     public boolean isTokenExpired(String token) {
-        return extractAllClaims(token).getExpiration().before(new Date());
+        return parse(token).expiresAt().before(new Date());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TokenClaims toTokenClaims(Claims claims) {
+        Object roles = claims.get("roles");
+        return new TokenClaims(
+                claims.getSubject(),
+                roles instanceof List<?> list ? List.copyOf((List<String>) list) : List.of(),
+                claims.getIssuedAt(),
+                claims.getExpiration()
+        );
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 }
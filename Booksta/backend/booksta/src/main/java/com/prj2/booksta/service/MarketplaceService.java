@@ -3,12 +3,18 @@ package com.prj2.booksta.service;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.UserBookInventory;
 import com.prj2.booksta.model.dto.MarketplaceBookListing;
+import com.prj2.booksta.model.dto.MarketplaceListingPage;
+import com.prj2.booksta.model.dto.MarketplaceStock;
 import com.prj2.booksta.model.dto.MarketplaceSummary;
 import com.prj2.booksta.model.dto.SellerListing;
 import com.prj2.booksta.repository.BookRepository;
 import com.prj2.booksta.repository.UserBookInventoryRepository;
+import com.prj2.booksta.repository.projections.BookAuthorView;
+import com.prj2.booksta.repository.projections.BookListingView;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,12 +25,18 @@ import java.util.stream.Collectors;
 @Service
 public class MarketplaceService {
 
+    static final int MAX_LISTING_PAGE_SIZE = 100;
+    private static final int LISTING_BATCH_SIZE = 500;
+
     @Autowired
     private UserBookInventoryRepository inventoryRepository;
 
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
     private MarketplaceSummary.BookInfo toBookInfo(Book book) {
         MarketplaceSummary.BookInfo bookInfo = new MarketplaceSummary.BookInfo();
         bookInfo.setIsbn(book.getIsbn());
@@ -52,33 +64,19 @@ public class MarketplaceService {
         Book book = bookRepository.findById(bookIsbn)
                 .orElseThrow(() -> new EntityNotFoundException("Book not found: " + bookIsbn));
 
-        // Get all sellers with stock > 0 for this book
-        List<UserBookInventory> availableStock = inventoryRepository
-                .findByBookIsbnAndQuantityGreaterThan(bookIsbn, 0L);
-
         MarketplaceSummary summary = new MarketplaceSummary();
         summary.setBook(toBookInfo(book));
 
-        if (availableStock.isEmpty()) {
+        Optional<MarketplaceStock> stock = marketplaceStockSnapshot.get(bookIsbn);
+        if (stock.isEmpty()) {
             summary.setLowestPrice(null);
             summary.setSellerCount(0);
             summary.setTotalQuantityAvailable(0);
             summary.setInStock(false);
         } else {
-            // Find lowest price
-            BigDecimal lowestPrice = availableStock.stream()
-                    .map(UserBookInventory::getPricePerUnit)
-                    .min(Comparator.naturalOrder())
-                    .orElse(null);
-
-            // Count total quantity available
-            long totalQuantity = availableStock.stream()
-                    .mapToLong(UserBookInventory::getQuantity)
-                    .sum();
-
-            summary.setLowestPrice(lowestPrice);
-            summary.setSellerCount(availableStock.size());
-            summary.setTotalQuantityAvailable(totalQuantity);
+            summary.setLowestPrice(stock.get().lowestPrice());
+            summary.setSellerCount(stock.get().sellerCount().intValue());
+            summary.setTotalQuantityAvailable(stock.get().totalQuantity());
             summary.setInStock(true);
         }
 
@@ -102,24 +100,70 @@ public class MarketplaceService {
      */
     @Transactional(readOnly = true)
     public List<MarketplaceBookListing> getAllBooksWithMarketplaceData(boolean inStockOnly) {
-        List<Book> allBooks = bookRepository.findAll();
+        List<String> isbns = inStockOnly
+                ? marketplaceStockSnapshot.inStockIsbns(0, Integer.MAX_VALUE)
+                : bookRepository.findIsbns(Pageable.unpaged());
 
-        // Get all inventory entries with quantity > 0 in one query
-        List<UserBookInventory> allInventory = inventoryRepository.findAll().stream()
-                .filter(inv -> inv.getQuantity() > 0)
-                .collect(Collectors.toList());
+        List<MarketplaceBookListing> listings = new ArrayList<>(isbns.size());
+        for (int from = 0; from < isbns.size(); from += LISTING_BATCH_SIZE) {
+            listings.addAll(toListings(isbns.subList(from, Math.min(from + LISTING_BATCH_SIZE, isbns.size()))));
+        }
+        return listings;
+    }
 
-        // Group inventory by book ISBN
-        Map<String, List<UserBookInventory>> inventoryByIsbn = allInventory.stream()
-                .collect(Collectors.groupingBy(inv -> inv.getBook().getIsbn()));
+    /**
+     * One page of marketplace listings, in isbn order. Stock figures come from the in-memory
+     * snapshot; book and author details are loaded for the page only, with two queries.
+     */
+    @Transactional(readOnly = true)
+    public MarketplaceListingPage getMarketplaceListings(boolean inStockOnly, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_LISTING_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        long offset = (long) pageNumber * pageSize;
+
+        List<String> isbns;
+        long total;
+        if (inStockOnly) {
+            isbns = marketplaceStockSnapshot.inStockIsbns(offset, pageSize);
+            total = marketplaceStockSnapshot.size();
+        } else {
+            isbns = bookRepository.findIsbns(PageRequest.of(pageNumber, pageSize));
+            total = bookRepository.count();
+        }
 
-        List<MarketplaceBookListing> listings = new ArrayList<>();
+        return new MarketplaceListingPage(
+                toListings(isbns),
+                pageNumber,
+                pageSize,
+                total,
+                offset + isbns.size() < total
+        );
+    }
 
-        for (Book book : allBooks) {
-            List<UserBookInventory> bookInventory = inventoryByIsbn.getOrDefault(book.getIsbn(), Collections.emptyList());
+    private List<MarketplaceBookListing> toListings(List<String> isbns) {
+        if (isbns.isEmpty()) {
+            return List.of();
+        }
 
-            // Skip books with no stock if inStockOnly is true
-            if (inStockOnly && bookInventory.isEmpty()) {
+        Map<String, List<MarketplaceBookListing.AuthorInfo>> authorsByIsbn = bookRepository.findAuthorViews(isbns).stream()
+                .collect(Collectors.groupingBy(
+                        BookAuthorView::getBookIsbn,
+                        Collectors.mapping(author -> new MarketplaceBookListing.AuthorInfo(
+                                author.getId(),
+                                author.getFirstName(),
+                                author.getLastName(),
+                                author.getImageUrl()
+                        ), Collectors.toList())
+                ));
+
+        Map<String, BookListingView> booksByIsbn = bookRepository.findListingViews(isbns).stream()
+                .collect(Collectors.toMap(BookListingView::getIsbn, book -> book));
+
+        List<MarketplaceBookListing> listings = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            BookListingView book = booksByIsbn.get(isbn);
+            if (book == null) {
+                // Stock left behind by a book deleted since the snapshot was loaded
                 continue;
             }
 
@@ -129,42 +173,24 @@ public class MarketplaceService {
             listing.setDescription(book.getDescription());
             listing.setPublishingYear(book.getPublishingYear());
             listing.setPages(book.getPages());
-            listing.setImageUrl(book.getImage() != null ? book.getImage().getUrl() : null);
-
-            List<MarketplaceBookListing.AuthorInfo> authors = book.getAuthors().stream()
-                    .map(author -> new MarketplaceBookListing.AuthorInfo(
-                            author.getId(),
-                            author.getFirstName(),
-                            author.getLastName(),
-                            author.getImage() != null ? author.getImage().getUrl() : null
-                    ))
-                    .collect(Collectors.toList());
-            listing.setAuthors(authors);
-
-            if (bookInventory.isEmpty()) {
+            listing.setImageUrl(book.getImageUrl());
+            listing.setAuthors(authorsByIsbn.getOrDefault(isbn, Collections.emptyList()));
+
+            Optional<MarketplaceStock> stock = marketplaceStockSnapshot.get(isbn);
+            if (stock.isEmpty()) {
                 listing.setLowestPrice(null);
                 listing.setSellerCount(0);
                 listing.setTotalQuantityAvailable(0);
                 listing.setInStock(false);
             } else {
-                BigDecimal lowestPrice = bookInventory.stream()
-                        .map(UserBookInventory::getPricePerUnit)
-                        .min(Comparator.naturalOrder())
-                        .orElse(null);
-
-                long totalQuantity = bookInventory.stream()
-                        .mapToLong(UserBookInventory::getQuantity)
-                        .sum();
-
-                listing.setLowestPrice(lowestPrice);
-                listing.setSellerCount(bookInventory.size());
-                listing.setTotalQuantityAvailable(totalQuantity);
+                listing.setLowestPrice(stock.get().lowestPrice());
+                listing.setSellerCount(stock.get().sellerCount().intValue());
+                listing.setTotalQuantityAvailable(stock.get().totalQuantity());
                 listing.setInStock(true);
             }
 
             listings.add(listing);
         }
-
         return listings;
     }
 }
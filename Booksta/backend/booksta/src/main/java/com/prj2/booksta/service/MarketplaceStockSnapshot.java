@@ -0,0 +1,177 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.config.AfterCommit;
+import com.prj2.booksta.model.dto.MarketplaceStock;
+import com.prj2.booksta.repository.UserBookInventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of the per-book marketplace aggregates (lowest price, seller count, quantity).
+ * Loaded once with a single GROUP BY query, then refreshed one ISBN at a time when stock changes.
+ * Every query takes a ticket first, so a read that finishes late never replaces a newer one.
+ */
+@Component
+public class MarketplaceStockSnapshot {
+
+    @Autowired
+    private UserBookInventoryRepository inventoryRepository;
+
+    // Null until the first load; a reload builds a new one and swaps it in
+    private volatile Stock stock;
+
+    private volatile boolean loadStarted;
+
+    // A query with a higher ticket started later, so it saw at least the same commits
+    private final AtomicLong tickets = new AtomicLong();
+
+    // isbn -> latest refresh applied, kept until a load newer than it replaces it
+    private final Map<String, Refresh> refreshes = new ConcurrentHashMap<>();
+
+    // Not a monitor: the query runs under it, and a virtual thread blocked inside synchronized
+    // would pin its carrier thread
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private record Refresh(long ticket, MarketplaceStock stock) {}
+
+    public Optional<MarketplaceStock> get(String isbn) {
+        return Optional.ofNullable(loaded().byIsbn.get(isbn));
+    }
+
+    public int size() {
+        return loaded().isbns().length;
+    }
+
+    /**
+     * ISBNs of books in stock, in isbn order.
+     */
+    public List<String> inStockIsbns(long offset, int limit) {
+        String[] isbns = loaded().isbns();
+        int from = (int) Math.min(offset, isbns.length);
+        int to = (int) Math.min((long) from + limit, isbns.length);
+        return Arrays.asList(Arrays.copyOfRange(isbns, from, to));
+    }
+
+    /**
+     * Re-aggregates one book once the current transaction commits, so the query sees the new stock.
+     */
+    public void refreshAfterCommit(String isbn) {
+        AfterCommit.run(() -> refresh(isbn));
+    }
+
+    public void refresh(String isbn) {
+        if (!loadStarted) {
+            // The full load will pick the change up
+            return;
+        }
+        long ticket = tickets.incrementAndGet();
+        apply(isbn, ticket, inventoryRepository.aggregateStockForBook(isbn).orElse(null));
+    }
+
+    public void evict(String isbn) {
+        apply(isbn, tickets.incrementAndGet(), null);
+    }
+
+    public void reload() {
+        reloadLock.lock();
+        try {
+            loadStarted = true;
+            long ticket = tickets.incrementAndGet();
+            Stock loaded = new Stock(ticket);
+            inventoryRepository.aggregateStock().forEach(aggregate -> loaded.put(aggregate.isbn(), aggregate));
+            // Readers keep the previous copy until here
+            stock = loaded;
+
+            // Refreshes that read after the load query may have gone to the previous copy
+            for (String isbn : refreshes.keySet()) {
+                refreshes.computeIfPresent(isbn, (key, applied) -> {
+                    if (applied.ticket() < ticket) {
+                        return null;
+                    }
+                    loaded.put(key, applied.stock());
+                    return applied;
+                });
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void apply(String isbn, long ticket, MarketplaceStock fresh) {
+        refreshes.compute(isbn, (key, applied) -> {
+            Stock current = stock;
+            if ((applied != null && applied.ticket() > ticket) || (current != null && current.loadTicket > ticket)) {
+                return applied;
+            }
+            if (current != null) {
+                current.put(key, fresh);
+            }
+            return new Refresh(ticket, fresh);
+        });
+    }
+
+    private Stock loaded() {
+        Stock current = stock;
+        if (current == null) {
+            reloadLock.lock();
+            try {
+                if (stock == null) {
+                    reload();
+                }
+                current = stock;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * One load with the refreshes applied since. The sorted isbn array used for listings is only
+     * rebuilt after a book enters or leaves the marketplace, not on price or quantity changes.
+     */
+    private static final class Stock {
+
+        final long loadTicket;
+        final Map<String, MarketplaceStock> byIsbn = new ConcurrentSkipListMap<>();
+
+        // Bumped whenever the set of isbns changes
+        private final AtomicLong keysVersion = new AtomicLong();
+        private volatile SortedIsbns sorted = new SortedIsbns(-1, new String[0]);
+
+        private record SortedIsbns(long version, String[] isbns) {}
+
+        Stock(long loadTicket) {
+            this.loadTicket = loadTicket;
+        }
+
+        void put(String isbn, MarketplaceStock aggregate) {
+            boolean keysChanged = aggregate == null
+                    ? byIsbn.remove(isbn) != null
+                    : byIsbn.put(isbn, aggregate) == null;
+            if (keysChanged) {
+                keysVersion.incrementAndGet();
+            }
+        }
+
+        String[] isbns() {
+            SortedIsbns current = sorted;
+            long version = keysVersion.get();
+            if (current.version() != version) {
+                // Tagged with the version read first: a change made while copying forces another copy
+                current = new SortedIsbns(version, byIsbn.keySet().toArray(new String[0]));
+                sorted = current;
+            }
+            return current.isbns();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.prj2.booksta.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process fan-out of messaging events to the users' open server-sent event streams.
+ * Every connection has a bounded buffer drained by a small shared pool, one sender at a time,
+ * so a slow client never blocks the publisher. A connection whose buffer overflows is closed:
+ * the client reconnects and reloads its inbox instead of receiving a partial history.
+ */
+@Component
+public class MessagePushHub {
+
+    private final int bufferSize;
+    private final int maxConnectionsPerUser;
+    private final long timeoutMs;
+    private final Executor sender;
+    private final ExecutorService ownedSender;
+    private final ScheduledExecutorService heartbeat;
+
+    private final Map<Long, List<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MessagePushHub(@Value("${messaging.push.buffer-size:64}") int bufferSize,
+                          @Value("${messaging.push.max-connections-per-user:5}") int maxConnectionsPerUser,
+                          @Value("${messaging.push.timeout:1800000}") long timeoutMs,
+                          @Value("${messaging.push.sender-threads:4}") int senderThreads,
+                          @Value("${messaging.push.heartbeat-interval:25000}") long heartbeatIntervalMs,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        // Senders block on slow clients' sockets: on virtual threads that costs no carrier
+        this(bufferSize, maxConnectionsPerUser, timeoutMs,
+                Executors.newFixedThreadPool(senderThreads, virtualThreads
+                        ? Thread.ofVirtual().name("message-push-", 0).factory()
+                        : daemon("message-push-")));
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeats,
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    MessagePushHub(int bufferSize, int maxConnectionsPerUser, long timeoutMs, Executor sender) {
+        this.bufferSize = bufferSize;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.timeoutMs = timeoutMs;
+        this.sender = sender;
+        this.ownedSender = sender instanceof ExecutorService service ? service : null;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("message-push-heartbeat-"));
+    }
+
+    /**
+     * Opens a stream for the user. The oldest stream is closed once the user has too many.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(userId, emitter);
+
+        // Added under the same lock as unregister, which drops the list once it is empty
+        List<Connection> evicted = new ArrayList<>();
+        connectionsByUser.compute(userId, (id, connections) -> {
+            List<Connection> updated = connections == null ? new CopyOnWriteArrayList<>() : connections;
+            updated.add(connection);
+            while (updated.size() > maxConnectionsPerUser) {
+                evicted.add(updated.remove(0));
+            }
+            return updated;
+        });
+        // Closed outside compute: close unregisters, which must not update the map from within it
+        evicted.forEach(this::close);
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> close(connection));
+        emitter.onError(error -> remove(connection));
+
+        enqueue(connection, SseEmitter.event().name("connected").data(userId));
+        return emitter;
+    }
+
+    /**
+     * Queues the event on every open stream of the user. Never blocks.
+     */
+    public void publish(Long userId, String eventName, Object payload) {
+        List<Connection> connections = connectionsByUser.get(userId);
+        if (connections == null) {
+            return;
+        }
+        for (Connection connection : connections) {
+            enqueue(connection, SseEmitter.event().name(eventName).data(payload));
+        }
+    }
+
+    public int connectionCount(Long userId) {
+        List<Connection> connections = connectionsByUser.get(userId);
+        return connections == null ? 0 : connections.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        if (ownedSender != null) {
+            ownedSender.shutdownNow();
+        }
+        connectionsByUser.values().forEach(connections -> connections.forEach(this::close));
+    }
+
+    void sendHeartbeats() {
+        connectionsByUser.values().forEach(connections ->
+                connections.forEach(connection -> enqueue(connection, SseEmitter.event().comment("ping"))));
+    }
+
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (connection.closed.get()) {
+            return;
+        }
+        if (!connection.buffer.offer(event)) {
+            // The client is not keeping up; it will reconnect and resync
+            close(connection);
+            return;
+        }
+        scheduleDrain(connection);
+    }
+
+    private void scheduleDrain(Connection connection) {
+        if (connection.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(connection));
+            } catch (RejectedExecutionException e) {
+                connection.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!connection.closed.get() && (event = connection.buffer.poll()) != null) {
+                connection.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            close(connection);
+        } finally {
+            connection.draining.set(false);
+        }
+        // An event may have been queued after the last poll but before draining was reset
+        if (!connection.closed.get() && !connection.buffer.isEmpty()) {
+            scheduleDrain(connection);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed.compareAndSet(false, true)) {
+            unregister(connection);
+            connection.buffer.clear();
+            connection.emitter.complete();
+        }
+    }
+
+    // The container already completed the stream (client gone, error, completion callback)
+    private void remove(Connection connection) {
+        connection.closed.set(true);
+        unregister(connection);
+    }
+
+    private void unregister(Connection connection) {
+        connectionsByUser.computeIfPresent(connection.userId, (id, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        return Thread.ofPlatform().name(prefix, 0).daemon().factory();
+    }
+
+    private final class Connection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -1,35 +1,59 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AfterCommit;
 import com.prj2.booksta.model.PrivateConversation;
 import com.prj2.booksta.model.PrivateMessage;
 import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.dto.ConversationPage;
+import com.prj2.booksta.model.dto.ConversationReadEvent;
 import com.prj2.booksta.model.dto.ConversationSummary;
+import com.prj2.booksta.model.dto.MessagePage;
 import com.prj2.booksta.model.dto.MessageResponse;
 import com.prj2.booksta.model.dto.UserSummary;
 import com.prj2.booksta.repository.PrivateConversationRepository;
 import com.prj2.booksta.repository.PrivateMessageRepository;
 import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.ConversationInboxView;
+import com.prj2.booksta.repository.projections.PrivateMessageView;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class PrivateMessagingService {
 
+    public static final int DEFAULT_INBOX_PAGE_SIZE = 20;
+    public static final int MAX_INBOX_PAGE_SIZE = 100;
+    public static final int DEFAULT_MESSAGE_PAGE_SIZE = 50;
+    public static final int MAX_MESSAGE_PAGE_SIZE = 200;
+
     private final PrivateConversationRepository conversationRepository;
     private final PrivateMessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final MessagePushHub pushHub;
 
     public PrivateMessagingService(PrivateConversationRepository conversationRepository,
                                    PrivateMessageRepository messageRepository,
-                                   UserRepository userRepository) {
+                                   UserRepository userRepository,
+                                   MessagePushHub pushHub) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
+        this.pushHub = pushHub;
     }
 
     // ----------- API publique -----------
@@ -53,7 +77,23 @@ public class PrivateMessagingService {
         message.setSentAt(LocalDateTime.now());
 
         PrivateMessage saved = messageRepository.save(message);
-        return toMessageResponse(saved);
+        conversationRepository.recordMessage(
+                conversation.getId(),
+                saved.getId(),
+                saved.getContent(),
+                saved.getSentAt(),
+                recipient.getId()
+        );
+
+        MessageResponse response = toMessageResponse(saved);
+        AfterCommit.run(() -> {
+            pushHub.publish(recipient.getId(), "message", response);
+            if (!sender.getId().equals(recipient.getId())) {
+                // Les autres onglets de l'expéditeur
+                pushHub.publish(sender.getId(), "message", response);
+            }
+        });
+        return response;
     }
 
     @Transactional(readOnly = true)
@@ -61,18 +101,129 @@ public class PrivateMessagingService {
         // Vérifier que l'utilisateur existe
         getUserOrThrow(userId, "User not found");
 
-        List<PrivateConversation> conversations =
-                conversationRepository.findAllByParticipant(userId);
+        return conversationRepository.findInbox(userId, Pageable.unpaged())
+                .stream()
+                .map(this::toConversationSummary)
+                .toList();
+    }
+
+    /**
+     * Boîte de réception paginée par (lastMessageAt, id) décroissants. Le curseur est le nextCursor
+     * renvoyé par la page précédente, ou null pour la première page.
+     */
+    @Transactional(readOnly = true)
+    public ConversationPage getInboxPage(Long userId, String cursor, Integer limit) {
+        getUserOrThrow(userId, "User not found");
+
+        int pageSize = limit == null
+                ? DEFAULT_INBOX_PAGE_SIZE
+                : Math.max(1, Math.min(limit, MAX_INBOX_PAGE_SIZE));
+
+        // Une ligne de plus pour savoir s'il reste une page
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+        List<ConversationInboxView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = conversationRepository.findInbox(userId, window);
+        } else {
+            TimeCursor before = decodeCursor(cursor);
+            rows = conversationRepository.findInboxBefore(userId, before.at(), before.id(), window);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ConversationInboxView> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            ConversationInboxView last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getLastMessageAt(), last.getConversationId());
+        }
+
+        return new ConversationPage(
+                page.stream().map(this::toConversationSummary).toList(),
+                nextCursor,
+                hasMore
+        );
+    }
+
+    /**
+     * Historique d'une conversation par pages de messages, dans l'ordre chronologique.
+     * Sans curseur : les derniers messages. Avec before : les messages plus anciens que le curseur,
+     * avec after : les plus récents. Les deux UserSummary ne sont construits qu'une fois.
+     */
+    @Transactional(readOnly = true)
+    public MessagePage getMessagePage(Long conversationId, Long userId, String before, String after, Integer limit) {
+        if (StringUtils.hasText(before) && StringUtils.hasText(after)) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        PrivateConversation conversation = getConversationOrThrow(conversationId);
+        if (!conversation.involvesUser(userId)) {
+            throw new IllegalArgumentException("User does not belong to this conversation");
+        }
+
+        int pageSize = limit == null
+                ? DEFAULT_MESSAGE_PAGE_SIZE
+                : Math.max(1, Math.min(limit, MAX_MESSAGE_PAGE_SIZE));
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+
+        List<PrivateMessageView> rows;
+        boolean newer = StringUtils.hasText(after);
+        if (newer) {
+            TimeCursor cursor = decodeCursor(after);
+            rows = messageRepository.findViewsAfter(conversationId, cursor.at(), cursor.id(), window);
+        } else if (StringUtils.hasText(before)) {
+            TimeCursor cursor = decodeCursor(before);
+            rows = messageRepository.findViewsBefore(conversationId, cursor.at(), cursor.id(), window);
+        } else {
+            rows = messageRepository.findLatestViews(conversationId, window);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<PrivateMessageView> page = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+        if (!newer) {
+            // Lues du plus récent au plus ancien, renvoyées dans l'ordre chronologique
+            Collections.reverse(page);
+        }
 
-        return conversations.stream()
-                .map(conversation -> toConversationSummary(conversation, userId))
-                .sorted(Comparator
-                        .comparing(ConversationSummary::getLastMessageAt,
-                                Comparator.nullsLast(Comparator.naturalOrder()))
-                        .reversed())
+        Map<Long, UserSummary> participants = participantSummaries(conversation);
+        List<MessageResponse> messages = page.stream()
+                .map(view -> toMessageResponse(view, conversationId, participants))
                 .toList();
+
+        return new MessagePage(
+                messages,
+                page.isEmpty() ? null : encodeCursor(page.get(0).getSentAt(), page.get(0).getId()),
+                page.isEmpty() ? null : encodeCursor(page.get(page.size() - 1).getSentAt(), page.get(page.size() - 1).getId()),
+                hasMore
+        );
     }
 
+    static String encodeCursor(LocalDateTime at, Long id) {
+        String key = at + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TimeCursor decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf('|');
+            if (separator <= 0 || separator == key.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new TimeCursor(
+                    LocalDateTime.parse(key.substring(0, separator)),
+                    Long.valueOf(key.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Position dans une liste triée par (date, id) : lastMessageAt pour la boîte de réception,
+     * sentAt pour l'historique d'une conversation.
+     */
+    record TimeCursor(LocalDateTime at, Long id) {}
+
     @Transactional(readOnly = true)
     public List<MessageResponse> getConversationMessages(Long conversationId, Long userId) {
         PrivateConversation conversation = getConversationOrThrow(conversationId);
@@ -81,9 +232,10 @@ public class PrivateMessagingService {
             throw new IllegalArgumentException("User does not belong to this conversation");
         }
 
-        return messageRepository.findByConversationIdOrderBySentAtAsc(conversationId)
+        Map<Long, UserSummary> participants = participantSummaries(conversation);
+        return messageRepository.findViewsByConversation(conversationId)
                 .stream()
-                .map(this::toMessageResponse)
+                .map(view -> toMessageResponse(view, conversationId, participants))
                 .toList();
     }
 
@@ -95,15 +247,37 @@ public class PrivateMessagingService {
             throw new IllegalArgumentException("User does not belong to this conversation");
         }
 
-        messageRepository.markConversationMessagesAsRead(
-                conversationId,
-                userId,
-                LocalDateTime.now()
-        );
+        Long otherUserId = conversation.getParticipant1().getId().equals(userId)
+                ? conversation.getParticipant2().getId()
+                : conversation.getParticipant1().getId();
+
+        LocalDateTime readAt = LocalDateTime.now();
+        int updated = messageRepository.markConversationMessagesAsRead(conversationId, userId, readAt);
+        conversationRepository.resetUnreadCount(conversationId, userId);
+
+        if (updated > 0) {
+            ConversationReadEvent event = new ConversationReadEvent(conversationId, userId, readAt);
+            AfterCommit.run(() -> {
+                pushHub.publish(userId, "read", event);
+                if (!otherUserId.equals(userId)) {
+                    pushHub.publish(otherUserId, "read", event);
+                }
+            });
+        }
+    }
+
+    /**
+     * Les conversations antérieures au modèle de lecture n'ont pas encore de dernier message.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillInbox() {
+        conversationRepository.backfillInbox();
     }
 
     // ----------- Helpers internes -----------
 
+
     private User getUserOrThrow(Long userId, String messageIfMissing) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException(messageIfMissing));
@@ -141,28 +315,39 @@ public class PrivateMessagingService {
                 });
     }
 
-    private ConversationSummary toConversationSummary(PrivateConversation conversation, Long currentUserId) {
-        // Déterminer l'autre utilisateur dans la conversation
-        User otherUser = conversation.getParticipant1().getId().equals(currentUserId)
-                ? conversation.getParticipant2()
-                : conversation.getParticipant1();
-
-        // Dernier message envoyé dans cette conversation
-        PrivateMessage lastMessage =
-                messageRepository.findFirstByConversationIdOrderBySentAtDesc(conversation.getId());
+    private ConversationSummary toConversationSummary(ConversationInboxView row) {
+        return new ConversationSummary(
+                row.getConversationId(),
+                new UserSummary(
+                        row.getOtherUserId(),
+                        row.getOtherFirstName(),
+                        row.getOtherLastName(),
+                        row.getOtherEmail(),
+                        row.getOtherPicture()
+                ),
+                row.getLastMessagePreview(),
+                row.getLastMessageAt(),
+                row.getUnreadCount() != null ? row.getUnreadCount() : 0
+        );
+    }
 
-        long unreadCount = messageRepository
-                .countByConversationIdAndRecipientIdAndReadAtIsNull(
-                        conversation.getId(),
-                        currentUserId
-                );
+    private Map<Long, UserSummary> participantSummaries(PrivateConversation conversation) {
+        Map<Long, UserSummary> summaries = new HashMap<>(2);
+        summaries.put(conversation.getParticipant1().getId(), toUserSummary(conversation.getParticipant1()));
+        summaries.put(conversation.getParticipant2().getId(), toUserSummary(conversation.getParticipant2()));
+        return summaries;
+    }
 
-        return new ConversationSummary(
-                conversation.getId(),
-                toUserSummary(otherUser),
-                lastMessage != null ? lastMessage.getContent() : null,
-                lastMessage != null ? lastMessage.getSentAt() : null,
-                unreadCount
+    private MessageResponse toMessageResponse(PrivateMessageView view, Long conversationId,
+                                              Map<Long, UserSummary> participants) {
+        return new MessageResponse(
+                view.getId(),
+                conversationId,
+                participants.get(view.getSenderId()),
+                participants.get(view.getRecipientId()),
+                view.getContent(),
+                view.getSentAt(),
+                view.getReadAt()
         );
     }
 
@@ -27,6 +27,9 @@ public class ReadingSessionService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ReadingStatsService readingStatsService;
+
     /* -------------------------------------------------------
        CREATE (START)
        ------------------------------------------------------- */
@@ -34,9 +37,7 @@ public class ReadingSessionService {
     public ReadingSession createSession(User user, Book book, Integer startPage) {
 
         ReadingEventType event =
-                bookReadEventService
-                        .getLatestReadEvent(user.getEmail(), book.getIsbn())
-                        .getReadingEvent();
+                bookReadEventService.getLatestReadingEvent(user.getId(), book.getIsbn());
 
         if (event != ReadingEventType.STARTED_READING &&
                 event != ReadingEventType.RESTARTED_READING) {
@@ -160,9 +161,12 @@ public class ReadingSessionService {
             session.setNote(note);
         }
 
-        return readingSessionRepository.save(session);
+        ReadingSession saved = readingSessionRepository.save(session);
+        readingStatsService.recordSession(saved);
+        return saved;
     }
 
+    @Transactional
     public void deleteSession(Long sessionId) throws AccessDeniedException {
         Authentication authentication =
                 SecurityContextHolder.getContext().getAuthentication();
@@ -183,6 +187,7 @@ public class ReadingSessionService {
         }
 
         readingSessionRepository.delete(session);
+        readingStatsService.removeSession(session);
     }
 
     public List<ReadingSession> findByUserAndIsbn(User user, String isbn) {
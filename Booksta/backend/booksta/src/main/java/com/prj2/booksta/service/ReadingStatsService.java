@@ -0,0 +1,384 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.ReadingEventType;
+import com.prj2.booksta.model.ReadingSession;
+import com.prj2.booksta.model.ReadingSessionStatus;
+import com.prj2.booksta.model.UserReadingDay;
+import com.prj2.booksta.model.UserReadingDayId;
+import com.prj2.booksta.model.UserReadingStats;
+import com.prj2.booksta.model.dto.ReadingStatsBucket;
+import com.prj2.booksta.model.dto.ReadingStatsResponse;
+import com.prj2.booksta.repository.BookReadEventRepository;
+import com.prj2.booksta.repository.ReadingSessionRepository;
+import com.prj2.booksta.repository.UserReadingDayRepository;
+import com.prj2.booksta.repository.UserReadingStatsRepository;
+import com.prj2.booksta.repository.projections.FinishedSessionView;
+import com.prj2.booksta.repository.projections.ReadEventView;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-user reading statistics kept up to date as reading events are recorded and sessions end,
+ * instead of being recomputed from BookReadEvent and ReadingSession rows on every read.
+ * Totals live in one UserReadingStats row per user, daily figures in UserReadingDay rows.
+ */
+@Service
+public class ReadingStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingStatsService.class);
+
+    static final int MAX_HISTORY_DAYS = 3660;
+    static final int DEFAULT_HISTORY_DAYS = 30;
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    @Autowired
+    private UserReadingStatsRepository statsRepository;
+
+    @Autowired
+    private UserReadingDayRepository dayRepository;
+
+    @Autowired
+    private BookReadEventRepository bookReadEventRepository;
+
+    @Autowired
+    private ReadingSessionRepository readingSessionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Days, and so streaks, are counted in this zone
+    @Value("${reading.stats.zone:UTC}")
+    private ZoneId zone = ZoneId.of("UTC");
+
+    private volatile boolean stopping;
+
+    /**
+     * Counts a start, restart, finish or abandon. Runs in the caller's transaction.
+     */
+    @Transactional
+    public void recordReadEvent(Long userId, ReadingEventType eventType, Instant occurredAt) {
+        UserReadingStats stats = lockStats(userId);
+        if (buildIfNew(stats)) {
+            return;
+        }
+        // Starts and restarts only count in the totals: no day row for them
+        UserReadingDay day = countsPerDay(eventType) ? loadDay(userId, toDay(occurredAt)) : null;
+        applyReadEvent(stats, day, eventType);
+        stats.setUpdatedAt(Instant.now());
+        if (day != null) {
+            dayRepository.save(day);
+        }
+    }
+
+    /**
+     * Adds a finished session to the totals and to the day it ended on.
+     */
+    @Transactional
+    public void recordSession(ReadingSession session) {
+        Long userId = session.getUser().getId();
+        UserReadingStats stats = lockStats(userId);
+        if (buildIfNew(stats)) {
+            return;
+        }
+        UserReadingDay day = loadDay(userId, toDay(session.getEndedAt()));
+        applySession(stats, day, session, 1);
+        stats.setUpdatedAt(Instant.now());
+        dayRepository.save(day);
+    }
+
+    /**
+     * Takes a deleted finished session back out. Streaks are history and are left as they were.
+     */
+    @Transactional
+    public void removeSession(ReadingSession session) {
+        if (session.getStatus() != ReadingSessionStatus.FINISHED || session.getEndedAt() == null) {
+            return;
+        }
+        Long userId = session.getUser().getId();
+        UserReadingStats stats = lockStats(userId);
+        if (buildIfNew(stats)) {
+            return;
+        }
+        UserReadingDay day = loadDay(userId, toDay(session.getEndedAt()));
+        applySession(stats, day, session, -1);
+        stats.setUpdatedAt(Instant.now());
+        dayRepository.save(day);
+    }
+
+    public ReadingStatsResponse getStats(Long userId) {
+        UserReadingStats stats = statsRepository.findById(userId).orElseGet(() -> new UserReadingStats(userId));
+
+        LocalDate yesterday = LocalDate.now(zone).minusDays(1);
+        boolean streakAlive = stats.getLastReadingDay() != null && !stats.getLastReadingDay().isBefore(yesterday);
+
+        return new ReadingStatsResponse(
+                stats.getPagesRead(),
+                stats.getActiveSeconds(),
+                stats.getSessionsCompleted(),
+                stats.getReadingDays(),
+                stats.getBooksStarted(),
+                stats.getBooksFinished(),
+                stats.getBooksAbandoned(),
+                streakAlive ? stats.getCurrentStreak() : 0,
+                stats.getLongestStreak(),
+                stats.getLastReadingDay(),
+                stats.getReadingDays() > 0 ? (double) stats.getPagesRead() / stats.getReadingDays() : null,
+                stats.getActiveSeconds() > 0 ? stats.getPagesRead() * 3600.0 / stats.getActiveSeconds() : null
+        );
+    }
+
+    /**
+     * Reading between from and to (inclusive) summed per day, week (from Monday) or month,
+     * with empty buckets included. Defaults to the last 30 days by day.
+     */
+    public List<ReadingStatsBucket> getHistory(Long userId, LocalDate from, LocalDate to, Granularity granularity) {
+        LocalDate end = to != null ? to : LocalDate.now(zone);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_HISTORY_DAYS - 1);
+        Granularity unit = granularity != null ? granularity : Granularity.DAY;
+
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_HISTORY_DAYS) {
+            throw new IllegalArgumentException("History is limited to " + MAX_HISTORY_DAYS + " days");
+        }
+
+        Map<LocalDate, long[]> buckets = new LinkedHashMap<>();
+        for (LocalDate bucket = bucketStart(start, unit); !bucket.isAfter(end); bucket = nextBucket(bucket, unit)) {
+            buckets.put(bucket, new long[5]);
+        }
+        for (UserReadingDay day : dayRepository.findById_UserIdAndId_DayBetweenOrderById_DayAsc(userId, start, end)) {
+            long[] totals = buckets.get(bucketStart(day.getId().getDay(), unit));
+            totals[0] += day.getPagesRead();
+            totals[1] += day.getActiveSeconds();
+            totals[2] += day.getSessions();
+            totals[3] += day.getBooksFinished();
+            totals[4] += day.getBooksAbandoned();
+        }
+
+        List<ReadingStatsBucket> history = new ArrayList<>(buckets.size());
+        buckets.forEach((bucket, totals) -> history.add(new ReadingStatsBucket(
+                bucket, totals[0], totals[1], (int) totals[2], (int) totals[3], (int) totals[4])));
+        return history;
+    }
+
+    /**
+     * Builds the statistics of users whose history predates them, off the startup path.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        Thread.ofPlatform().name("reading-stats-backfill").daemon().start(this::backfill);
+    }
+
+    @PreDestroy
+    public void stopBackfill() {
+        stopping = true;
+    }
+
+    /**
+     * Replays the events and finished sessions of every user without statistics through the
+     * same rules as the live updates, one transaction per user so the persistence context only
+     * ever holds one user's rows. Users left over when stopped are picked up on the next start,
+     * or by their next live update.
+     */
+    void backfill() {
+        List<Long> userIds = statsRepository.findUserIdsWithoutStats();
+        int built = 0;
+        for (Long userId : userIds) {
+            if (stopping) {
+                break;
+            }
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> rebuildIfMissing(userId)))) {
+                    built++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not build the reading statistics of user {}: {}", userId, e.getMessage());
+            }
+        }
+        if (built > 0) {
+            log.info("Built reading statistics for {} users from their history", built);
+        }
+    }
+
+    private boolean rebuildIfMissing(Long userId) {
+        // A live update may have built them since the list was read
+        return buildIfNew(lockStats(userId));
+    }
+
+    /**
+     * Builds a statistics row created empty by lockStats from the user's whole history.
+     * The callers' own change is already flushed, so it is part of that history: returns true
+     * when the row was built and the change must not be applied again.
+     */
+    private boolean buildIfNew(UserReadingStats stats) {
+        if (stats.getUpdatedAt() != null) {
+            return false;
+        }
+        rebuild(stats);
+        return true;
+    }
+
+    void rebuild(UserReadingStats stats) {
+        Long userId = stats.getUserId();
+        Map<LocalDate, UserReadingDay> days = new HashMap<>();
+
+        for (ReadEventView event : bookReadEventRepository.findEventViewsByUserId(userId)) {
+            ReadingEventType eventType = event.getReadingEvent();
+            UserReadingDay day = countsPerDay(eventType) ? dayOf(days, userId, toDay(event.getOccurredAt())) : null;
+            applyReadEvent(stats, day, eventType);
+        }
+        // Oldest first, so streaks are rebuilt as they happened
+        for (FinishedSessionView session : readingSessionRepository.findSessionViewsByUserIdAndStatus(
+                userId, ReadingSessionStatus.FINISHED)) {
+            applySession(stats, dayOf(days, userId, toDay(session.getEndedAt())),
+                    pagesRead(session.getStartPage(), session.getEndPage()), session.getTotalActiveSeconds(), 1);
+        }
+
+        stats.setUpdatedAt(Instant.now());
+        statsRepository.save(stats);
+        dayRepository.saveAll(days.values());
+    }
+
+    // ----------- Update rules, shared by live updates and rebuilds -----------
+
+    private static boolean countsPerDay(ReadingEventType eventType) {
+        return eventType == ReadingEventType.FINISHED_READING || eventType == ReadingEventType.ABANDONED_READING;
+    }
+
+    private void applyReadEvent(UserReadingStats stats, UserReadingDay day, ReadingEventType eventType) {
+        switch (eventType) {
+            case STARTED_READING, RESTARTED_READING -> stats.setBooksStarted(stats.getBooksStarted() + 1);
+            case FINISHED_READING -> {
+                stats.setBooksFinished(stats.getBooksFinished() + 1);
+                day.setBooksFinished(day.getBooksFinished() + 1);
+            }
+            case ABANDONED_READING -> {
+                stats.setBooksAbandoned(stats.getBooksAbandoned() + 1);
+                day.setBooksAbandoned(day.getBooksAbandoned() + 1);
+            }
+        }
+    }
+
+    private void applySession(UserReadingStats stats, UserReadingDay day, ReadingSession session, int sign) {
+        applySession(stats, day, pagesRead(session.getStartPage(), session.getEndPage()),
+                session.getTotalActiveSeconds(), sign);
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) a finished session.
+     */
+    private void applySession(UserReadingStats stats, UserReadingDay day, long sessionPages, Long activeSeconds,
+                              int sign) {
+        long pages = sessionPages * sign;
+        long seconds = (activeSeconds != null ? activeSeconds : 0L) * sign;
+
+        if (sign > 0 && day.getSessions() == 0) {
+            stats.setReadingDays(stats.getReadingDays() + 1);
+            extendStreak(stats, day.getId().getDay());
+        } else if (sign < 0 && day.getSessions() == 1) {
+            stats.setReadingDays(Math.max(0, stats.getReadingDays() - 1));
+        }
+
+        stats.setPagesRead(Math.max(0, stats.getPagesRead() + pages));
+        stats.setActiveSeconds(Math.max(0, stats.getActiveSeconds() + seconds));
+        stats.setSessionsCompleted(Math.max(0, stats.getSessionsCompleted() + sign));
+        day.setPagesRead(Math.max(0, day.getPagesRead() + pages));
+        day.setActiveSeconds(Math.max(0, day.getActiveSeconds() + seconds));
+        day.setSessions(Math.max(0, day.getSessions() + sign));
+    }
+
+    private static void extendStreak(UserReadingStats stats, LocalDate day) {
+        LocalDate last = stats.getLastReadingDay();
+        if (last != null && !day.isAfter(last)) {
+            return;
+        }
+        int streak = last != null && last.plusDays(1).equals(day) ? stats.getCurrentStreak() + 1 : 1;
+        stats.setCurrentStreak(streak);
+        stats.setLongestStreak(Math.max(stats.getLongestStreak(), streak));
+        stats.setLastReadingDay(day);
+    }
+
+    private static long pagesRead(Integer startPage, Integer endPage) {
+        if (startPage == null || endPage == null) {
+            return 0;
+        }
+        return Math.max(0, endPage - startPage);
+    }
+
+    // ----------- Helpers -----------
+
+    /**
+     * Locks the user's statistics row, inserting an empty one first when there is none.
+     * The insert commits on its own, so losing the race to a concurrent one leaves the
+     * caller's transaction intact; both then wait on the same row lock.
+     */
+    private UserReadingStats lockStats(Long userId) {
+        Optional<UserReadingStats> locked = statsRepository.findForUpdate(userId);
+        if (locked.isPresent()) {
+            return locked.get();
+        }
+        TransactionTemplate insert = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        insert.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            insert.executeWithoutResult(status -> statsRepository.saveAndFlush(new UserReadingStats(userId)));
+        } catch (DataIntegrityViolationException e) {
+            // Inserted by a concurrent update meanwhile
+        }
+        return statsRepository.findForUpdate(userId)
+                .orElseThrow(() -> new IllegalStateException("No reading statistics row for user " + userId));
+    }
+
+    private UserReadingDay loadDay(Long userId, LocalDate date) {
+        UserReadingDayId id = new UserReadingDayId(userId, date);
+        return dayRepository.findById(id).orElseGet(() -> new UserReadingDay(id));
+    }
+
+    private static UserReadingDay dayOf(Map<LocalDate, UserReadingDay> days, Long userId, LocalDate date) {
+        return days.computeIfAbsent(date, d -> new UserReadingDay(new UserReadingDayId(userId, d)));
+    }
+
+    private LocalDate toDay(Instant instant) {
+        return instant.atZone(zone).toLocalDate();
+    }
+
+    private static LocalDate bucketStart(LocalDate day, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate nextBucket(LocalDate bucket, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> bucket.plusDays(1);
+            case WEEK -> bucket.plusWeeks(1);
+            case MONTH -> bucket.plusMonths(1);
+        };
+    }
+}
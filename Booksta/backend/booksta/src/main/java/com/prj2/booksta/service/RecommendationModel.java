@@ -0,0 +1,578 @@
+package com.prj2.booksta.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Snapshot behind the recommendations: for every book its most similar books, by co-occurrence
+ * in users' libraries (favorites, owned books, reading states), plus the author, subject and
+ * series links used for users without such signals. Books are numbered with dense int slots.
+ * Built at once by {@link Builder}; only the per-user lists change afterwards.
+ */
+final class RecommendationModel {
+
+    // A larger library only contributes its strongest books, which bounds the pairs per user
+    static final int MAX_BOOKS_PER_USER = 200;
+    static final int POPULAR_BOOKS = 500;
+
+    // Content scores for users without co-occurrence signals
+    private static final float FOLLOWED_AUTHOR = 2f;
+    private static final float FOLLOWED_SERIES = 2f;
+    private static final float SAME_AUTHOR = 1f;
+    private static final float SAME_SUBJECT = 0.25f;
+
+    record Profile(int[] slots, float[] weights) {
+        static final Profile EMPTY = new Profile(new int[0], new float[0]);
+    }
+
+    private final String[] isbns;
+    private final Map<String, Integer> slots;
+    private final int[][] neighbors;
+    private final float[][] similarities;
+    private final int[] popular;
+    private final float[] popularity;
+    private final Map<Long, int[]> booksByAuthor;
+    private final Map<Long, int[]> booksBySubject;
+    private final Map<Long, int[]> booksBySeries;
+    private final long[][] authorsOf;
+    private final long[][] subjectsOf;
+    private final int size;
+
+    // userId -> recommended slots, best first
+    private final Map<Long, int[]> recommendations = new ConcurrentHashMap<>();
+
+    // Bumped by every eviction, so a list computed while one ran is not stored
+    private long generation;
+
+    // Catalog-sized working arrays, reused instead of allocated per list: the build goes through
+    // one for every user, concurrent requests each take their own
+    private final Queue<Scratch> scratches = new ConcurrentLinkedQueue<>();
+
+    private RecommendationModel(Builder builder, int[][] neighbors, float[][] similarities) {
+        this.isbns = builder.isbns.toArray(new String[0]);
+        this.slots = builder.slots;
+        this.neighbors = neighbors;
+        this.similarities = similarities;
+        this.popularity = Arrays.copyOf(builder.popularity, isbns.length);
+        this.popular = topSlots(popularity, POPULAR_BOOKS);
+        this.booksByAuthor = toArrays(builder.booksByAuthor);
+        this.booksBySubject = toArrays(builder.booksBySubject);
+        this.booksBySeries = toArrays(builder.booksBySeries);
+        this.authorsOf = linksOf(builder.booksByAuthor, isbns.length);
+        this.subjectsOf = linksOf(builder.booksBySubject, isbns.length);
+        this.size = builder.size;
+    }
+
+    int books() {
+        return isbns.length;
+    }
+
+    int[] cached(Long userId) {
+        return recommendations.get(userId);
+    }
+
+    /**
+     * To read before computing a user's list from their signals, and pass back to {@link #cache}.
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores the list unless an eviction ran since seenGeneration was read: it may then have
+     * been computed from signals that have just changed.
+     */
+    synchronized void cache(Long userId, int[] recommended, long seenGeneration) {
+        if (generation == seenGeneration) {
+            recommendations.put(userId, recommended);
+        }
+    }
+
+    synchronized void evict(Long userId) {
+        generation++;
+        recommendations.remove(userId);
+    }
+
+    List<String> isbns(int[] recommended, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, recommended.length));
+        for (int i = 0; i < recommended.length && i < limit; i++) {
+            result.add(isbns[recommended[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Profile of a user from their (isbn, weight) signals; books unknown to the model are skipped.
+     */
+    Profile profile(Map<String, Float> weights) {
+        int[] profileSlots = new int[weights.size()];
+        float[] profileWeights = new float[weights.size()];
+        int count = 0;
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            Integer slot = slots.get(entry.getKey());
+            if (slot != null) {
+                profileSlots[count] = slot;
+                profileWeights[count++] = entry.getValue();
+            }
+        }
+        return new Profile(Arrays.copyOf(profileSlots, count), Arrays.copyOf(profileWeights, count));
+    }
+
+    /**
+     * Books most similar to the user's books, then books by the authors and in the series they
+     * follow or that share authors and subjects with their books, then the most popular books.
+     * The user's own books are never recommended.
+     */
+    int[] recommend(Profile profile, Collection<Long> followedAuthors, Collection<Long> followedSeries) {
+        Scratch scratch = scratches.poll();
+        if (scratch == null) {
+            scratch = new Scratch(isbns.length);
+        }
+        try {
+            return recommend(profile, followedAuthors, followedSeries, scratch);
+        } finally {
+            scratch.clear();
+            scratches.offer(scratch);
+        }
+    }
+
+    private int[] recommend(Profile profile, Collection<Long> followedAuthors, Collection<Long> followedSeries,
+                            Scratch scratch) {
+        for (int slot : profile.slots()) {
+            scratch.exclude(slot);
+        }
+
+        Scores scores = scratch.scores;
+        for (int i = 0; i < profile.slots().length; i++) {
+            int slot = profile.slots()[i];
+            float weight = profile.weights()[i];
+            for (int n = 0; n < neighbors[slot].length; n++) {
+                scores.add(neighbors[slot][n], weight * similarities[slot][n]);
+            }
+        }
+        int[] result = scores.top(scratch.excluded, size);
+        if (result.length == size) {
+            return result;
+        }
+
+        // Cold start: content similarity, popularity breaking ties
+        for (int slot : result) {
+            scratch.exclude(slot);
+        }
+        scores.clear();
+        for (Long author : followedAuthors) {
+            scores.addAll(booksByAuthor.get(author), FOLLOWED_AUTHOR);
+        }
+        for (Long series : followedSeries) {
+            scores.addAll(booksBySeries.get(series), FOLLOWED_SERIES);
+        }
+        for (int slot : profile.slots()) {
+            for (long author : authorsOf[slot]) {
+                scores.addAll(booksByAuthor.get(author), SAME_AUTHOR);
+            }
+            for (long subject : subjectsOf[slot]) {
+                scores.addAll(booksBySubject.get(subject), SAME_SUBJECT);
+            }
+        }
+        float maxPopularity = popular.length == 0 ? 1f : Math.max(1f, popularity[popular[0]]);
+        scores.boost(popularity, 0.1f / maxPopularity);
+        int[] content = scores.top(scratch.excluded, size - result.length);
+
+        int[] combined = Arrays.copyOf(result, size);
+        System.arraycopy(content, 0, combined, result.length, content.length);
+        int count = result.length + content.length;
+        for (int slot : content) {
+            scratch.exclude(slot);
+        }
+        for (int i = 0; i < popular.length && count < size; i++) {
+            if (!scratch.excluded[popular[i]]) {
+                combined[count++] = popular[i];
+            }
+        }
+        return Arrays.copyOf(combined, count);
+    }
+
+    /**
+     * Dense scores that remember which slots they touched, so ranking never scans the catalog.
+     */
+    private static final class Scores {
+
+        private final float[] values;
+        private int[] touched = new int[64];
+        private int count;
+
+        Scores(int books) {
+            values = new float[books];
+        }
+
+        void add(int slot, float score) {
+            if (values[slot] == 0) {
+                if (count == touched.length) {
+                    touched = Arrays.copyOf(touched, count * 2);
+                }
+                touched[count++] = slot;
+            }
+            values[slot] += score;
+        }
+
+        void addAll(int[] slots, float score) {
+            if (slots != null) {
+                for (int slot : slots) {
+                    add(slot, score);
+                }
+            }
+        }
+
+        /**
+         * Zeroes the touched slots only.
+         */
+        void clear() {
+            for (int i = 0; i < count; i++) {
+                values[touched[i]] = 0;
+            }
+            count = 0;
+        }
+
+        void boost(float[] by, float factor) {
+            for (int i = 0; i < count; i++) {
+                values[touched[i]] += by[touched[i]] * factor;
+            }
+        }
+
+        int[] top(boolean[] excluded, int limit) {
+            long[] candidates = new long[count];
+            int candidateCount = 0;
+            for (int i = 0; i < count; i++) {
+                int slot = touched[i];
+                if (!excluded[slot]) {
+                    candidates[candidateCount++] = pack(values[slot], slot);
+                }
+            }
+            return topPacked(candidates, candidateCount, limit);
+        }
+    }
+
+    /**
+     * Scores and excluded slots of one list being computed, cleared slot by slot afterwards.
+     */
+    private static final class Scratch {
+
+        final Scores scores;
+        final boolean[] excluded;
+        private int[] excludedSlots = new int[64];
+        private int excludedCount;
+
+        Scratch(int books) {
+            scores = new Scores(books);
+            excluded = new boolean[books];
+        }
+
+        void exclude(int slot) {
+            if (!excluded[slot]) {
+                if (excludedCount == excludedSlots.length) {
+                    excludedSlots = Arrays.copyOf(excludedSlots, excludedCount * 2);
+                }
+                excludedSlots[excludedCount++] = slot;
+                excluded[slot] = true;
+            }
+        }
+
+        void clear() {
+            scores.clear();
+            for (int i = 0; i < excludedCount; i++) {
+                excluded[excludedSlots[i]] = false;
+            }
+            excludedCount = 0;
+        }
+    }
+
+    /**
+     * Slots of the highest positive scores, best first (lowest slot first on ties).
+     * Score and slot are packed into one long so the sort stays on primitives.
+     */
+    static int[] topSlots(float[] scores, int limit) {
+        long[] candidates = new long[scores.length];
+        int count = 0;
+        for (int slot = 0; slot < scores.length; slot++) {
+            if (scores[slot] > 0) {
+                candidates[count++] = pack(scores[slot], slot);
+            }
+        }
+        return topPacked(candidates, count, limit);
+    }
+
+    private static long pack(float score, int slot) {
+        // Positive floats order like their bits; the inverted slot puts the lowest first on ties
+        return ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - slot);
+    }
+
+    private static int[] topPacked(long[] packed, int count, int limit) {
+        Arrays.sort(packed, 0, count);
+        int[] top = new int[Math.min(limit, count)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = Integer.MAX_VALUE - (int) packed[count - 1 - i];
+        }
+        return top;
+    }
+
+    private static Map<Long, int[]> toArrays(Map<Long, List<Integer>> links) {
+        Map<Long, int[]> arrays = new HashMap<>(links.size() * 2);
+        links.forEach((id, books) -> arrays.put(id, books.stream().mapToInt(Integer::intValue).toArray()));
+        return arrays;
+    }
+
+    private static long[][] linksOf(Map<Long, List<Integer>> links, int books) {
+        int[] counts = new int[books];
+        links.values().forEach(slots -> slots.forEach(slot -> counts[slot]++));
+        long[][] result = new long[books][];
+        for (int slot = 0; slot < books; slot++) {
+            result[slot] = new long[counts[slot]];
+        }
+        links.forEach((id, slots) -> slots.forEach(slot -> result[slot][--counts[slot]] = id));
+        return result;
+    }
+
+    /**
+     * Collects the catalog links and the users' signals, then computes each book's neighbors
+     * (cosine similarity of the co-occurrence counts, damped for large libraries) and every known
+     * user's list. Signals must come grouped by user.
+     */
+    static final class Builder {
+
+        private final int neighborCount;
+        private final int size;
+
+        private final List<String> isbns = new ArrayList<>();
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Map<Long, List<Integer>> booksByAuthor = new HashMap<>();
+        private final Map<Long, List<Integer>> booksBySubject = new HashMap<>();
+        private final Map<Long, List<Integer>> booksBySeries = new HashMap<>();
+        private final Map<Long, List<Long>> followedAuthors = new HashMap<>();
+        private final Map<Long, List<Long>> followedSeries = new HashMap<>();
+
+        private final List<SparseRow> cooccurrences = new ArrayList<>();
+        private float[] norms = new float[1024];
+        private float[] popularity = new float[1024];
+        private final Map<Long, Profile> profiles = new HashMap<>();
+
+        private Long currentUser;
+        private final Map<Integer, Float> currentBooks = new LinkedHashMap<>();
+
+        Builder(int neighborCount, int size) {
+            this.neighborCount = neighborCount;
+            this.size = size;
+        }
+
+        Builder author(String isbn, Long authorId) {
+            booksByAuthor.computeIfAbsent(authorId, k -> new ArrayList<>()).add(slot(isbn));
+            return this;
+        }
+
+        Builder subject(String isbn, Long subjectId) {
+            booksBySubject.computeIfAbsent(subjectId, k -> new ArrayList<>()).add(slot(isbn));
+            return this;
+        }
+
+        Builder series(String isbn, Long seriesId) {
+            booksBySeries.computeIfAbsent(seriesId, k -> new ArrayList<>()).add(slot(isbn));
+            return this;
+        }
+
+        Builder followedAuthor(Long userId, Long authorId) {
+            followedAuthors.computeIfAbsent(userId, k -> new ArrayList<>()).add(authorId);
+            return this;
+        }
+
+        Builder followedSeries(Long userId, Long seriesId) {
+            followedSeries.computeIfAbsent(userId, k -> new ArrayList<>()).add(seriesId);
+            return this;
+        }
+
+        /**
+         * One signal of a user on a book; the weights of a user's signals on the same book add up.
+         */
+        Builder signal(Long userId, String isbn, float weight) {
+            if (!userId.equals(currentUser)) {
+                flushUser();
+                currentUser = userId;
+            }
+            currentBooks.merge(slot(isbn), weight, Float::sum);
+            return this;
+        }
+
+        private int slot(String isbn) {
+            Integer slot = slots.get(isbn);
+            if (slot == null) {
+                slot = isbns.size();
+                slots.put(isbn, slot);
+                isbns.add(isbn);
+                cooccurrences.add(null);
+                if (slot == norms.length) {
+                    norms = Arrays.copyOf(norms, slot * 2);
+                    popularity = Arrays.copyOf(popularity, slot * 2);
+                }
+            }
+            return slot;
+        }
+
+        private void flushUser() {
+            if (currentUser == null || currentBooks.isEmpty()) {
+                return;
+            }
+            int[] userSlots = new int[currentBooks.size()];
+            float[] weights = new float[currentBooks.size()];
+            int count = 0;
+            for (Map.Entry<Integer, Float> entry : currentBooks.entrySet()) {
+                userSlots[count] = entry.getKey();
+                weights[count++] = entry.getValue();
+            }
+            if (profiles.containsKey(currentUser)) {
+                throw new IllegalStateException("Signals of user " + currentUser + " are not grouped");
+            }
+            profiles.put(currentUser, new Profile(userSlots, weights));
+            currentBooks.clear();
+
+            for (int i = 0; i < userSlots.length; i++) {
+                popularity[userSlots[i]] += weights[i];
+            }
+            int[] strongest = strongest(userSlots, weights);
+            // Every book of a large library co-occurs with every other: damp its contribution
+            float damping = (float) (1 / Math.log(2 + strongest.length));
+            for (int i = 0; i < strongest.length; i++) {
+                int a = userSlots[strongest[i]];
+                float weightA = weights[strongest[i]];
+                norms[a] += weightA * weightA * damping;
+                for (int j = i + 1; j < strongest.length; j++) {
+                    int b = userSlots[strongest[j]];
+                    float value = weightA * weights[strongest[j]] * damping;
+                    row(a).add(b, value);
+                    row(b).add(a, value);
+                }
+            }
+        }
+
+        private static int[] strongest(int[] userSlots, float[] weights) {
+            if (userSlots.length <= MAX_BOOKS_PER_USER) {
+                int[] all = new int[userSlots.length];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+            return topSlots(weights, MAX_BOOKS_PER_USER);
+        }
+
+        private SparseRow row(int slot) {
+            SparseRow row = cooccurrences.get(slot);
+            if (row == null) {
+                row = new SparseRow();
+                cooccurrences.set(slot, row);
+            }
+            return row;
+        }
+
+        RecommendationModel build() {
+            flushUser();
+            int books = isbns.size();
+            int[][] neighbors = new int[books][];
+            float[][] similarities = new float[books][];
+            for (int slot = 0; slot < books; slot++) {
+                SparseRow row = cooccurrences.get(slot);
+                cooccurrences.set(slot, null);
+                if (row == null) {
+                    neighbors[slot] = new int[0];
+                    similarities[slot] = new float[0];
+                    continue;
+                }
+                long[] packed = new long[row.size()];
+                int count = 0;
+                for (int i = 0; i < row.keys.length; i++) {
+                    if (row.keys[i] != SparseRow.EMPTY) {
+                        int other = row.keys[i];
+                        float similarity = (float) (row.values[i] / Math.sqrt(norms[slot] * norms[other]));
+                        packed[count++] = pack(similarity, other);
+                    }
+                }
+                neighbors[slot] = topPacked(packed, count, neighborCount);
+                similarities[slot] = new float[neighbors[slot].length];
+                for (int n = 0; n < neighbors[slot].length; n++) {
+                    int other = neighbors[slot][n];
+                    similarities[slot][n] = (float) (row.get(other) / Math.sqrt(norms[slot] * norms[other]));
+                }
+            }
+
+            RecommendationModel model = new RecommendationModel(this, neighbors, similarities);
+            Set<Long> users = new HashSet<>(profiles.keySet());
+            users.addAll(followedAuthors.keySet());
+            users.addAll(followedSeries.keySet());
+            for (Long user : users) {
+                model.recommendations.put(user, model.recommend(
+                        profiles.getOrDefault(user, Profile.EMPTY),
+                        followedAuthors.getOrDefault(user, List.of()),
+                        followedSeries.getOrDefault(user, List.of())));
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Open-addressing map from slot to co-occurrence weight, one per book while building.
+     */
+    static final class SparseRow {
+
+        static final int EMPTY = -1;
+
+        private int[] keys = emptyKeys(8);
+        private float[] values = new float[8];
+        private int size;
+
+        void add(int key, float value) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int index = indexOf(keys, key);
+            if (keys[index] == EMPTY) {
+                keys[index] = key;
+                size++;
+            }
+            values[index] += value;
+        }
+
+        float get(int key) {
+            int index = indexOf(keys, key);
+            return keys[index] == EMPTY ? 0f : values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static int indexOf(int[] keys, int key) {
+            int mask = keys.length - 1;
+            int index = (key * 0x9E3779B9) >>> 1 & mask;
+            while (keys[index] != EMPTY && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            keys = emptyKeys(oldKeys.length * 2);
+            values = new float[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int index = indexOf(keys, oldKeys[i]);
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private static int[] emptyKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.config.AfterCommit;
+import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.repository.BookRepository;
+import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.BookLinkView;
+import com.prj2.booksta.repository.projections.UserBookSignalView;
+import com.prj2.booksta.repository.projections.UserLinkView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Book recommendations per user, served from a {@link RecommendationModel} rebuilt in the
+ * background from favorites, owned books, reading states and follows. Every known user's list
+ * is computed with the model; when a user's books or follows change, their list is dropped after
+ * commit and recomputed from the model on their next request.
+ */
+@Service
+public class RecommendationService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationService.class);
+
+    private final UserRepository userRepository;
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int neighbors;
+    private final int size;
+    private final long rebuildIntervalMs;
+    private final Timer buildTime;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile RecommendationModel model;
+
+    // Not a monitor: the build queries run under it (see MarketplaceStockSnapshot)
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    // Users whose signals changed while a build was reading them
+    private final Set<Long> changedDuringBuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean building;
+    private final AtomicBoolean buildQueued = new AtomicBoolean();
+
+    @Autowired
+    public RecommendationService(UserRepository userRepository,
+                                 BookRepository bookRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${recommendations.neighbors:50}") int neighbors,
+                                 @Value("${recommendations.size:20}") int size,
+                                 @Value("${recommendations.rebuild-interval:21600000}") long rebuildIntervalMs) {
+        this.userRepository = userRepository;
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.neighbors = neighbors;
+        this.size = size;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        this.buildTime = Timer.builder("booksta.recommendations.build")
+                .description("Time to rebuild the recommendation model")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("recommendations-", 0).daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuilds() {
+        scheduler.execute(this::rebuildQuietly);
+        if (rebuildIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::rebuildQuietly, rebuildIntervalMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Up to limit books for the user, best first (at most recommendations.size). Until the first
+     * model is built, the most favorited books the user has not favorited.
+     */
+    public List<BookSummary> recommendFor(Long userId, int limit) {
+        int count = Math.max(1, Math.min(limit, size));
+        RecommendationModel current = model;
+        if (current == null) {
+            // Never built in the request: a build reads every user's signals
+            buildInBackground();
+            return bookRepository.findMostFavoritedSummaries(userId, PageRequest.of(0, count));
+        }
+        int[] recommended = current.cached(userId);
+        if (recommended == null) {
+            long generation = current.generation();
+            recommended = recommend(current, userId);
+            current.cache(userId, recommended, generation);
+        }
+
+        List<String> isbns = current.isbns(recommended, count);
+        if (isbns.isEmpty()) {
+            return List.of();
+        }
+        Map<String, BookSummary> summaries = new HashMap<>();
+        bookRepository.findSummariesByIsbns(isbns).forEach(summary -> summaries.put(summary.getIsbn(), summary));
+        // Books deleted since the build are skipped
+        return isbns.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Drops the user's list once the current transaction commits, so the next request sees the change.
+     */
+    public void invalidateAfterCommit(Long userId) {
+        AfterCommit.run(() -> invalidate(userId));
+    }
+
+    public void invalidate(Long userId) {
+        if (building) {
+            changedDuringBuild.add(userId);
+        }
+        RecommendationModel current = model;
+        if (current != null) {
+            current.evict(userId);
+        }
+    }
+
+    public void rebuild() {
+        buildLock.lock();
+        try {
+            building = true;
+            changedDuringBuild.clear();
+            RecommendationModel built = buildTime.record(() -> readOnlyTransaction.execute(status -> build()));
+            model = built;
+            // Read before the change committed: recomputed on the next request instead
+            changedDuringBuild.forEach(built::evict);
+            log.info("Recommendation model rebuilt over {} books", built.books());
+        } finally {
+            building = false;
+            buildLock.unlock();
+        }
+    }
+
+    private RecommendationModel build() {
+        RecommendationModel.Builder builder = new RecommendationModel.Builder(neighbors, size);
+        try (Stream<BookLinkView> links = bookRepository.streamAuthorLinks()) {
+            links.forEach(link -> builder.author(link.getBookIsbn(), link.getLinkedId()));
+        }
+        try (Stream<BookLinkView> links = bookRepository.streamSubjectLinks()) {
+            links.forEach(link -> builder.subject(link.getBookIsbn(), link.getLinkedId()));
+        }
+        try (Stream<BookLinkView> links = bookRepository.streamSeriesLinks()) {
+            links.forEach(link -> builder.series(link.getBookIsbn(), link.getLinkedId()));
+        }
+        try (Stream<UserLinkView> follows = userRepository.streamFollowedAuthors()) {
+            follows.forEach(follow -> builder.followedAuthor(follow.getUserId(), follow.getLinkedId()));
+        }
+        try (Stream<UserLinkView> follows = userRepository.streamFollowedSeries()) {
+            follows.forEach(follow -> builder.followedSeries(follow.getUserId(), follow.getLinkedId()));
+        }
+        try (Stream<UserBookSignalView> signals = userRepository.streamBookSignals()) {
+            signals.forEach(signal -> builder.signal(signal.getUserId(), signal.getBookIsbn(), signal.getWeight().floatValue()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Queues a build unless one is already queued; it is skipped if a model exists by then.
+     */
+    private void buildInBackground() {
+        if (!buildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                try {
+                    if (model == null) {
+                        rebuildQuietly();
+                    }
+                } finally {
+                    buildQueued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            buildQueued.set(false);
+        }
+    }
+
+    private int[] recommend(RecommendationModel current, Long userId) {
+        Map<String, Float> weights = new HashMap<>();
+        for (UserBookSignalView signal : userRepository.findBookSignals(userId)) {
+            weights.merge(signal.getBookIsbn(), signal.getWeight().floatValue(), Float::sum);
+        }
+        return current.recommend(
+                current.profile(weights),
+                userRepository.findFollowedAuthorIds(userId),
+                userRepository.findFollowedSeriesIds(userId));
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Recommendation model rebuild failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.prj2.booksta.service;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of image variant keys already looked up in the bucket, so redirects do not need a
+ * HEAD request each time. Keys found are kept until evicted or deleted; missing keys only for a
+ * short TTL, since their variant may still be generating.
+ */
+final class RemoteVariantCache {
+
+    private static final long FOUND = Long.MAX_VALUE;
+
+    private final int maxEntries;
+    private final long missTtlMs;
+    private final Clock clock;
+
+    // key -> instant the answer expires at, FOUND for keys in the bucket
+    private final LinkedHashMap<String, Long> entries;
+
+    RemoteVariantCache(int maxEntries, long missTtlMs, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.missTtlMs = missTtlMs;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > RemoteVariantCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Whether the key is in the bucket, or null when that is not known.
+     */
+    Boolean lookup(String key) {
+        synchronized (entries) {
+            Long expiresAt = entries.get(key);
+            if (expiresAt == null) {
+                return null;
+            }
+            if (expiresAt == FOUND) {
+                return true;
+            }
+            if (expiresAt <= clock.millis()) {
+                entries.remove(key);
+                return null;
+            }
+            return false;
+        }
+    }
+
+    void found(String key) {
+        synchronized (entries) {
+            entries.put(key, FOUND);
+        }
+    }
+
+    void missing(String key) {
+        if (missTtlMs <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, clock.millis() + missTtlMs);
+        }
+    }
+
+    void remove(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.CatalogCache;
 import com.prj2.booksta.model.*;
 import com.prj2.booksta.model.dto.ResolveBookReport;
 import com.prj2.booksta.repository.AuthorReportRepository;
@@ -24,10 +25,7 @@ public class ReportService {
     private BookService bookService;
 
     @Autowired
-    private FileStorageService fileStorageService;
-
-    @Autowired
-    private ImageService imageService;
+    private ImageUploadQueue imageUploadQueue;
 
     @Autowired
     private AuthorService authorService;
@@ -35,6 +33,9 @@ public class ReportService {
     @Autowired
     private SubjectService subjectService;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     public BookReport createBookReport(BookReport bookReport) {
         return bookReportRepository.save(bookReport);
     }
@@ -63,10 +64,8 @@ public class ReportService {
                 String isbn = bookReport.isbn();
                 Book book = bookService.getBookByIsbn(isbn);
                 if (image != null) {
-                    Image img = new Image();
-                    img.setUrl(fileStorageService.saveBookImage(image, isbn));
-                    img = imageService.createImage(img);
-                    book.setImage(img);
+                    // Written to storage once the resolution commits
+                    book.setImage(imageUploadQueue.stage(image, book.getImage()));
                 }
                 if (bookReport.publishingYear() != null)
                     book.setPublishingYear(bookReport.publishingYear());
@@ -86,6 +85,7 @@ public class ReportService {
                 if (bookReport.subjects() != null)
                     book.setSubjects(subjectService.findAllById(bookReport.subjects()));
                 bookService.save(book);
+                catalogCache.evictBook(isbn);
             }
         }
 
@@ -1,18 +1,26 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.CatalogCache;
 import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.Series;
 import com.prj2.booksta.model.User;
 import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.model.dto.SeriesPage;
 import com.prj2.booksta.model.dto.SeriesRequest;
 import com.prj2.booksta.model.dto.SeriesResponse;
 import com.prj2.booksta.repository.AuthorRepository;
 import com.prj2.booksta.repository.BookRepository;
 import com.prj2.booksta.repository.SeriesRepository;
 import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.SeriesSummaryView;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,11 +29,39 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @Service
 public class SeriesService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
+    // Ties broken by id so pages do not overlap
+    public enum SeriesSort {
+        TITLE(Sort.by("title").and(Sort.by("id"))),
+        BOOKS(Sort.by(Sort.Direction.DESC, "bookCount").and(Sort.by("id"))),
+        FOLLOWERS(Sort.by(Sort.Direction.DESC, "followerCount").and(Sort.by("id"))),
+        NEWEST(Sort.by(Sort.Direction.DESC, "id"));
+
+        private final Sort sort;
+
+        SeriesSort(Sort sort) {
+            this.sort = sort;
+        }
+
+        public static SeriesSort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return TITLE;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort: " + value + " (expected title, books, followers or newest)");
+            }
+        }
+    }
+
     @Autowired
     private SeriesRepository seriesRepository;
 
@@ -38,6 +74,12 @@ public class SeriesService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private AuthorizationDecisionCache decisionCache;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
     private User getAuthenticatedUser() {
         String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
                 .getUsername();
@@ -89,6 +131,26 @@ public class SeriesService {
         return response;
     }
 
+    private SeriesResponse toResponse(SeriesSummaryView view) {
+        SeriesResponse response = new SeriesResponse();
+        response.setId(view.getId());
+        response.setTitle(view.getTitle());
+        response.setDescription(view.getDescription());
+        response.setBookCount((int) view.getBookCount());
+        response.setFollowerCount((int) view.getFollowerCount());
+
+        if (view.getAuthorId() != null) {
+            response.setAuthor(new SeriesResponse.AuthorSummary(
+                    view.getAuthorId(),
+                    view.getAuthorFirstName(),
+                    view.getAuthorLastName(),
+                    view.getAuthorImageUrl()
+            ));
+        }
+
+        return response;
+    }
+
     private BookSummary toBookSummary(Book book) {
         return new BookSummary(
                 book.getIsbn(),
@@ -100,18 +162,40 @@ public class SeriesService {
 
     @Transactional(readOnly = true)
     public List<SeriesResponse> getAllSeries() {
-        return seriesRepository.findAll().stream()
+        return seriesRepository.findSummaries(null, Pageable.unpaged(Sort.by("id"))).stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<SeriesResponse> getSeriesByAuthorId(Long authorId) {
-        return seriesRepository.findByAuthorId(authorId).stream()
+        return seriesRepository.findSummaries(authorId, Pageable.unpaged(Sort.by("id"))).stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * One page of series, optionally of a single author, with their counts computed by the
+     * database rather than by loading each series' books and followers.
+     */
+    @Transactional(readOnly = true)
+    public SeriesPage getSeriesPage(Long authorId, int page, int size, SeriesSort sort) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        SeriesSort order = sort != null ? sort : SeriesSort.TITLE;
+
+        Page<SeriesSummaryView> result = seriesRepository.findSummaries(
+                authorId, PageRequest.of(pageNumber, pageSize, order.sort));
+
+        return new SeriesPage(
+                result.getContent().stream().map(this::toResponse).toList(),
+                pageNumber,
+                pageSize,
+                result.getTotalElements(),
+                result.hasNext()
+        );
+    }
+
     @Transactional(readOnly = true)
     public SeriesResponse getSeriesById(Long id) {
         Series series = seriesRepository.findById(id)
@@ -139,6 +223,8 @@ public class SeriesService {
         series.setAuthor(author);
 
         Series saved = seriesRepository.save(series);
+        // A check on this id may have been denied before the series existed
+        decisionCache.invalidateResource(AuthorizationDecisionCache.Check.AUTHOR_OF_SERIES, saved.getId());
         return toResponse(saved);
     }
 
@@ -156,6 +242,7 @@ public class SeriesService {
         }
 
         Series saved = seriesRepository.save(series);
+        catalogCache.evictSeries(id);
         return toResponse(saved);
     }
 
@@ -169,6 +256,7 @@ public class SeriesService {
         for (Book book : series.getBooks()) {
             book.setSeries(null);
             bookRepository.save(book);
+            catalogCache.evictBook(book.getIsbn());
         }
 
         // Remove followers (don't delete users, just the follow relationship)
@@ -178,6 +266,7 @@ public class SeriesService {
         }
 
         seriesRepository.delete(series);
+        catalogCache.evictSeries(id);
     }
 
     @Transactional
@@ -191,6 +280,7 @@ public class SeriesService {
 
         book.setSeries(series);
         bookRepository.save(book);
+        catalogCache.evictBook(isbn);
 
         return toResponse(seriesRepository.findById(seriesId).get());
     }
@@ -207,6 +297,7 @@ public class SeriesService {
         if (book.getSeries() != null && book.getSeries().getId().equals(seriesId)) {
             book.setSeries(null);
             bookRepository.save(book);
+            catalogCache.evictBook(isbn);
         }
 
         return toResponse(seriesRepository.findById(seriesId).get());
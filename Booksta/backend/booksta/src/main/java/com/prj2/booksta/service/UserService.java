@@ -1,10 +1,13 @@
 package com.prj2.booksta.service;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.JwtPrincipalCache;
 import com.prj2.booksta.model.*;
 import com.prj2.booksta.model.dto.BookReadingEvent;
 import com.prj2.booksta.model.dto.BookWithLatestReadingEvent;
@@ -25,7 +28,11 @@ public class UserService {
     @Autowired private RoleRepository roleRepository;
     @Autowired private ImageRepository imageRepository;
     @Autowired private UserBookInventoryRepository userBookInventoryRepository;
+    @Autowired private MarketplaceStockSnapshot marketplaceStockSnapshot;
     @Autowired @Lazy private AuthorService authorService;
+    @Autowired private JwtPrincipalCache jwtPrincipalCache;
+    @Autowired private AuthorizationDecisionCache decisionCache;
+    @Autowired private RecommendationService recommendationService;
 
     private User getUserOrThrow(Long userId) {
         return userRepository.findById(userId)
@@ -72,6 +79,7 @@ public class UserService {
 
         if (!user.getFollowedAuthors().contains(author)) {
             user.getFollowedAuthors().add(author);
+            recommendationService.invalidateAfterCommit(userId);
         }
     }
 
@@ -84,6 +92,7 @@ public class UserService {
 
         if (user.getFollowedAuthors().remove(author)) {
             userRepository.save(user);
+            recommendationService.invalidateAfterCommit(userId);
         }
     }
 
@@ -110,6 +119,7 @@ public class UserService {
 
         if (!user.getFollowedSeries().contains(series)) {
             user.getFollowedSeries().add(series);
+            recommendationService.invalidateAfterCommit(userId);
         }
     }
 
@@ -122,6 +132,7 @@ public class UserService {
 
         if (user.getFollowedSeries().remove(series)) {
             userRepository.save(user);
+            recommendationService.invalidateAfterCommit(userId);
         }
     }
 
@@ -150,6 +161,7 @@ public class UserService {
 
         user.getFavoriteList().add(book);
         userRepository.save(user);
+        recommendationService.invalidateAfterCommit(userId);
     }
 
     @Transactional
@@ -163,6 +175,7 @@ public class UserService {
 
         user.getFavoriteList().remove(book);
         userRepository.save(user);
+        recommendationService.invalidateAfterCommit(userId);
     }
 
     @Transactional(readOnly = true)
@@ -275,6 +288,8 @@ public class UserService {
   
           user.getOwnedBooks().add(book);
           userRepository.save(user);
+          recommendationService.invalidateAfterCommit(userId);
+          decisionCache.invalidate(user.getEmail(), AuthorizationDecisionCache.Check.OWNS_BOOK, bookIsbn);
       }
   
       /**
@@ -291,15 +306,12 @@ public class UserService {
   
           user.getOwnedBooks().remove(book);
           userRepository.save(user);
+          recommendationService.invalidateAfterCommit(userId);
+          decisionCache.invalidate(user.getEmail(), AuthorizationDecisionCache.Check.OWNS_BOOK, bookIsbn);
       }
 
     public boolean userOwnsBook(String email, String isbn) {
-        return userRepository.findByEmail(email)
-                .map(user ->
-                        user.getOwnedBooks().stream()
-                                .anyMatch(book -> book.getIsbn().equals(isbn))
-                )
-                .orElse(false);
+        return userRepository.ownsBook(email, isbn);
     }
 
     public List<BookWithLatestReadingEvent> getOwnedBooksWithLatestReadingEvent(Long id) {
@@ -371,7 +383,10 @@ public class UserService {
         }
 
         user.getRoles().add(role);
+        user.setRolesChangedAt(Instant.now());
         userRepository.save(user);
+        jwtPrincipalCache.invalidateSubject(user.getEmail());
+        decisionCache.invalidateSubject(user.getEmail());
     }
 
     @Transactional
@@ -394,10 +409,16 @@ public class UserService {
 
         // If removing SELLER role, delete all user's inventory/listings
         if (roleName.equals("SELLER")) {
+            List<String> listedIsbns = userBookInventoryRepository.findBookIsbnsByUserId(userId);
             userBookInventoryRepository.deleteByUserId(userId);
+            // The marketplace no longer counts this seller's prices and quantities
+            listedIsbns.forEach(marketplaceStockSnapshot::refreshAfterCommit);
         }
 
+        user.setRolesChangedAt(Instant.now());
         userRepository.save(user);
+        jwtPrincipalCache.invalidateSubject(user.getEmail());
+        decisionCache.invalidateSubject(user.getEmail());
     }
 
     private Role findRoleByName(String name) {
@@ -223,8 +223,8 @@ INSERT INTO users_roles (user_id, role_id)
 VALUES (100, 1);
 
 -- IMPORTANT : éviter que la séquence recrée un user avec id = 100
--- (optionnel, mais recommandé si tu utilises vraiment la sequence user_sequence)
-ALTER SEQUENCE user_sequence RESTART WITH 101;
+-- La séquence avance par blocs de 50 (allocationSize) : la valeur 150 réserve les ids 101 à 150
+ALTER SEQUENCE user_sequence RESTART WITH 150;
 
 -- ============================
 -- LIVRES POSSEDES PAR LE USER 100
@@ -0,0 +1,8 @@
+-- Migration for databases created while the sequences advanced by 1, run at every prod startup
+-- (spring.sql.init.schema-locations) before Hibernate validates the sequences; repeating it is a no-op.
+-- Ids are now allocated 50 at a time (allocationSize = 50): each sequence must advance
+-- by the same step, or Hibernate refuses to start. Ids already handed out stay unique,
+-- the next block starts right after the current value.
+ALTER SEQUENCE IF EXISTS user_sequence INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS private_conversation_sequence INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS private_message_sequence INCREMENT BY 50;
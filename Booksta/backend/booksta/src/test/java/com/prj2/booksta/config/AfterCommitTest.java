@@ -0,0 +1,63 @@
+package com.prj2.booksta.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AfterCommitTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    @Test
+    @DisplayName("Should run at once outside a transaction")
+    void run_NoTransaction() {
+        AfterCommit.run(() -> calls.add("commit"), () -> calls.add("rollback"));
+
+        assertEquals(List.of("commit"), calls);
+    }
+
+    @Test
+    @DisplayName("Should wait for the commit")
+    void run_Committed() {
+        TransactionSynchronizationManager.initSynchronization();
+        AfterCommit.run(() -> calls.add("commit"), () -> calls.add("rollback"));
+        assertTrue(calls.isEmpty());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of("commit"), calls);
+    }
+
+    @Test
+    @DisplayName("Should run the rollback action only when the transaction does not commit")
+    void run_RolledBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        AfterCommit.run(() -> calls.add("commit"), () -> calls.add("rollback"));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(List.of("rollback"), calls);
+    }
+}
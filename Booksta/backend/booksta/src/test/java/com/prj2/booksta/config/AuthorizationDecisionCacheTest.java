@@ -0,0 +1,163 @@
+package com.prj2.booksta.config;
+
+import com.prj2.booksta.config.AuthorizationDecisionCache.Check;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorizationDecisionCacheTest {
+
+    private static final String ALICE = "alice@booksta.com";
+    private static final String BOB = "bob@booksta.com";
+    private static final String ISBN = "9780000000001";
+
+    private final MutableClock clock = new MutableClock();
+    private SimpleMeterRegistry meterRegistry;
+    private AuthorizationDecisionCache cache;
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AuthorizationDecisionCache(meterRegistry, 2, 30_000L, clock);
+    }
+
+    private boolean owns(String subject) {
+        return cache.decide(subject, Check.OWNS_BOOK, ISBN, () -> {
+            lookups.incrementAndGet();
+            return true;
+        });
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("booksta.security.decisions").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("Should answer repeated checks from the cache and count hits and misses")
+    void decide_CachesDecision() {
+        assertTrue(owns(ALICE));
+        assertTrue(owns(ALICE));
+
+        assertEquals(1, lookups.get());
+        assertEquals(1.0, count("hit"));
+        assertEquals(1.0, count("miss"));
+    }
+
+    @Test
+    @DisplayName("Should look the decision up again once it expired")
+    void decide_ExpiresAfterTtl() {
+        owns(ALICE);
+        clock.advance(30_001L);
+        owns(ALICE);
+
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    @DisplayName("Should drop only the invalidated subject's decisions")
+    void invalidateSubject_KeepsOthers() {
+        owns(ALICE);
+        owns(BOB);
+
+        cache.invalidateSubject(ALICE);
+        owns(ALICE);
+        owns(BOB);
+
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    @DisplayName("Should drop a resource's decision for every subject")
+    void invalidateResource_AllSubjects() {
+        owns(ALICE);
+        owns(BOB);
+        cache.decide(ALICE, Check.AUTHOR_OF_BOOK, ISBN, () -> false);
+
+        cache.invalidateResource(Check.OWNS_BOOK, ISBN);
+        owns(ALICE);
+        owns(BOB);
+
+        assertEquals(4, lookups.get());
+        assertFalse(cache.decide(ALICE, Check.AUTHOR_OF_BOOK, ISBN, () -> {
+            throw new AssertionError("other checks stay cached");
+        }));
+    }
+
+    @Test
+    @DisplayName("Should drop the decisions of several checks and resources in one invalidation")
+    void invalidateResources_Batch() {
+        String other = "9780000000002";
+        owns(ALICE);
+        cache.decide(BOB, Check.READS_BOOK, other, () -> true);
+        cache.decide(BOB, Check.AUTHOR_OF_SERIES, 1L, () -> true);
+
+        cache.invalidateResources(EnumSet.of(Check.OWNS_BOOK, Check.READS_BOOK), List.of(ISBN, other));
+        owns(ALICE);
+
+        assertEquals(2, lookups.get());
+        assertFalse(cache.decide(BOB, Check.READS_BOOK, other, () -> false));
+        assertTrue(cache.decide(BOB, Check.AUTHOR_OF_SERIES, 1L, () -> {
+            throw new AssertionError("other checks stay cached");
+        }));
+    }
+
+    @Test
+    @DisplayName("Should not store a decision computed while an invalidation ran")
+    void decide_InvalidatedDuringLookup_NotStored() {
+        cache.decide(ALICE, Check.OWNS_BOOK, ISBN, () -> {
+            cache.invalidateResource(Check.OWNS_BOOK, ISBN);
+            return true;
+        });
+        owns(ALICE);
+
+        assertEquals(1, lookups.get());
+        assertEquals(2.0, count("miss"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used subject beyond the bound")
+    void decide_BoundedBySubjects() {
+        owns(ALICE);
+        owns(BOB);
+        owns("carol@booksta.com");
+
+        assertEquals(2, cache.size());
+        owns(ALICE);
+        assertEquals(4, lookups.get());
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+        void advance(long ms) {
+            millis += ms;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.prj2.booksta.config;
+
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Series;
+import com.prj2.booksta.model.dto.CacheRegionStats;
+import com.prj2.booksta.repository.BookRepository;
+import com.prj2.booksta.repository.SeriesRepository;
+import com.prj2.booksta.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs outside a test transaction: cache entries only become visible once a write commits.
+ */
+@DataJpaTest
+@Import(CatalogCache.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogCacheTest {
+
+    private static final String ISBN = "9780000009991";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SeriesRepository seriesRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private SessionFactory sessionFactory;
+    private Series series;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+        series = tx.execute(status -> {
+            Series created = new Series();
+            created.setTitle("Cached saga");
+            created = seriesRepository.save(created);
+
+            Book book = new Book();
+            book.setIsbn(ISBN);
+            book.setTitle("Cached");
+            book.setPublishingYear(2001);
+            book.setDescription("Cached");
+            book.setSeries(created);
+            bookRepository.save(book);
+            return created;
+        });
+
+        sessionFactory.getCache().evictAllRegions();
+        statistics().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tx.executeWithoutResult(status -> {
+            bookRepository.deleteAllByIsbnIn(List.of(ISBN));
+            seriesRepository.deleteById(series.getId());
+        });
+    }
+
+    private Statistics statistics() {
+        return sessionFactory.getStatistics();
+    }
+
+    private long bookHits() {
+        return statistics().getDomainDataRegionStatistics("catalog-book").getHitCount();
+    }
+
+    private Book loadBook() {
+        return tx.execute(status -> bookRepository.findById(ISBN).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should serve a book read again from the second-level cache")
+    void findById_SecondReadIsAHit() {
+        loadBook();
+        loadBook();
+
+        assertEquals(1, bookHits());
+        assertEquals(1, statistics().getDomainDataRegionStatistics("catalog-book").getMissCount());
+    }
+
+    @Test
+    @DisplayName("Should cache the books of a series until the book table is written to")
+    void findBySeriesId_CachedUntilWrite() {
+        tx.execute(status -> bookRepository.findBySeries_Id(series.getId()));
+        tx.execute(status -> bookRepository.findBySeries_Id(series.getId()));
+        assertEquals(1, statistics().getQueryCacheHitCount());
+
+        tx.executeWithoutResult(status -> bookRepository.findById(ISBN).orElseThrow().setTitle("Renamed"));
+        List<Book> books = tx.execute(status -> bookRepository.findBySeries_Id(series.getId()));
+
+        assertEquals(1, statistics().getQueryCacheHitCount());
+        assertEquals("Renamed", books.get(0).getTitle());
+    }
+
+    @Test
+    @DisplayName("Should keep cached books when a native delete only touches another table")
+    void nativeDelete_KeepsUnrelatedRegions() {
+        loadBook();
+
+        tx.execute(status -> userRepository.removeBooksFromAllFavorites(List.of(ISBN)));
+        loadBook();
+
+        assertEquals(1, bookHits());
+    }
+
+    @Test
+    @DisplayName("Should reload an evicted book from the database")
+    void evictBook_NextReadMisses() {
+        loadBook();
+
+        catalogCache.evictBook(ISBN);
+        loadBook();
+
+        assertEquals(0, bookHits());
+    }
+
+    @Test
+    @DisplayName("Should report hits and misses per region")
+    void stats_ListsRegions() {
+        loadBook();
+        loadBook();
+
+        CacheRegionStats books = catalogCache.stats().regions().stream()
+                .filter(region -> region.region().equals("catalog-book"))
+                .findFirst().orElseThrow();
+
+        assertTrue(catalogCache.stats().statisticsEnabled());
+        assertEquals(1, books.hits());
+        assertEquals(0.5, books.hitRatio());
+    }
+}
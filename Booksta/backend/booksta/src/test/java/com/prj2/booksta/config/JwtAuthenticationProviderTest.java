@@ -0,0 +1,224 @@
+package com.prj2.booksta.config;
+
+import com.prj2.booksta.model.Role;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.service.CustomUserDetailsService;
+import com.prj2.booksta.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationProviderTest {
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private JwtService jwtService;
+    private JwtPrincipalCache principalCache;
+    private JwtAuthenticationProvider provider;
+    private User user;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = spy(new JwtService());
+        ReflectionTestUtils.setField(jwtService, "secret", "MyUltraSuperSecretJwtKey1234567890!!");
+        ReflectionTestUtils.setField(jwtService, "validityInMs", 3_600_000L);
+        jwtService.init();
+
+        // Started well before the tokens below are minted
+        now = Instant.now().minusSeconds(60);
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        };
+        principalCache = new JwtPrincipalCache(100, 300_000L, clock);
+
+        provider = new JwtAuthenticationProvider();
+        ReflectionTestUtils.setField(provider, "jwtService", jwtService);
+        ReflectionTestUtils.setField(provider, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(provider, "principalCache", principalCache);
+        ReflectionTestUtils.setField(provider, "userRepository", userRepository);
+
+        Role role = new Role();
+        role.setName("LIBRARIAN");
+        user = new User();
+        user.setEmail("reader@booksta.com");
+        user.setRoles(Set.of(role));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static org.springframework.security.core.userdetails.UserDetails withRole(String role) {
+        return org.springframework.security.core.userdetails.User.withUsername("reader@booksta.com")
+                .password("")
+                .authorities(new SimpleGrantedAuthority("ROLE_" + role))
+                .build();
+    }
+
+    private Set<String> authorityNames(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(java.util.stream.Collectors.toSet());
+    }
+
+    @Test
+    @DisplayName("Should take authorities from the roles claim without touching the database")
+    void authenticate_FreshToken_UsesRolesClaim() {
+        String token = jwtService.generateToken(user);
+
+        Authentication result = provider.authenticate(new JwtAuthenticationToken(token));
+
+        assertEquals("reader@booksta.com", result.getName());
+        assertEquals(Set.of("ROLE_LIBRARIAN"), authorityNames(result));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Should parse a token only once across repeated requests")
+    void authenticate_RepeatedToken_ServedFromCache() {
+        String token = jwtService.generateToken(user);
+
+        provider.authenticate(new JwtAuthenticationToken(token));
+        provider.authenticate(new JwtAuthenticationToken(token));
+
+        verify(jwtService, times(1)).parse(token);
+    }
+
+    /**
+     * The role change as stored by UserService, a second after the tokens minted so far.
+     */
+    private void rolesChanged() {
+        when(userRepository.findRolesChangedAtByEmail("reader@booksta.com"))
+                .thenReturn(Optional.of(Instant.now().plusSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("Should reload authorities from the database after a role change")
+    void authenticate_AfterRoleChange_LoadsUserDetails() {
+        String token = jwtService.generateToken(user);
+        provider.authenticate(new JwtAuthenticationToken(token));
+
+        rolesChanged();
+        principalCache.invalidateSubject("reader@booksta.com");
+        when(userDetailsService.loadUserByUsername("reader@booksta.com")).thenReturn(withRole("USER"));
+
+        Authentication result = provider.authenticate(new JwtAuthenticationToken(token));
+
+        assertEquals(Set.of("ROLE_USER"), authorityNames(result));
+        verify(userDetailsService).loadUserByUsername("reader@booksta.com");
+    }
+
+    @Test
+    @DisplayName("Should not trust the roles claim after a role change made through another instance")
+    void authenticate_RoleChangedElsewhere_LoadsUserDetails() {
+        String token = jwtService.generateToken(user);
+        rolesChanged();
+        when(userDetailsService.loadUserByUsername("reader@booksta.com")).thenReturn(withRole("USER"));
+
+        Authentication result = provider.authenticate(new JwtAuthenticationToken(token));
+
+        assertEquals(Set.of("ROLE_USER"), authorityNames(result));
+    }
+
+    @Test
+    @DisplayName("Should trust the roles claim of tokens minted after the last role change only")
+    void canTrustRolesClaim_ComparesWithRoleChange() {
+        Instant changedAt = now.plusSeconds(10);
+
+        assertTrue(principalCache.canTrustRolesClaim(Date.from(changedAt.plusSeconds(1)), changedAt));
+        assertFalse(principalCache.canTrustRolesClaim(Date.from(changedAt), changedAt));
+        assertTrue(principalCache.canTrustRolesClaim(Date.from(changedAt), null));
+        // Minted before this instance started
+        assertFalse(principalCache.canTrustRolesClaim(Date.from(now.minusSeconds(1)), null));
+        assertFalse(principalCache.canTrustRolesClaim(null, null));
+    }
+
+    @Test
+    @DisplayName("Should reject a tampered token")
+    void authenticate_InvalidSignature_Throws() {
+        String token = jwtService.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(new JwtAuthenticationToken(tampered)));
+    }
+
+    @Test
+    @DisplayName("Should keep serving the cached principal until the role change commits")
+    void invalidateSubject_InTransaction_WaitsForCommit() {
+        String token = jwtService.generateToken(user);
+        provider.authenticate(new JwtAuthenticationToken(token));
+
+        TransactionSynchronizationManager.initSynchronization();
+        principalCache.invalidateSubject("reader@booksta.com");
+
+        assertEquals(1, principalCache.size());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(0, principalCache.size());
+    }
+
+    @Test
+    @DisplayName("Should not cache a principal loaded while its roles changed")
+    void authenticate_RoleChangeDuringLookup_NotCached() {
+        String token = jwtService.generateToken(user);
+        rolesChanged();
+        when(userDetailsService.loadUserByUsername("reader@booksta.com")).thenAnswer(invocation -> {
+            // The role change commits while the old roles are being read
+            principalCache.invalidateSubject("reader@booksta.com");
+            return withRole("ADMIN");
+        }).thenReturn(withRole("USER"));
+
+        provider.authenticate(new JwtAuthenticationToken(token));
+        Authentication result = provider.authenticate(new JwtAuthenticationToken(token));
+
+        assertEquals(Set.of("ROLE_USER"), authorityNames(result));
+        verify(userDetailsService, times(2)).loadUserByUsername("reader@booksta.com");
+    }
+}
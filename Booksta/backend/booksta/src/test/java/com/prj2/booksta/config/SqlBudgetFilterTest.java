@@ -0,0 +1,98 @@
+package com.prj2.booksta.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlBudgetFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Stands in for a controller method
+    static class BookController {
+        public void getCatalog() {
+        }
+    }
+
+    private SqlBudgetFilter filter(boolean recordViolations) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("sql.budget.limits[BookController]", "5")
+                .withProperty("sql.budget.limits[BookController.getCatalog]", "2");
+        return new SqlBudgetFilter(meterRegistry, environment, 10, recordViolations);
+    }
+
+    private static MockHttpServletRequest catalogRequest() throws NoSuchMethodException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/catalog");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(new BookController(), BookController.class.getMethod("getCatalog")));
+        return request;
+    }
+
+    private static FilterChain running(int statements) {
+        return (req, res) -> {
+            for (int i = 0; i < statements; i++) {
+                SqlStatementTracker.recordStatement(1_000_000);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Should resolve the method budget, then the controller's, then the default")
+    void budgetOf_FallsBackToControllerThenDefault() {
+        SqlBudgetFilter filter = filter(false);
+
+        assertEquals(2, filter.budgetOf("BookController.getCatalog"));
+        assertEquals(5, filter.budgetOf("BookController.getAllBooks"));
+        assertEquals(10, filter.budgetOf("UserController.getFavorites"));
+    }
+
+    @Test
+    @DisplayName("Should record the statements of a request and count it when over budget")
+    void doFilter_OverBudget_RecordedAndCounted() throws Exception {
+        SqlBudgetFilter filter = filter(false);
+
+        filter.doFilter(catalogRequest(), new MockHttpServletResponse(), running(2));
+        filter.doFilter(catalogRequest(), new MockHttpServletResponse(), running(3));
+
+        assertEquals(2, meterRegistry.get("booksta.http.sql.statements").tag("handler", "BookController.getCatalog")
+                .summary().count());
+        assertEquals(3.0, meterRegistry.get("booksta.http.sql.statements").summary().max());
+        assertEquals(1.0, meterRegistry.get("booksta.sql.budget.exceeded").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should keep the requests over budget when configured to, without failing them")
+    void doFilter_OverBudgetRecordViolations_Kept() throws Exception {
+        SqlBudgetFilter filter = filter(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(catalogRequest(), new MockHttpServletResponse(), running(2));
+        filter.doFilter(catalogRequest(), response, running(3));
+
+        assertEquals(200, response.getStatus());
+        List<String> violations = filter.drainViolations();
+        assertEquals(1, violations.size());
+        assertTrue(violations.get(0).contains("BookController.getCatalog ran 3 statements (budget 2)"));
+        assertTrue(filter.drainViolations().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not keep the requests over budget by default")
+    void doFilter_OverBudget_NotKept() throws Exception {
+        SqlBudgetFilter filter = filter(false);
+
+        filter.doFilter(catalogRequest(), new MockHttpServletResponse(), running(3));
+
+        assertTrue(filter.drainViolations().isEmpty());
+    }
+}
@@ -0,0 +1,40 @@
+package com.prj2.booksta.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final Object lock = new Object();
+
+    private void sleepWhileHoldingMonitor() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should count a virtual thread blocked inside synchronized")
+    void onPinned_BlockingInsideMonitor_Counted() throws Exception {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(new SimpleMeterRegistry(), 10L);
+        try {
+            Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+
+            // Events reach the stream when the recording flushes, about once per second
+            long deadline = System.currentTimeMillis() + 15_000;
+            while (monitor.pinnedCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue(monitor.pinnedCount() >= 1);
+        } finally {
+            monitor.stop();
+        }
+    }
+}
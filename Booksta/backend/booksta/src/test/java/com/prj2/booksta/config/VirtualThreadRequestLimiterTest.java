@@ -0,0 +1,78 @@
+package com.prj2.booksta.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class VirtualThreadRequestLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    @Test
+    @DisplayName("Should derive the limit from the connection pool size")
+    void limit_DerivedFromPoolSize() {
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setMaximumPoolSize(5);
+
+            VirtualThreadRequestLimiter limiter = new VirtualThreadRequestLimiter(dataSource, meterRegistry, 0, 10L);
+
+            assertEquals(10, limiter.getLimit());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer 503 once the limit is reached and the wait timed out")
+    void doFilter_OverLimit_Rejected() throws Exception {
+        VirtualThreadRequestLimiter limiter = new VirtualThreadRequestLimiter(mock(DataSource.class), meterRegistry, 1, 50L);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (req, res) -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.doFilter(request("/api/books"), new MockHttpServletResponse(), slow);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        limiter.doFilter(request("/api/books"), rejected, new MockFilterChain());
+        MockHttpServletResponse health = new MockHttpServletResponse();
+        limiter.doFilter(request("/actuator/health"), health, new MockFilterChain());
+
+        release.countDown();
+        holder.join();
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        limiter.doFilter(request("/api/books"), accepted, new MockFilterChain());
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(200, health.getStatus());
+        assertEquals(200, accepted.getStatus());
+        assertEquals(1.0, meterRegistry.get("booksta.requests.rejected").counter().count());
+    }
+}
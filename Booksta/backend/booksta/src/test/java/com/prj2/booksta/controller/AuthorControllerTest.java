@@ -6,7 +6,6 @@ import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.Image;
 import com.prj2.booksta.model.dto.AuthorDetailResponse;
 import com.prj2.booksta.service.AuthorService;
-import com.prj2.booksta.service.FileStorageService;
 import com.prj2.booksta.service.ImageService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -38,9 +37,6 @@ class AuthorControllerTest {
     @Mock
     private AuthorService authorService;
 
-    @Mock
-    private FileStorageService fileStorageService;
-
     @Mock
     private ImageService imageService;
 
@@ -179,9 +175,7 @@ class AuthorControllerTest {
                     objectMapper.writeValueAsBytes(authorToSave)
             );
 
-            when(authorService.save(any(Author.class))).thenReturn(savedAuthor);
-            when(fileStorageService.saveAuthorImage(any(), eq(1L))).thenReturn("http://example.com/author.jpg");
-            when(imageService.createImage(any(Image.class))).thenAnswer(i -> i.getArgument(0));
+            when(authorService.saveWithImage(any(Author.class), any())).thenReturn(savedAuthor);
 
             mockMvc.perform(multipart("/api/authors")
                             .file(authorPart)
@@ -190,8 +184,8 @@ class AuthorControllerTest {
                     .andExpect(jsonPath("$.id").value(1))
                     .andExpect(jsonPath("$.firstName").value("John"));
 
-            verify(authorService, times(2)).save(any(Author.class));
-            verify(fileStorageService).saveAuthorImage(any(), eq(1L));
+            verify(authorService).saveWithImage(any(Author.class), any());
+            verify(authorService, never()).save(any(Author.class));
         }
 
         @Test
@@ -226,7 +220,7 @@ class AuthorControllerTest {
                     .andExpect(jsonPath("$.id").value(1));
 
             verify(authorService, times(2)).save(any(Author.class));
-            verify(fileStorageService, never()).saveAuthorImage(any(), anyLong());
+            verify(authorService, never()).saveWithImage(any(), any());
         }
 
         @Test
@@ -334,9 +328,7 @@ class AuthorControllerTest {
             );
 
             when(authorService.getAuthorById(1L)).thenReturn(Optional.of(existingAuthor));
-            when(fileStorageService.saveAuthorImage(any(), eq(1L))).thenReturn("http://example.com/new-author.jpg");
-            when(imageService.createImage(any(Image.class))).thenAnswer(i -> i.getArgument(0));
-            when(authorService.save(any(Author.class))).thenReturn(existingAuthor);
+            when(authorService.saveWithImage(same(existingAuthor), any())).thenReturn(existingAuthor);
 
             mockMvc.perform(multipart("/api/authors/1")
                             .file(authorPart)
@@ -347,8 +339,8 @@ class AuthorControllerTest {
                             }))
                     .andExpect(status().isOk());
 
-            verify(fileStorageService).saveAuthorImage(any(), eq(1L));
-            verify(imageService).createImage(any(Image.class));
+            verify(authorService).saveWithImage(same(existingAuthor), any());
+            verify(imageService, never()).createImage(any());
         }
     }
 
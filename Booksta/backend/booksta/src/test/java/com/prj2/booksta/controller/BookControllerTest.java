@@ -6,6 +6,9 @@ import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.Image;
 import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.dto.BookCatalogEntry;
+import com.prj2.booksta.model.dto.BookCatalogPage;
+import com.prj2.booksta.model.dto.BookDeletionResult;
 import com.prj2.booksta.service.*;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -285,6 +288,37 @@ class BookControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/books/batch-delete tests")
+    class BatchDeleteBooksTests {
+
+        @Test
+        @DisplayName("Should return the affected row counts")
+        void deleteBooks_ReturnsDeletionResult() throws Exception {
+            BookDeletionResult result = new BookDeletionResult(1, 0, 2, 0, 0, 0, 1, 4, 1, List.of("unknown"));
+            when(bookService.deleteAll(List.of("9781234567890", "unknown"))).thenReturn(result);
+
+            mockMvc.perform(post("/api/books/batch-delete")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"isbns\": [\"9781234567890\", \"unknown\"]}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.books").value(1))
+                    .andExpect(jsonPath("$.favorites").value(4))
+                    .andExpect(jsonPath("$.notFound[0]").value("unknown"));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when no isbn is given")
+        void deleteBooks_EmptyRequest_ReturnsBadRequest() throws Exception {
+            mockMvc.perform(post("/api/books/batch-delete")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"isbns\": []}"))
+                    .andExpect(status().isBadRequest());
+
+            verify(bookService, never()).deleteAll(any());
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/books/series/{seriesId} tests")
     class GetBooksBySeriesTests {
@@ -340,4 +374,37 @@ class BookControllerTest {
                     .andExpect(jsonPath("$").isEmpty());
         }
     }
+
+    @Nested
+    @DisplayName("GET /api/books/catalog tests")
+    class GetCatalogTests {
+
+        @Test
+        @DisplayName("Should return a catalog page with its continuation cursor")
+        void getCatalog_ReturnsPage() throws Exception {
+            BookCatalogPage page = new BookCatalogPage(
+                    List.of(new BookCatalogEntry("9781234567890", "Test Book", 2023, 300L, null)),
+                    "next-cursor",
+                    true
+            );
+            when(bookService.getCatalogPage("abc", 1)).thenReturn(page);
+
+            mockMvc.perform(get("/api/books/catalog").param("cursor", "abc").param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.books.length()").value(1))
+                    .andExpect(jsonPath("$.books[0].isbn").value("9781234567890"))
+                    .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                    .andExpect(jsonPath("$.hasMore").value(true));
+        }
+
+        @Test
+        @DisplayName("Should return 400 for an invalid cursor")
+        void getCatalog_InvalidCursor_ReturnsBadRequest() throws Exception {
+            when(bookService.getCatalogPage("bad", null))
+                    .thenThrow(new IllegalArgumentException("Invalid catalog cursor: bad"));
+
+            mockMvc.perform(get("/api/books/catalog").param("cursor", "bad"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
 }
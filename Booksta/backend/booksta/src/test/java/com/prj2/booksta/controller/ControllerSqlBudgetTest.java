@@ -0,0 +1,292 @@
+package com.prj2.booksta.controller;
+
+import com.prj2.booksta.config.SqlBudgetFilter;
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Series;
+import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.UserBookInventory;
+import com.prj2.booksta.service.BookService;
+import com.prj2.booksta.service.RecommendationService;
+import com.prj2.booksta.service.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the read endpoints of the book, user and marketplace controllers against a catalog of
+ * a few dozen books, with empty caches, under the SQL budgets of application.properties.
+ * A request over its budget is recorded by the filter (sql.budget.record-violations) and fails
+ * the test: an N+1 query that creeps in fails the build instead of surfacing in production.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {"sql.budget.record-violations=true", "spring.jpa.show-sql=false"})
+class ControllerSqlBudgetTest {
+
+    private static final int BOOKS = 40;
+    private static final int SELLERS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private SqlBudgetFilter sqlBudgetFilter;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User reader;
+    private String token;
+    private String isbn;
+
+    @BeforeAll
+    void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Author> authors = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Author author = new Author();
+                author.setFirstName("Budget");
+                author.setLastName("Author " + i);
+                entityManager.persist(author);
+                authors.add(author);
+            }
+            List<Subject> subjects = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Subject subject = new Subject();
+                subject.setName("Budget subject " + i);
+                entityManager.persist(subject);
+                subjects.add(subject);
+            }
+            List<Series> series = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Series saga = new Series();
+                saga.setTitle("Budget saga " + i);
+                saga.setAuthor(authors.get(i));
+                entityManager.persist(saga);
+                series.add(saga);
+            }
+
+            reader = user("budget-reader@booksta.com");
+            List<User> sellers = new ArrayList<>();
+            for (int i = 0; i < SELLERS; i++) {
+                sellers.add(user("budget-seller" + i + "@booksta.com"));
+            }
+
+            for (int i = 0; i < BOOKS; i++) {
+                Book book = new Book();
+                book.setIsbn("BUDGET-" + i);
+                book.setTitle("Budget book " + i);
+                book.setPublishingYear(1990 + i);
+                book.setDescription("Budget book " + i);
+                book.setPages(100L + i);
+                book.getAuthors().add(authors.get(i % authors.size()));
+                book.getAuthors().add(authors.get((i + 1) % authors.size()));
+                book.getSubjects().add(subjects.get(i % subjects.size()));
+                book.setSeries(series.get(i % series.size()));
+                entityManager.persist(book);
+
+                for (User seller : sellers) {
+                    UserBookInventory stock = new UserBookInventory();
+                    stock.setUser(seller);
+                    stock.setBook(book);
+                    stock.setQuantity(2L);
+                    stock.setPricePerUnit(BigDecimal.valueOf(5 + i));
+                    entityManager.persist(stock);
+                }
+                if (i % 2 == 0) {
+                    reader.getFavoriteList().add(book);
+                    reader.getOwnedBooks().add(book);
+                }
+            }
+            reader.getFollowedAuthors().addAll(authors);
+            reader.getFollowedSeries().addAll(series);
+        });
+        // The in-memory indexes were built at startup, before the seeding
+        bookService.rebuildSearchIndex();
+        recommendationService.rebuild();
+        token = "Bearer " + jwtService.generateToken(reader);
+        isbn = "BUDGET-7";
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setFirstName("Budget");
+        user.setLastName("User");
+        user.setEmail(email);
+        entityManager.persist(user);
+        return user;
+    }
+
+    @BeforeEach
+    void emptyCaches() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        sqlBudgetFilter.drainViolations();
+    }
+
+    /**
+     * Calls the endpoint, whose SQL budget the filter enforces, and checks one is configured.
+     */
+    private void withinBudget(String handler, String uri) throws Exception {
+        assertTrue(sqlBudgetFilter.budgetOf(handler) > 0, "no SQL budget for " + handler);
+        mockMvc.perform(get(uri).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+        assertTrue(meterRegistry.find("booksta.http.sql.statements").tag("handler", handler).summary() != null,
+                "statements not recorded for " + handler);
+        assertEquals(List.of(), sqlBudgetFilter.drainViolations());
+    }
+
+    @Nested
+    @DisplayName("BookController budgets")
+    class BookControllerBudgets {
+
+        @Test
+        @DisplayName("Should list all books within budget")
+        void getAllBooks() throws Exception {
+            withinBudget("BookController.getAllBooks", "/api/books");
+        }
+
+        @Test
+        @DisplayName("Should read a catalog page within budget")
+        void getCatalog() throws Exception {
+            withinBudget("BookController.getCatalog", "/api/books/catalog?limit=20");
+        }
+
+        @Test
+        @DisplayName("Should read one book within budget")
+        void getBookByIsbn() throws Exception {
+            withinBudget("BookController.getBookByIsbn", "/api/books/" + isbn);
+        }
+
+        @Test
+        @DisplayName("Should filter books within budget")
+        void filterBooks() throws Exception {
+            withinBudget("BookController.filterBooks", "/api/books/filter?yearMin=1990&yearMax=2040");
+        }
+
+        @Test
+        @DisplayName("Should filter a page of books with their facets within budget")
+        void filterBooksFaceted() throws Exception {
+            withinBudget("BookController.filterBooksFaceted", "/api/books/filter/faceted?yearMin=1990&size=40");
+        }
+
+        @Test
+        @DisplayName("Should search books within budget")
+        void searchBooks() throws Exception {
+            withinBudget("BookController.searchBooks", "/api/books/search?title=Budget");
+        }
+    }
+
+    @Nested
+    @DisplayName("UserController budgets")
+    class UserControllerBudgets {
+
+        @Test
+        @DisplayName("Should list favorites within budget")
+        void getFavorites() throws Exception {
+            withinBudget("UserController.getFavorites", "/api/users/favorites");
+        }
+
+        @Test
+        @DisplayName("Should list followed authors within budget")
+        void getFollowedAuthors() throws Exception {
+            withinBudget("UserController.getFollowedAuthors", "/api/users/followed-authors");
+        }
+
+        @Test
+        @DisplayName("Should list followed series within budget")
+        void getFollowedSeries() throws Exception {
+            withinBudget("UserController.getFollowedSeries", "/api/users/followed-series");
+        }
+
+        @Test
+        @DisplayName("Should list owned books within budget")
+        void getOwnedBooks() throws Exception {
+            withinBudget("UserController.getOwnedBooks", "/api/users/" + reader.getId() + "/owned-books");
+        }
+
+        @Test
+        @DisplayName("Should serve recommendations within budget")
+        void getRecommendations() throws Exception {
+            withinBudget("UserController.getRecommendations", "/api/users/me/recommendations?limit=10");
+        }
+
+        @Test
+        @DisplayName("Should search users within budget")
+        void searchUsers() throws Exception {
+            withinBudget("UserController.searchUsers", "/api/users/search?query=budget");
+        }
+    }
+
+    @Nested
+    @DisplayName("MarketplaceController budgets")
+    class MarketplaceControllerBudgets {
+
+        @Test
+        @DisplayName("Should list the marketplace within budget")
+        void getAllBooksWithMarketplaceData() throws Exception {
+            withinBudget("MarketplaceController.getAllBooksWithMarketplaceData", "/api/marketplace/books");
+        }
+
+        @Test
+        @DisplayName("Should page the marketplace within budget")
+        void getMarketplaceListings() throws Exception {
+            withinBudget("MarketplaceController.getMarketplaceListings", "/api/marketplace/books?page=0&size=20");
+        }
+
+        @Test
+        @DisplayName("Should summarize one book's offers within budget")
+        void getMarketplaceSummary() throws Exception {
+            withinBudget("MarketplaceController.getMarketplaceSummary", "/api/marketplace/books/" + isbn + "/summary");
+        }
+
+        @Test
+        @DisplayName("Should list one book's sellers within budget")
+        void getSellerListings() throws Exception {
+            withinBudget("MarketplaceController.getSellerListings", "/api/marketplace/books/" + isbn + "/sellers");
+        }
+    }
+}
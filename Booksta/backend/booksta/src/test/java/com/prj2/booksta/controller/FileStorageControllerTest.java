@@ -0,0 +1,192 @@
+package com.prj2.booksta.controller;
+
+import com.prj2.booksta.service.FileStorageService;
+import com.prj2.booksta.service.ImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileStorageControllerTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ImageService imageService;
+
+    @InjectMocks
+    private FileStorageController fileStorageController;
+
+    @TempDir
+    Path uploads;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(fileStorageController).build();
+    }
+
+    private Path cover() throws Exception {
+        return Files.write(uploads.resolve("111.png"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    }
+
+    @Test
+    @DisplayName("Should serve a versioned image as immutable with validators")
+    void getBookImage_Versioned_CachedForever() throws Exception {
+        when(fileStorageService.getLocalImage("books", "111", null)).thenReturn(cover());
+        when(fileStorageService.imageUrl("books", "111", "abc")).thenReturn("http://localhost/api/images/books/111?v=abc");
+        when(imageService.isIssuedUrl("http://localhost/api/images/books/111?v=abc")).thenReturn(true);
+
+        mockMvc.perform(get("/api/images/books/111").param("v", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().bytes(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    @Test
+    @DisplayName("Should revalidate an image requested with a version it was never given")
+    void getBookImage_UnknownVersion_Revalidated() throws Exception {
+        when(fileStorageService.getLocalImage("books", "111", null)).thenReturn(cover());
+        when(fileStorageService.imageUrl("books", "111", "made-up")).thenReturn("http://localhost/api/images/books/111?v=made-up");
+
+        mockMvc.perform(get("/api/images/books/111").param("v", "made-up"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when the ETag still matches")
+    void getBookImage_MatchingEtag_NotModified() throws Exception {
+        when(fileStorageService.getLocalImage("books", "111", null)).thenReturn(cover());
+
+        MvcResult first = mockMvc.perform(get("/api/images/books/111"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/images/books/111").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Should serve byte ranges")
+    void getBookImage_Range_PartialContent() throws Exception {
+        when(fileStorageService.getLocalImage("books", "111", null)).thenReturn(cover());
+
+        mockMvc.perform(get("/api/images/books/111").header(HttpHeaders.RANGE, "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(new byte[]{3, 4, 5}));
+    }
+
+    @Test
+    @DisplayName("Should serve the resized variant as JPEG when a width is requested")
+    void getBookImage_Width_ServesVariant() throws Exception {
+        Path variant = Files.write(uploads.resolve("111_w160.jpg"), new byte[]{9, 9});
+        when(fileStorageService.getLocalImage("books", "111", 100)).thenReturn(variant);
+
+        mockMvc.perform(get("/api/images/books/111").param("w", "100"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(new byte[]{9, 9}));
+    }
+
+    @Test
+    @DisplayName("Should serve a blob's variant as immutable")
+    void getBlobImage_Variant_CachedForever() throws Exception {
+        String hash = "a".repeat(64);
+        when(fileStorageService.blobExists(hash)).thenReturn(true);
+        Path variant = Files.write(uploads.resolve(hash + "_w160.jpg"), new byte[]{9, 9});
+        when(fileStorageService.getLocalImage("blobs", hash, 100)).thenReturn(variant);
+
+        mockMvc.perform(get("/api/images/blobs/" + hash).param("w", "100"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    @DisplayName("Should revalidate the original served until the variant is generated")
+    void getBlobImage_VariantMissing_NotCachedForever() throws Exception {
+        String hash = "a".repeat(64);
+        when(fileStorageService.blobExists(hash)).thenReturn(true);
+        Path original = Files.write(uploads.resolve(hash + ".png"), new byte[]{1, 2});
+        when(fileStorageService.getLocalImage("blobs", hash, 100)).thenReturn(original);
+
+        mockMvc.perform(get("/api/images/blobs/" + hash).param("w", "100"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    @DisplayName("Should not let clients keep a redirect to the original standing in for a variant")
+    void getBlobImage_RemoteVariantMissing_RedirectNotCached() throws Exception {
+        String hash = "a".repeat(64);
+        when(fileStorageService.blobExists(hash)).thenReturn(true);
+        when(fileStorageService.isRemote()).thenReturn(true);
+        when(fileStorageService.getRemoteImageUrl("blobs", hash, hash, 100))
+                .thenReturn(URI.create("https://cdn.booksta.com/blobs/" + hash + ".png?v=" + hash));
+
+        mockMvc.perform(get("/api/images/blobs/" + hash).param("w", "100"))
+                .andExpect(status().isFound())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    @DisplayName("Should answer an uncached 404 for a blob still being stored")
+    void getBlobImage_Pending_NotFound() throws Exception {
+        String hash = "a".repeat(64);
+
+        mockMvc.perform(get("/api/images/blobs/" + hash))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
+        verify(fileStorageService, never()).getLocalImage(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should redirect to the bucket instead of proxying the bytes")
+    void getAuthorImage_Remote_Redirects() throws Exception {
+        when(fileStorageService.isRemote()).thenReturn(true);
+        when(fileStorageService.imageUrl("authors", "5", "abc")).thenReturn("https://cdn.booksta.com/authors/5.png?v=abc");
+        when(imageService.isIssuedUrl("https://cdn.booksta.com/authors/5.png?v=abc")).thenReturn(true);
+        when(fileStorageService.getRemoteImageUrl("authors", "5", "abc", null))
+                .thenReturn(URI.create("https://cdn.booksta.com/authors/5.png?v=abc"));
+        when(fileStorageService.getPresignedUrlTtlSeconds()).thenReturn(3600L);
+
+        mockMvc.perform(get("/api/images/authors/5").param("v", "abc"))
+                .andExpect(status().isFound())
+                .andExpect(header().string(HttpHeaders.LOCATION, "https://cdn.booksta.com/authors/5.png?v=abc"));
+    }
+
+    @Test
+    @DisplayName("Should return 404 for a missing image")
+    void getCollectionImage_Missing_NotFound() throws Exception {
+        mockMvc.perform(get("/api/images/collections/9"))
+                .andExpect(status().isNotFound());
+    }
+}
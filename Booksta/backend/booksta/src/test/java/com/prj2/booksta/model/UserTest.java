@@ -58,7 +58,8 @@ class UserTest {
                     ownedBooks,
                     roles,
                     "google-id-123",
-                    "http://example.com/pic.jpg"
+                    "http://example.com/pic.jpg",
+                    null
             );
 
             assertEquals(1L, newUser.getId());
@@ -1,20 +1,28 @@
 package com.prj2.booksta.repository;
 
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.dto.BookCatalogEntry;
+import com.prj2.booksta.model.dto.BookFilterRequest;
+import com.prj2.booksta.model.dto.BookSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 
 import com.prj2.booksta.model.Book;
 
@@ -83,4 +91,103 @@ class BookRepositoryTest {
         assertNotNull(books);
         assertFalse(books.isEmpty());
     }
+
+    @Test
+    void testFilteredPageInCatalogOrder() {
+        String prefix = "ORDER-" + System.nanoTime() + "-";
+        int[] years = {2003, 2001, 2003};
+        for (int i = 0; i < years.length; i++) {
+            Book book = new Book();
+            book.setIsbn(prefix + (char) ('C' - i));
+            book.setTitle("Ordered Book " + i);
+            book.setPublishingYear(years[i]);
+            book.setDescription("An ordered book");
+            book.getAuthors().add(testAuthor);
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+
+        BookFilterRequest filter = new BookFilterRequest();
+        filter.setTitle("Ordered Book");
+        filter.setAuthorIds(List.of(testAuthor.getId()));
+        Page<Book> page = bookRepository.findAll(
+                BookSpecification.withFilters(filter).and(BookSpecification.inCatalogOrder()), PageRequest.of(0, 2));
+
+        assertEquals(3, page.getTotalElements());
+        assertEquals(List.of(prefix + "B", prefix + "A"), page.getContent().stream().map(Book::getIsbn).toList());
+    }
+
+    @Test
+    void testMostFavoritedExcludesTheUsersFavorites() {
+        String prefix = "FAV-" + System.nanoTime() + "-";
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.setIsbn(prefix + i);
+            book.setTitle("Favorite " + i);
+            book.setPublishingYear(2000);
+            book.setDescription("A favorite book");
+            entityManager.persist(book);
+            books.add(book);
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setFirstName("Fan");
+            user.setLastName("Number " + i);
+            user.setEmail(prefix + i + "@booksta.com");
+            // Book 0 favorited by all three, book 1 by two, book 2 by one
+            for (int b = 0; b <= 2 - i; b++) {
+                user.getFavoriteList().add(books.get(b));
+            }
+            entityManager.persist(user);
+            users.add(user);
+        }
+        entityManager.flush();
+
+        List<String> forNewcomer = bookRepository.findMostFavoritedSummaries(-1L, PageRequest.of(0, 50)).stream()
+                .map(BookSummary::getIsbn).filter(isbn -> isbn.startsWith(prefix)).toList();
+        List<String> forFan = bookRepository.findMostFavoritedSummaries(users.get(2).getId(), PageRequest.of(0, 50))
+                .stream().map(BookSummary::getIsbn).filter(isbn -> isbn.startsWith(prefix)).toList();
+
+        assertEquals(List.of(prefix + 0, prefix + 1, prefix + 2), forNewcomer);
+        assertEquals(List.of(prefix + 1, prefix + 2), forFan);
+    }
+
+    @Test
+    void testCatalogPagesAreKeysetOrdered() {
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.setIsbn("CATALOG-ISBN-" + i + "-" + System.nanoTime());
+            book.setTitle("Catalog Book " + i);
+            book.setPublishingYear(1997);
+            book.setDescription("A catalog book");
+            book.setPages(100L);
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+
+        List<BookCatalogEntry> firstPage = bookRepository.findCatalogFirstPage(PageRequest.of(0, 2));
+        assertEquals(2, firstPage.size());
+
+        BookCatalogEntry last = firstPage.get(1);
+        List<BookCatalogEntry> nextPage = bookRepository.findCatalogPageAfter(
+                last.publishingYear(), last.isbn(), PageRequest.of(0, 2));
+
+        assertFalse(nextPage.isEmpty());
+        BookCatalogEntry next = nextPage.get(0);
+        assertTrue(next.publishingYear() > last.publishingYear()
+                || (next.publishingYear().equals(last.publishingYear()) && next.isbn().compareTo(last.isbn()) > 0));
+    }
+
+    @Test
+    void testBulkDeleteRemovesBookAndJoinRows() {
+        String isbn = bookRepository.searchBooks("Test Book Title", null, null, null).get(0).getIsbn();
+
+        assertEquals(1, bookRepository.removeAuthorLinks(List.of(isbn)));
+        assertEquals(1, bookRepository.removeSubjectLinks(List.of(isbn)));
+        assertEquals(1, bookRepository.deleteAllByIsbnIn(List.of(isbn)));
+
+        assertTrue(bookRepository.findExistingIsbns(List.of(isbn)).isEmpty());
+    }
 }
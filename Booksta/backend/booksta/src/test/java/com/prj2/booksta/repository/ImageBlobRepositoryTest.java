@@ -0,0 +1,84 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Image;
+import com.prj2.booksta.model.ImageBlob;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class ImageBlobRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private ImageBlob blob(String hash, LocalDateTime lastUploadedAt) {
+        return entityManager.persist(new ImageBlob(hash.repeat(64), 3, "image/png", lastUploadedAt));
+    }
+
+    private Image image(ImageBlob blob) {
+        Image image = new Image("http://localhost/api/images/blobs/" + blob.getHash());
+        image.setContentHash(blob.getHash());
+        return entityManager.persist(image);
+    }
+
+    private Author author(Image image) {
+        Author author = new Author();
+        author.setFirstName("Ada");
+        author.setLastName("Blob");
+        author.setImage(image);
+        return entityManager.persist(author);
+    }
+
+    @Test
+    @DisplayName("Should count only images still attached to an entity as references")
+    void countReferences_IgnoresDetachedImages() {
+        ImageBlob shared = blob("a", NOW);
+        author(image(shared));
+        author(image(shared));
+        image(shared);
+
+        assertEquals(2, imageBlobRepository.countReferences(shared.getHash()));
+    }
+
+    @Test
+    @DisplayName("Should list unreferenced blobs older than the cutoff")
+    void findOrphanHashes_SkipsReferencedAndRecent() {
+        ImageBlob referenced = blob("a", NOW.minusDays(2));
+        author(image(referenced));
+        ImageBlob detached = blob("b", NOW.minusDays(2));
+        image(detached);
+        blob("c", NOW.minusHours(1));
+        ImageBlob orphan = blob("d", NOW.minusDays(3));
+        entityManager.flush();
+
+        List<String> hashes = imageBlobRepository.findOrphanHashes(NOW.minusDays(1), PageRequest.of(0, 10));
+
+        assertEquals(List.of(orphan.getHash(), detached.getHash()), hashes);
+    }
+
+    @Test
+    @DisplayName("Should not delete a blob touched after the cutoff")
+    void deleteIfUnused_RespectsTouch() {
+        ImageBlob blob = blob("e", NOW.minusDays(2));
+        entityManager.flush();
+
+        assertEquals(1, imageBlobRepository.touch(blob.getHash(), NOW));
+        assertEquals(0, imageBlobRepository.deleteIfUnused(blob.getHash(), NOW.minusDays(1)));
+        assertEquals(1, imageBlobRepository.deleteIfUnused(blob.getHash(), NOW.plusSeconds(1)));
+    }
+}
@@ -0,0 +1,152 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.PrivateConversation;
+import com.prj2.booksta.model.PrivateMessage;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.repository.projections.ConversationInboxView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class PrivateConversationRepositoryTest {
+
+    @Autowired
+    private PrivateConversationRepository conversationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User alice;
+    private User bob;
+    private User carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("Alice");
+        bob = user("Bob");
+        carol = user("Carol");
+    }
+
+    private User user(String firstName) {
+        User user = new User();
+        user.setFirstName(firstName);
+        user.setLastName("Inbox");
+        user.setEmail(firstName.toLowerCase() + System.nanoTime() + "@booksta.com");
+        return entityManager.persist(user);
+    }
+
+    private PrivateConversation conversation(User first, User second) {
+        PrivateConversation conversation = new PrivateConversation();
+        conversation.setParticipant1(first);
+        conversation.setParticipant2(second);
+        return entityManager.persist(conversation);
+    }
+
+    private PrivateMessage message(PrivateConversation conversation, User sender, User recipient,
+                                   String content, LocalDateTime sentAt) {
+        PrivateMessage message = new PrivateMessage();
+        message.setConversation(conversation);
+        message.setSender(sender);
+        message.setRecipient(recipient);
+        message.setContent(content);
+        message.setSentAt(sentAt);
+        return entityManager.persist(message);
+    }
+
+    private void send(PrivateConversation conversation, User sender, User recipient,
+                      String content, LocalDateTime sentAt) {
+        PrivateMessage message = message(conversation, sender, recipient, content, sentAt);
+        conversationRepository.recordMessage(conversation.getId(), message.getId(), content, sentAt, recipient.getId());
+    }
+
+    @Test
+    @DisplayName("Should list the inbox most recent first with the other user and unread counts")
+    void findInbox_ReturnsOneRowPerConversation() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 10, 12, 0);
+        PrivateConversation withBob = conversation(alice, bob);
+        PrivateConversation withCarol = conversation(alice, carol);
+
+        send(withBob, bob, alice, "Hello", now);
+        send(withBob, bob, alice, "Still there?", now.plusMinutes(1));
+        send(withCarol, alice, carol, "Hi Carol", now.plusMinutes(5));
+
+        List<ConversationInboxView> inbox = conversationRepository.findInbox(alice.getId(), Pageable.unpaged());
+
+        assertEquals(List.of(withCarol.getId(), withBob.getId()),
+                inbox.stream().map(ConversationInboxView::getConversationId).toList());
+        assertEquals("Carol", inbox.get(0).getOtherFirstName());
+        assertEquals(0L, inbox.get(0).getUnreadCount());
+        assertEquals("Bob", inbox.get(1).getOtherFirstName());
+        assertEquals("Still there?", inbox.get(1).getLastMessagePreview());
+        assertEquals(2L, inbox.get(1).getUnreadCount());
+
+        List<ConversationInboxView> carolInbox = conversationRepository.findInbox(carol.getId(), Pageable.unpaged());
+        assertEquals("Alice", carolInbox.get(0).getOtherFirstName());
+        assertEquals(1L, carolInbox.get(0).getUnreadCount());
+    }
+
+    @Test
+    @DisplayName("Should page the inbox after a (lastMessageAt, id) cursor")
+    void findInboxBefore_ReturnsOlderConversations() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 10, 12, 0);
+        PrivateConversation withBob = conversation(alice, bob);
+        PrivateConversation withCarol = conversation(alice, carol);
+        send(withBob, bob, alice, "Older", now);
+        send(withCarol, carol, alice, "Newer", now.plusMinutes(1));
+
+        List<ConversationInboxView> firstPage = conversationRepository.findInbox(alice.getId(), PageRequest.of(0, 1));
+        ConversationInboxView last = firstPage.get(0);
+        List<ConversationInboxView> secondPage = conversationRepository.findInboxBefore(
+                alice.getId(), last.getLastMessageAt(), last.getConversationId(), PageRequest.of(0, 1));
+
+        assertEquals(withCarol.getId(), last.getConversationId());
+        assertEquals(List.of(withBob.getId()),
+                secondPage.stream().map(ConversationInboxView::getConversationId).toList());
+    }
+
+    @Test
+    @DisplayName("Should reset only the reader's unread count")
+    void resetUnreadCount_ClearsReaderOnly() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 10, 12, 0);
+        PrivateConversation withBob = conversation(alice, bob);
+        send(withBob, bob, alice, "Ping", now);
+        send(withBob, alice, bob, "Pong", now.plusMinutes(1));
+
+        conversationRepository.resetUnreadCount(withBob.getId(), alice.getId());
+        entityManager.clear();
+
+        PrivateConversation reloaded = entityManager.find(PrivateConversation.class, withBob.getId());
+        assertEquals(0L, reloaded.getParticipant1UnreadCount());
+        assertEquals(1L, reloaded.getParticipant2UnreadCount());
+    }
+
+    @Test
+    @DisplayName("Should backfill conversations created before the read model")
+    void backfillInbox_FillsLastMessageAndUnreadCounts() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 10, 12, 0);
+        PrivateConversation withBob = conversation(alice, bob);
+        message(withBob, bob, alice, "First", now);
+        PrivateMessage last = message(withBob, bob, alice, "Second", now.plusMinutes(1));
+        entityManager.flush();
+
+        assertEquals(1, conversationRepository.backfillInbox());
+        entityManager.clear();
+
+        PrivateConversation reloaded = entityManager.find(PrivateConversation.class, withBob.getId());
+        assertEquals(last.getId(), reloaded.getLastMessageId());
+        assertEquals("Second", reloaded.getLastMessagePreview());
+        assertEquals(2L, reloaded.getParticipant1UnreadCount());
+        assertEquals(0L, reloaded.getParticipant2UnreadCount());
+    }
+}
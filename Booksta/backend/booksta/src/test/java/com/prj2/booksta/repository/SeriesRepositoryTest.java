@@ -0,0 +1,106 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Series;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.repository.projections.SeriesSummaryView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class SeriesRepositoryTest {
+
+    @Autowired
+    private SeriesRepository seriesRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Author author;
+    private Series trilogy;
+    private Series duology;
+
+    @BeforeEach
+    void setUp() {
+        author = new Author();
+        author.setFirstName("Series");
+        author.setLastName("Writer");
+        entityManager.persist(author);
+
+        trilogy = series("Trilogy");
+        duology = series("Duology");
+        book("SERIES-1", trilogy);
+        book("SERIES-2", trilogy);
+        book("SERIES-3", duology);
+        follower(duology);
+        follower(duology);
+        follower(trilogy);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Series series(String title) {
+        Series series = new Series();
+        series.setTitle(title);
+        series.setAuthor(author);
+        return entityManager.persist(series);
+    }
+
+    private void book(String isbn, Series series) {
+        Book book = new Book();
+        book.setIsbn(isbn + "-" + System.nanoTime());
+        book.setTitle(isbn);
+        book.setPublishingYear(2000);
+        book.setDescription(isbn);
+        book.setSeries(series);
+        entityManager.persist(book);
+    }
+
+    private void follower(Series series) {
+        User user = new User();
+        user.setFirstName("Fol");
+        user.setLastName("Lower");
+        user.setEmail("follower" + System.nanoTime() + "@booksta.com");
+        user.getFollowedSeries().add(series);
+        entityManager.persist(user);
+    }
+
+    @Test
+    @DisplayName("Should count books and followers without multiplying them")
+    void findSummaries_Counts() {
+        Page<SeriesSummaryView> page = seriesRepository.findSummaries(
+                author.getId(), PageRequest.of(0, 10, Sort.by("title")));
+
+        assertEquals(2, page.getTotalElements());
+        SeriesSummaryView first = page.getContent().get(0);
+        assertEquals("Duology", first.getTitle());
+        assertEquals(1, first.getBookCount());
+        assertEquals(2, first.getFollowerCount());
+        assertEquals("Writer", first.getAuthorLastName());
+        assertEquals(2, page.getContent().get(1).getBookCount());
+        assertEquals(1, page.getContent().get(1).getFollowerCount());
+    }
+
+    @Test
+    @DisplayName("Should sort and page by a computed count")
+    void findSummaries_SortedByCount() {
+        Page<SeriesSummaryView> byBooks = seriesRepository.findSummaries(
+                author.getId(), PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "bookCount")));
+        Page<SeriesSummaryView> byFollowers = seriesRepository.findSummaries(
+                author.getId(), PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "followerCount")));
+
+        assertEquals(trilogy.getId(), byBooks.getContent().get(0).getId());
+        assertTrue(byBooks.hasNext());
+        assertEquals(duology.getId(), byFollowers.getContent().get(0).getId());
+    }
+}
@@ -0,0 +1,136 @@
+package com.prj2.booksta.repository;
+
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.BookReadEvent;
+import com.prj2.booksta.model.Image;
+import com.prj2.booksta.model.ReadingEventType;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.UserBookReadingState;
+import com.prj2.booksta.model.UserBookReadingStateId;
+import com.prj2.booksta.repository.projections.BookWithLatestReadingEventView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class UserBookReadingStateRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2025-03-01T10:00:00Z");
+
+    @Autowired
+    private UserBookReadingStateRepository readingStateRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User reader;
+    private Book dune;
+    private Book emma;
+
+    @BeforeEach
+    void setUp() {
+        reader = new User();
+        reader.setFirstName("Rea");
+        reader.setLastName("Der");
+        reader.setEmail("reader" + System.nanoTime() + "@booksta.com");
+        dune = book("9780000000001", "Dune");
+        emma = book("9780000000002", "Emma");
+        reader.getOwnedBooks().add(dune);
+        reader.getOwnedBooks().add(emma);
+        reader = entityManager.persist(reader);
+    }
+
+    private Book book(String isbn, String title) {
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle(title);
+        book.setPublishingYear(2000);
+        book.setDescription(title);
+        book.setImage(entityManager.persist(new Image("http://localhost/" + isbn)));
+        return entityManager.persist(book);
+    }
+
+    private BookReadEvent event(Book book, ReadingEventType type, Instant at) {
+        BookReadEvent event = new BookReadEvent();
+        event.setUser(reader);
+        event.setBook(book);
+        event.setReadingEvent(type);
+        event.setOccurredAt(at);
+        return entityManager.persist(event);
+    }
+
+    @Test
+    @DisplayName("Should derive each pair's state from its most recent event")
+    void backfill_KeepsLatestEvent() {
+        event(dune, ReadingEventType.STARTED_READING, T0);
+        BookReadEvent finished = event(dune, ReadingEventType.FINISHED_READING, T0.plusSeconds(60));
+        BookReadEvent started = event(emma, ReadingEventType.STARTED_READING, T0);
+        entityManager.flush();
+
+        assertTrue(readingStateRepository.existsEventWithoutState());
+        assertEquals(0, readingStateRepository.backfill(reader.getId() + 1, reader.getId() + 100));
+        assertEquals(2, readingStateRepository.backfill(reader.getId(), reader.getId()));
+        assertEquals(0, readingStateRepository.backfill(reader.getId(), reader.getId()));
+        assertFalse(readingStateRepository.existsEventWithoutState());
+        entityManager.clear();
+
+        UserBookReadingState duneState = readingStateRepository
+                .findById(new UserBookReadingStateId(reader.getId(), dune.getIsbn())).orElseThrow();
+        assertEquals(ReadingEventType.FINISHED_READING, duneState.getReadingEvent());
+        assertEquals(finished.getId(), duneState.getLatestEventId());
+        assertEquals(Optional.of(ReadingEventType.STARTED_READING),
+                readingStateRepository.findReadingEventByEmail(reader.getEmail(), emma.getIsbn()));
+        assertEquals(started.getId(), readingStateRepository
+                .findById(new UserBookReadingStateId(reader.getId(), emma.getIsbn())).orElseThrow().getLatestEventId());
+    }
+
+    @Test
+    @DisplayName("Should list owned books with their reading state, unread ones included")
+    void findOwnedBooksWithLatestReadingEventView_UsesState() {
+        UserBookReadingState state = new UserBookReadingState(new UserBookReadingStateId(reader.getId(), dune.getIsbn()));
+        state.setReadingEvent(ReadingEventType.ABANDONED_READING);
+        state.setOccurredAt(T0);
+        state.setLatestEventId(1L);
+        entityManager.persist(state);
+        entityManager.flush();
+
+        Map<String, BookWithLatestReadingEventView> owned = userRepository
+                .findOwnedBooksWithLatestReadingEventView(reader.getId()).stream()
+                .collect(Collectors.toMap(BookWithLatestReadingEventView::getIsbn, view -> view));
+        List<BookWithLatestReadingEventView> reading = userRepository.findOwnedBooksWithReadingEvent(reader.getId());
+
+        assertEquals(2, owned.size());
+        assertEquals(ReadingEventType.ABANDONED_READING, owned.get(dune.getIsbn()).getLatestEventType());
+        assertNull(owned.get(emma.getIsbn()).getLatestEventType());
+        assertEquals(1, reading.size());
+        assertEquals(T0, reading.get(0).getLatestEventOccurredAt());
+    }
+
+    @Test
+    @DisplayName("Should list owned books that have no cover image")
+    void findOwnedBooksWithLatestReadingEventView_WithoutImage() {
+        emma.setImage(null);
+        entityManager.flush();
+
+        Map<String, BookWithLatestReadingEventView> owned = userRepository
+                .findOwnedBooksWithLatestReadingEventView(reader.getId()).stream()
+                .collect(Collectors.toMap(BookWithLatestReadingEventView::getIsbn, view -> view));
+
+        assertEquals(2, owned.size());
+        assertNull(owned.get(emma.getIsbn()).getImageUrl());
+    }
+}
@@ -0,0 +1,223 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.CatalogCache;
+import com.prj2.booksta.config.JwtPrincipalCache;
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.AuthorReport;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Series;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.dto.AuthorDetailResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the SQL statements of the author page and of an author deletion, which must not
+ * grow with the number of books, series or followers.
+ */
+@DataJpaTest
+@Import({AuthorService.class, BookService.class})
+class AuthorServiceQueryCountTest {
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private RoleService roleService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private ImageService imageService;
+
+    @MockitoBean
+    private FileStorageService fileStorageService;
+
+    @MockitoBean
+    private ImageUploadQueue imageUploadQueue;
+
+    @MockitoBean
+    private SubjectService subjectService;
+
+    @MockitoBean
+    private BookSearchIndex bookSearchIndex;
+
+    @MockitoBean
+    private BookFacetIndex bookFacetIndex;
+
+    @MockitoBean
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
+    @MockitoBean
+    private JwtPrincipalCache jwtPrincipalCache;
+
+    @MockitoBean
+    private AuthorizationDecisionCache decisionCache;
+
+    @MockitoBean
+    private CatalogCache catalogCache;
+
+    private Statistics statistics;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Author author(int books, int series, int followers) {
+        Author author = new Author();
+        author.setFirstName("Prolific");
+        author.setLastName("Writer");
+        entityManager.persist(author);
+
+        for (int i = 0; i < series; i++) {
+            Series saga = new Series();
+            saga.setTitle("Saga " + i);
+            saga.setAuthor(author);
+            entityManager.persist(saga);
+            for (int j = 0; j < books; j++) {
+                Book book = new Book();
+                book.setIsbn("QC-" + (++sequence) + "-" + System.nanoTime());
+                book.setTitle("Book " + j);
+                book.setPublishingYear(2000 + j);
+                book.setDescription("Book " + j);
+                book.setSeries(saga);
+                book.getAuthors().add(author);
+                entityManager.persist(book);
+            }
+        }
+        for (int i = 0; i < followers; i++) {
+            User user = new User();
+            user.setFirstName("Fol");
+            user.setLastName("Lower");
+            user.setEmail("qc" + (++sequence) + "-" + System.nanoTime() + "@booksta.com");
+            user.getFollowedAuthors().add(author);
+            entityManager.persist(user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return author;
+    }
+
+    private long statementsOf(Runnable action) {
+        statistics.clear();
+        action.run();
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    @DisplayName("Should build the author page in three statements whatever its size")
+    void getAuthorDetails_FixedStatementCount() {
+        Author small = author(1, 1, 1);
+        Author large = author(10, 5, 20);
+
+        long smallCount = statementsOf(() -> authorService.getAuthorDetails(small.getId()));
+        AuthorDetailResponse[] result = new AuthorDetailResponse[1];
+        long largeCount = statementsOf(() -> result[0] = authorService.getAuthorDetails(large.getId()));
+
+        assertEquals(3, smallCount);
+        assertEquals(3, largeCount);
+        assertEquals(50, result[0].getBookCount());
+        assertEquals(5, result[0].getSeriesCount());
+        assertEquals(20, result[0].getFollowerCount());
+        assertEquals(10, result[0].getSeries().get(0).getBookCount());
+    }
+
+    /**
+     * Deletes an author with this many books per series, whose series also hold a book of another
+     * author each and whose followers all follow those series, keep the author's books in their
+     * favorites and owned books and reported the author, returning the statements it took.
+     */
+    private long deletionStatements(Author other, int books, int series, int followers) {
+        Author author = author(books, series, followers);
+        List<Series> sagas = entityManager.getEntityManager()
+                .createQuery("SELECT s FROM Series s WHERE s.author.id = :id", Series.class)
+                .setParameter("id", author.getId())
+                .getResultList();
+        List<Book> ownBooks = entityManager.getEntityManager()
+                .createQuery("SELECT b FROM Book b JOIN b.authors a WHERE a.id = :id", Book.class)
+                .setParameter("id", author.getId())
+                .getResultList();
+        List<Book> guests = new ArrayList<>();
+        for (Series saga : sagas) {
+            Book guest = new Book();
+            guest.setIsbn("QC-GUEST-" + (++sequence) + "-" + System.nanoTime());
+            guest.setTitle("Guest");
+            guest.setPublishingYear(2010);
+            guest.setDescription("Guest");
+            guest.setSeries(saga);
+            guest.getAuthors().add(entityManager.find(Author.class, other.getId()));
+            entityManager.persist(guest);
+            guests.add(guest);
+        }
+        List<User> followerUsers = entityManager.getEntityManager()
+                .createQuery("SELECT u FROM User u JOIN u.followedAuthors a WHERE a.id = :id", User.class)
+                .setParameter("id", author.getId())
+                .getResultList();
+        for (User follower : followerUsers) {
+            follower.getFollowedSeries().addAll(sagas);
+            follower.getFavoriteList().addAll(ownBooks);
+            follower.getOwnedBooks().addAll(ownBooks);
+            AuthorReport report = new AuthorReport();
+            report.setUser(follower);
+            report.setAuthor(entityManager.find(Author.class, author.getId()));
+            report.setSubject("Spam");
+            entityManager.persist(report);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        long count = statementsOf(() -> authorService.deleteAuthor(author.getId()));
+
+        assertNull(entityManager.find(Author.class, author.getId()));
+        for (Book book : ownBooks) {
+            assertNull(entityManager.find(Book.class, book.getIsbn()));
+        }
+        for (Book guest : guests) {
+            assertNull(entityManager.find(Book.class, guest.getIsbn()).getSeries());
+        }
+        for (User follower : followerUsers) {
+            User reloaded = entityManager.find(User.class, follower.getId());
+            assertTrue(reloaded.getFollowedSeries().isEmpty());
+            assertTrue(reloaded.getFavoriteList().isEmpty());
+            assertTrue(reloaded.getOwnedBooks().isEmpty());
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("Should delete an author in a fixed number of statements whatever its size")
+    void deleteAuthor_FixedStatementCount() {
+        Author other = author(0, 0, 0);
+
+        long smallCount = deletionStatements(other, 1, 1, 1);
+        long largeCount = deletionStatements(other, 10, 5, 20);
+
+        assertEquals(smallCount, largeCount);
+        assertEquals(25, largeCount);
+    }
+}
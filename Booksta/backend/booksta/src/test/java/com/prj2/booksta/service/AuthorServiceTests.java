@@ -1,25 +1,36 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.CatalogCache;
+import com.prj2.booksta.config.JwtPrincipalCache;
 import com.prj2.booksta.model.*;
 import com.prj2.booksta.model.dto.AuthorDetailResponse;
+import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.repository.AuthorReportRepository;
 import com.prj2.booksta.repository.AuthorRepository;
 import com.prj2.booksta.repository.BookRepository;
 import com.prj2.booksta.repository.SeriesRepository;
-import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.AuthorDetailView;
+import com.prj2.booksta.repository.projections.SeriesSummaryView;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockMultipartFile;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,7 +46,7 @@ class AuthorServiceTest {
     private SeriesRepository seriesRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private AuthorReportRepository authorReportRepository;
 
     @Mock
     private RoleService roleService;
@@ -49,9 +60,21 @@ class AuthorServiceTest {
     @Mock
     private FileStorageService fileStorageService;
 
+    @Mock
+    private ImageUploadQueue imageUploadQueue;
+
     @Mock
     private BookService bookService;
 
+    @Mock
+    private JwtPrincipalCache jwtPrincipalCache;
+
+    @Mock
+    private AuthorizationDecisionCache decisionCache;
+
+    @Mock
+    private CatalogCache catalogCache;
+
     @InjectMocks
     private AuthorService authorService;
 
@@ -171,6 +194,21 @@ class AuthorServiceTest {
             assertEquals(author1.getId(), result.getId());
             verify(authorRepository).save(author1);
         }
+
+        @Test
+        @DisplayName("Should stage a new picture into the author's existing image")
+        void saveWithImage_StagesIntoExistingImage() throws Exception {
+            Image current = new Image("http://localhost/api/images/authors/1?v=abc");
+            author1.setImage(current);
+            MockMultipartFile file = new MockMultipartFile("image", "a.png", "image/png", new byte[]{1});
+            Image staged = new Image("http://localhost/api/images/blobs/" + "a".repeat(64));
+            when(imageUploadQueue.stage(file, current)).thenReturn(staged);
+            when(authorRepository.save(author1)).thenReturn(author1);
+
+            Author result = authorService.saveWithImage(author1, file);
+
+            assertSame(staged, result.getImage());
+        }
     }
 
     @Nested
@@ -191,6 +229,7 @@ class AuthorServiceTest {
 
             verify(authorRepository).save(any(Author.class));
             verify(userService).save(testUser);
+            verify(jwtPrincipalCache).invalidateSubject(testUser.getEmail());
         }
 
         @Test
@@ -257,6 +296,31 @@ class AuthorServiceTest {
         }
     }
 
+    private AuthorDetailView detailView(String imageUrl, String userEmail, long followerCount) {
+        return new AuthorDetailView() {
+            public Long getId() { return 1L; }
+            public String getFirstName() { return "John"; }
+            public String getLastName() { return "Doe"; }
+            public String getImageUrl() { return imageUrl; }
+            public String getUserEmail() { return userEmail; }
+            public long getFollowerCount() { return followerCount; }
+        };
+    }
+
+    private SeriesSummaryView seriesSummary(long bookCount, long followerCount) {
+        return new SeriesSummaryView() {
+            public Long getId() { return 1L; }
+            public String getTitle() { return "Test Series"; }
+            public String getDescription() { return null; }
+            public Long getAuthorId() { return 1L; }
+            public String getAuthorFirstName() { return "John"; }
+            public String getAuthorLastName() { return "Doe"; }
+            public String getAuthorImageUrl() { return null; }
+            public long getBookCount() { return bookCount; }
+            public long getFollowerCount() { return followerCount; }
+        };
+    }
+
     @Nested
     @DisplayName("getAuthorDetails tests")
     class GetAuthorDetailsTests {
@@ -264,28 +328,34 @@ class AuthorServiceTest {
         @Test
         @DisplayName("Should return author details with books and series")
         void getAuthorDetails_AuthorExists_ReturnsDetails() {
-            author1.setImage(new Image("http://example.com/author.jpg"));
-
-            when(authorRepository.findById(1L)).thenReturn(Optional.of(author1));
-            when(bookRepository.findByAuthors_Id(1L)).thenReturn(List.of(testBook));
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(List.of(testSeries));
+            when(authorRepository.findDetailView(1L))
+                    .thenReturn(Optional.of(detailView("http://example.com/author.jpg", "john@test.com", 4)));
+            when(bookRepository.findSummariesByAuthorId(1L))
+                    .thenReturn(List.of(new BookSummary(testBook.getIsbn(), "Test Book", 2020, null)));
+            when(seriesRepository.findSummaries(eq(1L), any(Pageable.class)))
+                    .thenReturn(new PageImpl<>(List.of(seriesSummary(3, 2))));
 
             AuthorDetailResponse result = authorService.getAuthorDetails(1L);
 
             assertNotNull(result);
             assertEquals("John", result.getFirstName());
             assertEquals("Doe", result.getLastName());
+            assertEquals("http://example.com/author.jpg", result.getImageUrl());
+            assertEquals(4, result.getFollowerCount());
             assertEquals(1, result.getBookCount());
             assertEquals(1, result.getSeriesCount());
+            assertEquals(3, result.getSeries().get(0).getBookCount());
+            assertEquals(2, result.getSeries().get(0).getFollowerCount());
         }
 
         @Test
         @DisplayName("Should throw exception when author not found")
         void getAuthorDetails_AuthorNotFound_ThrowsException() {
-            when(authorRepository.findById(999L)).thenReturn(Optional.empty());
+            when(authorRepository.findDetailView(999L)).thenReturn(Optional.empty());
 
             assertThrows(EntityNotFoundException.class,
                     () -> authorService.getAuthorDetails(999L));
+            verifyNoInteractions(bookRepository, seriesRepository);
         }
     }
 
@@ -294,58 +364,54 @@ class AuthorServiceTest {
     class DeleteAuthorTests {
 
         @Test
-        @DisplayName("Should delete author and cascade to books and series")
+        @DisplayName("Should delete author with their books, series, follows and reports")
         void deleteAuthor_AuthorExists_DeletesWithCascade() throws Exception {
-            author1.setImage(new Image("http://example.com/author.jpg"));
-
-            when(authorRepository.findById(1L)).thenReturn(Optional.of(author1));
-            when(bookRepository.findByAuthors_Id(1L)).thenReturn(List.of(testBook));
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(List.of(testSeries));
+            when(authorRepository.findDetailView(1L))
+                    .thenReturn(Optional.of(detailView(null, "john@test.com", 0)));
+            when(bookRepository.findIsbnsByAuthorId(1L)).thenReturn(List.of(testBook.getIsbn()));
 
             authorService.deleteAuthor(1L);
 
-            verify(bookService).delete(testBook.getIsbn());
-            verify(seriesRepository).deleteByAuthorId(1L);
-            verify(authorRepository).delete(author1);
+            InOrder order = inOrder(bookService, bookRepository, seriesRepository,
+                    authorRepository, authorReportRepository);
+            order.verify(bookService).deleteAll(List.of(testBook.getIsbn()));
+            order.verify(bookRepository).detachFromAuthorSeries(1L);
+            order.verify(seriesRepository).deleteAllByAuthorId(1L);
+            order.verify(authorReportRepository).deleteAllByAuthorId(1L);
+            order.verify(authorRepository).deleteInBulk(1L);
+            verify(catalogCache).evictAuthor(1L);
+            verify(decisionCache).invalidateSubject("john@test.com");
         }
 
         @Test
         @DisplayName("Should throw exception when author not found")
         void deleteAuthor_AuthorNotFound_ThrowsException() {
-            when(authorRepository.findById(999L)).thenReturn(Optional.empty());
+            when(authorRepository.findDetailView(999L)).thenReturn(Optional.empty());
 
             assertThrows(EntityNotFoundException.class,
                     () -> authorService.deleteAuthor(999L));
 
-            verify(authorRepository, never()).delete(any());
+            verify(authorRepository, never()).deleteInBulk(any());
         }
 
         @Test
-        @DisplayName("Should remove author from followers")
-        void deleteAuthor_WithFollowers_RemovesFromFollowers() throws Exception {
-            User follower = new User();
-            follower.setId(2L);
-            follower.setFollowedAuthors(new HashSet<>(Set.of(author1)));
-            author1.getFollowers().add(follower);
-
-            when(authorRepository.findById(1L)).thenReturn(Optional.of(author1));
-            when(bookRepository.findByAuthors_Id(1L)).thenReturn(Collections.emptyList());
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(Collections.emptyList());
+        @DisplayName("Should not call the book service when the author has no books")
+        void deleteAuthor_NoBooks_SkipsBookDeletion() {
+            when(authorRepository.findDetailView(1L)).thenReturn(Optional.of(detailView(null, null, 0)));
+            when(bookRepository.findIsbnsByAuthorId(1L)).thenReturn(Collections.emptyList());
 
             authorService.deleteAuthor(1L);
 
-            verify(userRepository).save(follower);
-            assertFalse(follower.getFollowedAuthors().contains(author1));
+            verifyNoInteractions(bookService, decisionCache);
+            verify(authorRepository).deleteInBulk(1L);
         }
 
         @Test
         @DisplayName("Should delete author image")
         void deleteAuthor_WithImage_DeletesImage() throws Exception {
-            author1.setImage(new Image("http://example.com/author.jpg"));
-
-            when(authorRepository.findById(1L)).thenReturn(Optional.of(author1));
-            when(bookRepository.findByAuthors_Id(1L)).thenReturn(Collections.emptyList());
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(Collections.emptyList());
+            when(authorRepository.findDetailView(1L))
+                    .thenReturn(Optional.of(detailView("http://example.com/author.jpg", null, 0)));
+            when(bookRepository.findIsbnsByAuthorId(1L)).thenReturn(Collections.emptyList());
 
             authorService.deleteAuthor(1L);
 
@@ -355,15 +421,13 @@ class AuthorServiceTest {
         @Test
         @DisplayName("Should not fail if image deletion fails")
         void deleteAuthor_ImageDeletionFails_ContinuesSuccessfully() throws Exception {
-            author1.setImage(new Image("http://example.com/author.jpg"));
-
-            when(authorRepository.findById(1L)).thenReturn(Optional.of(author1));
-            when(bookRepository.findByAuthors_Id(1L)).thenReturn(Collections.emptyList());
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(Collections.emptyList());
+            when(authorRepository.findDetailView(1L))
+                    .thenReturn(Optional.of(detailView("http://example.com/author.jpg", null, 0)));
+            when(bookRepository.findIsbnsByAuthorId(1L)).thenReturn(Collections.emptyList());
             doThrow(new RuntimeException("Storage error")).when(fileStorageService).deleteAuthorImage(1L);
 
             assertDoesNotThrow(() -> authorService.deleteAuthor(1L));
-            verify(authorRepository).delete(author1);
+            verify(authorRepository).deleteInBulk(1L);
         }
     }
 }
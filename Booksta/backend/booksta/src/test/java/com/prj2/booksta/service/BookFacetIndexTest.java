@@ -0,0 +1,169 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.dto.BookFilterRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookFacetIndexTest {
+
+    private BookFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookFacetIndex();
+        index.index(book("111", 1866, 550L, Set.of(1L), Set.of(10L)));
+        index.index(book("222", 1880, 800L, Set.of(1L), Set.of(10L, 20L)));
+        index.index(book("333", 1862, 150L, Set.of(2L), Set.of(10L)));
+        index.index(book("444", 1999, 250L, Set.of(3L), Set.of(30L)));
+        index.index(book("555", 1995, 199L, Set.of(2L, 3L), Set.of(30L)));
+    }
+
+    private Book book(String isbn, int year, Long pages, Set<Long> authorIds, Set<Long> subjectIds) {
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle("Book " + isbn);
+        book.setPublishingYear(year);
+        book.setPages(pages);
+        book.setAuthors(new HashSet<>());
+        for (Long id : authorIds) {
+            Author author = new Author();
+            author.setId(id);
+            book.getAuthors().add(author);
+        }
+        book.setSubjects(new HashSet<>());
+        for (Long id : subjectIds) {
+            Subject subject = new Subject();
+            subject.setId(id);
+            book.getSubjects().add(subject);
+        }
+        return book;
+    }
+
+    private static BookFilterRequest filter(Integer yearMin, Integer yearMax, Long pagesMin, Long pagesMax,
+                                            List<Long> authorIds, List<Long> subjectIds) {
+        return new BookFilterRequest(null, yearMin, yearMax, pagesMin, pagesMax, authorIds, subjectIds);
+    }
+
+    private BookFacetIndex.FacetedIsbns search(BookFilterRequest filter) {
+        return index.search(filter, null, 0, 20);
+    }
+
+    @Test
+    @DisplayName("Should list every book in (publishingYear, isbn) order without filters")
+    void search_NoFilter_ReturnsCatalogOrder() {
+        BookFacetIndex.FacetedIsbns result = search(filter(null, null, null, null, null, null));
+
+        assertEquals(List.of("333", "111", "222", "555", "444"), result.isbns());
+        assertEquals(5, result.total());
+    }
+
+    @Test
+    @DisplayName("Should match any of the selected values within a facet and all facets together")
+    void search_AuthorsAndSubjects_AnyWithinAllAcross() {
+        BookFacetIndex.FacetedIsbns result = search(filter(null, null, null, null, List.of(1L, 2L), List.of(10L)));
+
+        assertEquals(List.of("333", "111", "222"), result.isbns());
+    }
+
+    @Test
+    @DisplayName("Should apply exact year and page bounds, not just whole decades and page ranges")
+    void search_Ranges_AreExact() {
+        assertEquals(List.of("333", "111"), search(filter(1860, 1870, null, null, null, null)).isbns());
+        assertEquals(List.of("555", "444"), search(filter(null, null, 199L, 250L, null, null)).isbns());
+        assertEquals(List.of("444"), search(filter(null, null, 200L, 250L, null, null)).isbns());
+        assertTrue(search(filter(2000, 1990, null, null, null, null)).isbns().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should count each facet under every filter but its own")
+    void search_FacetCounts_IgnoreOwnFilter() {
+        BookFacetIndex.FacetedIsbns result = search(filter(1860, 1869, null, null, null, List.of(10L)));
+
+        assertEquals(2, result.total());
+        // Other subjects still counted within the 1860s
+        assertEquals(Map.of(10L, 2), result.facets().subjects());
+        // Other decades counted within subject 10
+        assertEquals(Map.of(1860, 2, 1880, 1), result.facets().decades());
+        assertEquals(List.of(1860, 1880), List.copyOf(result.facets().decades().keySet()));
+        assertEquals(Map.of(1L, 1, 2L, 1), result.facets().authors());
+        assertEquals(Map.of("100-199", 1, "500+", 1), result.facets().pageRanges());
+    }
+
+    @Test
+    @DisplayName("Should order subject and author counts by number of books")
+    void search_FacetCounts_MostBooksFirst() {
+        BookFacetIndex.FacetedIsbns result = search(filter(null, null, null, null, null, null));
+
+        assertEquals(List.of(10L, 30L, 20L), List.copyOf(result.facets().subjects().keySet()));
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(result.facets().authors().keySet()));
+    }
+
+    @Test
+    @DisplayName("Should restrict to the title matches when given")
+    void search_TitleMatches_Restrict() {
+        BookFacetIndex.FacetedIsbns result = index.search(
+                filter(null, null, null, null, null, null), Set.of("222", "444", "unknown"), 0, 20);
+
+        assertEquals(List.of("222", "444"), result.isbns());
+        assertEquals(Map.of(10L, 1, 20L, 1, 30L, 1), result.facets().subjects());
+    }
+
+    @Test
+    @DisplayName("Should page through the matches across years")
+    void search_Pagination_SpansYears() {
+        BookFilterRequest all = filter(null, null, null, null, null, null);
+
+        assertEquals(List.of("222", "555"), index.search(all, null, 2, 2).isbns());
+        assertEquals(List.of("444"), index.search(all, null, 4, 2).isbns());
+        assertTrue(index.search(all, null, 6, 2).isbns().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should move a re-indexed book to its new facets and drop a removed one")
+    void index_UpdateAndRemove_KeepFacetsCurrent() {
+        index.index(book("111", 2001, 90L, Set.of(3L), Set.of(30L)));
+        index.remove("222");
+
+        BookFacetIndex.FacetedIsbns result = search(filter(null, null, null, null, null, null));
+
+        assertEquals(List.of("333", "555", "444", "111"), result.isbns());
+        assertEquals(4, index.size());
+        assertEquals(Map.of(30L, 3, 10L, 1), result.facets().subjects());
+        assertEquals(Map.of(1860, 1, 1990, 2, 2000, 1), result.facets().decades());
+        assertEquals(Map.of(3L, 3, 2L, 2), result.facets().authors());
+        assertEquals(result.facets().authors(),
+                search(filter(null, null, null, null, List.of(2L), null)).facets().authors());
+    }
+
+    @Test
+    @DisplayName("Should list undated books after every dated one")
+    void search_Undated_Last() {
+        Book undated = book("000", 2000, null, Set.of(1L), Set.of());
+        undated.setPublishingYear(null);
+        index.index(undated);
+
+        BookFacetIndex.FacetedIsbns result = search(filter(null, null, null, null, null, null));
+
+        assertEquals(List.of("333", "111", "222", "555", "444", "000"), result.isbns());
+        assertEquals(List.of("000"), index.search(filter(null, null, null, null, null, null), null, 5, 5).isbns());
+    }
+
+    @Test
+    @DisplayName("Should label page ranges by their bounds")
+    void pageRangeLabel_Bounds() {
+        assertEquals("0-99", BookFacetIndex.pageRangeLabel(BookFacetIndex.pageRangeOf(0)));
+        assertEquals("100-199", BookFacetIndex.pageRangeLabel(BookFacetIndex.pageRangeOf(199)));
+        assertEquals("500+", BookFacetIndex.pageRangeLabel(BookFacetIndex.pageRangeOf(5000)));
+    }
+}
@@ -0,0 +1,202 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Subject;
+import com.prj2.booksta.model.dto.BookImportResult;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@Import({BookImportService.class, JacksonAutoConfiguration.class})
+@TestPropertySource(properties = "books.import.chunk-size=50")
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private BookSearchIndex bookSearchIndex;
+
+    @MockitoBean
+    private BookFacetIndex bookFacetIndex;
+
+    @MockitoBean
+    private AuthorizationDecisionCache decisionCache;
+
+    private Author author;
+    private Subject subject;
+
+    @BeforeEach
+    void setUp() {
+        author = new Author();
+        author.setFirstName("Bulk");
+        author.setLastName("Writer");
+        entityManager.persist(author);
+
+        subject = new Subject();
+        subject.setName("Imported");
+        entityManager.persist(subject);
+        entityManager.flush();
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Book book(String isbn) {
+        entityManager.clear();
+        return entityManager.find(Book.class, isbn);
+    }
+
+    @Nested
+    @DisplayName("importCsv tests")
+    class ImportCsvTests {
+
+        @Test
+        @DisplayName("Should import quoted fields and link authors and subjects")
+        void importCsv_ValidRows_ImportsBooks() throws IOException {
+            String csv = "\uFEFFisbn,title,publishingYear,description,pages,authorIds,subjectIds\r\n"
+                    + "IMP-1,\"Commas, and \"\"quotes\"\"\",1999,\"Two\nlines\",320," + author.getId() + "," + subject.getId() + "\r\n"
+                    + "\r\n"
+                    + "IMP-2,Plain,2001,Short,,,\r\n";
+
+            BookImportResult result = bookImportService.importCsv(body(csv));
+
+            assertEquals(2, result.imported());
+            assertEquals(0, result.rejected());
+            Book first = book("IMP-1");
+            assertEquals("Commas, and \"quotes\"", first.getTitle());
+            assertEquals("Two\nlines", first.getDescription());
+            assertEquals(320L, first.getPages());
+            assertEquals(author.getId(), first.getAuthors().iterator().next().getId());
+            assertEquals(subject.getId(), first.getSubjects().iterator().next().getId());
+            assertNull(book("IMP-2").getPages());
+            verify(bookSearchIndex, times(2)).index(any(Book.class));
+        }
+
+        @Test
+        @DisplayName("Should skip existing books and report invalid rows")
+        void importCsv_InvalidRows_Reported() throws IOException {
+            Book existing = new Book();
+            existing.setIsbn("IMP-OLD");
+            existing.setTitle("Already there");
+            existing.setPublishingYear(1990);
+            existing.setDescription("Old");
+            entityManager.persist(existing);
+            entityManager.flush();
+
+            String csv = "isbn,title,publishingYear,description,authorIds\n"
+                    + "IMP-OLD,Again,1990,Old,\n"
+                    + "IMP-3,,2000,No title,\n"
+                    + "IMP-4,Bad year,soon,Desc,\n"
+                    + "IMP-7," + "T".repeat(256) + ",2000,Desc,\n"
+                    + "IMP-5,Ghost author,2000,Desc,999999\n"
+                    + "IMP-6,Fine,2000,Desc," + author.getId() + "\n"
+                    + "IMP-6,Twice,2000,Desc,\n";
+
+            BookImportResult result = bookImportService.importCsv(body(csv));
+
+            assertEquals(1, result.imported());
+            assertEquals(1, result.skippedExisting());
+            assertEquals(5, result.rejected());
+            assertEquals("Missing title", result.errors().get(0).reason());
+            assertEquals(2, result.errors().get(0).row());
+            assertEquals("Invalid publishingYear: soon", result.errors().get(1).reason());
+            assertEquals("title longer than 255 characters", result.errors().get(2).reason());
+            assertEquals("Duplicate isbn in this import", result.errors().get(3).reason());
+            assertEquals("Unknown author id 999999", result.errors().get(4).reason());
+            assertEquals("Already there", book("IMP-OLD").getTitle());
+            assertNotNull(book("IMP-6"));
+        }
+
+        @Test
+        @DisplayName("Should refuse a header with an unknown column")
+        void importCsv_UnknownColumn_Throws() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> bookImportService.importCsv(body("isbn,title,year\nX,Y,2000\n")));
+        }
+
+        @Test
+        @DisplayName("Should write books in JDBC batches, not one statement per row")
+        void importCsv_ManyRows_Batched() throws IOException {
+            StringBuilder csv = new StringBuilder("isbn,title,publishingYear,description,authorIds,subjectIds\n");
+            for (int i = 0; i < 120; i++) {
+                csv.append("BATCH-").append(i).append(",Book ").append(i).append(",2000,Desc,")
+                        .append(author.getId()).append(',').append(subject.getId()).append('\n');
+            }
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+
+            BookImportResult result = bookImportService.importCsv(body(csv.toString()));
+
+            assertEquals(120, result.imported());
+            // 3 chunks of at most 50: 3 lookups and 3 batched inserts (books, authors, subjects) each,
+            // against 360 inserts one row at a time
+            assertTrue(statistics.getPrepareStatementCount() <= 18,
+                    "prepared statements: " + statistics.getPrepareStatementCount());
+            assertNotNull(book("BATCH-119"));
+        }
+    }
+
+    @Nested
+    @DisplayName("importJson tests")
+    class ImportJsonTests {
+
+        @Test
+        @DisplayName("Should import an array and reject only the malformed element")
+        void importJson_WrongTypedElement_RejectsIt() throws IOException {
+            String json = "[{\"isbn\":\"JSON-1\",\"title\":\"Json\",\"publishingYear\":2010,"
+                    + "\"description\":\"D\",\"authorIds\":[" + author.getId() + "]},"
+                    + "{\"isbn\":\"JSON-2\",\"title\":\"Bad\",\"publishingYear\":\"later\",\"description\":\"D\"},"
+                    + "{\"isbn\":\"JSON-3\",\"title\":\"Null id\",\"publishingYear\":2010,"
+                    + "\"description\":\"D\",\"subjectIds\":[null]}]";
+
+            BookImportResult result = bookImportService.importJson(body(json));
+
+            assertEquals(1, result.imported());
+            assertEquals(2, result.rejected());
+            assertEquals("JSON-2", result.errors().get(0).isbn());
+            assertEquals("Unknown subject id null", result.errors().get(1).reason());
+            assertEquals(1, book("JSON-1").getAuthors().size());
+        }
+
+        @Test
+        @DisplayName("Should refuse input that is not a JSON array")
+        void importJson_NotAnArray_Throws() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> bookImportService.importJson(body("{\"isbn\":\"X\"}")));
+            assertThrows(IllegalArgumentException.class,
+                    () -> bookImportService.importJson(body("[{\"isbn\":")));
+        }
+    }
+}
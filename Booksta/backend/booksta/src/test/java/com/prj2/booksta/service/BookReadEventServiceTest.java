@@ -0,0 +1,179 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.exception.InvalidReadingEventTransitionException;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.BookReadEvent;
+import com.prj2.booksta.model.ReadingEventType;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.UserBookReadingState;
+import com.prj2.booksta.repository.BookReadEventRepository;
+import com.prj2.booksta.repository.UserBookReadingStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookReadEventServiceTest {
+
+    private static final String EMAIL = "reader@booksta.com";
+    private static final String ISBN = "9780000000001";
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private BookReadEventRepository bookReadEventRepository;
+
+    @Mock
+    private UserBookReadingStateRepository readingStateRepository;
+
+    @Mock
+    private ReadingStatsService readingStatsService;
+
+    @Mock
+    private AuthorizationDecisionCache decisionCache;
+
+    @Mock
+    private RecommendationService recommendationService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private BookReadEventService bookReadEventService;
+
+    private User user;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setEmail(EMAIL);
+        book = new Book();
+        book.setIsbn(ISBN);
+    }
+
+    private static BookReadEvent event(ReadingEventType type) {
+        BookReadEvent event = new BookReadEvent();
+        event.setId(10L);
+        event.setReadingEvent(type);
+        event.setOccurredAt(Instant.parse("2025-03-01T10:00:00Z"));
+        return event;
+    }
+
+    private void stubEventCreation() {
+        when(userService.getUserByEmail(EMAIL)).thenReturn(user);
+        when(bookService.getBookByIsbn(ISBN)).thenReturn(book);
+        when(readingStateRepository.findForUpdate(any())).thenReturn(Optional.empty());
+    }
+
+    @Nested
+    @DisplayName("Before the reading states are derived")
+    class NotBackfilled {
+
+        @Test
+        @DisplayName("Should check a transition against the latest event when the state is missing")
+        void createReadEvent_NoState_UsesLatestEvent() {
+            stubEventCreation();
+            when(bookReadEventRepository.findFirstByUser_IdAndBook_IsbnOrderByOccurredAtDescIdDesc(1L, ISBN))
+                    .thenReturn(Optional.of(event(ReadingEventType.FINISHED_READING)));
+
+            assertThrows(InvalidReadingEventTransitionException.class,
+                    () -> bookReadEventService.createReadEvent(EMAIL, ISBN, ReadingEventType.STARTED_READING));
+            verify(bookReadEventRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should accept a restart after the latest event and not treat the book as new")
+        void createReadEvent_NoState_Restart() {
+            stubEventCreation();
+            when(bookReadEventRepository.findFirstByUser_IdAndBook_IsbnOrderByOccurredAtDescIdDesc(1L, ISBN))
+                    .thenReturn(Optional.of(event(ReadingEventType.ABANDONED_READING)));
+            when(bookReadEventRepository.save(any(BookReadEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+            bookReadEventService.createReadEvent(EMAIL, ISBN, ReadingEventType.RESTARTED_READING);
+
+            verify(readingStateRepository).save(any(UserBookReadingState.class));
+            verify(recommendationService, never()).invalidateAfterCommit(any());
+        }
+
+        @Test
+        @DisplayName("Should answer the latest event when the state is missing")
+        void getLatestReadingEvent_NoState_UsesLatestEvent() {
+            when(bookReadEventRepository.findFirstByUser_IdAndBook_IsbnOrderByOccurredAtDescIdDesc(1L, ISBN))
+                    .thenReturn(Optional.of(event(ReadingEventType.STARTED_READING)));
+
+            assertEquals(ReadingEventType.STARTED_READING, bookReadEventService.getLatestReadingEvent(1L, ISBN));
+        }
+    }
+
+    @Nested
+    @DisplayName("Backfill")
+    class Backfill {
+
+        @Test
+        @DisplayName("Should only check for missing states once they were all derived")
+        void backfillReadingStates_NothingMissing() {
+            when(readingStateRepository.existsEventWithoutState()).thenReturn(false);
+
+            bookReadEventService.backfillReadingStates();
+
+            verify(readingStateRepository, never()).backfill(anyLong(), anyLong());
+            assertNull(bookReadEventService.getLatestReadingEvent(1L, ISBN));
+            verifyNoInteractions(bookReadEventRepository);
+        }
+
+        @Test
+        @DisplayName("Should derive the states by range of users, one transaction each")
+        void backfillReadingStates_Batches() {
+            when(readingStateRepository.existsEventWithoutState()).thenReturn(true);
+            when(bookReadEventRepository.findMaxUserId()).thenReturn(Optional.of(1200L));
+
+            bookReadEventService.backfillReadingStates();
+
+            InOrder order = inOrder(readingStateRepository);
+            order.verify(readingStateRepository).backfill(1L, 500L);
+            order.verify(readingStateRepository).backfill(501L, 1000L);
+            order.verify(readingStateRepository).backfill(1001L, 1200L);
+            verify(transactionTemplate, times(3)).execute(any());
+        }
+
+        @Test
+        @DisplayName("Should run a range again when a state was created live meanwhile")
+        void backfillReadingStates_Conflict_Retried() {
+            when(readingStateRepository.existsEventWithoutState()).thenReturn(true);
+            when(bookReadEventRepository.findMaxUserId()).thenReturn(Optional.of(10L));
+            when(readingStateRepository.backfill(1L, 10L))
+                    .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                    .thenReturn(4);
+
+            bookReadEventService.backfillReadingStates();
+
+            verify(readingStateRepository, times(2)).backfill(1L, 10L);
+            assertNull(bookReadEventService.getLatestReadingEvent(1L, ISBN));
+            verify(bookReadEventRepository, never()).findFirstByUser_IdAndBook_IsbnOrderByOccurredAtDescIdDesc(any(), any());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.Author;
+import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Subject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.index(book("111", "Crime and Punishment", "Fyodor", "Dostoevsky", "Classics"));
+        index.index(book("222", "The Brothers Karamazov", "Fyodor", "Dostoevsky", "Philosophy"));
+        index.index(book("333", "Les Misérables", "Victor", "Hugo", "Classics"));
+    }
+
+    private Book book(String isbn, String title, String firstName, String lastName, String subjectName) {
+        Author author = new Author();
+        author.setFirstName(firstName);
+        author.setLastName(lastName);
+
+        Subject subject = new Subject();
+        subject.setName(subjectName);
+
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle(title);
+        book.setDescription("A novel");
+        book.setAuthors(new HashSet<>(Set.of(author)));
+        book.setSubjects(new HashSet<>(Set.of(subject)));
+        return book;
+    }
+
+    @Test
+    @DisplayName("Should rank a title match above an author match")
+    void search_TitleMatch_RankedFirst() {
+        index.index(book("444", "Notes on Hugo", "Jane", "Smith", "Essays"));
+
+        List<BookSearchIndex.SearchHit> hits = index.search("hugo", 10);
+
+        assertEquals(List.of("444", "333"), hits.stream().map(BookSearchIndex.SearchHit::isbn).toList());
+    }
+
+    @Test
+    @DisplayName("Should match prefixes, accents and typos")
+    void search_PrefixAccentAndTypo_Match() {
+        assertEquals("222", index.search("karam", 10).get(0).isbn());
+        assertEquals("333", index.search("miserables", 10).get(0).isbn());
+        assertEquals(2, index.search("dostoyevsky", 10).size());
+    }
+
+    @Test
+    @DisplayName("Should match transpositions and typos on the first letter")
+    void search_FuzzyEdges_Match() {
+        assertEquals("111", index.search("crmie", 10).get(0).isbn());
+        assertEquals("333", index.search("bugo", 10).get(0).isbn());
+        assertTrue(index.search("zzzz", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should pad bigrams so the first and last letters count")
+    void grams_Padded() {
+        assertEquals(Set.of("^h", "hu", "ug", "go", "o$"), BookSearchIndex.grams("hugo"));
+    }
+
+    @Test
+    @DisplayName("Should require every term to match")
+    void match_AllTermsRequired() {
+        assertEquals(Set.of("111"), index.match("crime dostoevsky", EnumSet.allOf(BookSearchIndex.Field.class)).keySet());
+        assertTrue(index.match("crime hugo", EnumSet.allOf(BookSearchIndex.Field.class)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should restrict matches to the requested fields")
+    void match_FieldRestricted() {
+        assertTrue(index.match("classics", EnumSet.of(BookSearchIndex.Field.TITLE)).isEmpty());
+        assertEquals(Set.of("111", "333"), index.match("classics", EnumSet.of(BookSearchIndex.Field.SUBJECT)).keySet());
+    }
+
+    @Test
+    @DisplayName("Should forget old tokens when a book is re-indexed or removed")
+    void indexAndRemove_KeepPostingsConsistent() {
+        index.index(book("111", "War and Peace", "Leo", "Tolstoy", "Classics"));
+        assertTrue(index.search("crime", 10).isEmpty());
+        assertEquals("111", index.search("tolstoy", 10).get(0).isbn());
+
+        index.remove("111");
+        assertTrue(index.search("tolstoy", 10).isEmpty());
+        assertTrue(index.search("tolstoi", 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+}
@@ -1,19 +1,39 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.AuthorizationDecisionCache.Check;
+import com.prj2.booksta.config.CatalogCache;
 import com.prj2.booksta.model.*;
+import com.prj2.booksta.model.dto.BookCatalogEntry;
+import com.prj2.booksta.model.dto.BookCatalogPage;
+import com.prj2.booksta.model.dto.BookDeletionResult;
+import com.prj2.booksta.model.dto.BookFilterRequest;
+import com.prj2.booksta.model.dto.FacetedBookPage;
 import com.prj2.booksta.repository.*;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.*;
+import java.util.stream.Stream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,6 +52,9 @@ class BookServiceTest {
     @Mock
     private ReadingSessionRepository readingSessionRepository;
 
+    @Mock
+    private UserBookReadingStateRepository readingStateRepository;
+
     @Mock
     private ReadingProgressRepository readingProgressRepository;
 
@@ -56,6 +79,27 @@ class BookServiceTest {
     @Mock
     private AuthorService authorService;
 
+    @Mock
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
+    @Spy
+    private BookSearchIndex bookSearchIndex = new BookSearchIndex();
+
+    @Spy
+    private BookFacetIndex bookFacetIndex = new BookFacetIndex();
+
+    @Mock
+    private AuthorizationDecisionCache decisionCache;
+
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private BookService bookService;
 
@@ -147,44 +191,152 @@ class BookServiceTest {
         }
     }
 
+    private void buildSearchIndexes() {
+        when(bookRepository.streamAll()).thenReturn(Stream.of(testBook));
+        bookService.rebuildSearchIndex();
+    }
+
     @Nested
     @DisplayName("searchBooks tests")
     class SearchBooksTests {
 
+        @BeforeEach
+        void indexTestBook() {
+            buildSearchIndexes();
+        }
+
         @Test
         @DisplayName("Should search by title only")
         void searchBooks_ByTitleOnly_ReturnsMatchingBooks() {
-            when(bookRepository.searchBooks("Test", null, null, null))
+            when(bookRepository.findAll(ArgumentMatchers.<Specification<Book>>any()))
                     .thenReturn(Collections.singletonList(testBook));
 
             List<Book> result = bookService.searchBooks("Test", null, null, null);
 
             assertEquals(1, result.size());
             assertEquals("Test Book", result.get(0).getTitle());
-            verify(bookRepository).searchBooks("Test", null, null, null);
+            verify(bookRepository, never()).searchBooks(any(), any(), any(), any());
         }
 
         @Test
         @DisplayName("Should search by multiple criteria")
         void searchBooks_ByMultipleCriteria_ReturnsMatchingBooks() {
-            when(bookRepository.searchBooks("Test", "John", "Fiction", 2023))
+            when(bookRepository.findAll(ArgumentMatchers.<Specification<Book>>any()))
                     .thenReturn(Collections.singletonList(testBook));
 
             List<Book> result = bookService.searchBooks("Test", "John", "Fiction", 2023);
 
             assertEquals(1, result.size());
-            verify(bookRepository).searchBooks("Test", "John", "Fiction", 2023);
+            verify(bookRepository).findAll(ArgumentMatchers.<Specification<Book>>any());
         }
 
         @Test
         @DisplayName("Should return empty list when no matches found")
         void searchBooks_NoMatches_ReturnsEmptyList() {
-            when(bookRepository.searchBooks("Nonexistent", null, null, null))
-                    .thenReturn(Collections.emptyList());
-
             List<Book> result = bookService.searchBooks("Nonexistent", null, null, null);
 
             assertTrue(result.isEmpty());
+            verify(bookRepository, never()).findAll(ArgumentMatchers.<Specification<Book>>any());
+        }
+
+        @Test
+        @DisplayName("Should keep a book removed after commit while the indexes were building")
+        void rebuildSearchIndex_RemovedDuringBuild_StaysRemoved() {
+            Book other = new Book();
+            other.setIsbn("9780000000001");
+            other.setTitle("Test Other");
+            when(bookRepository.streamAll()).thenReturn(Stream.of(testBook, other).peek(book -> {
+                if (book == testBook) {
+                    // Deleted and committed after the build read it
+                    bookService.deleteAll(List.of(other.getIsbn()));
+                }
+            }));
+            when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(List.of(other.getIsbn()));
+
+            bookService.rebuildSearchIndex();
+
+            assertEquals(1, bookSearchIndex.size());
+            assertTrue(bookSearchIndex.match("other", EnumSet.allOf(BookSearchIndex.Field.class)).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should tolerate a typo in the author name")
+        void searchBooks_AuthorTypo_ReturnsMatchingBooks() {
+            testAuthor.setLastName("Dostoevsky");
+            bookSearchIndex.index(testBook);
+            when(bookRepository.findAll(ArgumentMatchers.<Specification<Book>>any()))
+                    .thenReturn(Collections.singletonList(testBook));
+
+            List<Book> result = bookService.searchBooks(null, "Dostoyevsky", null, null);
+
+            assertEquals(1, result.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Searches before the indexes are built")
+    class IndexNotBuiltTests {
+
+        @Test
+        @DisplayName("Should search the database instead of returning nothing")
+        void searchBooks_IndexNotBuilt_UsesDatabase() {
+            when(bookRepository.searchBooks("Test", null, null, null)).thenReturn(List.of(testBook));
+
+            assertEquals(List.of(testBook), bookService.searchBooks("Test", null, null, null));
+            assertEquals(List.of(testBook), bookService.fullTextSearch("Test", 10));
+        }
+
+        @Test
+        @DisplayName("Should page filtered books from the database, without facet counts")
+        void filterBooksFaceted_IndexNotBuilt_UsesDatabase() {
+            when(bookRepository.findAll(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class)))
+                    .thenReturn(new PageImpl<>(List.of(testBook), PageRequest.of(0, 20), 1));
+
+            FacetedBookPage result = bookService.filterBooksFaceted(new BookFilterRequest(), 0, 20);
+
+            assertEquals(List.of(testBook), result.books());
+            assertEquals(1, result.totalElements());
+            assertTrue(result.facets().subjects().isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("filterBooksFaceted tests")
+    class FilterBooksFacetedTests {
+
+        @BeforeEach
+        void indexTestBook() {
+            buildSearchIndexes();
+        }
+
+        @Test
+        @DisplayName("Should load only the books of the page, with the facet counts")
+        void filterBooksFaceted_Match_LoadsPageWithFacets() {
+            when(bookRepository.findAllById(List.of(testBook.getIsbn()))).thenReturn(List.of(testBook));
+
+            FacetedBookPage result = bookService.filterBooksFaceted(
+                    new BookFilterRequest("test", 2020, null, null, null, null, List.of(1L)), 0, 20);
+
+            assertEquals(List.of(testBook), result.books());
+            assertEquals(1, result.totalElements());
+            assertFalse(result.hasNext());
+            assertEquals(Map.of(1L, 1), result.facets().subjects());
+            assertEquals(Map.of(2020, 1), result.facets().decades());
+            assertEquals(Map.of("300-399", 1), result.facets().pageRanges());
+            verify(bookRepository, never()).findAll(ArgumentMatchers.<Specification<Book>>any());
+        }
+
+        @Test
+        @DisplayName("Should clamp the page size and skip the database when nothing matches")
+        void filterBooksFaceted_NoMatch_ReturnsEmptyPage() {
+            FacetedBookPage result = bookService.filterBooksFaceted(
+                    new BookFilterRequest("nonexistent", null, null, null, null, null, null), -1, 1000);
+
+            assertTrue(result.books().isEmpty());
+            assertEquals(0, result.page());
+            assertEquals(100, result.size());
+            assertEquals(0, result.totalElements());
+            verify(bookRepository, never()).findAllById(any());
         }
     }
 
@@ -213,68 +365,81 @@ class BookServiceTest {
         @DisplayName("Should delete book and all related entities")
         void delete_ExistingBook_DeletesBookAndRelatedEntities() throws Exception {
             String isbn = "9781234567890";
-            testBook.setImage(new Image("http://example.com/image.png"));
+            List<String> isbns = List.of(isbn);
 
-            when(bookRepository.findById(isbn)).thenReturn(Optional.of(testBook));
-            when(bookCollectionRepository.findByBooksIsbn(isbn)).thenReturn(Collections.emptyList());
-            when(userRepository.findAll()).thenReturn(Collections.emptyList());
+            when(bookRepository.existsById(isbn)).thenReturn(true);
+            when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(isbns);
+            when(bookRepository.findIsbnsWithImage(isbns)).thenReturn(isbns);
 
             bookService.delete(isbn);
 
-            verify(bookReportRepository).deleteByBook_Isbn(isbn);
-            verify(bookReadEventRepository).deleteByBook_Isbn(isbn);
-            verify(readingSessionRepository).deleteByBook_Isbn(isbn);
-            verify(readingProgressRepository).deleteByBook_Isbn(isbn);
-            verify(userBookInventoryRepository).deleteByBook_Isbn(isbn);
-            verify(bookRepository).delete(testBook);
+            verify(bookReportRepository).deleteAllByBookIsbnIn(isbns);
+            verify(readingStateRepository).deleteAllByBookIsbnIn(isbns);
+            verify(bookReadEventRepository).deleteAllByBookIsbnIn(isbns);
+            verify(readingSessionRepository).deleteAllByBookIsbnIn(isbns);
+            verify(readingProgressRepository).deleteAllByBookIsbnIn(isbns);
+            verify(userBookInventoryRepository).deleteAllByBookIsbnIn(isbns);
+            verify(bookRepository).deleteAllByIsbnIn(isbns);
+            verify(fileStorageService).deleteBookImage(isbn);
         }
 
         @Test
         @DisplayName("Should throw exception when book not found")
         void delete_NonExistentBook_ThrowsException() {
-            when(bookRepository.findById("nonexistent")).thenReturn(Optional.empty());
+            when(bookRepository.existsById("nonexistent")).thenReturn(false);
 
             assertThrows(EntityNotFoundException.class, () -> bookService.delete("nonexistent"));
 
-            verify(bookRepository, never()).delete(any(Book.class));
+            verify(bookRepository, never()).deleteAllByIsbnIn(anyCollection());
         }
 
         @Test
-        @DisplayName("Should remove book from collections")
-        void delete_BookInCollections_RemovesFromCollections() throws Exception {
+        @DisplayName("Should remove book from collections, favorites and owned books without loading users")
+        void delete_BookReferencedByUsers_UsesSetBasedStatements() {
             String isbn = "9781234567890";
-            BookCollection collection = new BookCollection();
-            collection.setId(1L);
-            collection.setBooks(new HashSet<>(Set.of(testBook)));
+            List<String> isbns = List.of(isbn);
 
-            when(bookRepository.findById(isbn)).thenReturn(Optional.of(testBook));
-            when(bookCollectionRepository.findByBooksIsbn(isbn)).thenReturn(List.of(collection));
-            when(userRepository.findAll()).thenReturn(Collections.emptyList());
+            when(bookRepository.existsById(isbn)).thenReturn(true);
+            when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(isbns);
 
             bookService.delete(isbn);
 
-            verify(bookCollectionRepository).save(collection);
-            assertFalse(collection.getBooks().contains(testBook));
+            verify(bookCollectionRepository).removeBooksFromAllCollections(isbns);
+            verify(userRepository).removeBooksFromAllFavorites(isbns);
+            verify(userRepository).removeBooksFromAllOwnedBooks(isbns);
+            verify(userRepository, never()).findAll();
+            verify(bookCollectionRepository, never()).save(any(BookCollection.class));
         }
 
         @Test
-        @DisplayName("Should remove book from user favorites and owned books")
-        void delete_BookInUserFavorites_RemovesFromFavorites() throws Exception {
-            String isbn = "9781234567890";
-            User user = new User();
-            user.setId(1L);
-            user.setFavoriteList(new HashSet<>(Set.of(testBook)));
-            user.setOwnedBooks(new HashSet<>(Set.of(testBook)));
+        @DisplayName("Should report affected rows and unknown isbns for a batch")
+        void deleteAll_MixedIsbns_ReportsCounts() {
+            List<String> isbns = List.of("111", "222");
+
+            when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(List.of("111"));
+            when(userRepository.removeBooksFromAllFavorites(List.of("111"))).thenReturn(3);
+            when(bookRepository.deleteAllByIsbnIn(List.of("111"))).thenReturn(1);
+
+            BookDeletionResult result = bookService.deleteAll(isbns);
+
+            assertEquals(1, result.books());
+            assertEquals(3, result.favorites());
+            assertEquals(List.of("222"), result.notFound());
+            verify(decisionCache).invalidateResources(
+                    EnumSet.of(Check.OWNS_BOOK, Check.READS_BOOK, Check.AUTHOR_OF_BOOK), List.of("111"));
+            verify(decisionCache, never()).invalidateResource(any(), any());
+        }
 
-            when(bookRepository.findById(isbn)).thenReturn(Optional.of(testBook));
-            when(bookCollectionRepository.findByBooksIsbn(isbn)).thenReturn(Collections.emptyList());
-            when(userRepository.findAll()).thenReturn(List.of(user));
+        @Test
+        @DisplayName("Should do nothing when none of the isbns exist")
+        void deleteAll_NoExistingBooks_DeletesNothing() {
+            when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(Collections.emptyList());
 
-            bookService.delete(isbn);
+            BookDeletionResult result = bookService.deleteAll(List.of("nope"));
 
-            verify(userRepository).save(user);
-            assertFalse(user.getFavoriteList().contains(testBook));
-            assertFalse(user.getOwnedBooks().contains(testBook));
+            assertEquals(0, result.books());
+            assertEquals(List.of("nope"), result.notFound());
+            verify(bookRepository, never()).deleteAllByIsbnIn(anyCollection());
         }
     }
 
@@ -354,4 +519,57 @@ class BookServiceTest {
             assertFalse(result);
         }
     }
+
+    @Nested
+    @DisplayName("getCatalogPage tests")
+    class GetCatalogPageTests {
+
+        @Test
+        @DisplayName("Should return first page with a cursor when more books exist")
+        void getCatalogPage_MoreBooksExist_ReturnsCursor() {
+            BookCatalogEntry first = new BookCatalogEntry("111", "First", 2001, 100L, null);
+            BookCatalogEntry second = new BookCatalogEntry("222", "Second", 2002, 200L, null);
+            when(bookRepository.findCatalogFirstPage(any(Pageable.class))).thenReturn(List.of(first, second));
+
+            BookCatalogPage page = bookService.getCatalogPage(null, 1);
+
+            assertEquals(List.of(first), page.books());
+            assertTrue(page.hasMore());
+            assertNotNull(page.nextCursor());
+            verify(bookRepository).findCatalogFirstPage(PageRequest.of(0, 2));
+        }
+
+        @Test
+        @DisplayName("Should resume after the key encoded in the cursor")
+        void getCatalogPage_WithCursor_QueriesAfterKey() {
+            String cursor = BookService.encodeCursor(new BookCatalogEntry("111", "First", 2001, 100L, null));
+            when(bookRepository.findCatalogPageAfter(eq(2001), eq("111"), any(Pageable.class)))
+                    .thenReturn(Collections.emptyList());
+
+            BookCatalogPage page = bookService.getCatalogPage(cursor, null);
+
+            assertTrue(page.books().isEmpty());
+            assertFalse(page.hasMore());
+            assertNull(page.nextCursor());
+            verify(bookRepository).findCatalogPageAfter(2001, "111",
+                    PageRequest.of(0, BookService.DEFAULT_CATALOG_PAGE_SIZE + 1));
+        }
+
+        @Test
+        @DisplayName("Should clamp the page size to the maximum")
+        void getCatalogPage_LimitTooLarge_IsClamped() {
+            when(bookRepository.findCatalogFirstPage(any(Pageable.class))).thenReturn(Collections.emptyList());
+
+            bookService.getCatalogPage(null, 10_000);
+
+            verify(bookRepository).findCatalogFirstPage(PageRequest.of(0, BookService.MAX_CATALOG_PAGE_SIZE + 1));
+        }
+
+        @Test
+        @DisplayName("Should reject a malformed cursor")
+        void getCatalogPage_InvalidCursor_ThrowsException() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> bookService.getCatalogPage("not-a-cursor", 10));
+        }
+    }
 }
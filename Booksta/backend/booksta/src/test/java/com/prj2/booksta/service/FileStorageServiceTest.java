@@ -0,0 +1,131 @@
+package com.prj2.booksta.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileStorageServiceTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private ImageVariantGenerator variantGenerator;
+
+    @InjectMocks
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fileStorageService, "bucket", "booksta");
+        ReflectionTestUtils.setField(fileStorageService, "s3PublicUrl", "https://cdn.booksta.test");
+        ReflectionTestUtils.setField(fileStorageService, "remoteVariants",
+                new RemoteVariantCache(100, 60_000L, Clock.systemUTC()));
+        lenient().when(variantGenerator.closestWidth(200)).thenReturn(160);
+    }
+
+    @Test
+    @DisplayName("Should redirect to the variant and remember it")
+    void getRemoteImageUrl_VariantFound_Cached() {
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        URI first = fileStorageService.getRemoteImageUrl("books", "1", "v1", 200);
+        URI second = fileStorageService.getRemoteImageUrl("books", "1", "v1", 200);
+
+        assertEquals(URI.create("https://cdn.booksta.test/books/1_w160.jpg?v=v1"), first);
+        assertEquals(first, second);
+        verify(s3Client, times(1)).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the original on a missing variant and not ask again right away")
+    void getRemoteImageUrl_VariantMissing_MissCached() {
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+
+        URI first = fileStorageService.getRemoteImageUrl("books", "1", "v1", 200);
+        URI second = fileStorageService.getRemoteImageUrl("books", "1", "v1", 200);
+
+        assertEquals(URI.create("https://cdn.booksta.test/books/1.png?v=v1"), first);
+        assertEquals(first, second);
+        verify(s3Client, times(1)).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should treat 403 as missing, as S3 answers without s3:ListBucket")
+    void getRemoteImageUrl_Forbidden_FallsBackToOriginal() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).message("Access Denied").build());
+
+        URI url = fileStorageService.getRemoteImageUrl("books", "1", "v1", 200);
+
+        assertEquals(URI.create("https://cdn.booksta.test/books/1.png?v=v1"), url);
+    }
+
+    @Test
+    @DisplayName("Should still fail on other S3 errors")
+    void getRemoteImageUrl_ServerError_Throws() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(500).message("Internal Error").build());
+
+        assertThrows(S3Exception.class, () -> fileStorageService.getRemoteImageUrl("books", "1", "v1", 200));
+    }
+
+    @Test
+    @DisplayName("Should not write the variants of a blob deleted while they were queued")
+    void storeBlob_DeletedBeforeVariants_NothingWritten() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        ReflectionTestUtils.setField(fileStorageService, "imageWorkers",
+                new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+                    @Override
+                    public void execute(Runnable command) {
+                        queued.add(command);
+                    }
+                });
+        when(variantGenerator.getWidths()).thenReturn(new int[]{160});
+        when(variantGenerator.render(any())).thenReturn(Map.of(160, new byte[]{9}));
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+        String hash = "a".repeat(64);
+        Path source = Files.write(Files.createTempFile("upload", ".png"), new byte[]{1, 2, 3});
+
+        try {
+            fileStorageService.storeBlob(hash, source, "image/png");
+            fileStorageService.deleteBlob(hash);
+            queued.forEach(Runnable::run);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+
+        verify(s3Client, times(1)).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3Client).putObject(argThat((PutObjectRequest request) -> request.key().equals("blobs/" + hash + ".png")),
+                any(RequestBody.class));
+    }
+}
@@ -0,0 +1,76 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.repository.ImageBlobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageBlobSweeperTest {
+
+    @Mock
+    private ImageBlobRepository imageBlobRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ImageBlobSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sweeper = new ImageBlobSweeper(imageBlobRepository, fileStorageService, meterRegistry, 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should delete orphaned blobs from the table and from storage")
+    void sweep_DeletesOrphans() throws IOException {
+        when(imageBlobRepository.findOrphanHashes(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of("aa", "bb"));
+        when(imageBlobRepository.countReferences(anyString())).thenReturn(0L);
+        when(imageBlobRepository.deleteIfUnused(anyString(), any(LocalDateTime.class))).thenReturn(1);
+
+        assertEquals(2, sweeper.sweep());
+
+        verify(fileStorageService).deleteBlob("aa");
+        verify(fileStorageService).deleteBlob("bb");
+        assertEquals(2.0, meterRegistry.get("booksta.images.blobs.swept").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should keep a blob referenced or uploaded again since it was listed")
+    void sweep_SkipsRevivedBlobs() throws IOException {
+        when(imageBlobRepository.findOrphanHashes(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of("aa", "bb"));
+        when(imageBlobRepository.countReferences("aa")).thenReturn(1L);
+        when(imageBlobRepository.countReferences("bb")).thenReturn(0L);
+        when(imageBlobRepository.deleteIfUnused(eq("bb"), any(LocalDateTime.class))).thenReturn(0);
+
+        assertEquals(0, sweeper.sweep());
+
+        verify(fileStorageService, never()).deleteBlob(anyString());
+        verify(imageBlobRepository, never()).deleteIfUnused(eq("aa"), any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,43 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.repository.ImageRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageServiceTest {
+
+    private static final String URL = "http://localhost/api/images/books/111?v=abc";
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @InjectMocks
+    private ImageService imageService;
+
+    @Test
+    @DisplayName("Should remember a URL stored on an image")
+    void isIssuedUrl_Stored_Remembered() {
+        when(imageRepository.existsByUrl(URL)).thenReturn(true);
+
+        assertTrue(imageService.isIssuedUrl(URL));
+        assertTrue(imageService.isIssuedUrl(URL));
+        verify(imageRepository, times(1)).existsByUrl(URL);
+    }
+
+    @Test
+    @DisplayName("Should ask again for a URL not found, as it may be stored meanwhile")
+    void isIssuedUrl_NotStored_AskedAgain() {
+        when(imageRepository.existsByUrl(URL)).thenReturn(false, true);
+
+        assertFalse(imageService.isIssuedUrl(URL));
+        assertTrue(imageService.isIssuedUrl(URL));
+    }
+}
@@ -0,0 +1,129 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.Image;
+import com.prj2.booksta.model.ImageBlob;
+import com.prj2.booksta.model.ImageStatus;
+import com.prj2.booksta.repository.ImageBlobRepository;
+import com.prj2.booksta.repository.ImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageUploadQueueTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Mock
+    private ImageBlobRepository imageBlobRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ImageUploadQueue queue;
+
+    private final MockMultipartFile upload = new MockMultipartFile("image", "cover.png", "image/png", new byte[]{1, 2, 3});
+    // SHA-256 of {1, 2, 3}
+    private static final String HASH = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
+    private static final String BLOB_URL = "http://localhost/api/images/blobs/" + HASH;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new ImageUploadQueue(fileStorageService, imageRepository, imageBlobRepository, meterRegistry, 1, 10, 3, 1L, false);
+
+        when(fileStorageService.blobUrl(anyString())).thenAnswer(invocation -> "http://localhost/api/images/blobs/" + invocation.getArgument(0));
+        when(imageRepository.save(any(Image.class))).thenAnswer(invocation -> {
+            Image image = invocation.getArgument(0);
+            image.setId(42L);
+            return image;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should save new content as pending at its blob URL, then store it and mark it ready")
+    void stage_StoresInBackground() throws Exception {
+        Image staged = queue.stage(upload, null);
+
+        assertEquals(ImageStatus.PENDING, staged.getStatus());
+        assertEquals(HASH, staged.getContentHash());
+        assertEquals(BLOB_URL, staged.getUrl());
+
+        verify(imageRepository, timeout(2000)).updateStatus(42L, ImageStatus.READY);
+        // Waits for the job to finish cleaning up after marking the image ready
+        queue.shutdown();
+        ArgumentCaptor<Path> spool = ArgumentCaptor.forClass(Path.class);
+        verify(fileStorageService).storeBlob(eq(HASH), spool.capture(), eq("image/png"));
+        ArgumentCaptor<ImageBlob> blob = ArgumentCaptor.forClass(ImageBlob.class);
+        verify(imageBlobRepository).save(blob.capture());
+        assertEquals(HASH, blob.getValue().getHash());
+        assertEquals(3, blob.getValue().getSize());
+        assertFalse(Files.exists(spool.getValue()));
+        assertEquals(1.0, meterRegistry.get("booksta.images.upload").tag("outcome", "stored").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should point the image at already stored content without writing it again")
+    void stage_KnownContent_Deduplicates() throws Exception {
+        when(imageBlobRepository.touch(eq(HASH), any())).thenReturn(1);
+        Image existing = new Image(7L);
+
+        Image staged = queue.stage(upload, existing);
+
+        assertSame(existing, staged);
+        assertEquals(ImageStatus.READY, staged.getStatus());
+        assertEquals(BLOB_URL, staged.getUrl());
+        verify(fileStorageService, never()).storeBlob(anyString(), any(Path.class), anyString());
+        assertEquals(1.0, meterRegistry.get("booksta.images.upload").tag("outcome", "deduplicated").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should retry a failed store and succeed")
+    void stage_TransientFailure_Retries() throws Exception {
+        doThrow(new IOException("bucket unavailable"))
+                .doThrow(new IOException("bucket unavailable"))
+                .doNothing()
+                .when(fileStorageService).storeBlob(anyString(), any(Path.class), anyString());
+
+        queue.stage(upload, null);
+
+        verify(imageRepository, timeout(2000)).updateStatus(42L, ImageStatus.READY);
+        verify(fileStorageService, times(3)).storeBlob(anyString(), any(Path.class), anyString());
+        assertEquals(2.0, meterRegistry.get("booksta.images.upload.retries").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should mark the image failed once retries are exhausted")
+    void stage_PermanentFailure_MarksFailed() throws Exception {
+        doThrow(new IOException("bucket unavailable"))
+                .when(fileStorageService).storeBlob(anyString(), any(Path.class), anyString());
+
+        queue.stage(upload, null);
+
+        verify(imageRepository, timeout(2000)).updateStatus(42L, ImageStatus.FAILED);
+        verify(imageRepository, never()).updateStatus(42L, ImageStatus.READY);
+        assertEquals(0, queue.getQueueDepth());
+    }
+}
@@ -0,0 +1,70 @@
+package com.prj2.booksta.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantGeneratorTest {
+
+    private final ImageVariantGenerator generator = new ImageVariantGenerator(new int[]{480, 160, 1200}, 0.8f);
+
+    @TempDir
+    Path uploads;
+
+    private Path png(int width, int height, int type) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, type);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return Files.write(uploads.resolve("upload.png"), out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Should render every width as a JPEG keeping the aspect ratio")
+    void render_LargeImage_AllWidths() throws Exception {
+        Map<Integer, byte[]> variants = generator.render(png(2000, 3000, BufferedImage.TYPE_INT_ARGB));
+
+        assertEquals(3, variants.size());
+        for (Map.Entry<Integer, byte[]> variant : variants.entrySet()) {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(variant.getValue()));
+            assertEquals(variant.getKey(), decoded.getWidth());
+            assertEquals(variant.getKey() * 3 / 2, decoded.getHeight(), 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should never upscale a small image")
+    void render_SmallImage_KeepsItsSize() throws Exception {
+        Map<Integer, byte[]> variants = generator.render(png(300, 200, BufferedImage.TYPE_INT_RGB));
+
+        assertEquals(160, ImageIO.read(new ByteArrayInputStream(variants.get(160))).getWidth());
+        assertEquals(300, ImageIO.read(new ByteArrayInputStream(variants.get(480))).getWidth());
+        assertEquals(300, ImageIO.read(new ByteArrayInputStream(variants.get(1200))).getWidth());
+    }
+
+    @Test
+    @DisplayName("Should pick the smallest width covering the request")
+    void closestWidth_PicksCoveringVariant() {
+        assertEquals(160, generator.closestWidth(50));
+        assertEquals(480, generator.closestWidth(161));
+        assertEquals(1200, generator.closestWidth(5000));
+    }
+
+    @Test
+    @DisplayName("Should reject bytes that are not an image")
+    void render_NotAnImage_Throws() throws Exception {
+        Path upload = Files.write(uploads.resolve("upload.png"), new byte[]{1, 2, 3});
+
+        assertThrows(IOException.class, () -> generator.render(upload));
+    }
+}
@@ -34,6 +34,9 @@ class InventoryServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
     private InventoryService inventoryService;
 
     private User mockUser;
@@ -45,6 +48,7 @@ class InventoryServiceTest {
         inventoryService = new InventoryService(inventoryRepository);
         // Manually inject the field-autowired bookRepository
         ReflectionTestUtils.setField(inventoryService, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(inventoryService, "marketplaceStockSnapshot", marketplaceStockSnapshot);
 
         mockUser = new User();
         mockUser.setId(1L);
@@ -92,6 +96,7 @@ class InventoryServiceTest {
         assertEquals(5L, result.getQuantity());
         assertEquals(BigDecimal.valueOf(19.99), result.getPricePerUnit());
         verify(inventoryRepository).save(any(UserBookInventory.class));
+        verify(marketplaceStockSnapshot).refreshAfterCommit("123-ABC");
     }
 
     @Test
@@ -172,6 +177,7 @@ class InventoryServiceTest {
         inventoryService.removeFromInventory(mockUser, "123-ABC");
 
         verify(inventoryRepository).deleteById(any(UserBookInventoryId.class));
+        verify(marketplaceStockSnapshot).refreshAfterCommit("123-ABC");
     }
 
     @Test
@@ -0,0 +1,86 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.Role;
+import com.prj2.booksta.model.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setName("AUTHOR");
+        user = new User();
+        user.setEmail("author@booksta.com");
+        user.setRoles(Set.of(role));
+    }
+
+    private JwtService jwtService(long validityInMs, int verifiedCacheMaxEntries) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", "MyUltraSuperSecretJwtKey1234567890!!");
+        ReflectionTestUtils.setField(jwtService, "validityInMs", validityInMs);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheMaxEntries", verifiedCacheMaxEntries);
+        jwtService.init();
+        return jwtService;
+    }
+
+    @Test
+    @DisplayName("Should return subject, roles and expiry from one parse")
+    void parse_ValidToken_ReturnsAllClaims() {
+        JwtService jwtService = jwtService(3_600_000L, 16);
+        String token = jwtService.generateToken(user);
+
+        JwtService.TokenClaims claims = jwtService.parse(token);
+
+        assertEquals("author@booksta.com", claims.subject());
+        assertEquals(List.of("AUTHOR"), claims.roles());
+        assertNotNull(claims.issuedAt());
+        assertTrue(claims.expiresAt().after(claims.issuedAt()));
+        assertEquals("author@booksta.com", jwtService.extractEmail(token));
+        assertFalse(jwtService.isTokenExpired(token));
+    }
+
+    @Test
+    @DisplayName("Should serve a verified token from the cache")
+    void parse_SameTokenTwice_ReturnsCachedClaims() {
+        JwtService jwtService = jwtService(3_600_000L, 16);
+        String token = jwtService.generateToken(user);
+
+        assertSame(jwtService.parse(token), jwtService.parse(token));
+    }
+
+    @Test
+    @DisplayName("Should verify every time when the cache is disabled")
+    void parse_CacheDisabled_ReturnsFreshClaims() {
+        JwtService jwtService = jwtService(3_600_000L, 0);
+        String token = jwtService.generateToken(user);
+
+        assertNotSame(jwtService.parse(token), jwtService.parse(token));
+    }
+
+    @Test
+    @DisplayName("Should reject tampered and expired tokens")
+    void parse_InvalidTokens_Throw() {
+        JwtService jwtService = jwtService(3_600_000L, 16);
+        String token = jwtService.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThrows(JwtException.class, () -> jwtService.parse(tampered));
+
+        JwtService expiring = jwtService(-1_000L, 16);
+        String expired = expiring.generateToken(user);
+        assertThrows(ExpiredJwtException.class, () -> expiring.parse(expired));
+    }
+}
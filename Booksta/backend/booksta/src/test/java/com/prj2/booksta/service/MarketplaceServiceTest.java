@@ -0,0 +1,97 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.dto.MarketplaceBookListing;
+import com.prj2.booksta.model.dto.MarketplaceListingPage;
+import com.prj2.booksta.model.dto.MarketplaceStock;
+import com.prj2.booksta.repository.BookRepository;
+import com.prj2.booksta.repository.UserBookInventoryRepository;
+import com.prj2.booksta.repository.projections.BookAuthorView;
+import com.prj2.booksta.repository.projections.BookListingView;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MarketplaceServiceTest {
+
+    @Mock
+    private UserBookInventoryRepository inventoryRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
+    @InjectMocks
+    private MarketplaceService marketplaceService;
+
+    private BookListingView bookView(String isbn, String title) {
+        BookListingView view = mock(BookListingView.class);
+        when(view.getIsbn()).thenReturn(isbn);
+        when(view.getTitle()).thenReturn(title);
+        return view;
+    }
+
+    @Test
+    @DisplayName("Should build an in-stock page from the snapshot with two batched queries")
+    void getMarketplaceListings_InStock_UsesSnapshotAndBatchedQueries() {
+        List<String> isbns = List.of("111", "222");
+        BookAuthorView author = mock(BookAuthorView.class);
+        when(author.getBookIsbn()).thenReturn("111");
+        when(author.getLastName()).thenReturn("Hugo");
+
+        when(marketplaceStockSnapshot.inStockIsbns(0, 2)).thenReturn(isbns);
+        when(marketplaceStockSnapshot.size()).thenReturn(3);
+        when(marketplaceStockSnapshot.get("111"))
+                .thenReturn(Optional.of(new MarketplaceStock("111", new BigDecimal("4.50"), 2L, 7L)));
+        when(marketplaceStockSnapshot.get("222"))
+                .thenReturn(Optional.of(new MarketplaceStock("222", BigDecimal.ONE, 1L, 1L)));
+        List<BookListingView> books = List.of(bookView("222", "B"), bookView("111", "A"));
+        when(bookRepository.findListingViews(isbns)).thenReturn(books);
+        when(bookRepository.findAuthorViews(isbns)).thenReturn(List.of(author));
+
+        MarketplaceListingPage page = marketplaceService.getMarketplaceListings(true, 0, 2);
+
+        assertEquals(3, page.totalElements());
+        assertTrue(page.hasNext());
+        MarketplaceBookListing first = page.listings().get(0);
+        assertEquals("111", first.getIsbn());
+        assertEquals(new BigDecimal("4.50"), first.getLowestPrice());
+        assertEquals(2, first.getSellerCount());
+        assertEquals(7, first.getTotalQuantityAvailable());
+        assertEquals("Hugo", first.getAuthors().get(0).getLastName());
+        assertTrue(page.listings().get(1).getAuthors().isEmpty());
+        verify(inventoryRepository, never()).findAll();
+        verify(bookRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should list books without stock when inStockOnly is false")
+    void getMarketplaceListings_AllBooks_MarksOutOfStock() {
+        when(bookRepository.findIsbns(PageRequest.of(0, 20))).thenReturn(List.of("333"));
+        when(bookRepository.count()).thenReturn(1L);
+        List<BookListingView> books = List.of(bookView("333", "C"));
+        when(bookRepository.findListingViews(List.of("333"))).thenReturn(books);
+        when(bookRepository.findAuthorViews(List.of("333"))).thenReturn(Collections.emptyList());
+        when(marketplaceStockSnapshot.get("333")).thenReturn(Optional.empty());
+
+        MarketplaceListingPage page = marketplaceService.getMarketplaceListings(false, 0, 20);
+
+        assertFalse(page.hasNext());
+        assertFalse(page.listings().get(0).isInStock());
+        assertNull(page.listings().get(0).getLowestPrice());
+    }
+}
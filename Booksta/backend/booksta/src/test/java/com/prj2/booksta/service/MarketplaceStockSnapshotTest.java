@@ -0,0 +1,123 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.dto.MarketplaceStock;
+import com.prj2.booksta.repository.UserBookInventoryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MarketplaceStockSnapshotTest {
+
+    @Mock
+    private UserBookInventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private MarketplaceStockSnapshot snapshot;
+
+    private static MarketplaceStock stock(String isbn, long quantity) {
+        return new MarketplaceStock(isbn, BigDecimal.TEN, 1L, quantity);
+    }
+
+    @Test
+    @DisplayName("Should page in isbn order from any offset")
+    void inStockIsbns_Offset() {
+        when(inventoryRepository.aggregateStock()).thenReturn(List.of(
+                stock("444", 1), stock("111", 1), stock("333", 1), stock("222", 1)));
+
+        assertEquals(List.of("222", "333"), snapshot.inStockIsbns(1, 2));
+        assertEquals(List.of("444"), snapshot.inStockIsbns(3, 20));
+        assertTrue(snapshot.inStockIsbns(10, 20).isEmpty());
+        assertEquals(4, snapshot.size());
+    }
+
+    @Test
+    @DisplayName("Should list a book entering or leaving the marketplace after a refresh")
+    void refresh_KeysChanged_Listed() {
+        when(inventoryRepository.aggregateStock()).thenReturn(List.of(stock("111", 1), stock("333", 1)));
+        assertEquals(List.of("111", "333"), snapshot.inStockIsbns(0, 20));
+
+        when(inventoryRepository.aggregateStockForBook("222")).thenReturn(Optional.of(stock("222", 1)));
+        when(inventoryRepository.aggregateStockForBook("333")).thenReturn(Optional.empty());
+        snapshot.refresh("222");
+        snapshot.refresh("333");
+
+        assertEquals(List.of("111", "222"), snapshot.inStockIsbns(0, 20));
+        assertEquals(2, snapshot.size());
+    }
+
+    @Test
+    @DisplayName("Should keep the newer count when an older read finishes last")
+    void refresh_OlderReadFinishesLast_Dropped() {
+        when(inventoryRepository.aggregateStock()).thenReturn(List.of(stock("111", 1)));
+        snapshot.size();
+
+        AtomicInteger reads = new AtomicInteger();
+        when(inventoryRepository.aggregateStockForBook("111")).thenAnswer(invocation -> {
+            if (reads.incrementAndGet() == 1) {
+                // A later refresh reads and applies the newer count meanwhile
+                snapshot.refresh("111");
+                return Optional.of(stock("111", 2));
+            }
+            return Optional.of(stock("111", 3));
+        });
+        snapshot.refresh("111");
+
+        assertEquals(3, snapshot.get("111").orElseThrow().totalQuantity());
+    }
+
+    @Test
+    @DisplayName("Should not bring back a deleted book from a read made before the deletion")
+    void evict_OlderReadFinishesLast_Dropped() {
+        when(inventoryRepository.aggregateStock()).thenReturn(List.of(stock("111", 1)));
+        snapshot.size();
+
+        when(inventoryRepository.aggregateStockForBook("111")).thenAnswer(invocation -> {
+            snapshot.evict("111");
+            return Optional.of(stock("111", 1));
+        });
+        snapshot.refresh("111");
+
+        assertTrue(snapshot.get("111").isEmpty());
+        assertEquals(0, snapshot.size());
+    }
+
+    @Test
+    @DisplayName("Should serve the previous copy while reloading, then keep refreshes newer than the load")
+    void reload_SwapsAndKeepsNewerRefreshes() {
+        when(inventoryRepository.aggregateStock()).thenReturn(List.of(stock("111", 1)));
+        snapshot.size();
+
+        when(inventoryRepository.aggregateStock()).thenAnswer(invocation -> {
+            assertEquals(1, snapshot.get("111").orElseThrow().totalQuantity());
+            // Committed after the load query read its rows
+            snapshot.refresh("222");
+            return List.of(stock("111", 5));
+        });
+        when(inventoryRepository.aggregateStockForBook("222")).thenReturn(Optional.of(stock("222", 7)));
+        snapshot.reload();
+
+        assertEquals(5, snapshot.get("111").orElseThrow().totalQuantity());
+        assertEquals(7, snapshot.get("222").orElseThrow().totalQuantity());
+        assertEquals(List.of("111", "222"), snapshot.inStockIsbns(0, 20));
+    }
+
+    @Test
+    @DisplayName("Should not query a book before the first load")
+    void refresh_NotLoaded_Skipped() {
+        snapshot.refresh("111");
+
+        verify(inventoryRepository, never()).aggregateStockForBook(any());
+    }
+}
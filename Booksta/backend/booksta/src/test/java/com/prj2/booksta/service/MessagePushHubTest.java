@@ -0,0 +1,82 @@
+package com.prj2.booksta.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessagePushHubTest {
+
+    // Holds drain tasks until the test runs them, like a busy sender pool
+    private final List<Runnable> pending = new ArrayList<>();
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fan events out to every stream of the user only")
+    void publish_DeliversToUserStreams() {
+        MessagePushHub hub = new MessagePushHub(8, 5, 60_000L, Runnable::run);
+
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+        hub.subscribe(2L);
+
+        assertDoesNotThrow(() -> hub.publish(1L, "message", "hello"));
+        assertDoesNotThrow(() -> hub.publish(3L, "message", "nobody listens"));
+        assertEquals(2, hub.connectionCount(1L));
+        assertEquals(1, hub.connectionCount(2L));
+    }
+
+    @Test
+    @DisplayName("Should close the oldest stream past the per-user limit")
+    void subscribe_TooManyStreams_ClosesOldest() {
+        MessagePushHub hub = new MessagePushHub(8, 2, 60_000L, Runnable::run);
+
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+
+        assertEquals(2, hub.connectionCount(1L));
+    }
+
+    @Test
+    @DisplayName("Should disconnect a stream whose buffer overflows instead of blocking")
+    void publish_BufferFull_DropsConnection() {
+        MessagePushHub hub = new MessagePushHub(3, 5, 60_000L, pending::add);
+
+        SseEmitter emitter = hub.subscribe(1L);
+        // "connected" + 2 events fill the buffer while the sender is busy
+        hub.publish(1L, "message", "a");
+        hub.publish(1L, "message", "b");
+        assertEquals(1, hub.connectionCount(1L));
+
+        hub.publish(1L, "message", "c");
+
+        assertEquals(0, hub.connectionCount(1L));
+        runPending();
+        assertThrows(IllegalStateException.class, () -> emitter.send("late"));
+    }
+
+    @Test
+    @DisplayName("Should schedule one drain per burst of events")
+    void publish_Burst_SingleDrain() {
+        MessagePushHub hub = new MessagePushHub(16, 5, 60_000L, pending::add);
+
+        hub.subscribe(1L);
+        hub.publish(1L, "message", "a");
+        hub.publish(1L, "message", "b");
+
+        assertEquals(1, pending.size());
+        runPending();
+        hub.publish(1L, "message", "c");
+        assertEquals(1, pending.size());
+    }
+}
@@ -0,0 +1,183 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.PrivateConversation;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.dto.ConversationPage;
+import com.prj2.booksta.model.dto.ConversationSummary;
+import com.prj2.booksta.model.dto.MessagePage;
+import com.prj2.booksta.model.dto.MessageResponse;
+import com.prj2.booksta.repository.PrivateConversationRepository;
+import com.prj2.booksta.repository.PrivateMessageRepository;
+import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.ConversationInboxView;
+import com.prj2.booksta.repository.projections.PrivateMessageView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrivateMessagingServiceTest {
+
+    @Mock
+    private PrivateConversationRepository conversationRepository;
+
+    @Mock
+    private PrivateMessageRepository messageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MessagePushHub pushHub;
+
+    @InjectMocks
+    private PrivateMessagingService messagingService;
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    private PrivateConversation conversation;
+
+    private record View(Long id, Long senderId, Long recipientId, String content,
+                        LocalDateTime sentAt, LocalDateTime readAt) implements PrivateMessageView {
+        public Long getId() { return id; }
+        public Long getSenderId() { return senderId; }
+        public Long getRecipientId() { return recipientId; }
+        public String getContent() { return content; }
+        public LocalDateTime getSentAt() { return sentAt; }
+        public LocalDateTime getReadAt() { return readAt; }
+    }
+
+    private record InboxRow(Long conversationId, LocalDateTime lastMessageAt) implements ConversationInboxView {
+        public Long getConversationId() { return conversationId; }
+        public Long getOtherUserId() { return 2L; }
+        public String getOtherFirstName() { return "Bob"; }
+        public String getOtherLastName() { return "Test"; }
+        public String getOtherEmail() { return "bob@booksta.com"; }
+        public String getOtherPicture() { return null; }
+        public String getLastMessagePreview() { return "message"; }
+        public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+        public Long getUnreadCount() { return 0L; }
+    }
+
+    private static View view(long id, long senderId, long recipientId, int minute) {
+        return new View(id, senderId, recipientId, "message " + id, NOW.plusMinutes(minute), null);
+    }
+
+    private static User user(long id, String firstName) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName("Test");
+        user.setEmail(firstName.toLowerCase() + "@booksta.com");
+        return user;
+    }
+
+    @BeforeEach
+    void setUp() {
+        conversation = new PrivateConversation();
+        conversation.setId(7L);
+        conversation.setParticipant1(user(1L, "Alice"));
+        conversation.setParticipant2(user(2L, "Bob"));
+    }
+
+    @Test
+    @DisplayName("Should return the latest messages oldest first with cursors on both ends")
+    void getMessagePage_NoCursor_ReturnsLatestInChronologicalOrder() {
+        when(conversationRepository.findById(7L)).thenReturn(Optional.of(conversation));
+        when(messageRepository.findLatestViews(7L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(view(12, 2, 1, 3), view(11, 1, 2, 2), view(10, 2, 1, 1)));
+
+        MessagePage page = messagingService.getMessagePage(7L, 1L, null, null, 2);
+
+        assertEquals(List.of(11L, 12L), page.messages().stream().map(MessageResponse::getId).toList());
+        assertTrue(page.hasMore());
+        assertEquals(new PrivateMessagingService.TimeCursor(NOW.plusMinutes(2), 11L),
+                PrivateMessagingService.decodeCursor(page.beforeCursor()));
+        assertEquals(new PrivateMessagingService.TimeCursor(NOW.plusMinutes(3), 12L),
+                PrivateMessagingService.decodeCursor(page.afterCursor()));
+
+        // One summary per participant, shared by every message
+        assertSame(page.messages().get(0).getSender(), page.messages().get(1).getRecipient());
+        assertEquals("Alice", page.messages().get(0).getSender().getFirstName());
+    }
+
+    @Test
+    @DisplayName("Should load older and newer messages from a cursor")
+    void getMessagePage_Cursors_QueryTheRightDirection() {
+        when(conversationRepository.findById(7L)).thenReturn(Optional.of(conversation));
+        String cursor = PrivateMessagingService.encodeCursor(NOW, 10L);
+        when(messageRepository.findViewsBefore(7L, NOW, 10L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(view(9, 1, 2, -1), view(8, 2, 1, -2)));
+        when(messageRepository.findViewsAfter(7L, NOW, 10L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(view(11, 1, 2, 1)));
+
+        MessagePage older = messagingService.getMessagePage(7L, 2L, cursor, null, 2);
+        MessagePage newer = messagingService.getMessagePage(7L, 2L, null, cursor, 2);
+
+        assertEquals(List.of(8L, 9L), older.messages().stream().map(MessageResponse::getId).toList());
+        assertFalse(older.hasMore());
+        assertEquals(List.of(11L), newer.messages().stream().map(MessageResponse::getId).toList());
+        assertFalse(newer.hasMore());
+    }
+
+    @Test
+    @DisplayName("Should reject outsiders, both cursors at once and malformed cursors")
+    void getMessagePage_InvalidRequests_Throw() {
+        when(conversationRepository.findById(7L)).thenReturn(Optional.of(conversation));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> messagingService.getMessagePage(7L, 3L, null, null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> messagingService.getMessagePage(7L, 1L, "a", "b", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> messagingService.getMessagePage(7L, 1L, "not-a-cursor", null, 10));
+        verify(messageRepository, never()).findLatestViews(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return an empty inbox page without a cursor")
+    void getInboxPage_NoConversations_ReturnsEmptyPage() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "Alice")));
+        when(conversationRepository.findInbox(1L, PageRequest.of(0, 3))).thenReturn(List.of());
+
+        ConversationPage page = messagingService.getInboxPage(1L, null, 2);
+
+        assertTrue(page.conversations().isEmpty());
+        assertFalse(page.hasMore());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should end the inbox on the last page and past it")
+    void getInboxPage_LastPage_HasNoNextCursor() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "Alice")));
+        String cursor = PrivateMessagingService.encodeCursor(NOW, 10L);
+        when(conversationRepository.findInboxBefore(1L, NOW, 10L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(new InboxRow(9L, NOW.minusMinutes(1))));
+        String pastEnd = PrivateMessagingService.encodeCursor(NOW.minusMinutes(1), 9L);
+        when(conversationRepository.findInboxBefore(1L, NOW.minusMinutes(1), 9L, PageRequest.of(0, 3)))
+                .thenReturn(List.of());
+
+        ConversationPage last = messagingService.getInboxPage(1L, cursor, 2);
+        ConversationPage empty = messagingService.getInboxPage(1L, pastEnd, 2);
+
+        assertEquals(List.of(9L), last.conversations().stream().map(ConversationSummary::getConversationId).toList());
+        assertFalse(last.hasMore());
+        assertNull(last.nextCursor());
+        assertTrue(empty.conversations().isEmpty());
+        assertNull(empty.nextCursor());
+    }
+}
@@ -0,0 +1,357 @@
+package com.prj2.booksta.service;
+
+import com.prj2.booksta.model.ReadingEventType;
+import com.prj2.booksta.model.ReadingSession;
+import com.prj2.booksta.model.ReadingSessionStatus;
+import com.prj2.booksta.model.User;
+import com.prj2.booksta.model.UserReadingDay;
+import com.prj2.booksta.model.UserReadingDayId;
+import com.prj2.booksta.model.UserReadingStats;
+import com.prj2.booksta.model.dto.ReadingStatsBucket;
+import com.prj2.booksta.model.dto.ReadingStatsResponse;
+import com.prj2.booksta.repository.BookReadEventRepository;
+import com.prj2.booksta.repository.ReadingSessionRepository;
+import com.prj2.booksta.repository.UserReadingDayRepository;
+import com.prj2.booksta.repository.UserReadingStatsRepository;
+import com.prj2.booksta.repository.projections.FinishedSessionView;
+import com.prj2.booksta.repository.projections.ReadEventView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingStatsServiceTest {
+
+    @Mock
+    private UserReadingStatsRepository statsRepository;
+
+    @Mock
+    private UserReadingDayRepository dayRepository;
+
+    @Mock
+    private BookReadEventRepository bookReadEventRepository;
+
+    @Mock
+    private ReadingSessionRepository readingSessionRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private ReadingStatsService readingStatsService;
+
+    private User user;
+    private UserReadingStats stats;
+    private final Map<UserReadingDayId, UserReadingDay> days = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        stats = new UserReadingStats(1L);
+        stats.setUpdatedAt(Instant.EPOCH);
+    }
+
+    private void stubStorage() {
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.of(stats));
+        when(dayRepository.findById(any(UserReadingDayId.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(days.get(invocation.<UserReadingDayId>getArgument(0))));
+        when(dayRepository.save(any(UserReadingDay.class))).thenAnswer(invocation -> {
+            UserReadingDay day = invocation.getArgument(0);
+            days.put(day.getId(), day);
+            return day;
+        });
+    }
+
+    private ReadingSession session(LocalDate day, int startPage, int endPage, long seconds) {
+        ReadingSession session = new ReadingSession();
+        session.setUser(user);
+        session.setStartPage(startPage);
+        session.setEndPage(endPage);
+        session.setTotalActiveSeconds(seconds);
+        session.setEndedAt(day.atTime(20, 0).toInstant(ZoneOffset.UTC));
+        session.setStatus(ReadingSessionStatus.FINISHED);
+        return session;
+    }
+
+    private UserReadingDay day(LocalDate date) {
+        return days.get(new UserReadingDayId(1L, date));
+    }
+
+    @Test
+    @DisplayName("Should add finished sessions to the totals, the day and the streak")
+    void recordSession_UpdatesTotalsAndStreak() {
+        stubStorage();
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+
+        readingStatsService.recordSession(session(monday, 10, 40, 1800));
+        readingStatsService.recordSession(session(monday, 40, 50, 600));
+        readingStatsService.recordSession(session(monday.plusDays(1), 50, 80, 1200));
+
+        assertEquals(70, stats.getPagesRead());
+        assertEquals(3600, stats.getActiveSeconds());
+        assertEquals(3, stats.getSessionsCompleted());
+        assertEquals(2, stats.getReadingDays());
+        assertEquals(2, stats.getCurrentStreak());
+        assertEquals(2, stats.getLongestStreak());
+        assertEquals(monday.plusDays(1), stats.getLastReadingDay());
+        assertEquals(40, day(monday).getPagesRead());
+        assertEquals(2, day(monday).getSessions());
+    }
+
+    @Test
+    @DisplayName("Should restart the streak after a day without reading")
+    void recordSession_GapResetsStreak() {
+        stubStorage();
+        LocalDate day = LocalDate.of(2025, 3, 3);
+
+        readingStatsService.recordSession(session(day, 0, 10, 60));
+        readingStatsService.recordSession(session(day.plusDays(1), 10, 20, 60));
+        readingStatsService.recordSession(session(day.plusDays(3), 20, 30, 60));
+
+        assertEquals(1, stats.getCurrentStreak());
+        assertEquals(2, stats.getLongestStreak());
+    }
+
+    @Test
+    @DisplayName("Should take a deleted session back out of the totals")
+    void removeSession_Subtracts() {
+        stubStorage();
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        ReadingSession session = session(day, 0, 25, 900);
+
+        readingStatsService.recordSession(session);
+        readingStatsService.removeSession(session);
+
+        assertEquals(0, stats.getPagesRead());
+        assertEquals(0, stats.getActiveSeconds());
+        assertEquals(0, stats.getSessionsCompleted());
+        assertEquals(0, stats.getReadingDays());
+        assertEquals(0, day(day).getSessions());
+    }
+
+    @Test
+    @DisplayName("Should count finished and abandoned books on the day they happen")
+    void recordReadEvent_CountsOutcomes() {
+        stubStorage();
+        Instant at = LocalDate.of(2025, 3, 3).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        readingStatsService.recordReadEvent(1L, ReadingEventType.STARTED_READING, at);
+        readingStatsService.recordReadEvent(1L, ReadingEventType.FINISHED_READING, at);
+        readingStatsService.recordReadEvent(1L, ReadingEventType.ABANDONED_READING, at);
+
+        assertEquals(1, stats.getBooksStarted());
+        assertEquals(1, stats.getBooksFinished());
+        assertEquals(1, stats.getBooksAbandoned());
+        assertEquals(1, day(LocalDate.of(2025, 3, 3)).getBooksFinished());
+    }
+
+    @Test
+    @DisplayName("Should not write a day row for a start")
+    void recordReadEvent_Started_NoDayRow() {
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.of(stats));
+
+        readingStatsService.recordReadEvent(1L, ReadingEventType.STARTED_READING, Instant.now());
+
+        assertEquals(1, stats.getBooksStarted());
+        verifyNoInteractions(dayRepository);
+    }
+
+    @Test
+    @DisplayName("Should build a user's first statistics from their history, the new event included")
+    void recordReadEvent_NoStats_BuiltFromHistory() {
+        UserReadingStats created = new UserReadingStats(1L);
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.empty(), Optional.of(created));
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        when(bookReadEventRepository.findEventViewsByUserId(1L)).thenReturn(List.of(
+                new EventRow(ReadingEventType.STARTED_READING, noon(day.minusDays(10))),
+                new EventRow(ReadingEventType.FINISHED_READING, noon(day))));
+        when(readingSessionRepository.findSessionViewsByUserIdAndStatus(1L, ReadingSessionStatus.FINISHED))
+                .thenReturn(List.of(new SessionRow(noon(day.minusDays(1)), 0, 40, 1200L)));
+
+        readingStatsService.recordReadEvent(1L, ReadingEventType.FINISHED_READING, noon(day));
+
+        verify(statsRepository).saveAndFlush(any(UserReadingStats.class));
+        assertEquals(1, created.getBooksStarted());
+        assertEquals(1, created.getBooksFinished());
+        assertEquals(40, created.getPagesRead());
+        assertNotNull(created.getUpdatedAt());
+        verify(dayRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should lock the row a concurrent update inserted first instead of failing")
+    void recordReadEvent_ConcurrentInsert_LocksExistingRow() {
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.empty(), Optional.of(stats));
+        when(statsRepository.saveAndFlush(any(UserReadingStats.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        readingStatsService.recordReadEvent(1L, ReadingEventType.STARTED_READING, Instant.now());
+
+        assertEquals(1, stats.getBooksStarted());
+        verifyNoInteractions(bookReadEventRepository);
+    }
+
+    @Test
+    @DisplayName("Should derive paces and drop a streak that was not kept up")
+    void getStats_DerivesPaces() {
+        stats.setPagesRead(120);
+        stats.setActiveSeconds(7200);
+        stats.setReadingDays(4);
+        stats.setCurrentStreak(3);
+        stats.setLongestStreak(5);
+        stats.setLastReadingDay(LocalDate.now(ZoneOffset.UTC).minusDays(2));
+        when(statsRepository.findById(1L)).thenReturn(Optional.of(stats));
+
+        ReadingStatsResponse response = readingStatsService.getStats(1L);
+
+        assertEquals(30.0, response.pagesPerReadingDay());
+        assertEquals(60.0, response.pagesPerHour());
+        assertEquals(0, response.currentStreak());
+        assertEquals(5, response.longestStreak());
+    }
+
+    @Test
+    @DisplayName("Should return zeros for a user who has not read yet")
+    void getStats_NoStats() {
+        when(statsRepository.findById(1L)).thenReturn(Optional.empty());
+
+        ReadingStatsResponse response = readingStatsService.getStats(1L);
+
+        assertEquals(0, response.pagesRead());
+        assertNull(response.pagesPerHour());
+    }
+
+    @Test
+    @DisplayName("Should sum days into weeks starting on Monday, including empty weeks")
+    void getHistory_Weekly() {
+        LocalDate from = LocalDate.of(2025, 3, 5);
+        LocalDate to = LocalDate.of(2025, 3, 20);
+        UserReadingDay wednesday = new UserReadingDay(new UserReadingDayId(1L, LocalDate.of(2025, 3, 5)));
+        wednesday.setPagesRead(10);
+        UserReadingDay sunday = new UserReadingDay(new UserReadingDayId(1L, LocalDate.of(2025, 3, 9)));
+        sunday.setPagesRead(15);
+        sunday.setSessions(2);
+        when(dayRepository.findById_UserIdAndId_DayBetweenOrderById_DayAsc(1L, from, to))
+                .thenReturn(List.of(wednesday, sunday));
+
+        List<ReadingStatsBucket> history = readingStatsService.getHistory(1L, from, to, ReadingStatsService.Granularity.WEEK);
+
+        assertEquals(3, history.size());
+        assertEquals(LocalDate.of(2025, 3, 3), history.get(0).start());
+        assertEquals(25, history.get(0).pagesRead());
+        assertEquals(2, history.get(0).sessions());
+        assertEquals(0, history.get(1).pagesRead());
+        assertEquals(LocalDate.of(2025, 3, 17), history.get(2).start());
+    }
+
+    @Test
+    @DisplayName("Should reject an inverted range")
+    void getHistory_InvertedRange() {
+        assertThrows(IllegalArgumentException.class, () -> readingStatsService.getHistory(
+                1L, LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1), null));
+    }
+
+    private record EventRow(ReadingEventType readingEvent, Instant occurredAt) implements ReadEventView {
+        public ReadingEventType getReadingEvent() { return readingEvent; }
+        public Instant getOccurredAt() { return occurredAt; }
+    }
+
+    private record SessionRow(Instant endedAt, Integer startPage, Integer endPage, Long totalActiveSeconds)
+            implements FinishedSessionView {
+        public Instant getEndedAt() { return endedAt; }
+        public Integer getStartPage() { return startPage; }
+        public Integer getEndPage() { return endPage; }
+        public Long getTotalActiveSeconds() { return totalActiveSeconds; }
+    }
+
+    private static Instant noon(LocalDate day) {
+        return day.atTime(12, 0).toInstant(ZoneOffset.UTC);
+    }
+
+    @Test
+    @DisplayName("Should rebuild statistics from existing events and sessions")
+    void rebuild_ReplaysHistory() {
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        when(bookReadEventRepository.findEventViewsByUserId(1L)).thenReturn(List.of(
+                new EventRow(ReadingEventType.STARTED_READING, day.atStartOfDay().toInstant(ZoneOffset.UTC))));
+        when(readingSessionRepository.findSessionViewsByUserIdAndStatus(1L, ReadingSessionStatus.FINISHED))
+                .thenReturn(List.of(new SessionRow(noon(day), 0, 20, 600L),
+                        new SessionRow(noon(day.plusDays(1)), 20, 30, 300L)));
+
+        readingStatsService.rebuild(new UserReadingStats(1L));
+
+        ArgumentCaptor<UserReadingStats> saved = ArgumentCaptor.forClass(UserReadingStats.class);
+        verify(statsRepository).save(saved.capture());
+        assertEquals(30, saved.getValue().getPagesRead());
+        assertEquals(900, saved.getValue().getActiveSeconds());
+        assertEquals(1, saved.getValue().getBooksStarted());
+        assertEquals(2, saved.getValue().getCurrentStreak());
+        // No day row for the start
+        verify(dayRepository).saveAll(argThat(rows -> rows.spliterator().getExactSizeIfKnown() == 2));
+    }
+
+    @Test
+    @DisplayName("Should backfill each user in a transaction of its own")
+    void backfill_OneTransactionPerUser() {
+        when(statsRepository.findUserIdsWithoutStats()).thenReturn(List.of(1L, 2L));
+        when(statsRepository.findForUpdate(anyLong()))
+                .thenAnswer(invocation -> Optional.of(new UserReadingStats(invocation.<Long>getArgument(0))));
+
+        readingStatsService.backfill();
+
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(bookReadEventRepository).findEventViewsByUserId(1L);
+        verify(bookReadEventRepository).findEventViewsByUserId(2L);
+        verify(statsRepository, times(2)).save(any(UserReadingStats.class));
+    }
+
+    @Test
+    @DisplayName("Should skip users whose statistics appeared meanwhile and go on after a failure")
+    void backfill_SkipsExistingAndFailedUsers() {
+        when(statsRepository.findUserIdsWithoutStats()).thenReturn(List.of(1L, 2L, 3L));
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.of(stats));
+        when(statsRepository.findForUpdate(2L)).thenReturn(Optional.of(new UserReadingStats(2L)));
+        when(statsRepository.findForUpdate(3L)).thenReturn(Optional.of(new UserReadingStats(3L)));
+        when(bookReadEventRepository.findEventViewsByUserId(2L)).thenThrow(new IllegalStateException("boom"));
+
+        readingStatsService.backfill();
+
+        verify(bookReadEventRepository, never()).findEventViewsByUserId(1L);
+        verify(bookReadEventRepository).findEventViewsByUserId(3L);
+        verify(statsRepository, times(1)).save(any(UserReadingStats.class));
+    }
+
+    @Test
+    @DisplayName("Should stop the backfill on shutdown")
+    void backfill_Stopped() {
+        when(statsRepository.findUserIdsWithoutStats()).thenReturn(List.of(1L, 2L));
+
+        readingStatsService.stopBackfill();
+        readingStatsService.backfill();
+
+        verifyNoInteractions(bookReadEventRepository);
+    }
+}
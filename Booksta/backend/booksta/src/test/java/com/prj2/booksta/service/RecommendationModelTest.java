@@ -0,0 +1,167 @@
+package com.prj2.booksta.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationModelTest {
+
+    private RecommendationModel model;
+
+    @BeforeEach
+    void setUp() {
+        // A and B by author 1, C by author 2, D and E by author 3, F by author 4
+        RecommendationModel.Builder builder = new RecommendationModel.Builder(10, 3)
+                .author("A", 1L).author("B", 1L).author("C", 2L)
+                .author("D", 3L).author("E", 3L).author("F", 4L)
+                .subject("A", 10L).subject("C", 10L)
+                .subject("D", 20L).subject("E", 20L).subject("F", 20L)
+                .followedAuthor(5L, 3L);
+        builder.signal(1L, "A", 3).signal(1L, "B", 2)
+                .signal(2L, "A", 3).signal(2L, "B", 2).signal(2L, "C", 1)
+                .signal(3L, "A", 2).signal(3L, "C", 2)
+                .signal(4L, "D", 3);
+        model = builder.build();
+    }
+
+    private List<String> recommendations(Long userId) {
+        return model.isbns(model.cached(userId), 10);
+    }
+
+    @Nested
+    @DisplayName("Collaborative recommendations")
+    class Collaborative {
+
+        @Test
+        @DisplayName("Should rank the books most read together first, then pad with popular books")
+        void recommend_MostSimilarFirst() {
+            int[] recommended = model.recommend(model.profile(Map.of("A", 3f)), List.of(), List.of());
+
+            assertEquals(List.of("B", "C", "D"), model.isbns(recommended, 10));
+        }
+
+        @Test
+        @DisplayName("Should precompute the list of every user with signals")
+        void build_PrecomputesUsers() {
+            assertNotNull(model.cached(1L));
+            assertNotNull(model.cached(4L));
+            assertNull(model.cached(99L));
+        }
+
+        @Test
+        @DisplayName("Should never recommend the user's own books")
+        void recommend_ExcludesOwnBooks() {
+            assertEquals(List.of("D"), recommendations(2L));
+        }
+
+        @Test
+        @DisplayName("Should cut the list at the requested limit")
+        void isbns_Limit() {
+            assertEquals(List.of("C"), model.isbns(model.cached(1L), 1));
+        }
+
+        @Test
+        @DisplayName("Should skip books the model does not know")
+        void profile_SkipsUnknownBooks() {
+            RecommendationModel.Profile profile = model.profile(Map.of("A", 3f, "NEW", 1f));
+
+            assertEquals(1, profile.slots().length);
+            assertEquals(3f, profile.weights()[0]);
+        }
+
+        @Test
+        @DisplayName("Should reject signals that are not grouped by user")
+        void build_UngroupedSignals() {
+            RecommendationModel.Builder builder = new RecommendationModel.Builder(10, 3)
+                    .signal(1L, "A", 1).signal(2L, "B", 1).signal(1L, "C", 1);
+
+            assertThrows(IllegalStateException.class, builder::build);
+        }
+
+        @Test
+        @DisplayName("Should not cache a list computed while the user was evicted")
+        void cache_EvictedMeanwhile() {
+            long generation = model.generation();
+            int[] recommended = model.recommend(RecommendationModel.Profile.EMPTY, List.of(), List.of());
+            model.evict(99L);
+
+            model.cache(99L, recommended, generation);
+            assertNull(model.cached(99L));
+
+            model.cache(99L, recommended, model.generation());
+            assertNotNull(model.cached(99L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Cold start")
+    class ColdStart {
+
+        @Test
+        @DisplayName("Should recommend the followed authors' books, the most popular first")
+        void recommend_FollowedAuthor() {
+            assertEquals(List.of("D", "E", "A"), recommendations(5L));
+        }
+
+        @Test
+        @DisplayName("Should fall back to books sharing authors and subjects")
+        void recommend_SameAuthorAndSubject() {
+            int[] recommended = model.recommend(model.profile(Map.of("F", 1f)), List.of(), List.of());
+
+            // D and E share F's subject, D being the more popular
+            assertEquals(List.of("D", "E", "A"), model.isbns(recommended, 10));
+        }
+
+        @Test
+        @DisplayName("Should not carry scores or exclusions over to the next list")
+        void recommend_Repeated_Independent() {
+            int[] first = model.recommend(model.profile(Map.of("A", 3f, "F", 1f)), List.of(3L), List.of());
+            int[] popular = model.recommend(RecommendationModel.Profile.EMPTY, List.of(), List.of());
+            int[] again = model.recommend(model.profile(Map.of("A", 3f, "F", 1f)), List.of(3L), List.of());
+
+            assertEquals(List.of("A", "B", "C"), model.isbns(popular, 10));
+            assertArrayEquals(first, again);
+        }
+
+        @Test
+        @DisplayName("Should recommend the most popular books to a user without any signal")
+        void recommend_Popular() {
+            int[] recommended = model.recommend(RecommendationModel.Profile.EMPTY, List.of(), List.of());
+
+            assertEquals(List.of("A", "B", "C"), model.isbns(recommended, 10));
+        }
+    }
+
+    @Nested
+    @DisplayName("Primitive helpers")
+    class Helpers {
+
+        @Test
+        @DisplayName("Should return the highest positive scores, the lowest slot first on ties")
+        void topSlots() {
+            assertArrayEquals(new int[]{3, 1, 2}, RecommendationModel.topSlots(new float[]{0f, 2f, 2f, 5f, -1f}, 5));
+        }
+
+        @Test
+        @DisplayName("Should keep every weight of a sparse row as it grows")
+        void sparseRow_Grows() {
+            RecommendationModel.SparseRow row = new RecommendationModel.SparseRow();
+            for (int key = 0; key < 1000; key++) {
+                row.add(key * 7, key);
+                row.add(key * 7, 1);
+            }
+
+            assertEquals(1000, row.size());
+            for (int key = 0; key < 1000; key++) {
+                assertEquals(key + 1f, row.get(key * 7));
+            }
+            assertEquals(0f, row.get(3));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.prj2.booksta.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteVariantCacheTest {
+
+    private Instant now = Instant.parse("2025-03-01T10:00:00Z");
+
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    };
+
+    @Test
+    @DisplayName("Should remember found keys and forget missing ones after the TTL")
+    void lookup_MissExpires() {
+        RemoteVariantCache cache = new RemoteVariantCache(10, 60_000L, clock);
+        cache.found("books/1_w160.jpg");
+        cache.missing("books/2_w160.jpg");
+
+        assertNull(cache.lookup("books/3_w160.jpg"));
+        assertEquals(Boolean.FALSE, cache.lookup("books/2_w160.jpg"));
+
+        now = now.plusSeconds(61);
+
+        assertNull(cache.lookup("books/2_w160.jpg"));
+        assertEquals(Boolean.TRUE, cache.lookup("books/1_w160.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should replace a cached miss once the variant is uploaded")
+    void found_OverridesMiss() {
+        RemoteVariantCache cache = new RemoteVariantCache(10, 60_000L, clock);
+        cache.missing("books/1_w160.jpg");
+
+        cache.found("books/1_w160.jpg");
+
+        assertEquals(Boolean.TRUE, cache.lookup("books/1_w160.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used keys beyond the limit")
+    void found_Bounded() {
+        RemoteVariantCache cache = new RemoteVariantCache(2, 60_000L, clock);
+        cache.found("a");
+        cache.found("b");
+        cache.lookup("a");
+        cache.found("c");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.lookup("b"));
+        assertEquals(Boolean.TRUE, cache.lookup("a"));
+    }
+}
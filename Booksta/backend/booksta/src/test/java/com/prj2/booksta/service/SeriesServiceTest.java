@@ -1,16 +1,20 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.CatalogCache;
 import com.prj2.booksta.model.Author;
 import com.prj2.booksta.model.Book;
 import com.prj2.booksta.model.Series;
 import com.prj2.booksta.model.User;
 import com.prj2.booksta.model.dto.BookSummary;
+import com.prj2.booksta.model.dto.SeriesPage;
 import com.prj2.booksta.model.dto.SeriesRequest;
 import com.prj2.booksta.model.dto.SeriesResponse;
 import com.prj2.booksta.repository.AuthorRepository;
 import com.prj2.booksta.repository.BookRepository;
 import com.prj2.booksta.repository.SeriesRepository;
 import com.prj2.booksta.repository.UserRepository;
+import com.prj2.booksta.repository.projections.SeriesSummaryView;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -20,6 +24,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -32,6 +41,8 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,6 +60,12 @@ class SeriesServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private AuthorizationDecisionCache decisionCache;
+
+    @Mock
+    private CatalogCache catalogCache;
+
     @InjectMocks
     private SeriesService seriesService;
 
@@ -86,6 +103,20 @@ class SeriesServiceTest {
         testBook.setPublishingYear(2023);
     }
 
+    private static SeriesSummaryView summary(Long id, String title, Long authorId, long books, long followers) {
+        return new SeriesSummaryView() {
+            public Long getId() { return id; }
+            public String getTitle() { return title; }
+            public String getDescription() { return null; }
+            public Long getAuthorId() { return authorId; }
+            public String getAuthorFirstName() { return authorId != null ? "John" : null; }
+            public String getAuthorLastName() { return authorId != null ? "Doe" : null; }
+            public String getAuthorImageUrl() { return null; }
+            public long getBookCount() { return books; }
+            public long getFollowerCount() { return followers; }
+        };
+    }
+
     private void mockSecurityContext(String email, String... roles) {
         UserDetails userDetails = mock(UserDetails.class);
         lenient().when(userDetails.getUsername()).thenReturn(email);
@@ -111,25 +142,24 @@ class SeriesServiceTest {
         @Test
         @DisplayName("Should return all series")
         void getAllSeries_SeriesExist_ReturnsAllSeries() {
-            Series series2 = new Series();
-            series2.setId(2L);
-            series2.setTitle("Another Series");
-            series2.setAuthor(testAuthor);
-            series2.setBooks(new LinkedHashSet<>());
-            series2.setFollowers(new HashSet<>());
-
-            when(seriesRepository.findAll()).thenReturn(Arrays.asList(testSeries, series2));
+            when(seriesRepository.findSummaries(isNull(), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(
+                    summary(1L, "Test Series", 1L, 3, 7),
+                    summary(2L, "Another Series", null, 0, 0))));
 
             List<SeriesResponse> result = seriesService.getAllSeries();
 
             assertEquals(2, result.size());
-            verify(seriesRepository).findAll();
+            assertEquals(3, result.get(0).getBookCount());
+            assertEquals(7, result.get(0).getFollowerCount());
+            assertEquals("Doe", result.get(0).getAuthor().getLastName());
+            assertNull(result.get(1).getAuthor());
+            verify(seriesRepository, never()).findAll();
         }
 
         @Test
         @DisplayName("Should return empty list when no series exist")
         void getAllSeries_NoSeriesExist_ReturnsEmptyList() {
-            when(seriesRepository.findAll()).thenReturn(Collections.emptyList());
+            when(seriesRepository.findSummaries(isNull(), any(Pageable.class))).thenReturn(Page.empty());
 
             List<SeriesResponse> result = seriesService.getAllSeries();
 
@@ -144,7 +174,8 @@ class SeriesServiceTest {
         @Test
         @DisplayName("Should return series for author")
         void getSeriesByAuthorId_SeriesExist_ReturnsSeries() {
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(List.of(testSeries));
+            when(seriesRepository.findSummaries(eq(1L), any(Pageable.class)))
+                    .thenReturn(new PageImpl<>(List.of(summary(1L, "Test Series", 1L, 0, 0))));
 
             List<SeriesResponse> result = seriesService.getSeriesByAuthorId(1L);
 
@@ -155,7 +186,7 @@ class SeriesServiceTest {
         @Test
         @DisplayName("Should return empty list when author has no series")
         void getSeriesByAuthorId_NoSeries_ReturnsEmptyList() {
-            when(seriesRepository.findByAuthorId(1L)).thenReturn(Collections.emptyList());
+            when(seriesRepository.findSummaries(eq(1L), any(Pageable.class))).thenReturn(Page.empty());
 
             List<SeriesResponse> result = seriesService.getSeriesByAuthorId(1L);
 
@@ -163,6 +194,35 @@ class SeriesServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getSeriesPage tests")
+    class GetSeriesPageTests {
+
+        @Test
+        @DisplayName("Should clamp the page size and sort by the requested count")
+        void getSeriesPage_ClampsAndSorts() {
+            PageRequest expected = PageRequest.of(0, SeriesService.MAX_PAGE_SIZE,
+                    Sort.by(Sort.Direction.DESC, "followerCount").and(Sort.by("id")));
+            when(seriesRepository.findSummaries(null, expected)).thenReturn(
+                    new PageImpl<>(List.of(summary(1L, "Test Series", 1L, 2, 9)), expected, 101));
+
+            SeriesPage page = seriesService.getSeriesPage(null, -1, 1000, SeriesService.SeriesSort.FOLLOWERS);
+
+            assertEquals(SeriesService.MAX_PAGE_SIZE, page.size());
+            assertEquals(101, page.totalElements());
+            assertTrue(page.hasNext());
+            assertEquals(9, page.series().get(0).getFollowerCount());
+        }
+
+        @Test
+        @DisplayName("Should reject an unknown sort")
+        void parseSort_Unknown() {
+            assertEquals(SeriesService.SeriesSort.TITLE, SeriesService.SeriesSort.parse(null));
+            assertEquals(SeriesService.SeriesSort.BOOKS, SeriesService.SeriesSort.parse("books"));
+            assertThrows(IllegalArgumentException.class, () -> SeriesService.SeriesSort.parse("rating"));
+        }
+    }
+
     @Nested
     @DisplayName("getSeriesById tests")
     class GetSeriesByIdTests {
@@ -1,8 +1,12 @@
 package com.prj2.booksta.service;
 
+import com.prj2.booksta.config.AuthorizationDecisionCache;
+import com.prj2.booksta.config.JwtPrincipalCache;
 import com.prj2.booksta.model.Book;
+import com.prj2.booksta.model.Role;
 import com.prj2.booksta.model.User;
 import com.prj2.booksta.repository.BookRepository;
+import com.prj2.booksta.repository.UserBookInventoryRepository;
 import com.prj2.booksta.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -25,6 +30,21 @@ public class UserServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private AuthorizationDecisionCache decisionCache;
+
+    @Mock
+    private RecommendationService recommendationService;
+
+    @Mock
+    private UserBookInventoryRepository userBookInventoryRepository;
+
+    @Mock
+    private MarketplaceStockSnapshot marketplaceStockSnapshot;
+
+    @Mock
+    private JwtPrincipalCache jwtPrincipalCache;
+
     @InjectMocks
     private UserService userService;
 
@@ -59,6 +79,7 @@ public class UserServiceTest {
 
         assertTrue(user.getFavoriteList().contains(book), "Book should have been added to favorites");
         verify(userRepository, times(1)).save(user);
+        verify(recommendationService).invalidateAfterCommit(USER_ID);
     }
 
     // addFavorite - user not found
@@ -73,6 +94,7 @@ public class UserServiceTest {
                 || ex.getMessage().toLowerCase().contains("user not found"));
 
         verify(userRepository, never()).save(any());
+        verifyNoInteractions(recommendationService);
     }
 
     // addFavorite - book not found
@@ -196,4 +218,22 @@ public class UserServiceTest {
         Optional<User> opt = userService.getUserById(USER_ID);
         assertFalse(opt.isPresent());
     }
+
+    // removeRoleFromUser - SELLER drops the listings from the marketplace
+    @Test
+    void removeRoleFromUser_seller_refreshesMarketplaceForListedBooks() {
+        Role seller = new Role();
+        seller.setName("SELLER");
+        user.setRoles(new HashSet<>(Set.of(seller)));
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(userBookInventoryRepository.findBookIsbnsByUserId(USER_ID)).thenReturn(List.of("100", "200"));
+
+        userService.removeRoleFromUser(USER_ID, "SELLER");
+
+        assertTrue(user.getRoles().isEmpty());
+        verify(userBookInventoryRepository).deleteByUserId(USER_ID);
+        verify(marketplaceStockSnapshot).refreshAfterCommit("100");
+        verify(marketplaceStockSnapshot).refreshAfterCommit("200");
+        verify(jwtPrincipalCache).invalidateSubject(user.getEmail());
+    }
 }